@@ -0,0 +1,146 @@
+package main;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.concurrent.CancellationException;
+
+/**
+ * ActiveGraph class is a compact snapshot of every link active at one date. Users are
+ * numbered 0 to size() - 1 and each user's active neighbors are kept as a sorted int
+ * array, so engines that sweep the whole network can work on primitives instead of
+ * walking Link objects and their event lists again.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+class ActiveGraph {
+
+	private User[]						users;		//Users by index
+	private HashMap<String, Integer>	indices;	//Ids to their index in users
+	private int[][]						neighbors;	//Sorted indices of active neighbors for each user
+	private int							edgeCount;	//Number of active links
+
+	/**
+	 * Class constructor
+	 * Snapshots the links of the network that are active at the given date
+	 * @param network - network to snapshot
+	 * @param date - date to check activity against
+	 * @throws UninitializedObjectException
+	 * @throws NullPointerException
+	 * @throws CancellationException
+	 */
+	ActiveGraph(SocialNetwork network, Date date) throws UninitializedObjectException {
+		int[] edgeEnds = new int[16];	//Pairs of endpoints of active links
+		int[] degrees;
+		int otherIdx;
+
+		if (network == null || date == null)
+			throw new NullPointerException("Input parameter is null");
+
+		this.users = network.getUsers().toArray(new User[0]);
+		this.indices = new HashMap<String, Integer>(this.users.length * 2);
+		for (int i = 0; i < this.users.length; i++)
+			this.indices.put(this.users[i].getID(), i);
+
+		//Check each link once, from the endpoint with the lower index
+		this.edgeCount = 0;
+		for (int i = 0; i < this.users.length; i++) {
+			if (Thread.currentThread().isInterrupted())
+				throw new CancellationException("Snapshot interrupted");
+			for (Link link: network.getLinksOf(this.users[i])) {
+				if (link.isRemoved())
+					continue;
+				otherIdx = this.indices.get(link.getOtherUser(this.users[i]).getID());
+				if (otherIdx > i && link.isActive(date)) {
+					if (2 * this.edgeCount + 2 > edgeEnds.length)
+						edgeEnds = Arrays.copyOf(edgeEnds, edgeEnds.length * 2);
+					edgeEnds[2 * this.edgeCount] = i;
+					edgeEnds[2 * this.edgeCount + 1] = otherIdx;
+					this.edgeCount++;
+				}
+			}
+		}
+
+		//Size every neighbor array exactly, then fill and sort them
+		degrees = new int[this.users.length];
+		for (int i = 0; i < 2 * this.edgeCount; i++)
+			degrees[edgeEnds[i]]++;
+		this.neighbors = new int[this.users.length][];
+		for (int i = 0; i < this.users.length; i++)
+			this.neighbors[i] = new int[degrees[i]];
+		Arrays.fill(degrees, 0);
+		for (int i = 0; i < this.edgeCount; i++) {
+			int first = edgeEnds[2 * i];
+			int second = edgeEnds[2 * i + 1];
+			this.neighbors[first][degrees[first]++] = second;
+			this.neighbors[second][degrees[second]++] = first;
+		}
+		for (int[] list: this.neighbors)
+			Arrays.sort(list);
+	}
+
+	/**
+	 * Getter for the number of users in the snapshot
+	 * @return int - number of users
+	 */
+	int size() {
+		return this.users.length;
+	}
+
+	/**
+	 * Getter for the number of active links in the snapshot
+	 * @return int - number of active links
+	 */
+	int getEdgeCount() {
+		return this.edgeCount;
+	}
+
+	/**
+	 * Grabs the user at the given index
+	 * @param index - index of the user
+	 * @return User - user at that index
+	 */
+	User getUser(int index) {
+		return this.users[index];
+	}
+
+	/**
+	 * Finds the index of the user with the given id
+	 * @param id - id of the user
+	 * @return int - index of the user, -1 if the user isn't in the snapshot
+	 */
+	int indexOf(String id) {
+		Integer index = this.indices.get(id);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Grabs the sorted active neighbors of a user. The array is shared, so callers must not modify it.
+	 * @param index - index of the user
+	 * @return int[] - indices of the user's active neighbors
+	 */
+	int[] getNeighbors(int index) {
+		return this.neighbors[index];
+	}
+
+	/**
+	 * Number of active links of a user
+	 * @param index - index of the user
+	 * @return int - active degree
+	 */
+	int degree(int index) {
+		return this.neighbors[index].length;
+	}
+
+	/**
+	 * Checks if two users share an active link by binary searching the smaller neighbor array
+	 * @param first - index of the first user
+	 * @param second - index of the second user
+	 * @return boolean - true if actively linked
+	 */
+	boolean hasEdge(int first, int second) {
+		if (this.neighbors[first].length > this.neighbors[second].length)
+			return Arrays.binarySearch(this.neighbors[second], first) >= 0;
+		return Arrays.binarySearch(this.neighbors[first], second) >= 0;
+	}
+
+}
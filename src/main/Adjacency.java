@@ -0,0 +1,372 @@
+package main;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Adjacency class holds the links of one user, in a layout that follows the user's degree.
+ * Most users have a handful of links, so they're kept in a plain array sized to fit, and
+ * finding the link to a friend is a short scan. Removed links stay in the array as tombstones
+ * until more than half of it is tombstones, then they're all dropped in one pass, for an
+ * amortized constant cost per removed link.
+ * Once a user reaches HUB_THRESHOLD links, the same array becomes an open addressing table
+ * keyed by the other user, so finding a link stays constant time no matter how many the hub
+ * has, without keeping a second copy of them. Removed links are taken out of the table right
+ * away. The user goes back to a plain array if they fall under half the threshold.
+ * Read access is through the List interface; callers must not modify the list through it.
+ * Hubs keep no order, so they should be iterated rather than read by position.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+class Adjacency extends AbstractList<Link> {
+
+	//Links a user needs before their links are indexed by the other user
+	static final int HUB_THRESHOLD = 32;
+
+	//Lists with fewer links than this are never compacted on their own
+	static final int MIN_COMPACTION_SIZE = 8;
+
+	//Space given to a user's first link
+	private static final int INITIAL_CAPACITY = 2;
+
+	private User		owner;		//User the links belong to
+	private Link[]		links;		//Links in the order they were added, or a table of them for a hub
+	private int			size;		//Slots of links in use, tombstones included, or live links of a hub
+	private int			removed;	//Tombstones among the slots in use, always 0 for a hub
+	private int[]		hashes;		//Hash of each slot's other user for a hub, null otherwise
+
+	/**
+	 * Class constructor
+	 * @param owner - user the links belong to
+	 */
+	Adjacency(User owner) {
+		this.owner = owner;
+		this.links = new Link[INITIAL_CAPACITY];
+		this.size = 0;
+		this.removed = 0;
+		this.hashes = null;
+	}
+
+	/**
+	 * Grabs a link by position, tombstones included. A hub walks its table to the position.
+	 * @param index - position of the link
+	 * @return Link - the link
+	 * @throws IndexOutOfBoundsException
+	 */
+	@Override
+	public Link get(int index) {
+		if (index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+		if (this.hashes == null)
+			return this.links[index];
+
+		for (Link link: this.links) {
+			if (link != null && index-- == 0)
+				return link;
+		}
+		throw new IllegalStateException("Table holds fewer links than its size");
+	}
+
+	/**
+	 * Getter for the number of links, tombstones included
+	 * @return int - number of links
+	 */
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Overridden iterator method that walks a hub's table directly
+	 * @return Iterator<Link> - iterator over the links
+	 */
+	@Override
+	public Iterator<Link> iterator() {
+		if (this.hashes == null)
+			return super.iterator();
+		return new TableIterator();
+	}
+
+	/**
+	 * Adds a new live link, to the end of the list or into a hub's table
+	 * @param link - link to add
+	 * @return boolean - always true
+	 */
+	@Override
+	public boolean add(Link link) {
+		this.modCount++;
+
+		if (this.hashes != null) {
+			if ((this.size + 1) * 3 > this.links.length * 2)
+				this.rehash(this.links.length * 2);
+			insert(this.links, this.hashes, link, spread(link.getOtherUser(this.owner)));
+			this.size++;
+			return true;
+		}
+
+		if (this.size == this.links.length)
+			this.links = Arrays.copyOf(this.links, this.size + (this.size >> 1) + 1);
+		this.links[this.size++] = link;
+		if (this.size - this.removed >= HUB_THRESHOLD)
+			this.rehash(tableCapacity(this.size - this.removed));
+
+		return true;
+	}
+
+	/**
+	 * Finds the live link to another user
+	 * @param other - the other user
+	 * @return Link - the link, null if they have no live link
+	 */
+	Link find(User other) {
+		if (this.hashes != null) {
+			int hash = spread(other);
+			int mask = this.links.length - 1;
+			//Only a matching hash is worth asking the link for its other user
+			for (int i = hash & mask; this.links[i] != null; i = (i + 1) & mask) {
+				if (this.hashes[i] == hash && this.links[i].getOtherUser(this.owner) == other)
+					return this.links[i];
+			}
+			return null;
+		}
+
+		for (int i = 0; i < this.size; i++) {
+			if (!this.links[i].isRemoved() && this.links[i].getOtherUser(this.owner) == other)
+				return this.links[i];
+		}
+		return null;
+	}
+
+	/**
+	 * Counts a link that was just marked removed as a tombstone, compacting the list once
+	 * more than half of it is tombstones. A hub takes the link out of its table instead.
+	 * @param link - the removed link, which must be in this list
+	 */
+	void linkRemoved(Link link) {
+		if (this.hashes != null) {
+			this.delete(link);
+			return;
+		}
+
+		this.removed++;
+		if (this.removed * 2 > this.size && this.size >= MIN_COMPACTION_SIZE)
+			this.compact();
+	}
+
+	/**
+	 * Getter for the number of tombstones still in the list
+	 * @return int - number of tombstones
+	 */
+	int getRemovedCount() {
+		return this.removed;
+	}
+
+	/**
+	 * Getter for whether the links are indexed by the other user
+	 * @return boolean - true if the user is treated as a hub
+	 */
+	boolean isHub() {
+		return this.hashes != null;
+	}
+
+	/**
+	 * Drops every tombstone in one pass and trims the array to fit. Hubs have none.
+	 * @return int - number of tombstones dropped
+	 */
+	int compact() {
+		int returnCount = this.removed;
+		int kept = 0;
+
+		if (returnCount == 0)
+			return 0;
+
+		for (int i = 0; i < this.size; i++) {
+			if (!this.links[i].isRemoved())
+				this.links[kept++] = this.links[i];
+		}
+		this.links = Arrays.copyOf(this.links, Math.max(kept, INITIAL_CAPACITY));
+		this.size = kept;
+		this.removed = 0;
+		this.modCount++;
+
+		return returnCount;
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that puts the live links into a new table, turning the user into a hub
+	 * if they weren't one
+	 * @param capacity - slots in the new table, a power of two
+	 */
+	private void rehash(int capacity) {
+		Link[] table = new Link[capacity];
+		int[] tableHashes = new int[capacity];
+		int count = 0;
+
+		for (Link link: this.links) {
+			if (link != null && !link.isRemoved()) {
+				insert(table, tableHashes, link, spread(link.getOtherUser(this.owner)));
+				count++;
+			}
+		}
+		this.links = table;
+		this.hashes = tableHashes;
+		this.size = count;
+		this.removed = 0;
+	}
+
+	/**
+	 * Private helper that takes a link out of a hub's table, shifting back the links after it
+	 * so no lookup stops early at the gap. A hub that falls under half the threshold goes back
+	 * to a plain array, leaving some room so a user on the edge doesn't flip back and forth.
+	 * @param link - link to take out
+	 */
+	private void delete(Link link) {
+		int mask = this.links.length - 1;
+		int gap = spread(link.getOtherUser(this.owner)) & mask;
+
+		while (this.links[gap] != link) {
+			if (this.links[gap] == null)
+				return;
+			gap = (gap + 1) & mask;
+		}
+		this.links[gap] = null;
+		for (int i = (gap + 1) & mask; this.links[i] != null; i = (i + 1) & mask) {
+			int home = this.hashes[i] & mask;
+			//Move the link into the gap unless its home lies cyclically after the gap, up to it
+			if (((i - home) & mask) >= ((i - gap) & mask)) {
+				this.links[gap] = this.links[i];
+				this.hashes[gap] = this.hashes[i];
+				this.links[i] = null;
+				gap = i;
+			}
+		}
+		this.size--;
+		this.modCount++;
+
+		if (this.size < HUB_THRESHOLD / 2) {
+			Link[] list = new Link[Math.max(this.size, INITIAL_CAPACITY)];
+			int kept = 0;
+			for (Link other: this.links) {
+				if (other != null)
+					list[kept++] = other;
+			}
+			this.links = list;
+			this.hashes = null;
+		}
+	}
+
+	/**
+	 * Private helper that puts a link into the first free slot from its home
+	 * @param table - table to put the link in, with a free slot
+	 * @param tableHashes - hashes of the table's slots
+	 * @param link - link to put in
+	 * @param hash - spread hash of the link's other user
+	 */
+	private static void insert(Link[] table, int[] tableHashes, Link link, int hash) {
+		int mask = table.length - 1;
+		int slot = hash & mask;
+
+		while (table[slot] != null)
+			slot = (slot + 1) & mask;
+		table[slot] = link;
+		tableHashes[slot] = hash;
+	}
+
+	/**
+	 * Private helper that spreads the other user's identity over the bits of a hash. Users
+	 * aren't compared by value, so their identity is what picks out the link.
+	 * @param other - the other user
+	 * @return int - hash whose low bits pick the link's home slot
+	 */
+	private static int spread(User other) {
+		int hash = System.identityHashCode(other) * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Private helper that finds the table size that keeps a number of links at most two thirds full
+	 * @param count - number of links
+	 * @return int - slots, a power of two
+	 */
+	private static int tableCapacity(int count) {
+		int returnCapacity = Integer.highestOneBit(count);
+
+		while (count * 3 > returnCapacity * 2)
+			returnCapacity <<= 1;
+
+		return returnCapacity;
+	}
+
+	/**
+	 * Iterator over the links in a hub's table, failing fast if the table changes underneath
+	 */
+	private class TableIterator implements Iterator<Link> {
+
+		private Link[]	table;		//Table being walked
+		private int		next;		//Slot of the next link, table length once done
+		private int		expected;	//Modification count the walk started at
+
+		/**
+		 * Class constructor
+		 */
+		TableIterator() {
+			this.table = Adjacency.this.links;
+			this.expected = Adjacency.this.modCount;
+			this.next = this.advance(0);
+		}
+
+		/**
+		 * Checks if there are more links
+		 * @return boolean - true if another link is left
+		 */
+		@Override
+		public boolean hasNext() {
+			return this.next < this.table.length;
+		}
+
+		/**
+		 * Grabs the next link
+		 * @return Link - the next link
+		 * @throws NoSuchElementException
+		 * @throws ConcurrentModificationException
+		 */
+		@Override
+		public Link next() {
+			Link returnLink;
+
+			if (Adjacency.this.modCount != this.expected)
+				throw new ConcurrentModificationException();
+			if (this.next >= this.table.length)
+				throw new NoSuchElementException();
+
+			returnLink = this.table[this.next];
+			this.next = this.advance(this.next + 1);
+			return returnLink;
+		}
+
+		/**
+		 * Links can't be removed through the list
+		 * @throws UnsupportedOperationException
+		 */
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Private helper that finds the next used slot
+		 * @param slot - slot to start looking from
+		 * @return int - next used slot, table length if none
+		 */
+		private int advance(int slot) {
+			while (slot < this.table.length && this.table[slot] == null)
+				slot++;
+			return slot;
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * AsyncResult class is the Future handed back by an AsyncSocialNetwork. On top of blocking
+ * on get(), callers can add listeners that are called as soon as the call finishes, so a
+ * request handler can answer without keeping a thread waiting on the result.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class AsyncResult<T> extends FutureTask<T> {
+
+	private List<CompletionListener<T>>	listeners;	//Listeners waiting for the call, null once it's done
+
+	/**
+	 * Class constructor
+	 * @param call - call to run
+	 */
+	AsyncResult(Callable<T> call) {
+		super(call);
+		this.listeners = new ArrayList<CompletionListener<T>>();
+	}
+
+	/**
+	 * Adds a listener to call once the call finishes. If it has already finished, the listener
+	 * is called right away on this thread. Each listener is called exactly once.
+	 * @param listener - listener to call
+	 * @return AsyncResult<T> - this result, so adding can be chained onto the call
+	 * @throws NullPointerException
+	 */
+	public AsyncResult<T> addListener(CompletionListener<T> listener) {
+		if (listener == null)
+			throw new NullPointerException("Input parameter is null");
+
+		synchronized (this) {
+			if (this.listeners != null) {
+				this.listeners.add(listener);
+				return this;
+			}
+		}
+		this.callListener(listener);
+		return this;
+	}
+
+	/**
+	 * Overridden done method that calls every listener added so far
+	 */
+	@Override
+	protected void done() {
+		List<CompletionListener<T>> waiting;
+
+		synchronized (this) {
+			waiting = this.listeners;
+			this.listeners = null;
+		}
+		for (CompletionListener<T> listener: waiting)
+			this.callListener(listener);
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that calls a listener. A listener that throws doesn't keep the others
+	 * from being called; its exception goes to the thread's uncaught exception handler.
+	 * @param listener - listener to call
+	 */
+	private void callListener(CompletionListener<T> listener) {
+		try {
+			listener.completed(this);
+		} catch (RuntimeException e) {
+			Thread thread = Thread.currentThread();
+			thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+		}
+	}
+
+}
@@ -0,0 +1,552 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * AsyncSocialNetwork class runs the calls of a SocialNetwork on a bounded pool of threads
+ * and hands back an AsyncResult for each, so request handlers never block on a long search.
+ * A CompletionListener added to the result is called as soon as the call finishes.
+ * Queries share a read lock and run side by side, while changes take the write lock.
+ * Cancelling a Future with mayInterruptIfRunning set stops a search that has already
+ * started, since the network checks for interrupts as it walks links.
+ * Any status object passed in is filled in by the time the Future completes.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class AsyncSocialNetwork {
+
+	private SocialNetwork	network;	//Network the calls run against
+	private ExecutorService	executor;	//Threads the calls run on
+	private Lock			readLock;	//Held by queries
+	private Lock			writeLock;	//Held by changes
+
+	/**
+	 * Class constructor
+	 * Runs calls on a fixed number of daemon threads. Calls past that number wait in a queue
+	 * instead of taking more threads.
+	 * @param network - network to run calls against
+	 * @param threads - number of threads
+	 * @throws NullPointerException
+	 */
+	public AsyncSocialNetwork(SocialNetwork network, int threads) {
+		this(network, Executors.newFixedThreadPool(threads, new DaemonThreadFactory()));
+	}
+
+	/**
+	 * Class constructor
+	 * Runs calls on the given executor
+	 * @param network - network to run calls against
+	 * @param executor - executor to run calls on
+	 * @throws NullPointerException
+	 */
+	public AsyncSocialNetwork(SocialNetwork network, ExecutorService executor) {
+		ReadWriteLock lock = new ReentrantReadWriteLock();
+
+		if (network == null || executor == null)
+			throw new NullPointerException("Input parameter is null");
+
+		this.network = network;
+		this.executor = executor;
+		this.readLock = lock.readLock();
+		this.writeLock = lock.writeLock();
+	}
+
+	/**
+	 * Adds a user to the network
+	 * @param user - User to add
+	 * @return AsyncResult<Boolean> - true if added, false otherwise
+	 */
+	public AsyncResult<Boolean> addUser(final User user) {
+		return this.submit(this.writeLock, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return network.addUser(user);
+			}
+		});
+	}
+
+	/**
+	 * Checks if a user is a member
+	 * @param id - target user id
+	 * @return AsyncResult<Boolean> - true if found, false if not
+	 */
+	public AsyncResult<Boolean> isMember(final String id) {
+		return this.submit(this.readLock, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return network.isMember(id);
+			}
+		});
+	}
+
+	/**
+	 * Retrieves a user from the network
+	 * @param id - Search target id
+	 * @return AsyncResult<User> - user that has a matching id, null if none
+	 */
+	public AsyncResult<User> getUser(final String id) {
+		return this.submit(this.readLock, new Callable<User>() {
+			@Override
+			public User call() {
+				return network.getUser(id);
+			}
+		});
+	}
+
+	/**
+	 * Establishes a link between two users
+	 * @param ids - Ids of the two users, copied before the call is queued
+	 * @param date - Date to establish on
+	 * @param status - return status of event
+	 * @return AsyncResult<Boolean> - true if established, false if otherwise
+	 */
+	public AsyncResult<Boolean> establishLink(Set<String> ids, final Date date, final SocialNetworkStatus status) {
+		final Set<String> idCopy = new HashSet<String>(ids);
+		return this.submit(this.writeLock, new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws UninitializedObjectException {
+				return network.establishLink(idCopy, date, status);
+			}
+		});
+	}
+
+	/**
+	 * Tears down a link between two users
+	 * @param ids - ids of users to tear, copied before the call is queued
+	 * @param date - date of teardown
+	 * @param status - return status of event
+	 * @return AsyncResult<Boolean> - true if torn down, false if otherwise
+	 */
+	public AsyncResult<Boolean> tearDownLink(Set<String> ids, final Date date, final SocialNetworkStatus status) {
+		final Set<String> idCopy = new HashSet<String>(ids);
+		return this.submit(this.writeLock, new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws UninitializedObjectException {
+				return network.tearDownLink(idCopy, date, status);
+			}
+		});
+	}
+
+	/**
+	 * Adds an establish and a tear down to the past history of the link between two users
+	 * @param ids - ids of the two users, copied before the call is queued
+	 * @param establishDate - date the link was established
+	 * @param tearDownDate - date the link was torn down, after establishDate
+	 * @param status - return status of event
+	 * @return AsyncResult<Boolean> - true if added, false if otherwise
+	 */
+	public AsyncResult<Boolean> backfillLink(Set<String> ids, final Date establishDate, final Date tearDownDate, final SocialNetworkStatus status) {
+		final Set<String> idCopy = new HashSet<String>(ids);
+		return this.submit(this.writeLock, new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws UninitializedObjectException {
+				return network.backfillLink(idCopy, establishDate, tearDownDate, status);
+			}
+		});
+	}
+
+	/**
+	 * Removes a user and all their links
+	 * @param id - id of the user to remove
+	 * @param status - return status of event
+	 * @return AsyncResult<Boolean> - true if removed, false if otherwise
+	 */
+	public AsyncResult<Boolean> removeUser(final String id, final SocialNetworkStatus status) {
+		return this.submit(this.writeLock, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return network.removeUser(id, status);
+			}
+		});
+	}
+
+	/**
+	 * Removes a link and its whole history
+	 * @param ids - ids of the two users, copied before the call is queued
+	 * @param status - return status of event
+	 * @return AsyncResult<Boolean> - true if removed, false if otherwise
+	 */
+	public AsyncResult<Boolean> purgeLink(Set<String> ids, final SocialNetworkStatus status) {
+		final Set<String> idCopy = new HashSet<String>(ids);
+		return this.submit(this.writeLock, new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws UninitializedObjectException {
+				return network.purgeLink(idCopy, status);
+			}
+		});
+	}
+
+	/**
+	 * Drops every tombstone left by removals
+	 * @return AsyncResult<Integer> - number of tombstones dropped
+	 */
+	public AsyncResult<Integer> compact() {
+		return this.submit(this.writeLock, new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return network.compact();
+			}
+		});
+	}
+
+	/**
+	 * Checks if the link between two users is active
+	 * @param ids - ids of users, copied before the call is queued
+	 * @param date - date to check activity
+	 * @return AsyncResult<Boolean> - true if active, false if inactive or no link
+	 */
+	public AsyncResult<Boolean> isActive(Set<String> ids, final Date date) {
+		final Set<String> idCopy = new HashSet<String>(ids);
+		return this.submit(this.readLock, new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws UninitializedObjectException {
+				return network.isActive(idCopy, date);
+			}
+		});
+	}
+
+	/**
+	 * Checks many links against many dates at once
+	 * @param idPairs - ids of the two users of each link, copied before the call is queued
+	 * @param dates - dates to check activity against, copied before the call is queued
+	 * @return AsyncResult<BitSet> - bit (pair * dates.size() + date) set if that pair's link is active at that date
+	 */
+	public AsyncResult<BitSet> isActive(List<Set<String>> idPairs, List<Date> dates) {
+		final List<Set<String>> pairCopy = new ArrayList<Set<String>>();
+		final List<Date> dateCopy = new ArrayList<Date>(dates);
+		for (Set<String> ids: idPairs)
+			pairCopy.add(new HashSet<String>(ids));
+		return this.submit(this.readLock, new Callable<BitSet>() {
+			@Override
+			public BitSet call() throws UninitializedObjectException {
+				return network.isActive(pairCopy, dateCopy);
+			}
+		});
+	}
+
+	/**
+	 * Finds all connections of a user with no limit to distance
+	 * @param id - id of the user to find all connections of
+	 * @param date - date to check activity against
+	 * @param status - return status of event
+	 * @return AsyncResult<Set<Friend>> - Set of all users and their distances
+	 */
+	public AsyncResult<Set<Friend>> neighborhood(final String id, final Date date, final SocialNetworkStatus status) {
+		return this.submit(this.readLock, new Callable<Set<Friend>>() {
+			@Override
+			public Set<Friend> call() throws UninitializedObjectException {
+				return network.neighborhood(id, date, status);
+			}
+		});
+	}
+
+	/**
+	 * Finds all connections of a user up to a max distance
+	 * @param id - id of the user in question
+	 * @param date - date to cross activity against
+	 * @param distance_max - max distance of connections
+	 * @param status - return status of event
+	 * @return AsyncResult<Set<Friend>> - Set of all users and their distances
+	 */
+	public AsyncResult<Set<Friend>> neighborhood(final String id, final Date date, final int distance_max, final SocialNetworkStatus status) {
+		return this.submit(this.readLock, new Callable<Set<Friend>>() {
+			@Override
+			public Set<Friend> call() throws UninitializedObjectException {
+				return network.neighborhood(id, date, distance_max, status);
+			}
+		});
+	}
+
+	/**
+	 * Counts how many users are at each distance in a user's whole neighborhood
+	 * @param id - id of the user in question
+	 * @param date - date to cross activity against
+	 * @param status - return status of event
+	 * @return AsyncResult<int[]> - users at each distance, null if the user is invalid
+	 */
+	public AsyncResult<int[]> distanceHistogram(final String id, final Date date, final SocialNetworkStatus status) {
+		return this.submit(this.readLock, new Callable<int[]>() {
+			@Override
+			public int[] call() {
+				return network.distanceHistogram(id, date, status);
+			}
+		});
+	}
+
+	/**
+	 * Counts how many users are at each distance in a user's neighborhood up to a max distance
+	 * @param id - id of the user in question
+	 * @param date - date to cross activity against
+	 * @param distance_max - max distance of connections
+	 * @param status - return status of event
+	 * @return AsyncResult<int[]> - users at each distance, null if the user or distance is invalid
+	 */
+	public AsyncResult<int[]> distanceHistogram(final String id, final Date date, final int distance_max, final SocialNetworkStatus status) {
+		return this.submit(this.readLock, new Callable<int[]>() {
+			@Override
+			public int[] call() {
+				return network.distanceHistogram(id, date, distance_max, status);
+			}
+		});
+	}
+
+	/**
+	 * Finds how a user's whole neighborhood changed between two dates
+	 * @param id - id of the user in question
+	 * @param date1 - date to diff from
+	 * @param date2 - date to diff to
+	 * @param status - return status of event
+	 * @return AsyncResult<NeighborhoodDelta> - users who joined, left, or moved, null if the user is invalid
+	 */
+	public AsyncResult<NeighborhoodDelta> neighborhoodDiff(final String id, final Date date1, final Date date2, final SocialNetworkStatus status) {
+		return this.submit(this.readLock, new Callable<NeighborhoodDelta>() {
+			@Override
+			public NeighborhoodDelta call() throws UninitializedObjectException {
+				return network.neighborhoodDiff(id, date1, date2, status);
+			}
+		});
+	}
+
+	/**
+	 * Finds how a user's neighborhood up to a distance changed between two dates
+	 * @param id - id of the user in question
+	 * @param date1 - date to diff from
+	 * @param date2 - date to diff to
+	 * @param distance_max - max distance of connections
+	 * @param status - return status of event
+	 * @return AsyncResult<NeighborhoodDelta> - users who joined, left, or moved, null if the user or distance is invalid
+	 */
+	public AsyncResult<NeighborhoodDelta> neighborhoodDiff(final String id, final Date date1, final Date date2, final int distance_max, final SocialNetworkStatus status) {
+		return this.submit(this.readLock, new Callable<NeighborhoodDelta>() {
+			@Override
+			public NeighborhoodDelta call() throws UninitializedObjectException {
+				return network.neighborhoodDiff(id, date1, date2, distance_max, status);
+			}
+		});
+	}
+
+	/**
+	 * Maps the dates of events in a user's neighborhood to its size at that time
+	 * @param id - id of the user
+	 * @param status - return status of event
+	 * @return AsyncResult<Map<Date, Integer>> - Map of event dates to size of neighborhood
+	 */
+	public AsyncResult<Map<Date, Integer>> neighborhoodTrend(final String id, final SocialNetworkStatus status) {
+		return this.submit(this.readLock, new Callable<Map<Date, Integer>>() {
+			@Override
+			public Map<Date, Integer> call() throws UninitializedObjectException {
+				return network.neighborhoodTrend(id, status);
+			}
+		});
+	}
+
+	/**
+	 * Suggests new links for a user ranked by mutual friends
+	 * @param id - id of the user to make suggestions for
+	 * @param date - date to check activity against
+	 * @param limit - max number of suggestions to return
+	 * @param excludedIDs - ids of users that should never be suggested, copied before the call is queued
+	 * @param status - return status of event
+	 * @return AsyncResult<List<Recommendation>> - suggestions ordered best first
+	 */
+	public AsyncResult<List<Recommendation>> recommendFriends(final String id, final Date date, final int limit, Set<String> excludedIDs, final SocialNetworkStatus status) {
+		final Set<String> idCopy = new HashSet<String>(excludedIDs);
+		return this.submit(this.readLock, new Callable<List<Recommendation>>() {
+			@Override
+			public List<Recommendation> call() throws UninitializedObjectException {
+				return network.recommendFriends(id, date, limit, idCopy, status);
+			}
+		});
+	}
+
+	/**
+	 * Finds members whose first or last name is within maxEdits typos of the query
+	 * @param query - name to look for
+	 * @param maxEdits - most insertions, deletions and substitutions allowed
+	 * @param limit - max number of matches to return
+	 * @param status - return status of event
+	 * @return AsyncResult<List<NameMatch>> - matches ordered by fewest edits, then id, null if the inputs are invalid
+	 */
+	public AsyncResult<List<NameMatch>> searchUsersByName(final String query, final int maxEdits, final int limit, final SocialNetworkStatus status) {
+		return this.submit(this.readLock, new Callable<List<NameMatch>>() {
+			@Override
+			public List<NameMatch> call() {
+				return network.searchUsersByName(query, maxEdits, limit, status);
+			}
+		});
+	}
+
+	/**
+	 * Finds members whose first or last name is within maxEdits typos of the query, putting
+	 * matches close to the searcher first
+	 * @param query - name to look for
+	 * @param maxEdits - most insertions, deletions and substitutions allowed
+	 * @param limit - max number of matches to return
+	 * @param searcherID - id of the user searching
+	 * @param date - date to check activity against
+	 * @param distance_max - max neighborhood distance to probe
+	 * @param status - return status of event
+	 * @return AsyncResult<List<NameMatch>> - matches ordered by fewest edits, then network distance, then id, null if the inputs are invalid
+	 */
+	public AsyncResult<List<NameMatch>> searchUsersByName(final String query, final int maxEdits, final int limit, final String searcherID, final Date date, final int distance_max, final SocialNetworkStatus status) {
+		return this.submit(this.readLock, new Callable<List<NameMatch>>() {
+			@Override
+			public List<NameMatch> call() throws UninitializedObjectException {
+				return network.searchUsersByName(query, maxEdits, limit, searcherID, date, distance_max, status);
+			}
+		});
+	}
+
+	/**
+	 * Counts triangles and clustering coefficients at a date
+	 * @param date - date to check activity against
+	 * @param status - return status of event
+	 * @return AsyncResult<ClusteringReport> - triangle counts and clustering coefficients
+	 */
+	public AsyncResult<ClusteringReport> clusteringReport(final Date date, final SocialNetworkStatus status) {
+		return this.submit(this.readLock, new Callable<ClusteringReport>() {
+			@Override
+			public ClusteringReport call() throws UninitializedObjectException {
+				return network.clusteringReport(date, status);
+			}
+		});
+	}
+
+	/**
+	 * Approximates neighborhood sizes of every user
+	 * @param date - date to check activity against
+	 * @param distance_max - max distance to estimate sizes for
+	 * @param registerBits - counters get 2^registerBits registers
+	 * @param status - return status of event
+	 * @return AsyncResult<NeighborhoodSizeEstimator> - estimates for every user
+	 */
+	public AsyncResult<NeighborhoodSizeEstimator> approximateNeighborhoodSizes(final Date date, final int distance_max, final int registerBits, final SocialNetworkStatus status) {
+		return this.submit(this.readLock, new Callable<NeighborhoodSizeEstimator>() {
+			@Override
+			public NeighborhoodSizeEstimator call() throws UninitializedObjectException {
+				return network.approximateNeighborhoodSizes(date, distance_max, registerBits, status);
+			}
+		});
+	}
+
+	/**
+	 * Checks if two users are connected at a date. Runs under the write lock since the
+	 * connectivity index updates its cache while answering.
+	 * @param idA - id of the first user
+	 * @param idB - id of the second user
+	 * @param date - date to check activity against
+	 * @return AsyncResult<Boolean> - true if connected
+	 */
+	public AsyncResult<Boolean> areConnected(final String idA, final String idB, final Date date) {
+		return this.submit(this.writeLock, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return network.areConnected(idA, idB, date);
+			}
+		});
+	}
+
+	/**
+	 * Finds the size of a user's component at a date. Runs under the write lock since the
+	 * connectivity index updates its cache while answering.
+	 * @param id - id of the user
+	 * @param date - date to check activity against
+	 * @return AsyncResult<Integer> - size of the component
+	 */
+	public AsyncResult<Integer> componentSizeAt(final String id, final Date date) {
+		return this.submit(this.writeLock, new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return network.componentSizeAt(id, date);
+			}
+		});
+	}
+
+	/**
+	 * Makes a BatchQueryExecutor over the network whose batches hold the read lock, so they
+	 * never run alongside a change made through this wrapper
+	 * @param windowMillis - how long a batch collects queries, in milliseconds
+	 * @param maxBatchSize - queries that make a batch run before its window closes
+	 * @return BatchQueryExecutor - the executor, to be closed by the caller
+	 * @throws IllegalArgumentException
+	 */
+	public BatchQueryExecutor newBatchExecutor(long windowMillis, int maxBatchSize) {
+		return new BatchQueryExecutor(this.network, this.readLock, windowMillis, maxBatchSize);
+	}
+
+	/**
+	 * Stops accepting calls and interrupts the ones in flight
+	 */
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that queues a call to run while holding the given lock
+	 * @param lock - lock to hold while the call runs
+	 * @param call - call to run
+	 * @return AsyncResult<T> - result of the call
+	 */
+	private <T> AsyncResult<T> submit(final Lock lock, final Callable<T> call) {
+		AsyncResult<T> returnResult = new AsyncResult<T>(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				lock.lockInterruptibly();
+				try {
+					return call.call();
+				} finally {
+					lock.unlock();
+				}
+			}
+		});
+		this.executor.execute(returnResult);
+		return returnResult;
+	}
+
+	/**
+	 * Thread factory that makes named daemon threads, so an unclosed facade never keeps the JVM alive
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		private static final AtomicInteger POOL_NUMBER = new AtomicInteger(1);
+
+		private int				poolNumber;		//Number of the pool the threads belong to
+		private AtomicInteger	threadNumber;	//Number of the next thread
+
+		/**
+		 * Class constructor
+		 */
+		DaemonThreadFactory() {
+			this.poolNumber = POOL_NUMBER.getAndIncrement();
+			this.threadNumber = new AtomicInteger(1);
+		}
+
+		/**
+		 * Makes a daemon thread for the pool
+		 * @param task - task the thread runs
+		 * @return Thread - the new thread
+		 */
+		@Override
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, "social-network-async-" + this.poolNumber + "-" + this.threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
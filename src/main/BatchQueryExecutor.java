@@ -0,0 +1,495 @@
+package main;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * BatchQueryExecutor class collects queries for a short window and answers them together.
+ * Queries in a batch are grouped by date, the links active at each date are snapshotted
+ * once into an ActiveGraph, and every query for that date is answered from the snapshot
+ * instead of looking up users and asking links about the date again. Neighborhood and
+ * distance queries from the same user share one search, taken as deep as the deepest of
+ * them needs. A batch runs once it reaches its size limit or when flush is called, in the
+ * calling thread, so the caller decides when the network is read.
+ * Given a lock that every change to the network holds the other side of, such as the read
+ * lock of an AsyncSocialNetwork, batches also run on their own once the window after their
+ * first query closes, holding the lock while they read.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class BatchQueryExecutor implements Closeable {
+
+	private SocialNetwork				network;		//Network queries run against
+	private Lock						lock;			//Held while a batch reads, null if batches only run on request
+	private long						windowMillis;	//How long a batch collects queries
+	private int							maxBatchSize;	//Queries that make a batch run early
+	private ScheduledExecutorService	scheduler;		//Runs batches when their window closes, null without a lock
+	private List<Query<?>>				pending;		//Queries waiting for the next batch
+	private boolean						scheduled;		//True if the next batch has a run scheduled
+	private long						batchCount;		//Batches run so far
+	private long						graphCount;		//Date snapshots built so far
+
+	/**
+	 * Class constructor
+	 * Batches only run in the caller's thread, on flush or once full, so the caller must not
+	 * change the network during those calls
+	 * @param network - network to run queries against
+	 * @param maxBatchSize - queries that make a batch run before flush is called
+	 * @throws IllegalArgumentException
+	 * @throws NullPointerException
+	 */
+	public BatchQueryExecutor(SocialNetwork network, int maxBatchSize) {
+		if (network == null)
+			throw new NullPointerException("Input parameter is null");
+		if (maxBatchSize < 1)
+			throw new IllegalArgumentException("Batches need room for a query");
+
+		this.network = network;
+		this.lock = null;
+		this.windowMillis = 0;
+		this.maxBatchSize = maxBatchSize;
+		this.scheduler = null;
+		this.pending = new ArrayList<Query<?>>();
+		this.scheduled = false;
+		this.batchCount = 0;
+		this.graphCount = 0;
+	}
+
+	/**
+	 * Class constructor
+	 * Batches also run on their own when their window closes. Every batch holds the lock while
+	 * it reads, so changes to the network must hold the other side of it.
+	 * @param network - network to run queries against
+	 * @param lock - lock held while a batch reads the network
+	 * @param windowMillis - how long a batch collects queries, in milliseconds
+	 * @param maxBatchSize - queries that make a batch run before its window closes
+	 * @throws IllegalArgumentException
+	 * @throws NullPointerException
+	 */
+	public BatchQueryExecutor(SocialNetwork network, Lock lock, long windowMillis, int maxBatchSize) {
+		this(network, maxBatchSize);
+		if (lock == null)
+			throw new NullPointerException("Input parameter is null");
+		if (windowMillis < 0)
+			throw new IllegalArgumentException("Window can't be negative");
+
+		this.lock = lock;
+		this.windowMillis = windowMillis;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "social-network-batch");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Queues a check of whether two users are actively linked at a date
+	 * @param ids - ids of the two users, copied before the query is queued
+	 * @param date - date to check activity against
+	 * @return Future<Boolean> - true if active, false if not or if the ids aren't two members
+	 * @throws NullPointerException
+	 */
+	public Future<Boolean> isActive(Set<String> ids, Date date) {
+		final String[] idArray;
+
+		if (ids == null || date == null)
+			throw new NullPointerException("Input parameter is null");
+		idArray = ids.toArray(new String[ids.size()]);
+
+		return this.enqueue(new Query<Boolean>(date) {
+			@Override
+			Boolean answer(DateBatch batch) {
+				int first;
+				int second;
+				if (idArray.length != 2)
+					return false;
+				first = batch.graph.indexOf(idArray[0]);
+				second = batch.graph.indexOf(idArray[1]);
+				return first >= 0 && second >= 0 && first != second && batch.graph.hasEdge(first, second);
+			}
+		});
+	}
+
+	/**
+	 * Queues a neighborhood query, answered the same as SocialNetwork.neighborhood
+	 * @param id - id of the user in question
+	 * @param date - date to cross activity against
+	 * @param distance_max - max distance of connections
+	 * @param status - filled in once the query is answered
+	 * @return Future<Set<Friend>> - users and their distances, null if the user or distance is invalid
+	 * @throws NullPointerException
+	 */
+	public Future<Set<Friend>> neighborhood(final String id, Date date, final int distance_max, final SocialNetworkStatus status) {
+		if (id == null || date == null || status == null)
+			throw new NullPointerException("Input parameter is null");
+
+		return this.enqueue(new Query<Set<Friend>>(date) {
+			@Override
+			void plan(DateBatch batch) {
+				if (distance_max >= 0)
+					batch.need(batch.graph.indexOf(id), distance_max + 1, -1);
+			}
+
+			@Override
+			Set<Friend> answer(DateBatch batch) {
+				int source = batch.graph.indexOf(id);
+				Set<Friend> returnFriends = new HashSet<Friend>();
+				if (source < 0) {
+					status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+					return null;
+				} else if (distance_max < 0) {
+					status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+					return null;
+				}
+				for (Map.Entry<Integer, Integer> entry: batch.hopsFrom(source).entrySet()) {
+					if (entry.getValue() == 0 || entry.getValue() > distance_max + 1)
+						continue;
+					Friend friend = new Friend();
+					friend.set(batch.graph.getUser(entry.getKey()), entry.getValue() - 1);
+					returnFriends.add(friend);
+				}
+				status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+				return returnFriends;
+			}
+		});
+	}
+
+	/**
+	 * Queues a query for how far apart two users are at a date, counted the same way as
+	 * neighborhood distances, so direct friends are at distance 0
+	 * @param idA - id of one user
+	 * @param idB - id of the other user
+	 * @param date - date to cross activity against
+	 * @return Future<Integer> - distance, -1 if they aren't connected, aren't both members, or are the same user
+	 * @throws NullPointerException
+	 */
+	public Future<Integer> distance(final String idA, final String idB, Date date) {
+		if (idA == null || idB == null || date == null)
+			throw new NullPointerException("Input parameter is null");
+
+		return this.enqueue(new Query<Integer>(date) {
+			@Override
+			void plan(DateBatch batch) {
+				batch.need(batch.graph.indexOf(idA), -1, batch.graph.indexOf(idB));
+			}
+
+			@Override
+			Integer answer(DateBatch batch) {
+				int source = batch.graph.indexOf(idA);
+				int target = batch.graph.indexOf(idB);
+				Integer hops;
+				if (source < 0 || target < 0 || source == target)
+					return -1;
+				hops = batch.hopsFrom(source).get(target);
+				return hops == null ? -1 : hops - 1;
+			}
+		});
+	}
+
+	/**
+	 * Runs the pending batch now, on the calling thread, holding the lock if there is one
+	 */
+	public void flush() {
+		List<Query<?>> batch;
+
+		synchronized (this) {
+			batch = this.pending;
+			this.pending = new ArrayList<Query<?>>();
+		}
+		if (batch.isEmpty())
+			return;
+
+		if (this.lock == null) {
+			this.run(batch);
+			return;
+		}
+		this.lock.lock();
+		try {
+			this.run(batch);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Getter for the number of batches run so far
+	 * @return long - batches run
+	 */
+	public synchronized long getBatchCount() {
+		return this.batchCount;
+	}
+
+	/**
+	 * Getter for the number of date snapshots built so far, one per distinct date per batch
+	 * @return long - snapshots built
+	 */
+	public synchronized long getGraphCount() {
+		return this.graphCount;
+	}
+
+	/**
+	 * Runs whatever is pending and stops the scheduler thread if there is one
+	 */
+	@Override
+	public void close() {
+		this.flush();
+		if (this.scheduler != null)
+			this.scheduler.shutdown();
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that adds a query to the pending batch, scheduling the batch if it's
+	 * the first query and there's a lock to run it under, or running it if it's full
+	 * @param query - query to add
+	 * @return Future<T> - the query's result
+	 */
+	private <T> Future<T> enqueue(Query<T> query) {
+		boolean full;
+
+		synchronized (this) {
+			this.pending.add(query);
+			full = this.pending.size() >= this.maxBatchSize;
+			if (!full && !this.scheduled && this.scheduler != null) {
+				this.scheduled = true;
+				this.scheduler.schedule(new Runnable() {
+					@Override
+					public void run() {
+						synchronized (BatchQueryExecutor.this) {
+							BatchQueryExecutor.this.scheduled = false;
+						}
+						BatchQueryExecutor.this.flush();
+					}
+				}, this.windowMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (full)
+			this.flush();
+
+		return query.future;
+	}
+
+	/**
+	 * Private helper that answers a batch: groups it by date, snapshots each date once, plans
+	 * the shared searches, then answers every query
+	 * @param batch - queries to answer
+	 */
+	private void run(List<Query<?>> batch) {
+		LinkedHashMap<Long, List<Query<?>>> byDate = new LinkedHashMap<Long, List<Query<?>>>();
+		int graphs = 0;
+
+		for (Query<?> query: batch) {
+			List<Query<?>> queries = byDate.get(query.time);
+			if (queries == null) {
+				queries = new ArrayList<Query<?>>();
+				byDate.put(query.time, queries);
+			}
+			queries.add(query);
+		}
+
+		for (Map.Entry<Long, List<Query<?>>> entry: byDate.entrySet()) {
+			DateBatch dateBatch;
+			try {
+				dateBatch = new DateBatch(new ActiveGraph(this.network, new Date(entry.getKey())));
+				graphs++;
+			} catch (final UninitializedObjectException e) {
+				//Every query of the date fails the same way
+				for (Query<?> query: entry.getValue())
+					query.fail(e);
+				continue;
+			}
+			for (Query<?> query: entry.getValue())
+				query.plan(dateBatch);
+			for (Query<?> query: entry.getValue())
+				query.run(dateBatch);
+		}
+
+		synchronized (this) {
+			this.batchCount++;
+			this.graphCount += graphs;
+		}
+	}
+
+	/**
+	 * Query class is one queued query and the future it completes
+	 * @param <T> - type of the answer
+	 */
+	private abstract static class Query<T> implements Callable<T> {
+
+		private long			time;		//Date of the query in milliseconds
+		private FutureTask<T>	future;		//Completed with the answer
+		private DateBatch		batch;		//Batch answering the query, set just before it runs
+		private Exception		failure;	//Set instead of batch if the date couldn't be snapshotted
+
+		/**
+		 * Class constructor
+		 * @param date - date of the query
+		 */
+		Query(Date date) {
+			this.time = date.getTime();
+			this.future = new FutureTask<T>(this);
+		}
+
+		/**
+		 * Tells the batch what searches this query needs, before any query is answered
+		 * @param batch - batch for the query's date
+		 */
+		void plan(DateBatch batch) {
+		}
+
+		/**
+		 * Answers the query from the batch
+		 * @param batch - batch for the query's date
+		 * @return T - the answer
+		 */
+		abstract T answer(DateBatch batch);
+
+		/**
+		 * Completes the future from the batch
+		 * @param batch - batch for the query's date
+		 */
+		void run(DateBatch batch) {
+			this.batch = batch;
+			this.future.run();
+		}
+
+		/**
+		 * Completes the future with a failure
+		 * @param e - why the query failed
+		 */
+		void fail(Exception e) {
+			this.failure = e;
+			this.future.run();
+		}
+
+		/**
+		 * Called by the future to get the answer
+		 * @return T - the answer
+		 * @throws Exception
+		 */
+		@Override
+		public T call() throws Exception {
+			if (this.failure != null)
+				throw this.failure;
+			return this.answer(this.batch);
+		}
+
+	}
+
+	/**
+	 * DateBatch class holds the snapshot for one date of a batch and the searches its queries
+	 * share. Each source is searched once, until both its deepest bounded query is covered
+	 * and every user its distance queries ask about is reached.
+	 */
+	private static class DateBatch {
+
+		private ActiveGraph							graph;		//Links active at the date
+		private HashMap<Integer, Integer>			depths;		//Hops the deepest bounded query of each source needs
+		private HashMap<Integer, Set<Integer>>		targets;	//Users that must be reached from each source
+		private HashMap<Integer, Map<Integer, Integer>>	searches;	//Hops from each searched source
+
+		/**
+		 * Class constructor
+		 * @param graph - links active at the date
+		 */
+		DateBatch(ActiveGraph graph) {
+			this.graph = graph;
+			this.depths = new HashMap<Integer, Integer>();
+			this.targets = new HashMap<Integer, Set<Integer>>();
+			this.searches = new HashMap<Integer, Map<Integer, Integer>>();
+		}
+
+		/**
+		 * Records that a query needs a search from a source
+		 * @param source - index of the source, ignored if -1
+		 * @param hops - hops the query needs covered, -1 for none
+		 * @param target - index of a user the query needs reached, -1 for none
+		 */
+		void need(int source, int hops, int target) {
+			Integer depth;
+
+			if (source < 0)
+				return;
+			depth = this.depths.get(source);
+			if (hops >= 0 && (depth == null || hops > depth))
+				this.depths.put(source, hops);
+			if (target >= 0) {
+				if (!this.targets.containsKey(source))
+					this.targets.put(source, new HashSet<Integer>());
+				this.targets.get(source).add(target);
+			}
+		}
+
+		/**
+		 * Hops from a source to every user its queries need, searching the first time it's asked
+		 * @param source - index of the source
+		 * @return Map<Integer, Integer> - indices of reached users and their hops, the source at 0
+		 */
+		Map<Integer, Integer> hopsFrom(int source) {
+			Map<Integer, Integer> returnHops = this.searches.get(source);
+
+			if (returnHops == null) {
+				returnHops = this.search(source);
+				this.searches.put(source, returnHops);
+			}
+
+			return returnHops;
+		}
+
+		/**
+		 * Private helper that searches outward a level at a time. The search stops once every
+		 * bounded query is covered and every target is reached, so users past the deepest
+		 * bounded query may be in the map if a target was farther out.
+		 * @param source - index of the source
+		 * @return Map<Integer, Integer> - indices of reached users and their hops
+		 */
+		private Map<Integer, Integer> search(int source) {
+			HashMap<Integer, Integer> returnHops = new HashMap<Integer, Integer>();
+			Integer depth = this.depths.get(source);
+			int maxHops = depth == null ? 0 : depth;
+			Set<Integer> waiting = this.targets.containsKey(source) ? new HashSet<Integer>(this.targets.get(source)) : new HashSet<Integer>();
+			ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+
+			returnHops.put(source, 0);
+			waiting.remove(source);
+			queue.add(source);
+			while (!queue.isEmpty()) {
+				int user = queue.poll();
+				int next = returnHops.get(user) + 1;
+				//Users come off the queue in hop order, so nobody later is needed either
+				if (next > maxHops && waiting.isEmpty())
+					break;
+				for (int neighbor: this.graph.getNeighbors(user)) {
+					if (!returnHops.containsKey(neighbor)) {
+						returnHops.put(neighbor, next);
+						waiting.remove(neighbor);
+						queue.add(neighbor);
+					}
+				}
+			}
+
+			return returnHops;
+		}
+
+	}
+
+}
@@ -0,0 +1,105 @@
+package main;
+
+/**
+ * ChangeEvent class describes one successful change to a SocialNetwork as seen through a
+ * ChangeFeed. Events are reused slots, not fresh objects: a listener must copy anything it
+ * wants to keep before returning from onEvent.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class ChangeEvent {
+
+	/**
+	 * Kinds of changes published to a feed
+	 */
+	public enum Type {
+		USER_ADDED, USER_REMOVED, LINK_ESTABLISHED, LINK_TORN_DOWN, LINK_PURGED
+	}
+
+	//Time of user events, which have no date
+	public static final long NO_TIME = Long.MIN_VALUE;
+
+	//Fields are volatile so a reader that copies a slot and then re-checks its sequence sees
+	//the overwrite marker of any write it copied from
+	private volatile Type	type;		//Kind of change
+	private volatile String	firstID;	//Id of the user, or of one user of the link
+	private volatile String	secondID;	//Id of the other user of the link, null for user events
+	private volatile long	time;		//Date of a link event in milliseconds, NO_TIME for user events
+
+	/**
+	 * Class constructor
+	 * Creates an empty slot, only feeds fill them in
+	 */
+	ChangeEvent() {
+		this.type = null;
+		this.firstID = null;
+		this.secondID = null;
+		this.time = NO_TIME;
+	}
+
+	/**
+	 * Getter for the kind of change
+	 * @return Type - kind of change
+	 */
+	public Type getType() {
+		return this.type;
+	}
+
+	/**
+	 * Getter for the id of the user, or of one user of the link
+	 * @return String - id of the first user
+	 */
+	public String getFirstID() {
+		return this.firstID;
+	}
+
+	/**
+	 * Getter for the id of the other user of the link
+	 * @return String - id of the second user, null for user events
+	 */
+	public String getSecondID() {
+		return this.secondID;
+	}
+
+	/**
+	 * Getter for the date of a link event
+	 * @return long - date in milliseconds, NO_TIME for user events
+	 */
+	public long getTime() {
+		return this.time;
+	}
+
+	/**
+	 * Package-private helper that fills in the slot
+	 * @param type - kind of change
+	 * @param firstID - id of the user, or of one user of the link
+	 * @param secondID - id of the other user of the link, null for user events
+	 * @param time - date of a link event in milliseconds, NO_TIME for user events
+	 */
+	void set(Type type, String firstID, String secondID, long time) {
+		this.type = type;
+		this.firstID = firstID;
+		this.secondID = secondID;
+		this.time = time;
+	}
+
+	/**
+	 * Package-private helper that copies another slot into this one
+	 * @param event - slot to copy
+	 */
+	void copy(ChangeEvent event) {
+		this.set(event.type, event.firstID, event.secondID, event.time);
+	}
+
+	/**
+	 * Overridden toString method that prints out a human friendly representation of
+	 * the event
+	 * @return String - string representation of the event
+	 */
+	@Override
+	public String toString() {
+		if (this.secondID == null)
+			return String.format("%s %s", this.type, this.firstID);
+		return String.format("%s %s and %s at %d", this.type, this.firstID, this.secondID, this.time);
+	}
+
+}
@@ -0,0 +1,362 @@
+package main;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ChangeFeed class publishes every successful change made to a SocialNetwork to any number
+ * of subscribers. Events go into a ring of slots made up front, so publishing takes no
+ * locks and makes no objects: the network fills in the next slot and moves the cursor.
+ * Each subscriber has its own thread that reads everything published since its last
+ * batch. The network is the only producer, so the feed must only be attached to one
+ * network, and that network only changed from one thread at a time.
+ * When the slowest subscriber is a whole ring behind, the OverflowPolicy decides whether
+ * the network waits for it, the new event is dropped, or the oldest events are overwritten
+ * and the subscriber skips ahead.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class ChangeFeed implements Closeable {
+
+	/**
+	 * What to do when a subscriber is a whole ring behind
+	 */
+	public enum OverflowPolicy {
+		BLOCK, DROP_NEWEST, DROP_OLDEST
+	}
+
+	//Marks a slot that's being written over
+	private static final long WRITING = -1;
+
+	//Numbers the subscriber threads
+	private static final AtomicInteger THREAD_NUMBER = new AtomicInteger(1);
+
+	private ChangeEvent[]				slots;			//Ring of reusable events
+	private AtomicLongArray				published;		//Sequence last written to each slot
+	private int							mask;			//Slot count minus one, for wrapping sequences
+	private OverflowPolicy				policy;			//What to do when the ring is full
+	private AtomicLong					cursor;			//Last sequence published
+	private long						nextSequence;	//Next sequence to publish, only touched by the producer
+	private long						cachedGate;		//Slowest subscriber's sequence when last checked
+	private AtomicLong					dropped;		//Events dropped under DROP_NEWEST
+	private volatile Subscription[]		subscriptions;	//Current subscribers, replaced whole on change
+	private volatile boolean			closed;			//True once the feed is closed
+
+	/**
+	 * Class constructor
+	 * Creates a feed whose ring holds at least the given number of events, rounded up to a
+	 * power of two
+	 * @param capacity - number of events a subscriber can fall behind by
+	 * @param policy - what to do when a subscriber falls further behind
+	 * @throws IllegalArgumentException
+	 * @throws NullPointerException
+	 */
+	public ChangeFeed(int capacity, OverflowPolicy policy) {
+		int size;
+
+		if (policy == null)
+			throw new NullPointerException("Input parameter is null");
+		if (capacity <= 0 || capacity > (1 << 30))
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+
+		size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+
+		this.slots = new ChangeEvent[size];
+		for (int i = 0; i < size; i++)
+			this.slots[i] = new ChangeEvent();
+		this.published = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++)
+			this.published.set(i, WRITING);
+		this.mask = size - 1;
+		this.policy = policy;
+		this.cursor = new AtomicLong(-1);
+		this.nextSequence = 0;
+		this.cachedGate = -1;
+		this.dropped = new AtomicLong();
+		this.subscriptions = new Subscription[0];
+		this.closed = false;
+	}
+
+	/**
+	 * Starts a thread that hands every event published from now on to the listener
+	 * @param listener - listener to call
+	 * @return Subscription - handle to stop the subscription with
+	 * @throws NullPointerException
+	 * @throws IllegalStateException
+	 */
+	public synchronized Subscription subscribe(ChangeListener listener) {
+		Subscription returnSubscription;
+		Subscription[] current = this.subscriptions;
+
+		if (listener == null)
+			throw new NullPointerException("Input parameter is null");
+		if (this.closed)
+			throw new IllegalStateException("Feed is closed");
+
+		returnSubscription = new Subscription(listener, this.cursor.get());
+		current = Arrays.copyOf(current, current.length + 1);
+		current[current.length - 1] = returnSubscription;
+		this.subscriptions = current;
+		returnSubscription.thread.start();
+
+		return returnSubscription;
+	}
+
+	/**
+	 * Getter for the sequence of the last event published
+	 * @return long - last sequence, -1 if nothing was published yet
+	 */
+	public long getCursor() {
+		return this.cursor.get();
+	}
+
+	/**
+	 * Getter for the number of slots in the ring
+	 * @return int - capacity
+	 */
+	public int getCapacity() {
+		return this.slots.length;
+	}
+
+	/**
+	 * Getter for the number of events dropped because the ring was full under DROP_NEWEST
+	 * @return long - dropped events
+	 */
+	public long getDroppedCount() {
+		return this.dropped.get();
+	}
+
+	/**
+	 * Stops every subscription. Events published afterwards go nowhere.
+	 */
+	@Override
+	public synchronized void close() {
+		this.closed = true;
+		for (Subscription subscription: this.subscriptions)
+			subscription.stop();
+		this.subscriptions = new Subscription[0];
+	}
+
+	/**
+	 * Package-private helper that publishes an event. Only one thread may publish at a time.
+	 * @param type - kind of change
+	 * @param firstID - id of the user, or of one user of the link
+	 * @param secondID - id of the other user of the link, null for user events
+	 * @param time - date of a link event in milliseconds, ChangeEvent.NO_TIME for user events
+	 * @return boolean - true if published, false if dropped
+	 */
+	boolean publish(ChangeEvent.Type type, String firstID, String secondID, long time) {
+		long sequence = this.nextSequence;
+		long wrapPoint = sequence - this.slots.length;
+		int index = (int) (sequence & this.mask);
+
+		//Only look at the subscribers again once the cached gate says the ring may be full
+		if (wrapPoint > this.cachedGate) {
+			this.cachedGate = this.slowestSequence(sequence - 1);
+			if (wrapPoint > this.cachedGate) {
+				if (this.policy == OverflowPolicy.DROP_NEWEST) {
+					this.dropped.incrementAndGet();
+					return false;
+				} else if (this.policy == OverflowPolicy.BLOCK) {
+					while (wrapPoint > this.cachedGate && !this.closed) {
+						LockSupport.parkNanos(1000L);
+						this.cachedGate = this.slowestSequence(sequence - 1);
+					}
+				}
+			}
+		}
+
+		//Readers check the slot's sequence before and after copying, so they notice an overwrite
+		if (this.policy == OverflowPolicy.DROP_OLDEST)
+			this.published.set(index, WRITING);
+		this.slots[index].set(type, firstID, secondID, time);
+		this.published.lazySet(index, sequence);
+		this.cursor.lazySet(sequence);
+		this.nextSequence = sequence + 1;
+
+		return true;
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that finds how far the slowest subscriber has read
+	 * @param ifNone - value to use when there are no subscribers
+	 * @return long - smallest sequence read by any subscriber
+	 */
+	private long slowestSequence(long ifNone) {
+		long returnSequence = ifNone;
+
+		for (Subscription subscription: this.subscriptions)
+			returnSequence = Math.min(returnSequence, subscription.sequence.get());
+
+		return returnSequence;
+	}
+
+	/**
+	 * Private helper that stops tracking a subscription that was closed on its own
+	 * @param subscription - subscription to drop
+	 */
+	private synchronized void unsubscribe(Subscription subscription) {
+		Subscription[] current = this.subscriptions;
+		Subscription[] remaining = new Subscription[current.length];
+		int count = 0;
+
+		for (Subscription other: current) {
+			if (other != subscription)
+				remaining[count++] = other;
+		}
+		this.subscriptions = Arrays.copyOf(remaining, count);
+	}
+
+	/**
+	 * Subscription class runs one listener on its own thread, reading events in batches
+	 */
+	public class Subscription implements Closeable, Runnable {
+
+		private ChangeListener				listener;		//Listener to call
+		private ChangeEvent					event;			//Private copy of the slot handed to the listener
+		private AtomicLong					sequence;		//Last sequence handed to the listener
+		private AtomicLong					lost;			//Events overwritten before they were read
+		private AtomicLong					failures;		//Events the listener threw on
+		private volatile RuntimeException	lastFailure;	//Last exception thrown by the listener
+		private Thread						thread;			//Thread reading the ring
+		private volatile boolean			running;		//False once stopped
+
+		/**
+		 * Class constructor
+		 * @param listener - listener to call
+		 * @param start - sequence already published when subscribing
+		 */
+		Subscription(ChangeListener listener, long start) {
+			this.listener = listener;
+			this.event = new ChangeEvent();
+			this.sequence = new AtomicLong(start);
+			this.lost = new AtomicLong();
+			this.failures = new AtomicLong();
+			this.lastFailure = null;
+			this.running = true;
+			this.thread = new Thread(this, "change-feed-subscriber-" + THREAD_NUMBER.getAndIncrement());
+			this.thread.setDaemon(true);
+		}
+
+		/**
+		 * Getter for the last sequence handed to the listener
+		 * @return long - last sequence read
+		 */
+		public long getSequence() {
+			return this.sequence.get();
+		}
+
+		/**
+		 * Getter for the number of events overwritten under DROP_OLDEST before they were read
+		 * @return long - lost events
+		 */
+		public long getLostCount() {
+			return this.lost.get();
+		}
+
+		/**
+		 * Getter for the number of events the listener threw on. The feed keeps going past them.
+		 * @return long - failed events
+		 */
+		public long getFailureCount() {
+			return this.failures.get();
+		}
+
+		/**
+		 * Getter for the last exception thrown by the listener
+		 * @return RuntimeException - last failure, null if the listener never threw
+		 */
+		public RuntimeException getLastFailure() {
+			return this.lastFailure;
+		}
+
+		/**
+		 * Stops the subscription. The listener isn't called after the current event.
+		 */
+		@Override
+		public void close() {
+			this.stop();
+			ChangeFeed.this.unsubscribe(this);
+		}
+
+		/**
+		 * Reads batches of events until stopped, backing off from spinning to parking while idle
+		 */
+		@Override
+		public void run() {
+			long next = this.sequence.get() + 1;
+			int idle = 0;
+
+			while (this.running) {
+				long available = ChangeFeed.this.cursor.get();
+				if (available < next) {
+					idle++;
+					if (idle > 200)
+						LockSupport.parkNanos(100000L);
+					else if (idle > 100)
+						Thread.yield();
+					continue;
+				}
+				idle = 0;
+				next = this.readBatch(next, available);
+			}
+		}
+
+		/**
+		 * Private helper that hands the listener every event up to the available sequence
+		 * @param next - first sequence to read
+		 * @param available - last sequence published
+		 * @return long - next sequence to read afterwards
+		 */
+		private long readBatch(long next, long available) {
+			while (next <= available && this.running) {
+				int index = (int) (next & ChangeFeed.this.mask);
+				//Every read here is volatile, so copying can't move past the second check. Any
+				//field from a later lap was written after that lap's WRITING mark, so the second
+				//check sees the mark or the later sequence and the copy is thrown away.
+				long before = ChangeFeed.this.published.get(index);
+				this.event.copy(ChangeFeed.this.slots[index]);
+				long after = ChangeFeed.this.published.get(index);
+
+				if (before != next || after != next) {
+					//The producer lapped us, so skip to the oldest event still in the ring
+					long oldest = ChangeFeed.this.cursor.get() - ChangeFeed.this.slots.length + 1;
+					if (oldest > next) {
+						this.lost.addAndGet(oldest - next);
+						this.sequence.lazySet(oldest - 1);
+						return oldest;
+					}
+					continue;
+				}
+
+				try {
+					this.listener.onEvent(this.event, next, next == available);
+				} catch (RuntimeException e) {
+					//A failing listener shouldn't stop the feed for the events after it
+					this.lastFailure = e;
+					this.failures.incrementAndGet();
+				}
+				this.sequence.lazySet(next);
+				next++;
+			}
+
+			return next;
+		}
+
+		/**
+		 * Private helper that stops the thread without touching the feed's subscriber list
+		 */
+		private void stop() {
+			this.running = false;
+			LockSupport.unpark(this.thread);
+		}
+	}
+
+}
@@ -0,0 +1,19 @@
+package main;
+
+/**
+ * ChangeListener interface receives the events of a ChangeFeed on the subscription's own
+ * thread, in the order they were published
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public interface ChangeListener {
+
+	/**
+	 * Called for each event. Events are delivered in batches of whatever was published since
+	 * the last batch, so listeners can hold off expensive work until endOfBatch.
+	 * @param event - the change, reused after this call returns
+	 * @param sequence - position of the event in the feed, counting from 0
+	 * @param endOfBatch - true for the last event currently available
+	 */
+	void onEvent(ChangeEvent event, long sequence, boolean endOfBatch);
+
+}
@@ -0,0 +1,101 @@
+package main;
+
+import java.util.HashMap;
+
+/**
+ * ClusteringReport class holds the triangle counts of a network at one date, along with
+ * the local and global clustering coefficients that follow from them
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class ClusteringReport {
+
+	private long						totalTriangles;	//Triangles in the whole network
+	private HashMap<String, Integer>	indices;		//Ids to their slot in the count arrays
+	private long[]						triangles;		//Triangles each user is part of
+	private int[]						degrees;		//Active links of each user
+
+	/**
+	 * Class constructor
+	 * Package-private since reports are only made by TriangleCounter
+	 * @param graph - snapshot the triangles were counted on
+	 * @param triangles - triangles per user, indexed like the snapshot
+	 * @param totalTriangles - triangles in the whole network
+	 */
+	ClusteringReport(ActiveGraph graph, long[] triangles, long totalTriangles) {
+		this.totalTriangles = totalTriangles;
+		this.triangles = triangles;
+		this.indices = new HashMap<String, Integer>(graph.size() * 2);
+		this.degrees = new int[graph.size()];
+		for (int i = 0; i < graph.size(); i++) {
+			this.indices.put(graph.getUser(i).getID(), i);
+			this.degrees[i] = graph.degree(i);
+		}
+	}
+
+	/**
+	 * Getter for the number of triangles in the network
+	 * @return long - total triangles
+	 */
+	public long getTriangleCount() {
+		return this.totalTriangles;
+	}
+
+	/**
+	 * Grabs the number of triangles a user is part of
+	 * @param id - id of the user
+	 * @return long - triangles containing the user, 0 if the user isn't in the report
+	 */
+	public long getTriangleCount(String id) {
+		Integer index = this.indices.get(id);
+		return index == null ? 0 : this.triangles[index];
+	}
+
+	/**
+	 * Local clustering coefficient of a user: the fraction of pairs of the user's friends
+	 * that are linked to each other
+	 * @param id - id of the user
+	 * @return double - coefficient between 0 and 1, 0 if the user has fewer than two friends or isn't in the report
+	 */
+	public double getClusteringCoefficient(String id) {
+		Integer index = this.indices.get(id);
+		if (index == null)
+			return 0.0;
+		return this.localCoefficient(index);
+	}
+
+	/**
+	 * Global clustering coefficient (transitivity) of the network: three times the number
+	 * of triangles over the number of connected triples
+	 * @return double - coefficient between 0 and 1, 0 if there are no connected triples
+	 */
+	public double getGlobalClusteringCoefficient() {
+		double triples = 0;
+		for (int degree: this.degrees)
+			triples += (double) degree * (degree - 1) / 2;
+		return triples == 0 ? 0.0 : 3.0 * this.totalTriangles / triples;
+	}
+
+	/**
+	 * Average of the local clustering coefficients over every user in the report
+	 * @return double - average local coefficient, 0 if the report is empty
+	 */
+	public double getAverageClusteringCoefficient() {
+		double sum = 0;
+		for (int i = 0; i < this.degrees.length; i++)
+			sum += this.localCoefficient(i);
+		return this.degrees.length == 0 ? 0.0 : sum / this.degrees.length;
+	}
+
+	/**
+	 * Private helper that computes the local coefficient at an index
+	 * @param index - slot of the user
+	 * @return double - local clustering coefficient
+	 */
+	private double localCoefficient(int index) {
+		int degree = this.degrees[index];
+		if (degree < 2)
+			return 0.0;
+		return 2.0 * this.triangles[index] / ((double) degree * (degree - 1));
+	}
+
+}
@@ -0,0 +1,19 @@
+package main;
+
+import java.util.concurrent.Future;
+
+/**
+ * CompletionListener interface is told when a call made through an AsyncSocialNetwork
+ * finishes, whether it returned, threw, or was cancelled
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public interface CompletionListener<T> {
+
+	/**
+	 * Called once the call is done, on the thread that ran it, or on the thread that cancelled
+	 * it. The future never blocks here, so get() gives the result or the failure right away.
+	 * @param future - the finished call
+	 */
+	void completed(Future<T> future);
+
+}
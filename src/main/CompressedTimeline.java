@@ -0,0 +1,358 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * CompressedTimeline class stores long event histories in blocks of BLOCK_SIZE events.
+ * Events are appended as plain times to the one open block. Once it fills up, the block is
+ * sealed: only its first time is kept as is, and the gaps between its neighboring events are
+ * packed relative to the block. Gaps are counted in the largest unit that divides all of them,
+ * so times kept to the second or the day lose their trailing zeros, and then stored as their
+ * difference from the block's smallest gap, in just enough bits for the largest difference.
+ * A sealed block takes an array that fits it exactly. A lookup binary searches the first
+ * times and then decodes at most one block.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+class CompressedTimeline extends Timeline {
+
+	//Events per block
+	static final int BLOCK_SIZE = 64;
+
+	//Bytes taken by the header of an array on the heap
+	static final int ARRAY_HEADER_BYTES = 16;
+
+	//Space given to the open block's first events
+	private static final int INITIAL_OPEN_SIZE = 4;
+
+	private byte[][]	blocks;			//Packed gaps of each sealed block
+	private long[]		blockFirsts;	//Time of the first event in each block
+	private int[]		blockUnits;		//Unit each sealed block's gaps are counted in
+	private long[]		open;			//Times of the events in the open block
+	private int			size;			//Number of events
+	private long		lastTime;		//Time of the newest event
+
+	/**
+	 * Class constructor
+	 * Compresses the events of another timeline
+	 * @param timeline - timeline to copy events from
+	 */
+	CompressedTimeline(Timeline timeline) {
+		int blocks = timeline.size() / BLOCK_SIZE + 1;
+
+		this.blocks = new byte[blocks][];
+		this.blockFirsts = new long[blocks];
+		this.blockUnits = new int[blocks];
+		this.open = new long[INITIAL_OPEN_SIZE];
+		this.size = 0;
+		for (int i = 0; i < timeline.size(); i++)
+			this.add(timeline.get(i));
+	}
+
+	/**
+	 * Getter for the number of events
+	 * @return int - number of events
+	 */
+	@Override
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Grabs the time of an event, decoding its block up to it if the block is sealed
+	 * @param index - index of the event, 0 being the oldest
+	 * @return long - time of the event in milliseconds
+	 * @throws IndexOutOfBoundsException
+	 */
+	@Override
+	long get(int index) {
+		int block = index / BLOCK_SIZE;
+		byte[] packed;
+		int width;
+		long base;
+		long unit;
+		long bit;
+		long time;
+
+		if (index >= this.size || index < 0)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+		if (block == this.size / BLOCK_SIZE)
+			return this.open[index % BLOCK_SIZE];
+
+		packed = this.blocks[block];
+		width = packed[0];
+		base = readBase(packed);
+		unit = this.blockUnits[block];
+		bit = 8L * dataOffset(packed);
+		time = this.blockFirsts[block];
+		for (int i = block * BLOCK_SIZE; i < index; i++) {
+			time += (base + readBits(packed, bit, width)) * unit;
+			bit += width;
+		}
+
+		return time;
+	}
+
+	/**
+	 * Grabs the time of the newest event without decoding
+	 * @return long - time of the last event in milliseconds
+	 */
+	@Override
+	long last() {
+		if (this.size == 0)
+			throw new IndexOutOfBoundsException("Index: -1, Size: 0");
+		return this.lastTime;
+	}
+
+	/**
+	 * Appends an event to the open block, sealing it once it's full
+	 * @param time - time of the event in milliseconds
+	 */
+	@Override
+	void add(long time) {
+		int block = this.size / BLOCK_SIZE;
+		int position = this.size % BLOCK_SIZE;
+
+		if (position == 0) {
+			if (block == this.blockFirsts.length) {
+				this.blocks = Arrays.copyOf(this.blocks, block * 2);
+				this.blockFirsts = Arrays.copyOf(this.blockFirsts, block * 2);
+				this.blockUnits = Arrays.copyOf(this.blockUnits, block * 2);
+			}
+			this.blockFirsts[block] = time;
+		}
+		if (position == this.open.length)
+			this.open = Arrays.copyOf(this.open, Math.min(position * 2, BLOCK_SIZE));
+		this.open[position] = time;
+
+		this.lastTime = time;
+		this.size++;
+		if (this.size % BLOCK_SIZE == 0)
+			this.seal(block);
+	}
+
+	/**
+	 * Estimates how many events countAtOrBefore looks at: the binary search over blocks, then
+	 * decoding up to a whole block
+	 * @return int - events looked at per count
+	 */
+	@Override
+	int searchCost() {
+		int blocks = (this.size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		return 32 - Integer.numberOfLeadingZeros(blocks) + Math.min(this.size, BLOCK_SIZE);
+	}
+
+	/**
+	 * Counts the events at or before a time. Binary searches the first times for the last block
+	 * starting at or before the time, then decodes that block until an event passes the time.
+	 * @param time - time in milliseconds
+	 * @return int - number of events that happened at or before the time
+	 */
+	@Override
+	int countAtOrBefore(long time) {
+		int blocks = (this.size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		int low = 0;
+		int high = blocks;
+		int block;
+		byte[] packed;
+		int width;
+		long base;
+		long unit;
+		long bit;
+		int end;
+		long current;
+
+		//Find the first block starting after the time
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.blockFirsts[middle] <= time)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		if (low == 0)
+			return 0;
+
+		block = low - 1;
+		if (block == this.size / BLOCK_SIZE) {
+			end = this.size % BLOCK_SIZE;
+			for (int i = 1; i < end; i++) {
+				if (this.open[i] > time)
+					return block * BLOCK_SIZE + i;
+			}
+			return this.size;
+		}
+
+		packed = this.blocks[block];
+		width = packed[0];
+		base = readBase(packed);
+		unit = this.blockUnits[block];
+		bit = 8L * dataOffset(packed);
+		current = this.blockFirsts[block];
+		end = (block + 1) * BLOCK_SIZE;
+		for (int i = block * BLOCK_SIZE + 1; i < end; i++) {
+			current += (base + readBits(packed, bit, width)) * unit;
+			bit += width;
+			if (current > time)
+				return i;
+		}
+
+		return end;
+	}
+
+	/**
+	 * Package-private estimate of the heap taken by the events, counting every array and its header
+	 * @return long - bytes held
+	 */
+	long getFootprint() {
+		long returnBytes = 4L * ARRAY_HEADER_BYTES + this.blocks.length * QueryStats.REFERENCE_BYTES;
+
+		returnBytes += this.blockFirsts.length * 8L + this.blockUnits.length * 4L + this.open.length * 8L;
+		for (byte[] packed: this.blocks) {
+			if (packed != null)
+				returnBytes += ARRAY_HEADER_BYTES + packed.length;
+		}
+
+		return returnBytes;
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that packs the full open block into an array that fits it exactly. The
+	 * array holds the bit width, then the smallest gap as a varint, then every gap's
+	 * difference from the smallest in width bits.
+	 * @param block - index of the block
+	 */
+	private void seal(int block) {
+		long[] gaps = new long[BLOCK_SIZE - 1];
+		long unit = 0;
+		long smallest = Long.MAX_VALUE;
+		long largest = 0;
+		long base;
+		int width;
+		int offset = 1;
+		byte[] packed;
+
+		//Times never decrease, so no gap is negative
+		for (int i = 0; i < gaps.length; i++) {
+			gaps[i] = this.open[i + 1] - this.open[i];
+			unit = gcd(unit, gaps[i]);
+		}
+		//Gaps that are all zero, or only share a unit too big to keep, stay in milliseconds
+		if (unit == 0 || unit > Integer.MAX_VALUE)
+			unit = 1;
+		for (int i = 0; i < gaps.length; i++) {
+			gaps[i] /= unit;
+			smallest = Math.min(smallest, gaps[i]);
+			largest = Math.max(largest, gaps[i]);
+		}
+		width = 64 - Long.numberOfLeadingZeros(largest - smallest);
+
+		//One byte of width, the smallest gap as a varint, then the packed differences
+		packed = new byte[2 + (63 - Long.numberOfLeadingZeros(smallest | 1)) / 7 + (gaps.length * width + 7) / 8];
+		packed[0] = (byte) width;
+		base = smallest;
+		while ((base & ~0x7fL) != 0) {
+			packed[offset++] = (byte) ((base & 0x7f) | 0x80);
+			base >>>= 7;
+		}
+		packed[offset++] = (byte) base;
+		for (int i = 0; i < gaps.length; i++)
+			writeBits(packed, 8L * offset + (long) i * width, gaps[i] - smallest, width);
+
+		this.blocks[block] = packed;
+		this.blockUnits[block] = (int) unit;
+		this.open = new long[INITIAL_OPEN_SIZE];
+	}
+
+	/**
+	 * Private helper that reads the smallest gap of a sealed block
+	 * @param packed - the sealed block
+	 * @return long - smallest gap, in the block's unit
+	 */
+	private static long readBase(byte[] packed) {
+		long returnBase = 0;
+		int shift = 0;
+		int offset = 1;
+		byte next;
+
+		do {
+			next = packed[offset++];
+			returnBase |= (long) (next & 0x7f) << shift;
+			shift += 7;
+		} while (next < 0);
+
+		return returnBase;
+	}
+
+	/**
+	 * Private helper that finds where the packed gaps of a sealed block start
+	 * @param packed - the sealed block
+	 * @return int - offset of the first packed byte
+	 */
+	private static int dataOffset(byte[] packed) {
+		int offset = 1;
+		while (packed[offset] < 0)
+			offset++;
+		return offset + 1;
+	}
+
+	/**
+	 * Private helper that reads a value of up to 64 bits, lowest bits first
+	 * @param packed - array to read from
+	 * @param bit - position of the value's lowest bit
+	 * @param width - bits in the value
+	 * @return long - the value
+	 */
+	private static long readBits(byte[] packed, long bit, int width) {
+		long returnValue = 0;
+		int index = (int) (bit >>> 3);
+		int shift = (int) (bit & 7);
+		int read = 0;
+
+		while (read < width) {
+			returnValue |= (long) ((packed[index++] & 0xff) >>> shift) << read;
+			read += 8 - shift;
+			shift = 0;
+		}
+		if (width < 64)
+			returnValue &= (1L << width) - 1;
+
+		return returnValue;
+	}
+
+	/**
+	 * Private helper that writes a value of up to 64 bits, lowest bits first, into zeroed bits
+	 * @param packed - array to write into
+	 * @param bit - position of the value's lowest bit
+	 * @param value - value to write, fitting in width bits
+	 * @param width - bits in the value
+	 */
+	private static void writeBits(byte[] packed, long bit, long value, int width) {
+		int index = (int) (bit >>> 3);
+		int shift = (int) (bit & 7);
+
+		while (width > 0) {
+			packed[index++] |= (byte) (value << shift);
+			value >>>= 8 - shift;
+			width -= 8 - shift;
+			shift = 0;
+		}
+	}
+
+	/**
+	 * Private helper that finds the greatest common divisor of two gaps
+	 * @param a - first gap
+	 * @param b - second gap
+	 * @return long - greatest common divisor, 0 if both are 0
+	 */
+	private static long gcd(long a, long b) {
+		while (b != 0) {
+			long rest = a % b;
+			a = b;
+			b = rest;
+		}
+		return a;
+	}
+
+}
@@ -0,0 +1,94 @@
+package main;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * JUnit testing for the CompressedTimeline class. Kept in the main package since the
+ * timelines aren't public.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class CompressedTimelineTest {
+
+	//Events in each generated history
+	static final int EVENTS = 10000;
+
+	//Start of every generated history, Mar 1, 2000
+	static final long START = 951886800000L;
+
+	/**
+	 * Test that every event and count comes back the same as from an uncompressed timeline,
+	 * across units, repeated times, a gap too wide for a few bytes, and appends after compressing
+	 */
+	@Test
+	public void testRoundTrip() {
+		Random random = new Random(7);
+		long[] units = {1, 1000, 86400000L};
+
+		for (long unit: units) {
+			HeapTimeline plain = new HeapTimeline();
+			CompressedTimeline compressed;
+			long time = START;
+
+			for (int i = 0; i < 1000; i++) {
+				time += unit * random.nextInt(i % 7 == 0 ? 1 : 5000);
+				if (i == 500)
+					time += unit << 30;
+				plain.add(time);
+			}
+			compressed = new CompressedTimeline(plain);
+			for (int i = 0; i < 300; i++) {
+				time += unit * random.nextInt(5000);
+				plain.add(time);
+				compressed.add(time);
+			}
+
+			assertEquals("Sizes should match", plain.size(), compressed.size());
+			assertEquals("Last events should match", plain.last(), compressed.last());
+			for (int i = 0; i < plain.size(); i++) {
+				assertEquals("Events should match", plain.get(i), compressed.get(i));
+				assertEquals("Counts at events should match", plain.countAtOrBefore(plain.get(i)), compressed.countAtOrBefore(plain.get(i)));
+				assertEquals("Counts between events should match", plain.countAtOrBefore(plain.get(i) - 1), compressed.countAtOrBefore(plain.get(i) - 1));
+			}
+			assertEquals("Nothing happens before the first event", 0, compressed.countAtOrBefore(START - 1));
+		}
+	}
+
+	/**
+	 * Test the bytes kept per event against the 8 a plain timeline takes, for gaps of one to six
+	 * hours kept to the millisecond, the second, and the minute
+	 */
+	@Test
+	public void testBytesPerEvent() {
+		double millis = this.bytesPerEvent(1);
+		double seconds = this.bytesPerEvent(1000);
+		double minutes = this.bytesPerEvent(60000);
+
+		assertTrue("Millisecond gaps should take under half of a plain timeline, took " + millis, millis < 4);
+		assertTrue("Second gaps should drop their trailing zeros, took " + seconds, seconds < 3);
+		assertTrue("Minute gaps should take under a quarter of a plain timeline, took " + minutes, minutes < 2);
+		assertTrue("Coarser units should never take more", millis >= seconds && seconds >= minutes);
+	}
+
+	/**
+	 * Helper that compresses a history of gaps between one and six hours kept to a unit
+	 * @param unit - unit the event times are kept to, in milliseconds
+	 * @return double - bytes held per event
+	 */
+	private double bytesPerEvent(long unit) {
+		Random random = new Random(11);
+		HeapTimeline plain = new HeapTimeline();
+		long time = START;
+
+		for (int i = 0; i < EVENTS; i++) {
+			time += (3600000L + (long) (random.nextDouble() * 5 * 3600000L)) / unit * unit;
+			plain.add(time);
+		}
+
+		return (double) new CompressedTimeline(plain).getFootprint() / EVENTS;
+	}
+
+}
@@ -0,0 +1,746 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * ConnectivityIndex class answers whether users are in the same component of the links
+ * active at a date. Dates that fall between the same two events share one union-find, and
+ * the union-finds of recent dates are cached. A date whose only new events since a cached
+ * date are establishes is answered by copying that union-find and uniting the new links.
+ * Tear downs can't be undone in a union-find, so the events are also split into windows of
+ * a fixed number of events, with a checkpoint of the links active at the start of each. A
+ * window's base union-find holds the links active through the whole window, so any date in
+ * it is answered by copying the base and uniting the few links the window touches that are
+ * active at the date, never replaying the events before the window. Bases are built the
+ * first time their window is asked for, and the most recent ones are kept, at four bytes
+ * per user each.
+ * New users and events at or after the newest one are appended as the network changes, so
+ * the cached union-finds stay valid under a stream of live updates, and the newest one is
+ * extended in place rather than copied. Any other change drops the index and it is rebuilt
+ * on the next query. A query interrupted while replaying events stops with a
+ * CancellationException before the half built union-find is cached.
+ * The same sorted events tell a neighborhood diff which links changed between two dates.
+ * Queries sharing a read lock can reach the index at once, so its methods are synchronized.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+class ConnectivityIndex {
+
+	//Number of union-finds kept for recently asked dates
+	private static final int CACHE_SIZE = 16;
+
+	//Events replayed between checks for an interrupt, minus one
+	private static final int INTERRUPT_MASK = 0xfff;
+
+	//Fewest events between checkpoints
+	static final int MIN_CHECKPOINT_INTERVAL = 1024;
+
+	//Checkpoints a freshly indexed network is split into, at most
+	static final int MAX_CHECKPOINTS = 128;
+
+	private SocialNetwork				network;			//Network being indexed
+	private LinkEventIndex				events;				//Sorted events of the network
+	private int[]						teardownsBefore;	//Number of tear downs among the first k events
+	private int							indexedEvents;		//Events counted in teardownsBefore
+	private LinkedHashMap<Integer, UnionFind>	cache;		//Union-finds by number of events applied
+	private int							interval;			//Events between checkpoints
+	private ArrayList<BitSet>			checkpoints;		//Links active at the start of each window
+	private LinkedHashMap<Integer, int[]>	bases;			//Flattened components of the links active through each window
+	private BitSet						replayActive;		//Links active after the replayed events
+	private int							replayed;			//Events covered by the checkpoints
+
+	/**
+	 * Class constructor
+	 * @param network - network to answer queries for
+	 * @throws NullPointerException
+	 */
+	ConnectivityIndex(SocialNetwork network) {
+		if (network == null)
+			throw new NullPointerException("Input parameter is null");
+		this.network = network;
+		this.events = null;
+	}
+
+	/**
+	 * Checks if two users are joined by a path of links active at the date
+	 * @param idA - id of the first user
+	 * @param idB - id of the second user
+	 * @param date - date to check activity against
+	 * @return boolean - true if connected, false if not or if either user isn't a member
+	 */
+	synchronized boolean areConnected(String idA, String idB, Date date) {
+		UnionFind components = this.componentsAt(date);
+		int indexA = this.events.indexOf(idA);
+		int indexB = this.events.indexOf(idB);
+
+		if (indexA < 0 || indexB < 0)
+			return false;
+		return components.find(indexA) == components.find(indexB);
+	}
+
+	/**
+	 * Finds how many users are in the same component as the user at the date, including them
+	 * @param id - id of the user
+	 * @param date - date to check activity against
+	 * @return int - size of the component, 0 if the user isn't a member
+	 */
+	synchronized int componentSizeAt(String id, Date date) {
+		UnionFind components = this.componentsAt(date);
+		int index = this.events.indexOf(id);
+
+		if (index < 0)
+			return 0;
+		return components.sizeOf(index);
+	}
+
+	/**
+	 * Appends a user just added to the network, if the index was up to date before the change
+	 * @param user - the new member
+	 */
+	synchronized void userAdded(User user) {
+		if (this.isOneChangeBehind())
+			this.events.appendUser(user, this.network.getModificationCount());
+	}
+
+	/**
+	 * Appends an establish or tear down just made on a link, if the index was up to date
+	 * before the change. An event older than the newest indexed one leaves the index stale.
+	 * @param link - link the event was made on
+	 * @param time - date of the event in milliseconds
+	 * @param establish - true if the link was established
+	 * @throws UninitializedObjectException
+	 */
+	synchronized void linkChanged(Link link, long time, boolean establish) throws UninitializedObjectException {
+		if (this.isOneChangeBehind())
+			this.events.appendEvent(link, time, establish, this.network.getModificationCount());
+	}
+
+	/**
+	 * Finds the links active at one date but not the other by going over the events between
+	 * them, never asking a link about its timeline. A link's events alternate between
+	 * establish and tear down, so its state differs if it has an odd number of them.
+	 * @param time1 - one date in milliseconds
+	 * @param time2 - the other date in milliseconds
+	 * @return List<Link> - links whose state differs between the dates
+	 * @throws CancellationException
+	 */
+	synchronized List<Link> linksChangedBetween(long time1, long time2) {
+		BitSet changed = new BitSet();
+		ArrayList<Link> returnLinks = new ArrayList<Link>();
+		int end;
+
+		this.refreshIfStale();
+		end = this.events.countAtOrBefore(Math.max(time1, time2));
+		for (int event = this.events.countAtOrBefore(Math.min(time1, time2)); event < end; event++) {
+			if ((event & INTERRUPT_MASK) == 0)
+				checkInterrupted();
+			changed.flip(this.events.getEventLink(event));
+		}
+		for (int link = changed.nextSetBit(0); link >= 0; link = changed.nextSetBit(link + 1))
+			returnLinks.add(this.events.getLink(link));
+
+		return returnLinks;
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that checks if the only change the index is missing is the one being appended
+	 * @return boolean - true if the index was up to date before the latest change
+	 */
+	private boolean isOneChangeBehind() {
+		return this.events != null && this.events.getModificationCount() == this.network.getModificationCount() - 1;
+	}
+
+	/**
+	 * Private helper that grabs the union-find for a date, from the cache if possible
+	 * @param date - date to check activity against
+	 * @return UnionFind - components of the links active at the date
+	 */
+	private UnionFind componentsAt(Date date) {
+		UnionFind components;
+		int epoch;
+
+		this.refreshIfStale();
+		this.addCheckpoints();
+		epoch = this.events.countAtOrBefore(date.getTime());
+
+		components = this.cache.get(epoch);
+		if (components == null) {
+			components = this.extendCachedComponents(epoch);
+			if (components == null)
+				components = this.rebuildComponents(epoch);
+			this.cache.put(epoch, components);
+		}
+		//Users appended since the union-find was made are on their own
+		components.ensureCapacity(this.events.userCount());
+
+		return components;
+	}
+
+	/**
+	 * Private helper that re-indexes the network if the index went stale, dropping every
+	 * cached union-find, and counts the tear downs of any appended events
+	 * @throws CancellationException
+	 */
+	private void refreshIfStale() {
+		if (this.events != null && this.events.getModificationCount() == this.network.getModificationCount()) {
+			this.countTeardowns();
+			return;
+		}
+
+		this.events = new LinkEventIndex(this.network);
+		this.teardownsBefore = new int[this.events.eventCount() + 1];
+		this.indexedEvents = 0;
+		this.countTeardowns();
+
+		this.cache = ConnectivityIndex.newCache(CACHE_SIZE);
+		this.interval = Math.max(MIN_CHECKPOINT_INTERVAL, (this.events.eventCount() + MAX_CHECKPOINTS - 1) / MAX_CHECKPOINTS);
+		this.checkpoints = new ArrayList<BitSet>();
+		this.bases = ConnectivityIndex.newCache(MAX_CHECKPOINTS);
+		this.replayActive = new BitSet();
+		this.replayed = 0;
+	}
+
+	/**
+	 * Private helper that extends the tear down counts over events appended since they were counted
+	 */
+	private void countTeardowns() {
+		if (this.teardownsBefore.length < this.events.eventCount() + 1)
+			this.teardownsBefore = Arrays.copyOf(this.teardownsBefore, Math.max(this.events.eventCount() + 1, this.teardownsBefore.length * 2));
+		for (int i = this.indexedEvents; i < this.events.eventCount(); i++)
+			this.teardownsBefore[i + 1] = this.teardownsBefore[i] + (this.events.isEstablish(i) ? 0 : 1);
+		this.indexedEvents = this.events.eventCount();
+	}
+
+	/**
+	 * Private helper that replays events not yet covered by the checkpoints, taking one at the
+	 * start of every window. The base of any window that gained events no longer holds, so
+	 * it's dropped.
+	 * @throws CancellationException
+	 */
+	private void addCheckpoints() {
+		if (this.replayed == this.events.eventCount())
+			return;
+
+		for (int window = this.replayed / this.interval; window < this.checkpoints.size(); window++)
+			this.bases.remove(window);
+		while (this.replayed < this.events.eventCount()) {
+			int event = this.replayed;
+			if ((event & INTERRUPT_MASK) == 0)
+				checkInterrupted();
+			if (event % this.interval == 0)
+				this.checkpoints.add((BitSet) this.replayActive.clone());
+			this.replayActive.set(this.events.getEventLink(event), this.events.isEstablish(event));
+			this.replayed++;
+		}
+	}
+
+	/**
+	 * Private helper that finds the latest cached union-find before the epoch with no tear
+	 * downs in between, and unites the links established since then on it. The newest cached
+	 * union-find is taken over rather than copied, since under live updates queries move
+	 * forward and it's unlikely to be asked for again; any other is copied.
+	 * @param epoch - number of events to apply
+	 * @return UnionFind - components at the epoch, null if no cached union-find can be extended
+	 * @throws CancellationException
+	 */
+	private UnionFind extendCachedComponents(int epoch) {
+		UnionFind components;
+		int base = -1;
+		int newest = -1;
+
+		for (int cached: this.cache.keySet()) {
+			newest = Math.max(newest, cached);
+			if (cached < epoch && cached > base && this.teardownsBefore[cached] == this.teardownsBefore[epoch])
+				base = cached;
+		}
+
+		if (base >= 0 && base == newest)
+			components = this.cache.remove(base);
+		else if (base >= 0)
+			components = this.cache.get(base).copy();
+		else if (this.teardownsBefore[epoch] == 0) {
+			//Nothing has been torn down yet, so start from everyone on their own
+			base = 0;
+			components = new DenseUnionFind(this.events.userCount());
+		} else
+			return null;
+
+		components.ensureCapacity(this.events.userCount());
+		for (int event = base; event < epoch; event++) {
+			if ((event & INTERRUPT_MASK) == 0)
+				checkInterrupted();
+			this.uniteLink(components, this.events.getEventLink(event));
+		}
+
+		return components;
+	}
+
+	/**
+	 * Private helper that rebuilds the components at an epoch from the checkpoint of its window.
+	 * The window's base already holds every link it doesn't touch, so only the links it
+	 * touches are looked at: replaying the window's events up to the epoch on top of the
+	 * checkpoint gives which of them are active at the epoch.
+	 * @param epoch - number of events to apply
+	 * @return UnionFind - components at the epoch
+	 * @throws CancellationException
+	 */
+	private UnionFind rebuildComponents(int epoch) {
+		int window = Math.min(epoch / this.interval, this.checkpoints.size() - 1);
+		int start = window * this.interval;
+		int end = Math.min(start + this.interval, this.events.eventCount());
+		BitSet active = (BitSet) this.checkpoints.get(window).clone();
+		UnionFind components = new LayeredUnionFind(this.baseOf(window));
+
+		for (int event = start; event < epoch; event++) {
+			if ((event & INTERRUPT_MASK) == 0)
+				checkInterrupted();
+			active.set(this.events.getEventLink(event), this.events.isEstablish(event));
+		}
+		//Clearing each link once it's united keeps a link touched many times from being redone
+		for (int event = start; event < end; event++) {
+			int link = this.events.getEventLink(event);
+			if (active.get(link)) {
+				this.uniteLink(components, link);
+				active.clear(link);
+			}
+		}
+
+		return components;
+	}
+
+	/**
+	 * Private helper that grabs the base of a window, building it from the window's
+	 * checkpoint if it isn't kept
+	 * @param window - index of the window
+	 * @return int[] - flattened components of the links active through the whole window
+	 * @throws CancellationException
+	 */
+	private int[] baseOf(int window) {
+		int[] returnBase = this.bases.get(window);
+		DenseUnionFind components;
+		BitSet stable;
+		int start;
+		int end;
+
+		if (returnBase != null)
+			return returnBase;
+
+		start = window * this.interval;
+		end = Math.min(start + this.interval, this.events.eventCount());
+		stable = (BitSet) this.checkpoints.get(window).clone();
+		for (int event = start; event < end; event++)
+			stable.clear(this.events.getEventLink(event));
+
+		components = new DenseUnionFind(this.events.userCount());
+		for (int link = stable.nextSetBit(0), united = 0; link >= 0; link = stable.nextSetBit(link + 1), united++) {
+			if ((united & INTERRUPT_MASK) == 0)
+				checkInterrupted();
+			this.uniteLink(components, link);
+		}
+		returnBase = components.toBase();
+		this.bases.put(window, returnBase);
+
+		return returnBase;
+	}
+
+	/**
+	 * Private helper that unites the two users of a link
+	 * @param components - union-find to update
+	 * @param link - index of the link
+	 */
+	private void uniteLink(UnionFind components, int link) {
+		components.union(this.events.getFirstUser(link), this.events.getSecondUser(link));
+	}
+
+	/**
+	 * Private helper that makes a map keeping only the entries used most recently
+	 * @param capacity - entries to keep
+	 * @return LinkedHashMap<Integer, T> - the empty map
+	 */
+	private static <T> LinkedHashMap<Integer, T> newCache(final int capacity) {
+		return new LinkedHashMap<Integer, T>(capacity * 2, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, T> eldest) {
+				return this.size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Private helper that stops a replay when the thread running it is interrupted, which is
+	 * how AsyncSocialNetwork cancels a query already in flight
+	 * @throws CancellationException
+	 */
+	private static void checkInterrupted() throws CancellationException {
+		if (Thread.currentThread().isInterrupted())
+			throw new CancellationException("Replay interrupted");
+	}
+
+	/**
+	 * Union-find over user indices
+	 */
+	private abstract static class UnionFind {
+
+		/**
+		 * Makes an independent copy
+		 * @return UnionFind - the copy
+		 */
+		abstract UnionFind copy();
+
+		/**
+		 * Puts users added since the union-find was made in components of their own
+		 * @param count - number of users to cover
+		 */
+		abstract void ensureCapacity(int count);
+
+		/**
+		 * Finds the root of a user's component
+		 * @param user - index of the user
+		 * @return int - index of the root
+		 */
+		abstract int find(int user);
+
+		/**
+		 * Joins the components of two users, hanging the smaller under the larger
+		 * @param first - index of the first user
+		 * @param second - index of the second user
+		 */
+		abstract void union(int first, int second);
+
+		/**
+		 * Size of a user's component
+		 * @param user - index of the user
+		 * @return int - number of users in the component
+		 */
+		abstract int sizeOf(int user);
+	}
+
+	/**
+	 * Union-find over every user with union by size and path halving
+	 */
+	private static class DenseUnionFind extends UnionFind {
+
+		private int[] parent;	//Parent of each user, roots point to themselves
+		private int[] size;		//Size of the component, only kept up to date at roots
+
+		/**
+		 * Class constructor
+		 * Puts every user in a component of their own
+		 * @param count - number of users
+		 */
+		DenseUnionFind(int count) {
+			this.parent = new int[count];
+			this.size = new int[count];
+			for (int i = 0; i < count; i++)
+				this.parent[i] = i;
+			Arrays.fill(this.size, 1);
+		}
+
+		/**
+		 * Class constructor
+		 * Copies another union-find
+		 * @param other - union-find to copy
+		 */
+		private DenseUnionFind(DenseUnionFind other) {
+			this.parent = other.parent.clone();
+			this.size = other.size.clone();
+		}
+
+		/**
+		 * Makes an independent copy
+		 * @return UnionFind - the copy
+		 */
+		@Override
+		UnionFind copy() {
+			return new DenseUnionFind(this);
+		}
+
+		/**
+		 * Puts users added since the union-find was made in components of their own
+		 * @param count - number of users to cover
+		 */
+		@Override
+		void ensureCapacity(int count) {
+			int oldCount = this.parent.length;
+
+			if (count <= oldCount)
+				return;
+			this.parent = Arrays.copyOf(this.parent, Math.max(count, oldCount * 2));
+			this.size = Arrays.copyOf(this.size, this.parent.length);
+			for (int i = oldCount; i < this.parent.length; i++) {
+				this.parent[i] = i;
+				this.size[i] = 1;
+			}
+		}
+
+		/**
+		 * Finds the root of a user's component, halving the path along the way
+		 * @param user - index of the user
+		 * @return int - index of the root
+		 */
+		@Override
+		int find(int user) {
+			while (this.parent[user] != user) {
+				this.parent[user] = this.parent[this.parent[user]];
+				user = this.parent[user];
+			}
+			return user;
+		}
+
+		/**
+		 * Joins the components of two users, hanging the smaller under the larger
+		 * @param first - index of the first user
+		 * @param second - index of the second user
+		 */
+		@Override
+		void union(int first, int second) {
+			int firstRoot = this.find(first);
+			int secondRoot = this.find(second);
+
+			if (firstRoot == secondRoot)
+				return;
+			if (this.size[firstRoot] < this.size[secondRoot]) {
+				int swap = firstRoot;
+				firstRoot = secondRoot;
+				secondRoot = swap;
+			}
+			this.parent[secondRoot] = firstRoot;
+			this.size[firstRoot] += this.size[secondRoot];
+		}
+
+		/**
+		 * Size of a user's component
+		 * @param user - index of the user
+		 * @return int - number of users in the component
+		 */
+		@Override
+		int sizeOf(int user) {
+			return this.size[this.find(user)];
+		}
+
+		/**
+		 * Flattens the components into one array a LayeredUnionFind can start from
+		 * @return int[] - root of each user, or minus the size of the component for a root
+		 */
+		int[] toBase() {
+			int[] returnBase = new int[this.parent.length];
+
+			for (int i = 0; i < returnBase.length; i++) {
+				int root = this.find(i);
+				returnBase[i] = root == i ? -this.size[i] : root;
+			}
+
+			return returnBase;
+		}
+	}
+
+	/**
+	 * Union-find layered over a flattened base that is shared and never changed. Only the
+	 * roots of the base joined since are kept, in an open addressing table, so making,
+	 * copying and extending one costs the number of unions made on it rather than the number
+	 * of users. Union by size keeps the paths through the table short.
+	 */
+	private static class LayeredUnionFind extends UnionFind {
+
+		//Space given to a new table, a power of two
+		private static final int INITIAL_CAPACITY = 16;
+
+		private int[]	base;		//Root of each user, or minus the component size for a root
+		private int[]	keys;		//Base root in each slot, -1 if the slot is free
+		private int[]	parents;	//Parent each slot's root was hung under, itself if still a root
+		private int[]	sizes;		//Size of the component of each slot's root while it's a root
+		private int		count;		//Slots in use
+
+		/**
+		 * Class constructor
+		 * Starts from the components of the base
+		 * @param base - flattened components to share
+		 */
+		LayeredUnionFind(int[] base) {
+			this.base = base;
+			this.keys = new int[INITIAL_CAPACITY];
+			this.parents = new int[INITIAL_CAPACITY];
+			this.sizes = new int[INITIAL_CAPACITY];
+			this.count = 0;
+			Arrays.fill(this.keys, -1);
+		}
+
+		/**
+		 * Class constructor
+		 * Copies another union-find, sharing its base
+		 * @param other - union-find to copy
+		 */
+		private LayeredUnionFind(LayeredUnionFind other) {
+			this.base = other.base;
+			this.keys = other.keys.clone();
+			this.parents = other.parents.clone();
+			this.sizes = other.sizes.clone();
+			this.count = other.count;
+		}
+
+		/**
+		 * Makes an independent copy
+		 * @return UnionFind - the copy
+		 */
+		@Override
+		UnionFind copy() {
+			return new LayeredUnionFind(this);
+		}
+
+		/**
+		 * Users past the end of the base are already on their own
+		 * @param count - number of users to cover
+		 */
+		@Override
+		void ensureCapacity(int count) {
+		}
+
+		/**
+		 * Finds the root of a user's component: their root in the base, followed up through
+		 * the unions made since
+		 * @param user - index of the user
+		 * @return int - index of the root
+		 */
+		@Override
+		int find(int user) {
+			int returnRoot = user >= this.base.length || this.base[user] < 0 ? user : this.base[user];
+			int slot = this.slotOf(returnRoot);
+
+			while (slot >= 0 && this.parents[slot] != returnRoot) {
+				returnRoot = this.parents[slot];
+				slot = this.slotOf(returnRoot);
+			}
+
+			return returnRoot;
+		}
+
+		/**
+		 * Joins the components of two users, hanging the smaller under the larger
+		 * @param first - index of the first user
+		 * @param second - index of the second user
+		 */
+		@Override
+		void union(int first, int second) {
+			int firstRoot = this.find(first);
+			int secondRoot = this.find(second);
+			int firstSize;
+			int secondSize;
+
+			if (firstRoot == secondRoot)
+				return;
+			firstSize = this.rootSize(firstRoot);
+			secondSize = this.rootSize(secondRoot);
+			if (firstSize < secondSize) {
+				int swap = firstRoot;
+				firstRoot = secondRoot;
+				secondRoot = swap;
+			}
+			this.put(secondRoot, firstRoot, 0);
+			this.put(firstRoot, firstRoot, firstSize + secondSize);
+		}
+
+		/**
+		 * Size of a user's component
+		 * @param user - index of the user
+		 * @return int - number of users in the component
+		 */
+		@Override
+		int sizeOf(int user) {
+			return this.rootSize(this.find(user));
+		}
+
+		/**
+		 * Private helper for the size of a root's component
+		 * @param root - index of a root
+		 * @return int - number of users in the component
+		 */
+		private int rootSize(int root) {
+			int slot = this.slotOf(root);
+
+			if (slot >= 0)
+				return this.sizes[slot];
+			return root >= this.base.length ? 1 : -this.base[root];
+		}
+
+		/**
+		 * Private helper that finds the slot of a base root
+		 * @param root - index of the base root
+		 * @return int - its slot, -1 if it isn't in the table
+		 */
+		private int slotOf(int root) {
+			int mask = this.keys.length - 1;
+
+			for (int i = spread(root) & mask; this.keys[i] != -1; i = (i + 1) & mask) {
+				if (this.keys[i] == root)
+					return i;
+			}
+			return -1;
+		}
+
+		/**
+		 * Private helper that sets the parent and size of a base root, adding it to the table
+		 * if it isn't there, and growing the table past two thirds full
+		 * @param root - index of the base root
+		 * @param parent - root it's hung under, itself if still a root
+		 * @param size - size of its component while it's a root
+		 */
+		private void put(int root, int parent, int size) {
+			int mask = this.keys.length - 1;
+			int slot = spread(root) & mask;
+
+			while (this.keys[slot] != -1 && this.keys[slot] != root)
+				slot = (slot + 1) & mask;
+			if (this.keys[slot] == -1) {
+				if ((this.count + 1) * 3 > this.keys.length * 2) {
+					this.grow();
+					this.put(root, parent, size);
+					return;
+				}
+				this.keys[slot] = root;
+				this.count++;
+			}
+			this.parents[slot] = parent;
+			this.sizes[slot] = size;
+		}
+
+		/**
+		 * Private helper that moves every slot into a table twice the size
+		 */
+		private void grow() {
+			int[] oldKeys = this.keys;
+			int[] oldParents = this.parents;
+			int[] oldSizes = this.sizes;
+
+			this.keys = new int[oldKeys.length * 2];
+			this.parents = new int[this.keys.length];
+			this.sizes = new int[this.keys.length];
+			this.count = 0;
+			Arrays.fill(this.keys, -1);
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != -1)
+					this.put(oldKeys[i], oldParents[i], oldSizes[i]);
+			}
+		}
+
+		/**
+		 * Private helper that spreads a user index over the bits of a hash
+		 * @param root - index of the user
+		 * @return int - hash whose low bits pick the home slot
+		 */
+		private static int spread(int root) {
+			int hash = root * 0x9E3779B9;
+			return hash ^ (hash >>> 16);
+		}
+	}
+
+}
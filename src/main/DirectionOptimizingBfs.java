@@ -0,0 +1,170 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * DirectionOptimizingBfs class finds everyone within reach of a user at a date, switching
+ * the direction of each level to whichever is cheaper. Top-down levels push out from every
+ * frontier user along all of their links, which wastes most of its work once the frontier
+ * holds a hub whose friends were mostly reached already. Bottom-up levels instead have each
+ * unreached user pull, checking their links until one leads into the frontier, and stop at
+ * the first hit. The search goes bottom-up once the frontier's links outnumber a fraction
+ * of the unreached users' links, and back top-down once the frontier shrinks to a small
+ * fraction of the network.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+class DirectionOptimizingBfs {
+
+	//Go bottom-up once the frontier has more than 1/ALPHA of the unreached users' links
+	static final int ALPHA = 14;
+	
+	//Go back top-down once the frontier has fewer than 1/BETA of the users
+	static final int BETA = 24;
+	
+	private SocialNetwork	network;		//Network to search
+	private Date			date;			//Date to check activity against
+	private QueryStats		stats;			//Stats of the current search, null for none
+	private long			linksExamined;	//Links looked at by the current search
+
+	/**
+	 * Class constructor
+	 * @param network - network to search
+	 * @param date - date to check activity against
+	 */
+	DirectionOptimizingBfs(SocialNetwork network, Date date) {
+		this.network = network;
+		this.date = date;
+		this.stats = null;
+		this.linksExamined = 0;
+	}
+
+	/**
+	 * Finds everyone within reach of a user, counting distance the same way as neighborhoods
+	 * @param source - member to search from
+	 * @param distance_max - max distance of connections, -1 for no limit
+	 * @param stats - stats to fill in, null for none
+	 * @return HashMap<User, Integer> - reached users and their distances, without the source
+	 * @throws UninitializedObjectException
+	 * @throws CancellationException
+	 */
+	HashMap<User, Integer> search(User source, int distance_max, QueryStats stats) throws UninitializedObjectException {
+		HashMap<User, Integer> hops = new HashMap<User, Integer>();
+		HashMap<User, Integer> returnMap = new HashMap<User, Integer>();
+		HashSet<User> frontier = new HashSet<User>();
+		long frontierLinks;
+		long unreachedLinks;
+		int maxHops = distance_max < 0 ? -1 : distance_max + 1;
+		boolean bottomUp = false;
+
+		this.stats = stats;
+		this.linksExamined = 0;
+		//Every link has an end at each of its two users
+		unreachedLinks = 2 * this.network.getLinkCount();
+
+		hops.put(source, 0);
+		frontier.add(source);
+		frontierLinks = this.network.getDegreeOf(source);
+		unreachedLinks -= frontierLinks;
+
+		for (int level = 1; !frontier.isEmpty() && (maxHops < 0 || level <= maxHops); level++) {
+			List<User> next;
+
+			if (Thread.currentThread().isInterrupted())
+				throw new CancellationException("Traversal interrupted");
+
+			if (!bottomUp && frontierLinks * ALPHA > unreachedLinks)
+				bottomUp = true;
+			else if (bottomUp && (long) frontier.size() * BETA < this.network.getUsers().size())
+				bottomUp = false;
+
+			if (bottomUp)
+				next = this.pull(hops, frontier, level);
+			else
+				next = this.push(hops, frontier, level);
+			if (stats != null)
+				stats.addLevel(bottomUp);
+
+			frontier = new HashSet<User>(next);
+			frontierLinks = 0;
+			for (User user: next)
+				frontierLinks += this.network.getDegreeOf(user);
+			unreachedLinks -= frontierLinks;
+		}
+
+		for (User user: hops.keySet()) {
+			if (user != source)
+				returnMap.put(user, hops.get(user) - 1);
+		}
+		if (stats != null) {
+			stats.addLinksExamined(this.linksExamined);
+			stats.addUsersVisited(hops.size());
+			stats.addAllocatedBytes(hops.size() * (2 * QueryStats.MAP_ENTRY_BYTES + 2 * QueryStats.REFERENCE_BYTES));
+		}
+		return returnMap;
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper for a top-down level: every frontier user pushes along all their links
+	 * @param hops - hops of every reached user, updated with the new level
+	 * @param frontier - users reached on the last level
+	 * @param level - hops of the users this level reaches
+	 * @return List<User> - users reached on this level
+	 * @throws UninitializedObjectException
+	 */
+	private List<User> push(HashMap<User, Integer> hops, HashSet<User> frontier, int level) throws UninitializedObjectException {
+		List<User> returnList = new ArrayList<User>();
+
+		for (User user: frontier) {
+			for (Link link: this.network.getLinksOf(user)) {
+				User other;
+				this.linksExamined++;
+				if (link.isRemoved())
+					continue;
+				other = link.getOtherUser(user);
+				if (!hops.containsKey(other) && QueryStats.isActive(link, this.date, this.stats)) {
+					hops.put(other, level);
+					returnList.add(other);
+				}
+			}
+		}
+
+		return returnList;
+	}
+
+	/**
+	 * Private helper for a bottom-up level: every unreached user checks their links until one
+	 * leads into the frontier
+	 * @param hops - hops of every reached user, updated with the new level
+	 * @param frontier - users reached on the last level
+	 * @param level - hops of the users this level reaches
+	 * @return List<User> - users reached on this level
+	 * @throws UninitializedObjectException
+	 */
+	private List<User> pull(HashMap<User, Integer> hops, HashSet<User> frontier, int level) throws UninitializedObjectException {
+		List<User> returnList = new ArrayList<User>();
+
+		for (User user: this.network.getUsers()) {
+			if (hops.containsKey(user))
+				continue;
+			for (Link link: this.network.getLinksOf(user)) {
+				this.linksExamined++;
+				//Frontier membership is cheaper than activity, so it's checked first
+				if (!link.isRemoved() && frontier.contains(link.getOtherUser(user)) && QueryStats.isActive(link, this.date, this.stats)) {
+					hops.put(user, level);
+					returnList.add(user);
+					break;
+				}
+			}
+		}
+
+		return returnList;
+	}
+
+}
@@ -0,0 +1,265 @@
+package main;
+
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * DistanceOracle class answers "is B within distance N of A" at a fixed date without a full
+ * search for most pairs. It stores the hop counts from a few high degree landmark users to
+ * everyone, and the triangle inequality turns those into lower and upper bounds for any
+ * pair. Only pairs the bounds can't decide fall back to a search, and that search stops at
+ * the asked distance. The oracle rebuilds itself the next time it's asked after the
+ * network changes.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class DistanceOracle {
+
+	//Marks users a landmark can't reach
+	private static final int UNREACHABLE = -1;
+
+	private SocialNetwork	network;			//Network the oracle answers for
+	private Date			date;				//Date links are checked against
+	private int				landmarkCount;		//Number of landmarks to pick
+	private long			builtAt;			//Network modification the oracle was built at
+	private ActiveGraph		graph;				//Links active at the date
+	private int[]			landmarks;			//Indices of the landmark users
+	private int[][]			landmarkDistances;	//Hops from each landmark to each user
+	private int[]			marks;				//Stamp of the search that last reached each user
+	private int				stamp;				//Stamp of the newest search's first side, the second is one more
+	private long			boundAnswers;		//Queries decided by the bounds alone
+	private long			searchAnswers;		//Queries that needed a bounded search
+
+	/**
+	 * Class constructor
+	 * Builds an oracle for the links active at the date
+	 * @param network - network to answer for
+	 * @param date - date to check activity against
+	 * @param landmarkCount - number of landmark users to store distances from
+	 * @throws UninitializedObjectException
+	 * @throws NullPointerException
+	 */
+	public DistanceOracle(SocialNetwork network, Date date, int landmarkCount) throws UninitializedObjectException {
+		if (network == null || date == null)
+			throw new NullPointerException("Input parameter is null");
+
+		this.network = network;
+		this.date = new Date(date.getTime());
+		this.landmarkCount = Math.max(landmarkCount, 0);
+		this.boundAnswers = 0;
+		this.searchAnswers = 0;
+		this.build();
+	}
+
+	/**
+	 * Checks if the user with idB would be in the neighborhood of the user with idA within
+	 * distance_max, where directly linked users are at distance 0 just like neighborhood()
+	 * @param idA - id of the user whose neighborhood is checked
+	 * @param idB - id of the user being looked for
+	 * @param distance_max - max distance of the neighborhood
+	 * @param status - return status of event
+	 * @return boolean - true if within the distance, false if not or if the inputs are invalid
+	 * @throws UninitializedObjectException
+	 */
+	public boolean isWithinDistance(String idA, String idB, int distance_max, SocialNetworkStatus status) throws UninitializedObjectException {
+		int indexA;
+		int indexB;
+		int hopLimit;
+		int lower = 0;
+		int upper = Integer.MAX_VALUE;
+
+		if (idA == null || idB == null || status == null)
+			throw new NullPointerException("Input parameter is null");
+
+		if (this.builtAt != this.network.getModificationCount())
+			this.build();
+
+		indexA = this.graph.indexOf(idA);
+		indexB = this.graph.indexOf(idB);
+		if (indexA < 0 || indexB < 0) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return false;
+		} else if (distance_max < 0) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+			return false;
+		}
+
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		//A user is never part of their own neighborhood
+		if (indexA == indexB)
+			return false;
+
+		//Distance 0 means one link away, so count links instead
+		hopLimit = distance_max + 1;
+
+		for (int[] distances: this.landmarkDistances) {
+			int toA = distances[indexA];
+			int toB = distances[indexB];
+			//If a landmark reaches only one of them, they're in different components
+			if ((toA == UNREACHABLE) != (toB == UNREACHABLE)) {
+				this.boundAnswers++;
+				return false;
+			} else if (toA != UNREACHABLE) {
+				lower = Math.max(lower, Math.abs(toA - toB));
+				upper = Math.min(upper, toA + toB);
+			}
+		}
+
+		if (upper <= hopLimit || lower > hopLimit) {
+			this.boundAnswers++;
+			return upper <= hopLimit;
+		}
+
+		this.searchAnswers++;
+		return this.boundedSearch(indexA, indexB, hopLimit);
+	}
+
+	/**
+	 * Getter for the number of queries the landmark bounds decided alone
+	 * @return long - queries answered without a search
+	 */
+	public long getBoundAnswerCount() {
+		return this.boundAnswers;
+	}
+
+	/**
+	 * Getter for the number of queries that needed a bounded search
+	 * @return long - queries answered with a search
+	 */
+	public long getSearchAnswerCount() {
+		return this.searchAnswers;
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that snapshots the active links, picks the highest degree users as
+	 * landmarks, and stores the hops from each of them to everyone
+	 * @throws UninitializedObjectException
+	 */
+	private void build() throws UninitializedObjectException {
+		this.builtAt = this.network.getModificationCount();
+		this.graph = new ActiveGraph(this.network, this.date);
+		this.landmarks = this.pickLandmarks();
+		this.landmarkDistances = new int[this.landmarks.length][];
+		for (int i = 0; i < this.landmarks.length; i++)
+			this.landmarkDistances[i] = this.distancesFrom(this.landmarks[i]);
+		this.marks = new int[this.graph.size()];
+		this.stamp = 0;
+	}
+
+	/**
+	 * Private helper that picks the users with the most active links as landmarks
+	 * @return int[] - indices of the landmarks
+	 */
+	private int[] pickLandmarks() {
+		int count = Math.min(this.landmarkCount, this.graph.size());
+		int[] returnArray = new int[count];
+		int filled = 0;
+
+		//Insertion into a short sorted array beats sorting everyone when only a few are kept
+		for (int user = 0; user < this.graph.size() && count > 0; user++) {
+			int degree = this.graph.degree(user);
+			if (filled == count && degree <= this.graph.degree(returnArray[count - 1]))
+				continue;
+			int slot = filled < count ? filled++ : count - 1;
+			while (slot > 0 && this.graph.degree(returnArray[slot - 1]) < degree) {
+				returnArray[slot] = returnArray[slot - 1];
+				slot--;
+			}
+			returnArray[slot] = user;
+		}
+
+		return returnArray;
+	}
+
+	/**
+	 * Private helper that runs a full breadth first search from a user
+	 * @param source - index of the user to start at
+	 * @return int[] - hops to each user, UNREACHABLE if there's no path
+	 */
+	private int[] distancesFrom(int source) {
+		int[] distances = new int[this.graph.size()];
+		int[] queue = new int[this.graph.size()];
+		int head = 0;
+		int tail = 0;
+
+		Arrays.fill(distances, UNREACHABLE);
+		distances[source] = 0;
+		queue[tail++] = source;
+		while (head < tail) {
+			int user = queue[head++];
+			for (int neighbor: this.graph.getNeighbors(user)) {
+				if (distances[neighbor] == UNREACHABLE) {
+					distances[neighbor] = distances[user] + 1;
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+
+		return distances;
+	}
+
+	/**
+	 * Private helper that searches outward from both users a level at a time, always growing
+	 * the smaller frontier, and gives up once the hop limit is used up. Users are marked with
+	 * stamps new to this search, so the marks are reused rather than cleared between searches.
+	 * @param indexA - index of the first user
+	 * @param indexB - index of the second user
+	 * @param hopLimit - max number of links on the path
+	 * @return boolean - true if a path of at most hopLimit links exists
+	 */
+	private boolean boundedSearch(int indexA, int indexB, int hopLimit) {
+		int[] frontierA = new int[] {indexA};
+		int[] frontierB = new int[] {indexB};
+		int sizeA = 1;
+		int sizeB = 1;
+		int hops = 0;
+		int stampA;
+		int stampB;
+
+		//Only clear the marks once the stamps run out
+		if (this.stamp > Integer.MAX_VALUE - 2) {
+			Arrays.fill(this.marks, 0);
+			this.stamp = 0;
+		}
+		stampA = ++this.stamp;
+		stampB = ++this.stamp;
+
+		this.marks[indexA] = stampA;
+		this.marks[indexB] = stampB;
+		while (hops < hopLimit && sizeA > 0 && sizeB > 0) {
+			boolean growA = sizeA <= sizeB;
+			int[] frontier = growA ? frontierA : frontierB;
+			int frontierSize = growA ? sizeA : sizeB;
+			int mine = growA ? stampA : stampB;
+			int theirs = growA ? stampB : stampA;
+			int[] next = new int[16];
+			int nextSize = 0;
+
+			hops++;
+			for (int i = 0; i < frontierSize; i++) {
+				for (int neighbor: this.graph.getNeighbors(frontier[i])) {
+					if (this.marks[neighbor] == theirs)
+						return true;
+					else if (this.marks[neighbor] != mine) {
+						this.marks[neighbor] = mine;
+						if (nextSize == next.length)
+							next = Arrays.copyOf(next, next.length * 2);
+						next[nextSize++] = neighbor;
+					}
+				}
+			}
+
+			if (growA) {
+				frontierA = next;
+				sizeA = nextSize;
+			} else {
+				frontierB = next;
+				sizeB = nextSize;
+			}
+		}
+
+		return false;
+	}
+
+}
@@ -0,0 +1,324 @@
+package main;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * DynamicBfs class keeps the hop counts from one source user up to date while links turn
+ * on and off, repairing only the part of the search tree a change touches. A link turning
+ * on can only shorten paths, so shorter counts spread outward from its far end. A link
+ * turning off only matters if it was the last link to a shorter user for the far end;
+ * then the users whose every shortest path ran through it are found level by level, and
+ * just those are settled again from their untouched neighbors. Changes must be reported
+ * one at a time, right after each link turns on or off.
+ * Which links count as on is up to isEdgeActive, so the same repair works for the current
+ * state of the network or for any other view of it.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+class DynamicBfs {
+
+	private SocialNetwork			network;	//Network whose links are searched
+	private User					source;		//User the hops are counted from
+	private int						maxHops;	//Most hops tracked, -1 for no limit
+	private HashMap<User, Integer>	hops;		//Hops from the source to every reached user
+	private HashMap<User, Integer>	before;		//Hops of users changed since the last delta, -1 if unreached
+
+	/**
+	 * Class constructor
+	 * Sets up an empty search, filled in by build
+	 * @param network - network whose links are searched
+	 * @param source - user to count hops from
+	 * @param maxHops - most hops to track, -1 for no limit
+	 */
+	DynamicBfs(SocialNetwork network, User source, int maxHops) {
+		this.network = network;
+		this.source = source;
+		this.maxHops = maxHops;
+		this.hops = new HashMap<User, Integer>();
+		this.before = new HashMap<User, Integer>();
+	}
+
+	/**
+	 * Checks if a link counts as on. By default that's if it wasn't removed and its last event
+	 * was an establish. Subclasses override this to search other views of the network.
+	 * @param link - link to check
+	 * @return boolean - true if the link can be crossed
+	 */
+	boolean isEdgeActive(Link link) {
+		return link.isCurrentlyActive();
+	}
+
+	/**
+	 * Getter for the hops to every reached user, including the source at 0
+	 * @return Map<User, Integer> - reached users and their hops, backed by the search
+	 */
+	Map<User, Integer> getHops() {
+		return this.hops;
+	}
+
+	/**
+	 * Spreads shorter hop counts outward after a link turned on
+	 * @param userA - one user of the link
+	 * @param userB - the other user of the link
+	 */
+	void edgeAdded(User userA, User userB) {
+		int hopsA = this.hopsOf(userA);
+		int hopsB = this.hopsOf(userB);
+		ArrayDeque<User> queue = new ArrayDeque<User>();
+
+		if (hopsA > hopsB) {
+			User swap = userA;
+			userA = userB;
+			userB = swap;
+			hopsA = hopsB;
+		}
+		if (hopsA == Integer.MAX_VALUE || !this.withinLimit(hopsA + 1) || this.hopsOf(userB) <= hopsA + 1)
+			return;
+
+		this.setHops(userB, hopsA + 1);
+		queue.add(userB);
+		while (!queue.isEmpty()) {
+			User user = queue.poll();
+			int next = this.hops.get(user) + 1;
+			if (!this.withinLimit(next))
+				continue;
+			for (Link link: this.linksOf(user)) {
+				if (!this.isEdgeActive(link))
+					continue;
+				User other = link.getOtherUser(user);
+				if (next < this.hopsOf(other)) {
+					this.setHops(other, next);
+					queue.add(other);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Repairs the hop counts that depended on a link that turned off
+	 * @param userA - one user of the link
+	 * @param userB - the other user of the link
+	 */
+	void edgeRemoved(User userA, User userB) {
+		int hopsA = this.hopsOf(userA);
+		int hopsB = this.hopsOf(userB);
+		User child;
+		HashSet<User> affected = new HashSet<User>();
+		ArrayList<User> affectedOrder = new ArrayList<User>();
+		ArrayDeque<User> queue = new ArrayDeque<User>();
+
+		//Only a link between neighboring levels can be on a shortest path
+		if (hopsA == Integer.MAX_VALUE || hopsB == Integer.MAX_VALUE || Math.abs(hopsA - hopsB) != 1)
+			return;
+		child = hopsA < hopsB ? userB : userA;
+
+		//Levels come off the queue in order, so every parent is decided before its children
+		queue.add(child);
+		while (!queue.isEmpty()) {
+			User user = queue.poll();
+			if (affected.contains(user) || this.hasUnaffectedParent(user, affected))
+				continue;
+			affected.add(user);
+			affectedOrder.add(user);
+			int childHops = this.hops.get(user) + 1;
+			for (Link link: this.linksOf(user)) {
+				if (!this.isEdgeActive(link))
+					continue;
+				User other = link.getOtherUser(user);
+				if (this.hopsOf(other) == childHops)
+					queue.add(other);
+			}
+		}
+
+		this.resettle(affected, affectedOrder);
+	}
+
+	/**
+	 * Drops every reached user, for when the source itself leaves the network
+	 */
+	void clear() {
+		for (User user: new ArrayList<User>(this.hops.keySet()))
+			this.setHops(user, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Turns the moves since the last delta into a delta, leaving the source out
+	 * @return NeighborhoodDelta - users who joined, left, or moved
+	 */
+	NeighborhoodDelta takeDelta() {
+		NeighborhoodDelta returnDelta = new NeighborhoodDelta();
+
+		for (Map.Entry<User, Integer> entry: this.before.entrySet()) {
+			if (entry.getKey() == this.source)
+				continue;
+			Integer now = this.hops.get(entry.getKey());
+			returnDelta.record(entry.getKey(), entry.getValue() - 1, now == null ? -1 : now - 1);
+		}
+		this.before.clear();
+
+		return returnDelta;
+	}
+
+	/**
+	 * Searches outward from the source from scratch. Kept out of the constructor so that
+	 * subclasses are set up before isEdgeActive is first asked.
+	 * @throws CancellationException
+	 */
+	void build() {
+		ArrayDeque<User> queue = new ArrayDeque<User>();
+
+		this.hops.clear();
+		this.hops.put(this.source, 0);
+		queue.add(this.source);
+		while (!queue.isEmpty()) {
+			User user = queue.poll();
+			int next = this.hops.get(user) + 1;
+			if (Thread.currentThread().isInterrupted())
+				throw new CancellationException("Traversal interrupted");
+			if (!this.withinLimit(next))
+				continue;
+			//Links back into the search are skipped before their activity is asked
+			for (Link link: this.linksOf(user)) {
+				User other = link.getOtherUser(user);
+				if (!this.hops.containsKey(other) && this.isEdgeActive(link)) {
+					this.hops.put(other, next);
+					queue.add(other);
+				}
+			}
+		}
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that checks if a user still has an on link to a user one hop closer
+	 * that isn't losing its own count
+	 * @param user - user to check
+	 * @param affected - users losing their counts
+	 * @return boolean - true if the user keeps their count
+	 */
+	private boolean hasUnaffectedParent(User user, HashSet<User> affected) {
+		int parentHops = this.hops.get(user) - 1;
+
+		for (Link link: this.linksOf(user)) {
+			if (!this.isEdgeActive(link))
+				continue;
+			User other = link.getOtherUser(user);
+			if (this.hopsOf(other) == parentHops && !affected.contains(other))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Private helper that settles the affected users again. Each starts from its best
+	 * untouched neighbor, then counts spread through the affected users a level at a time.
+	 * @param affected - users whose counts are being redone
+	 * @param affectedOrder - the same users, in the order they were found
+	 */
+	private void resettle(HashSet<User> affected, ArrayList<User> affectedOrder) {
+		ArrayList<ArrayDeque<User>> buckets = new ArrayList<ArrayDeque<User>>();
+		HashMap<User, Integer> settled = new HashMap<User, Integer>();
+
+		for (User user: affectedOrder) {
+			int best = Integer.MAX_VALUE;
+			for (Link link: this.linksOf(user)) {
+				if (!this.isEdgeActive(link))
+					continue;
+				User other = link.getOtherUser(user);
+				if (!affected.contains(other) && this.hopsOf(other) != Integer.MAX_VALUE)
+					best = Math.min(best, this.hopsOf(other) + 1);
+			}
+			if (best != Integer.MAX_VALUE && this.withinLimit(best))
+				DynamicBfs.bucket(buckets, best).add(user);
+		}
+
+		for (int level = 0; level < buckets.size(); level++) {
+			ArrayDeque<User> bucket = buckets.get(level);
+			while (bucket != null && !bucket.isEmpty()) {
+				User user = bucket.poll();
+				if (settled.containsKey(user))
+					continue;
+				settled.put(user, level);
+				if (!this.withinLimit(level + 1))
+					continue;
+				for (Link link: this.linksOf(user)) {
+					if (!this.isEdgeActive(link))
+						continue;
+					User other = link.getOtherUser(user);
+					if (affected.contains(other) && !settled.containsKey(other))
+						DynamicBfs.bucket(buckets, level + 1).add(other);
+				}
+			}
+		}
+
+		for (User user: affectedOrder) {
+			Integer level = settled.get(user);
+			this.setHops(user, level == null ? Integer.MAX_VALUE : level);
+		}
+	}
+
+	/**
+	 * Private helper for the bucket of a level, making buckets up to it as needed
+	 * @param buckets - buckets by level
+	 * @param level - level wanted
+	 * @return ArrayDeque<User> - bucket for the level
+	 */
+	private static ArrayDeque<User> bucket(ArrayList<ArrayDeque<User>> buckets, int level) {
+		while (buckets.size() <= level)
+			buckets.add(null);
+		if (buckets.get(level) == null)
+			buckets.set(level, new ArrayDeque<User>());
+		return buckets.get(level);
+	}
+
+	/**
+	 * Private helper for the hops to a user
+	 * @param user - user to look up
+	 * @return int - hops, Integer.MAX_VALUE if unreached
+	 */
+	private int hopsOf(User user) {
+		Integer count = this.hops.get(user);
+		return count == null ? Integer.MAX_VALUE : count;
+	}
+
+	/**
+	 * Private helper that changes a user's hops, remembering the first old value for the delta
+	 * @param user - user to change
+	 * @param count - new hops, Integer.MAX_VALUE to drop them
+	 */
+	private void setHops(User user, int count) {
+		if (!this.before.containsKey(user))
+			this.before.put(user, this.hops.containsKey(user) ? this.hops.get(user) : 0);
+		if (count == Integer.MAX_VALUE)
+			this.hops.remove(user);
+		else
+			this.hops.put(user, count);
+	}
+
+	/**
+	 * Private helper that checks a hop count against the limit
+	 * @param count - hops
+	 * @return boolean - true if the count is tracked
+	 */
+	private boolean withinLimit(int count) {
+		return this.maxHops < 0 || count <= this.maxHops;
+	}
+
+	/**
+	 * Private helper for a user's links, empty once the user has left the network
+	 * @param user - user whose links we want
+	 * @return List<Link> - links of the user
+	 */
+	private List<Link> linksOf(User user) {
+		List<Link> links = this.network.getLinksOf(user);
+		return links == null ? new ArrayList<Link>() : links;
+	}
+
+}
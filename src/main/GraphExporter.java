@@ -0,0 +1,378 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Date;
+
+/**
+ * GraphExporter class streams a network to a channel for offline tools, either as a compact
+ * edge list or as GraphML. Everything is encoded straight into one reusable buffer that's
+ * drained to the channel whenever it fills, so memory stays the same however big the
+ * network is and no strings are built per link. Each link is written once, from the user
+ * with the lower id, and removed links are left out. Exports can be limited to the links
+ * active at a date; every user is still written.
+ *
+ * The edge list has one record per line:
+ *   U,id,firstName,middleName,lastName,email,phoneNumber
+ *   E,idA,idB,millis (an establish) or T,idA,idB,millis (a tear down)
+ * with idA before idB and each link's events in order. Fields holding commas, quotes or
+ * line breaks are quoted the CSV way, and missing fields are left empty.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class GraphExporter {
+
+	//Bytes buffered before writing to the channel
+	public static final int BUFFER_SIZE = 1 << 16;
+
+	//Most bytes one character or number takes once encoded
+	private static final int MAX_ENCODED = 24;
+
+	//Field keys shared by the GraphML header and nodes
+	private static final String[] USER_KEYS = {"firstName", "middleName", "lastName", "email", "phoneNumber"};
+
+	private SocialNetwork	network;	//Network to export
+	private ByteBuffer		buffer;		//Bytes waiting for the channel
+	private byte[]			digits;		//Scratch space for writing numbers
+	private long			written;	//Bytes handed to the channel in this export
+
+	/**
+	 * Class constructor
+	 * Creates an exporter for a network
+	 * @param network - network to export
+	 * @throws NullPointerException
+	 */
+	public GraphExporter(SocialNetwork network) {
+		if (network == null)
+			throw new NullPointerException("Input parameter is null");
+		this.network = network;
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.digits = new byte[20];
+	}
+
+	/**
+	 * Writes every user and link event as an edge list
+	 * @param channel - channel to write to, left open
+	 * @param date - only links active at this date are written, null for every link
+	 * @return long - bytes written
+	 * @throws IOException
+	 * @throws NullPointerException
+	 */
+	public long writeEdgeList(WritableByteChannel channel, Date date) throws IOException {
+		if (channel == null)
+			throw new NullPointerException("Input parameter is null");
+		this.start();
+
+		for (User user: this.network.getUsers()) {
+			this.ensure(channel, 2);
+			this.putASCII("U,");
+			this.putCSV(channel, user.getID());
+			for (String field: GraphExporter.fieldsOf(user)) {
+				this.putByte(channel, ',');
+				this.putCSV(channel, field);
+			}
+			this.putByte(channel, '\n');
+		}
+
+		for (User user: this.network.getUsers()) {
+			for (Link link: this.network.getLinksOf(user)) {
+				User other = link.getOtherUser(user);
+				if (!this.shouldWrite(link, user, other, date))
+					continue;
+				for (int event = 0; event < link.getEventCount(); event++) {
+					this.ensure(channel, MAX_ENCODED);
+					this.putASCII(event % 2 == 0 ? "E," : "T,");
+					this.putCSV(channel, user.getID());
+					this.putByte(channel, ',');
+					this.putCSV(channel, other.getID());
+					this.putByte(channel, ',');
+					this.putLong(channel, link.getEventTime(event));
+					this.putByte(channel, '\n');
+				}
+			}
+		}
+
+		return this.finish(channel);
+	}
+
+	/**
+	 * Writes every user as a node and every link as an undirected edge in GraphML. Each
+	 * edge's events go in its "events" data as milliseconds separated by spaces, alternating
+	 * establish and tear down.
+	 * @param channel - channel to write to, left open
+	 * @param date - only links active at this date are written, null for every link
+	 * @return long - bytes written
+	 * @throws IOException
+	 * @throws NullPointerException
+	 */
+	public long writeGraphML(WritableByteChannel channel, Date date) throws IOException {
+		if (channel == null)
+			throw new NullPointerException("Input parameter is null");
+		this.start();
+
+		this.putText(channel, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+		for (String key: USER_KEYS)
+			this.putText(channel, "<key id=\"" + key + "\" for=\"node\" attr.name=\"" + key + "\" attr.type=\"string\"/>\n");
+		this.putText(channel, "<key id=\"events\" for=\"edge\" attr.name=\"events\" attr.type=\"string\"/>\n<graph edgedefault=\"undirected\">\n");
+
+		for (User user: this.network.getUsers()) {
+			String[] fields = GraphExporter.fieldsOf(user);
+			this.putText(channel, "<node id=\"");
+			this.putXML(channel, user.getID());
+			this.putText(channel, "\">");
+			for (int i = 0; i < fields.length; i++) {
+				if (fields[i] == null)
+					continue;
+				this.putText(channel, "<data key=\"");
+				this.putText(channel, USER_KEYS[i]);
+				this.putText(channel, "\">");
+				this.putXML(channel, fields[i]);
+				this.putText(channel, "</data>");
+			}
+			this.putText(channel, "</node>\n");
+		}
+
+		for (User user: this.network.getUsers()) {
+			for (Link link: this.network.getLinksOf(user)) {
+				User other = link.getOtherUser(user);
+				if (!this.shouldWrite(link, user, other, date))
+					continue;
+				this.putText(channel, "<edge source=\"");
+				this.putXML(channel, user.getID());
+				this.putText(channel, "\" target=\"");
+				this.putXML(channel, other.getID());
+				this.putText(channel, "\"><data key=\"events\">");
+				for (int event = 0; event < link.getEventCount(); event++) {
+					if (event > 0)
+						this.putByte(channel, ' ');
+					this.putLong(channel, link.getEventTime(event));
+				}
+				this.putText(channel, "</data></edge>\n");
+			}
+		}
+
+		this.putText(channel, "</graph>\n</graphml>\n");
+		return this.finish(channel);
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that readies the buffer for a new export
+	 */
+	private void start() {
+		this.buffer.clear();
+		this.written = 0;
+	}
+
+	/**
+	 * Private helper that drains what's left and reports the total
+	 * @param channel - channel to write to
+	 * @return long - bytes written in this export
+	 * @throws IOException
+	 */
+	private long finish(WritableByteChannel channel) throws IOException {
+		this.drain(channel);
+		return this.written;
+	}
+
+	/**
+	 * Private helper that checks if a link belongs in the export. Links are only written from
+	 * the user with the lower id, so each goes out once.
+	 * @param link - link to check
+	 * @param user - user whose list the link came from
+	 * @param other - other user of the link
+	 * @param date - date the link must be active at, null for none
+	 * @return boolean - true if the link should be written now
+	 */
+	private boolean shouldWrite(Link link, User user, User other, Date date) {
+		if (link.isRemoved() || user.getID().compareTo(other.getID()) > 0)
+			return false;
+		return date == null || link.isActiveAt(date.getTime());
+	}
+
+	/**
+	 * Private helper for the optional fields of a user, in USER_KEYS order
+	 * @param user - user to read
+	 * @return String[] - fields, null where unset
+	 */
+	private static String[] fieldsOf(User user) {
+		return new String[] {user.getFirstName(), user.getMiddleName(), user.getLastName(), user.getEmail(), user.getPhoneNumber()};
+	}
+
+	/**
+	 * Private helper that writes the buffer out to the channel and empties it
+	 * @param channel - channel to write to
+	 * @throws IOException
+	 */
+	private void drain(WritableByteChannel channel) throws IOException {
+		this.buffer.flip();
+		while (this.buffer.hasRemaining())
+			this.written += channel.write(this.buffer);
+		this.buffer.clear();
+	}
+
+	/**
+	 * Private helper that makes room for some bytes, draining the buffer if needed
+	 * @param channel - channel to write to
+	 * @param bytes - bytes needed
+	 * @throws IOException
+	 */
+	private void ensure(WritableByteChannel channel, int bytes) throws IOException {
+		if (this.buffer.remaining() < bytes)
+			this.drain(channel);
+	}
+
+	/**
+	 * Private helper that writes one ASCII character
+	 * @param channel - channel to write to
+	 * @param c - character to write
+	 * @throws IOException
+	 */
+	private void putByte(WritableByteChannel channel, char c) throws IOException {
+		this.ensure(channel, 1);
+		this.buffer.put((byte) c);
+	}
+
+	/**
+	 * Private helper that writes short ASCII text the caller already made room for
+	 * @param text - ASCII text to write
+	 */
+	private void putASCII(String text) {
+		for (int i = 0; i < text.length(); i++)
+			this.buffer.put((byte) text.charAt(i));
+	}
+
+	/**
+	 * Private helper that writes text as is, encoded as UTF-8
+	 * @param channel - channel to write to
+	 * @param text - text to write
+	 * @throws IOException
+	 */
+	private void putText(WritableByteChannel channel, String text) throws IOException {
+		for (int i = 0; i < text.length(); i++)
+			i = this.putChar(channel, text, i);
+	}
+
+	/**
+	 * Private helper that writes a field for the edge list, quoting it if it holds a comma,
+	 * quote or line break. Null fields are written empty.
+	 * @param channel - channel to write to
+	 * @param field - field to write, may be null
+	 * @throws IOException
+	 */
+	private void putCSV(WritableByteChannel channel, String field) throws IOException {
+		boolean quote = false;
+
+		if (field == null)
+			return;
+		for (int i = 0; i < field.length() && !quote; i++) {
+			char c = field.charAt(i);
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if (!quote) {
+			this.putText(channel, field);
+			return;
+		}
+
+		this.putByte(channel, '"');
+		for (int i = 0; i < field.length(); i++) {
+			if (field.charAt(i) == '"')
+				this.putByte(channel, '"');
+			i = this.putChar(channel, field, i);
+		}
+		this.putByte(channel, '"');
+	}
+
+	/**
+	 * Private helper that writes text with the XML special characters escaped
+	 * @param channel - channel to write to
+	 * @param text - text to write
+	 * @throws IOException
+	 */
+	private void putXML(WritableByteChannel channel, String text) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			switch (text.charAt(i)) {
+			case '<':
+				this.putText(channel, "&lt;");
+				break;
+			case '>':
+				this.putText(channel, "&gt;");
+				break;
+			case '&':
+				this.putText(channel, "&amp;");
+				break;
+			case '"':
+				this.putText(channel, "&quot;");
+				break;
+			default:
+				i = this.putChar(channel, text, i);
+			}
+		}
+	}
+
+	/**
+	 * Private helper that writes one character as UTF-8, taking a surrogate pair together
+	 * @param channel - channel to write to
+	 * @param text - text holding the character
+	 * @param index - index of the character
+	 * @return int - index of the last char used, index + 1 for a surrogate pair
+	 * @throws IOException
+	 */
+	private int putChar(WritableByteChannel channel, String text, int index) throws IOException {
+		char c = text.charAt(index);
+		int codePoint;
+
+		this.ensure(channel, 4);
+		if (c < 0x80) {
+			this.buffer.put((byte) c);
+			return index;
+		} else if (c < 0x800) {
+			this.buffer.put((byte) (0xC0 | (c >> 6)));
+			this.buffer.put((byte) (0x80 | (c & 0x3F)));
+			return index;
+		} else if (Character.isHighSurrogate(c) && index + 1 < text.length() && Character.isLowSurrogate(text.charAt(index + 1))) {
+			codePoint = Character.toCodePoint(c, text.charAt(index + 1));
+			this.buffer.put((byte) (0xF0 | (codePoint >> 18)));
+			this.buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+			this.buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+			this.buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+			return index + 1;
+		} else if (Character.isSurrogate(c)) {
+			//A lone surrogate can't be encoded, so it goes out as a replacement mark
+			this.buffer.put((byte) '?');
+			return index;
+		}
+		this.buffer.put((byte) (0xE0 | (c >> 12)));
+		this.buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+		this.buffer.put((byte) (0x80 | (c & 0x3F)));
+		return index;
+	}
+
+	/**
+	 * Private helper that writes a number in decimal without making a string
+	 * @param channel - channel to write to
+	 * @param value - number to write
+	 * @throws IOException
+	 */
+	private void putLong(WritableByteChannel channel, long value) throws IOException {
+		int count = 0;
+
+		this.ensure(channel, MAX_ENCODED);
+		if (value == Long.MIN_VALUE) {
+			this.putASCII(Long.toString(value));
+			return;
+		}
+		if (value < 0) {
+			this.buffer.put((byte) '-');
+			value = -value;
+		}
+		do {
+			this.digits[count++] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while (value > 0);
+		while (count > 0)
+			this.buffer.put(this.digits[--count]);
+	}
+
+}
@@ -0,0 +1,698 @@
+package main;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * GraphImporter class seeds a network from an edge list in the format GraphExporter writes.
+ * The file is memory mapped in chunks that end on a line break, and the chunks are parsed
+ * side by side. A chunk never makes a string per field: each id is looked up by its bytes
+ * in the chunk's own dictionary and events are kept as numbers in plain arrays. Merging
+ * then turns each chunk's distinct ids into users once, gathers every link's events in
+ * file order, and hands each whole history to the network's bulk build path, so no event
+ * goes through establishLink's checks one at a time. Links the network already has are
+ * replayed through establishLink and tearDownLink instead.
+ * Records can't hold line breaks, even quoted, since chunks are split at line breaks.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class GraphImporter {
+
+	//Bytes mapped and parsed per chunk unless told otherwise
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 26;
+
+	//Ids and fields are UTF-8
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private int	threads;	//Chunks parsed at once
+	private int	chunkSize;	//Bytes per chunk before moving to the next line break
+
+	/**
+	 * Class constructor
+	 * Parses with a thread per processor and the default chunk size
+	 */
+	public GraphImporter() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Class constructor
+	 * @param threads - chunks parsed at once
+	 * @param chunkSize - bytes per chunk, before moving to the next line break
+	 * @throws IllegalArgumentException
+	 */
+	public GraphImporter(int threads, int chunkSize) {
+		if (threads < 1 || chunkSize < 1)
+			throw new IllegalArgumentException("Threads and chunk size must be positive");
+		this.threads = threads;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Adds every user and link event in an edge list to a network. Users that are already
+	 * members get the file's fields, and ids only seen in events become users with just an id.
+	 * Nothing is added if the file can't be parsed.
+	 * @param file - edge list to read
+	 * @param network - network to add to
+	 * @return long - number of events added
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 * @throws NullPointerException
+	 */
+	public long importEdgeList(Path file, SocialNetwork network) throws IOException, UninitializedObjectException {
+		FileChannel channel;
+		List<Chunk> chunks;
+
+		if (file == null || network == null)
+			throw new NullPointerException("Input parameter is null");
+
+		//Mapped chunks stay readable after the channel closes
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			chunks = this.parse(channel);
+		} finally {
+			channel.close();
+		}
+
+		return GraphImporter.merge(chunks, network);
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that maps the file in line aligned chunks and parses them on a pool
+	 * @param channel - file to parse
+	 * @return List<Chunk> - parsed chunks in file order
+	 * @throws IOException
+	 */
+	private List<Chunk> parse(FileChannel channel) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "graph-importer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		List<Future<Chunk>> futures = new ArrayList<Future<Chunk>>();
+		List<Chunk> returnList = new ArrayList<Chunk>();
+		long size = channel.size();
+		long start = 0;
+
+		try {
+			while (start < size) {
+				long end = GraphImporter.lineEnd(channel, Math.min(start + this.chunkSize, size) - 1, size);
+				final Chunk chunk = new Chunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), start);
+				futures.add(pool.submit(new Callable<Chunk>() {
+					@Override
+					public Chunk call() throws IOException {
+						chunk.parse();
+						return chunk;
+					}
+				}));
+				start = end;
+			}
+
+			for (Future<Chunk> future: futures)
+				returnList.add(future.get());
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("Interrupted while parsing");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+
+		return returnList;
+	}
+
+	/**
+	 * Private helper that finds the end of the line holding a position
+	 * @param channel - file to read
+	 * @param position - position in the file
+	 * @param size - size of the file
+	 * @return long - position just past the next line break, or the end of the file
+	 * @throws IOException
+	 */
+	private static long lineEnd(FileChannel channel, long position, long size) throws IOException {
+		ByteBuffer scan = ByteBuffer.allocate(4096);
+
+		while (position < size) {
+			scan.clear();
+			int read = channel.read(scan, position);
+			if (read <= 0)
+				break;
+			for (int i = 0; i < read; i++) {
+				if (scan.get(i) == '\n')
+					return position + i + 1;
+			}
+			position += read;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Private helper that adds the parsed chunks to the network: users first, then each
+	 * link's whole history at once. Every link is checked before the network is touched,
+	 * so a bad file adds nothing.
+	 * @param chunks - parsed chunks in file order
+	 * @param network - network to add to
+	 * @return long - number of events added
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	private static long merge(List<Chunk> chunks, SocialNetwork network) throws IOException, UninitializedObjectException {
+		HashMap<String, User> users = new HashMap<String, User>();
+		LinkedHashMap<User, LinkedHashMap<User, History>> histories = new LinkedHashMap<User, LinkedHashMap<User, History>>();
+		SocialNetworkStatus status = new SocialNetworkStatus();
+		long returnCount = 0;
+
+		for (Chunk chunk: chunks) {
+			//Each distinct id becomes a string once per chunk, not once per event
+			User[] chunkUsers = new User[chunk.idCount];
+			for (int i = 0; i < chunkUsers.length; i++)
+				chunkUsers[i] = GraphImporter.userFor(network, users, chunk.idString(i));
+			for (int event = 0; event < chunk.eventCount; event++) {
+				User userA = chunkUsers[chunk.eventFirsts[event]];
+				User userB = chunkUsers[chunk.eventSeconds[event]];
+				if (userA == userB)
+					throw new IOException("Link from " + userA.getID() + " to themselves");
+				if (userA.getID().compareTo(userB.getID()) > 0) {
+					User swap = userA;
+					userA = userB;
+					userB = swap;
+				}
+				GraphImporter.historyOf(histories, userA, userB).add(chunk.eventTimes[event], chunk.eventEstablishes[event], userA, userB);
+			}
+		}
+
+		for (Chunk chunk: chunks) {
+			for (int row = 0; row < chunk.userCount; row++)
+				GraphImporter.fillUser(GraphImporter.userFor(network, users, chunk.userField(row, 0)), chunk, row);
+		}
+		for (User user: users.values())
+			network.addUser(user);
+
+		for (Map.Entry<User, LinkedHashMap<User, History>> first: histories.entrySet()) {
+			for (Map.Entry<User, History> second: first.getValue().entrySet()) {
+				History history = second.getValue();
+				if (network.addLinkWithHistory(first.getKey(), second.getKey(), history.times, history.count)) {
+					returnCount += history.count;
+					continue;
+				}
+				//The network already had the link, so its events go through the usual checks
+				Set<String> ids = new HashSet<String>();
+				ids.add(first.getKey().getID());
+				ids.add(second.getKey().getID());
+				for (int i = 0; i < history.count; i++) {
+					Date date = new Date(history.times[i]);
+					if (i % 2 == 0 ? network.establishLink(ids, date, status) : network.tearDownLink(ids, date, status))
+						returnCount++;
+				}
+			}
+		}
+
+		return returnCount;
+	}
+
+	/**
+	 * Private helper for the user an id stands for: the member if there is one, otherwise a
+	 * new user made once and added with the rest
+	 * @param network - network being added to
+	 * @param users - users found so far by id
+	 * @param id - id of the user
+	 * @return User - the user
+	 */
+	private static User userFor(SocialNetwork network, HashMap<String, User> users, String id) {
+		User returnUser = users.get(id);
+
+		if (returnUser == null) {
+			returnUser = network.getUser(id);
+			if (returnUser == null) {
+				returnUser = new User();
+				returnUser.setID(id);
+			}
+			users.put(id, returnUser);
+		}
+
+		return returnUser;
+	}
+
+	/**
+	 * Private helper for the history of a link, made on first use
+	 * @param histories - histories by lower id user, then higher id user
+	 * @param userA - user with the lower id
+	 * @param userB - user with the higher id
+	 * @return History - history of the link
+	 */
+	private static History historyOf(LinkedHashMap<User, LinkedHashMap<User, History>> histories, User userA, User userB) {
+		LinkedHashMap<User, History> inner = histories.get(userA);
+		History returnHistory;
+
+		if (inner == null) {
+			inner = new LinkedHashMap<User, History>();
+			histories.put(userA, inner);
+		}
+		returnHistory = inner.get(userB);
+		if (returnHistory == null) {
+			returnHistory = new History();
+			inner.put(userB, returnHistory);
+		}
+
+		return returnHistory;
+	}
+
+	/**
+	 * Private helper that copies the set fields of a user row onto a user
+	 * @param user - user to fill in
+	 * @param chunk - chunk holding the row
+	 * @param row - index of the row in the chunk
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	private static void fillUser(User user, Chunk chunk, int row) throws IOException, UninitializedObjectException {
+		String field;
+
+		if ((field = chunk.userField(row, 1)) != null)
+			user.setFirstName(field);
+		if ((field = chunk.userField(row, 2)) != null)
+			user.setMiddleName(field);
+		if ((field = chunk.userField(row, 3)) != null)
+			user.setLastName(field);
+		if ((field = chunk.userField(row, 4)) != null)
+			user.setEmail(field);
+		if ((field = chunk.userField(row, 5)) != null)
+			user.setPhoneNumber(field);
+	}
+
+	/**
+	 * History class gathers the events of one link in file order, checking that they
+	 * alternate and never go back in time
+	 */
+	private static class History {
+
+		private long[]	times;	//Event times, only the first count are used
+		private int		count;	//Number of events
+
+		/**
+		 * Class constructor
+		 * Creates an empty history
+		 */
+		History() {
+			this.times = new long[2];
+			this.count = 0;
+		}
+
+		/**
+		 * Adds the next event
+		 * @param time - time of the event
+		 * @param establish - true for an establish, false for a tear down
+		 * @param userA - one user of the link, for the error message
+		 * @param userB - the other user of the link, for the error message
+		 * @throws IOException
+		 */
+		void add(long time, boolean establish, User userA, User userB) throws IOException {
+			if (establish != (this.count % 2 == 0) || (this.count > 0 && time < this.times[this.count - 1]))
+				throw new IOException("Events of the link between " + userA.getID() + " and " + userB.getID() + " are out of order");
+			if (this.count == this.times.length)
+				this.times = Arrays.copyOf(this.times, this.count * 2);
+			this.times[this.count++] = time;
+		}
+
+	}
+
+	/**
+	 * Chunk class parses one mapped, line aligned piece of the file. Ids are kept as byte
+	 * ranges in an open addressing table and numbered in the order they're first seen, and
+	 * events refer to those numbers, so nothing is decoded until merging.
+	 */
+	private static class Chunk {
+
+		//Index that stands for an empty table slot
+		private static final int EMPTY = -1;
+
+		//Fields in a user row
+		private static final int USER_FIELDS = 6;
+
+		private ByteBuffer	buffer;				//Mapped bytes of the chunk
+		private long		base;				//Position of the chunk in the file
+		private int			cursor;				//Position of the parser in the chunk
+		private int			fieldStart;			//Start of the last field read
+		private int			fieldEnd;			//End of the last field read
+		private boolean		fieldEscaped;		//True if the last field had doubled quotes
+
+		private int[]		table;				//Id numbers by hash slot
+		private int[]		idStarts;			//Start of each id's bytes
+		private int[]		idLengths;			//Length of each id's bytes
+		private int[]		idHashes;			//Hash of each id's bytes
+		private boolean[]	idEscaped;			//True if the id had doubled quotes
+		private int			idCount;			//Number of distinct ids
+
+		private int[]		eventFirsts;		//Id number of one user of each event
+		private int[]		eventSeconds;		//Id number of the other user of each event
+		private long[]		eventTimes;			//Time of each event
+		private boolean[]	eventEstablishes;	//True if the event is an establish
+		private int			eventCount;			//Number of events
+
+		private int[]		userRows;			//Start of the fields of each user row
+		private int			userCount;			//Number of user rows
+
+		/**
+		 * Class constructor
+		 * @param buffer - mapped bytes of the chunk
+		 * @param base - position of the chunk in the file
+		 */
+		Chunk(ByteBuffer buffer, long base) {
+			this.buffer = buffer;
+			this.base = base;
+			this.table = new int[1024];
+			Arrays.fill(this.table, EMPTY);
+			this.idStarts = new int[256];
+			this.idLengths = new int[256];
+			this.idHashes = new int[256];
+			this.idEscaped = new boolean[256];
+			this.eventFirsts = new int[1024];
+			this.eventSeconds = new int[1024];
+			this.eventTimes = new long[1024];
+			this.eventEstablishes = new boolean[1024];
+			this.userRows = new int[64];
+		}
+
+		/**
+		 * Parses every record in the chunk
+		 * @throws IOException
+		 */
+		void parse() throws IOException {
+			int limit = this.buffer.limit();
+
+			this.cursor = 0;
+			while (this.cursor < limit) {
+				byte type = this.buffer.get(this.cursor);
+				if (type == '\n' || type == '\r') {
+					this.cursor++;
+					continue;
+				}
+				int recordStart = this.cursor;
+				if (this.cursor + 1 >= limit || this.buffer.get(this.cursor + 1) != ',')
+					throw this.malformed(recordStart);
+				this.cursor += 2;
+
+				if (type == 'U') {
+					this.addUserRow(this.cursor);
+					this.readUserRow(recordStart);
+				} else if (type == 'E' || type == 'T') {
+					int first = this.readID(recordStart);
+					this.expect(',', recordStart);
+					int second = this.readID(recordStart);
+					this.expect(',', recordStart);
+					long time = this.readLong(recordStart);
+					if (this.cursor < limit && this.buffer.get(this.cursor) != '\n' && this.buffer.get(this.cursor) != '\r')
+						throw this.malformed(recordStart);
+					this.addEvent(first, second, time, type == 'E');
+				} else
+					throw this.malformed(recordStart);
+			}
+		}
+
+		/**
+		 * Decodes an id
+		 * @param id - number of the id
+		 * @return String - the id
+		 */
+		String idString(int id) {
+			return this.decode(this.idStarts[id], this.idStarts[id] + this.idLengths[id], this.idEscaped[id]);
+		}
+
+		/**
+		 * Decodes one field of a user row
+		 * @param row - index of the row
+		 * @param field - index of the field, 0 being the id
+		 * @return String - the field, null if it's empty or missing
+		 * @throws IOException
+		 */
+		String userField(int row, int field) throws IOException {
+			this.cursor = this.userRows[row];
+			for (int i = 0; i <= field; i++) {
+				if (i > 0) {
+					if (this.cursor >= this.buffer.limit() || this.buffer.get(this.cursor) != ',')
+						return null;
+					this.cursor++;
+				}
+				this.readField(this.userRows[row]);
+			}
+			return this.fieldEnd == this.fieldStart ? null : this.decode(this.fieldStart, this.fieldEnd, this.fieldEscaped);
+		}
+
+		/**
+		 * Private helper that reads one field, quoted or not, leaving the cursor after it
+		 * @param recordStart - start of the record, for the error message
+		 * @throws IOException
+		 */
+		private void readField(int recordStart) throws IOException {
+			int limit = this.buffer.limit();
+
+			this.fieldEscaped = false;
+			if (this.cursor < limit && this.buffer.get(this.cursor) == '"') {
+				this.fieldStart = ++this.cursor;
+				while (true) {
+					if (this.cursor >= limit)
+						throw this.malformed(recordStart);
+					if (this.buffer.get(this.cursor) == '"') {
+						if (this.cursor + 1 < limit && this.buffer.get(this.cursor + 1) == '"') {
+							this.fieldEscaped = true;
+							this.cursor += 2;
+							continue;
+						}
+						this.fieldEnd = this.cursor++;
+						return;
+					}
+					this.cursor++;
+				}
+			}
+
+			this.fieldStart = this.cursor;
+			while (this.cursor < limit) {
+				byte b = this.buffer.get(this.cursor);
+				if (b == ',' || b == '\n' || b == '\r')
+					break;
+				this.cursor++;
+			}
+			this.fieldEnd = this.cursor;
+		}
+
+		/**
+		 * Private helper that reads an id and numbers it, adding it to the table if it's new
+		 * @param recordStart - start of the record, for the error message
+		 * @return int - number of the id
+		 * @throws IOException
+		 */
+		private int readID(int recordStart) throws IOException {
+			int hash = 0x811C9DC5;
+			int slot;
+
+			this.readField(recordStart);
+			if (this.fieldEnd == this.fieldStart)
+				throw this.malformed(recordStart);
+			for (int i = this.fieldStart; i < this.fieldEnd; i++)
+				hash = (hash ^ this.buffer.get(i)) * 0x01000193;
+
+			slot = hash & (this.table.length - 1);
+			while (this.table[slot] != EMPTY) {
+				int id = this.table[slot];
+				if (this.idHashes[id] == hash && this.sameBytes(this.idStarts[id], this.idLengths[id]))
+					return id;
+				slot = (slot + 1) & (this.table.length - 1);
+			}
+
+			if (this.idCount == this.idStarts.length) {
+				int capacity = this.idCount * 2;
+				this.idStarts = Arrays.copyOf(this.idStarts, capacity);
+				this.idLengths = Arrays.copyOf(this.idLengths, capacity);
+				this.idHashes = Arrays.copyOf(this.idHashes, capacity);
+				this.idEscaped = Arrays.copyOf(this.idEscaped, capacity);
+			}
+			this.idStarts[this.idCount] = this.fieldStart;
+			this.idLengths[this.idCount] = this.fieldEnd - this.fieldStart;
+			this.idHashes[this.idCount] = hash;
+			this.idEscaped[this.idCount] = this.fieldEscaped;
+			this.table[slot] = this.idCount;
+			if (++this.idCount * 2 > this.table.length)
+				this.rehash();
+
+			return this.idCount - 1;
+		}
+
+		/**
+		 * Private helper that compares the last field read with an id's bytes
+		 * @param start - start of the id's bytes
+		 * @param length - length of the id's bytes
+		 * @return boolean - true if they're the same
+		 */
+		private boolean sameBytes(int start, int length) {
+			if (length != this.fieldEnd - this.fieldStart)
+				return false;
+			for (int i = 0; i < length; i++) {
+				if (this.buffer.get(start + i) != this.buffer.get(this.fieldStart + i))
+					return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Private helper that doubles the table and puts every id back in it
+		 */
+		private void rehash() {
+			this.table = new int[this.table.length * 2];
+			Arrays.fill(this.table, EMPTY);
+			for (int id = 0; id < this.idCount; id++) {
+				int slot = this.idHashes[id] & (this.table.length - 1);
+				while (this.table[slot] != EMPTY)
+					slot = (slot + 1) & (this.table.length - 1);
+				this.table[slot] = id;
+			}
+		}
+
+		/**
+		 * Private helper that reads a decimal number without making a string
+		 * @param recordStart - start of the record, for the error message
+		 * @return long - the number
+		 * @throws IOException
+		 */
+		private long readLong(int recordStart) throws IOException {
+			int limit = this.buffer.limit();
+			boolean negative = false;
+			long returnValue = 0;
+			int digits = 0;
+
+			if (this.cursor < limit && this.buffer.get(this.cursor) == '-') {
+				negative = true;
+				this.cursor++;
+			}
+			while (this.cursor < limit) {
+				byte b = this.buffer.get(this.cursor);
+				if (b < '0' || b > '9')
+					break;
+				//Built negative so Long.MIN_VALUE fits
+				returnValue = returnValue * 10 - (b - '0');
+				this.cursor++;
+				digits++;
+			}
+			if (digits == 0 || digits > 19)
+				throw this.malformed(recordStart);
+
+			return negative ? returnValue : -returnValue;
+		}
+
+		/**
+		 * Private helper that steps over an expected byte
+		 * @param expected - byte that must come next
+		 * @param recordStart - start of the record, for the error message
+		 * @throws IOException
+		 */
+		private void expect(char expected, int recordStart) throws IOException {
+			if (this.cursor >= this.buffer.limit() || this.buffer.get(this.cursor) != expected)
+				throw this.malformed(recordStart);
+			this.cursor++;
+		}
+
+		/**
+		 * Private helper that checks a user row has an id and at most its other fields, so
+		 * merging can decode it later without failing
+		 * @param recordStart - start of the record, for the error message
+		 * @throws IOException
+		 */
+		private void readUserRow(int recordStart) throws IOException {
+			this.readField(recordStart);
+			if (this.fieldEnd == this.fieldStart)
+				throw this.malformed(recordStart);
+			for (int i = 1; i < USER_FIELDS && this.cursor < this.buffer.limit() && this.buffer.get(this.cursor) == ','; i++) {
+				this.cursor++;
+				this.readField(recordStart);
+			}
+			if (this.cursor < this.buffer.limit() && this.buffer.get(this.cursor) != '\n' && this.buffer.get(this.cursor) != '\r')
+				throw this.malformed(recordStart);
+		}
+
+		/**
+		 * Private helper that remembers where a user row's fields start
+		 * @param start - start of the row's id
+		 */
+		private void addUserRow(int start) {
+			if (this.userCount == this.userRows.length)
+				this.userRows = Arrays.copyOf(this.userRows, this.userCount * 2);
+			this.userRows[this.userCount++] = start;
+		}
+
+		/**
+		 * Private helper that stores an event
+		 * @param first - id number of one user
+		 * @param second - id number of the other user
+		 * @param time - time of the event
+		 * @param establish - true for an establish
+		 */
+		private void addEvent(int first, int second, long time, boolean establish) {
+			if (this.eventCount == this.eventTimes.length) {
+				int capacity = this.eventCount * 2;
+				this.eventFirsts = Arrays.copyOf(this.eventFirsts, capacity);
+				this.eventSeconds = Arrays.copyOf(this.eventSeconds, capacity);
+				this.eventTimes = Arrays.copyOf(this.eventTimes, capacity);
+				this.eventEstablishes = Arrays.copyOf(this.eventEstablishes, capacity);
+			}
+			this.eventFirsts[this.eventCount] = first;
+			this.eventSeconds[this.eventCount] = second;
+			this.eventTimes[this.eventCount] = time;
+			this.eventEstablishes[this.eventCount++] = establish;
+		}
+
+		/**
+		 * Private helper that decodes a range of the chunk as UTF-8, undoubling quotes
+		 * @param start - start of the range
+		 * @param end - end of the range
+		 * @param escaped - true if the range has doubled quotes
+		 * @return String - the decoded text
+		 */
+		private String decode(int start, int end, boolean escaped) {
+			byte[] bytes = new byte[end - start];
+			String returnString;
+
+			for (int i = 0; i < bytes.length; i++)
+				bytes[i] = this.buffer.get(start + i);
+			returnString = new String(bytes, UTF8);
+
+			return escaped ? returnString.replace("\"\"", "\"") : returnString;
+		}
+
+		/**
+		 * Private helper that makes the error for a bad record
+		 * @param recordStart - start of the record in the chunk
+		 * @return IOException - error naming the record's position in the file
+		 */
+		private IOException malformed(int recordStart) {
+			return new IOException("Malformed record at byte " + (this.base + recordStart));
+		}
+
+	}
+
+}
@@ -0,0 +1,57 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * HeapTimeline class keeps event times in a growing long array on the heap. This is the
+ * default storage for links, and costs 8 bytes per event instead of a Date object each.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+class HeapTimeline extends Timeline {
+
+	private long[]	times;	//Event times, only the first size entries are used
+	private int		size;	//Number of events
+
+	/**
+	 * Class constructor
+	 * Creates an empty timeline
+	 */
+	HeapTimeline() {
+		this.times = new long[2];
+		this.size = 0;
+	}
+
+	/**
+	 * Getter for the number of events
+	 * @return int - number of events
+	 */
+	@Override
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Grabs the time of an event
+	 * @param index - index of the event, 0 being the oldest
+	 * @return long - time of the event in milliseconds
+	 * @throws IndexOutOfBoundsException
+	 */
+	@Override
+	long get(int index) {
+		if (index >= this.size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+		return this.times[index];
+	}
+
+	/**
+	 * Appends an event, growing the storage if it's full
+	 * @param time - time of the event in milliseconds
+	 */
+	@Override
+	void add(long time) {
+		if (this.size == this.times.length)
+			this.times = Arrays.copyOf(this.times, this.times.length * 2);
+		this.times[this.size++] = time;
+	}
+
+}
@@ -14,18 +14,32 @@ import java.util.Set;
  */
 public class Link {
 	
+	//Events after which a plain heap timeline is switched to the compressed form
+	static final int COMPRESSION_THRESHOLD = 128;
+	
 	private Set<User> 			users;		//Set of two unique users
 	private boolean				isValid;	//If link is initialized and has users
-	private ArrayList<Date>		links;		//All events from establishing and tearing down
+	private Timeline			links;		//All events from establishing and tearing down
+	private boolean				isRemoved;	//If the link was purged or one of its users removed
 	
 	/**
 	 * Class constructor
 	 * Creates an empty, invalid link 
 	 */
 	public Link(){
+		this(new HeapTimeline());
+	}
+	
+	/**
+	 * Class constructor
+	 * Creates an empty, invalid link whose events are kept in the given timeline
+	 * @param links - empty timeline to record events in
+	 */
+	Link(Timeline links) {
 		this.users = new HashSet<User>();
 		this.isValid = false;
-		this.links = new ArrayList<Date>();
+		this.links = links;
+		this.isRemoved = false;
 	}
 	
 	/**
@@ -72,11 +86,81 @@ public class Link {
 	}
 	
 	/**
-	 * Getter method for the links array list
+	 * Getter method for the links array list. Events aren't stored as dates, so this is a
+	 * fresh copy and changing it doesn't change the link.
 	 * @return ArrayList<Date> - list of all events in the link
 	 */
 	public ArrayList<Date> getLinks() {
-		return this.links;
+		ArrayList<Date> returnList = new ArrayList<Date>(this.links.size());
+		
+		for (int i = 0; i < this.links.size(); i++)
+			returnList.add(new Date(this.links.get(i)));
+		
+		return returnList;
+	}
+	
+	/**
+	 * Package-private getter for whether the link was removed from its network. Removed links
+	 * may still sit in adjacency lists until they're compacted, so traversals skip them.
+	 * @return boolean - true if removed
+	 */
+	boolean isRemoved() {
+		return this.isRemoved;
+	}
+	
+	/**
+	 * Package-private check for whether the link is active after its last event, which is
+	 * when its last event was an establish and it hasn't been removed
+	 * @return boolean - true if currently active
+	 */
+	boolean isCurrentlyActive() {
+		return !this.isRemoved && this.links.size() % 2 == 1;
+	}
+	
+	/**
+	 * Package-private check for whether the link was active at a date, without the checks
+	 * isActive makes for callers outside the network
+	 * @param time - date in milliseconds
+	 * @return boolean - true if active then and not removed
+	 */
+	boolean isActiveAt(long time) {
+		return !this.isRemoved && this.links.countAtOrBefore(time) % 2 == 1;
+	}
+	
+	/**
+	 * Package-private estimate of how many events finding the activity at a date looks at
+	 * @return int - timeline entries per activity check
+	 */
+	int getSearchCost() {
+		return this.links.searchCost();
+	}
+	
+	/**
+	 * Package-private helper that marks the link as removed from its network. Its history is
+	 * gone for good, so the events are dropped now, giving any off-heap region back to its
+	 * arena instead of waiting on a tombstone that might never be compacted.
+	 */
+	void markRemoved() {
+		this.isRemoved = true;
+		this.links.release();
+		this.links = new HeapTimeline();
+	}
+	
+	/**
+	 * Package-private getter for the number of events, without copying them into dates
+	 * @return int - number of events
+	 */
+	int getEventCount() {
+		return this.links.size();
+	}
+	
+	/**
+	 * Package-private getter for the time of an event, without making a date
+	 * @param index - index of the event, 0 being the first establish
+	 * @return long - time of the event in milliseconds
+	 */
+	long getEventTime(int index) {
+		return this.links.get(index);
 	}
 	
 	/**
@@ -94,11 +178,11 @@ public class Link {
 		this.checkLinkIsValid("Error: Link is invalid", "Cannot establish an invalid link");
 		
 		// If our date is after or equal to the current date (i.e. not before) and the link is inactive
-		if (this.links.size() == 0  || (!this.isActive(date) && !date.before(this.links.get(this.links.size() - 1)))){
-			this.links.add(date);
+		if (this.links.size() == 0  || (!this.isActive(date) && date.getTime() >= this.links.last())){
+			this.recordEvent(date.getTime());
 			status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
 			return true;
-		} else if (date.before(this.links.get(this.links.size() - 1)))
+		} else if (date.getTime() < this.links.last())
 			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DATE);
 		else
 			status.setStatus(SocialNetworkStatus.StatusCode.ALREADY_ACTIVE);
@@ -122,11 +206,11 @@ public class Link {
 		
 		// If our date is after or equal to the current date (i.e. not before) and the link is active
 		if (this.links.size() > 0) {
-			if (this.isActive(date) && !date.before(this.links.get(this.links.size() - 1))) {
-				this.links.add(date);
+			if (this.isActive(date) && date.getTime() >= this.links.last()) {
+				this.recordEvent(date.getTime());
 				status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
 				return true;
-			} else if (date.before(this.links.get(this.links.size() - 1)))
+			} else if (date.getTime() < this.links.last())
 				status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DATE);
 			else
 				status.setStatus(SocialNetworkStatus.StatusCode.ALREADY_INACTIVE);
@@ -136,31 +220,60 @@ public class Link {
 		return false;
 	}
 	
+	/**
+	 * Adds an establish and a tear down anywhere in the link's history, for corrections that
+	 * arrive late. The link must have been inactive from the establish date through the tear
+	 * down date, so the history still alternates afterwards. The first backfill moves the
+	 * events into a tree, which keeps this, isActive and nextEvent logarithmic.
+	 * @param establishDate - date the link was established
+	 * @param tearDownDate - date the link was torn down, after establishDate
+	 * @param status - SUCCESS, ALREADY_ACTIVE if the link was active at establishDate, or INVALID_DATE if the dates are out of order or another event falls between them
+	 * @return boolean - true if added, false otherwise
+	 * @throws UninitializedObjectException
+	 * @throws NullPointerException
+	 */
+	public boolean backfill(Date establishDate, Date tearDownDate, SocialNetworkStatus status) throws UninitializedObjectException {
+		int countBefore;
+		
+		this.checkNull(establishDate, tearDownDate, status);
+		this.checkLinkIsValid("Error: Link is invalid", "Cannot backfill an invalid link");
+		
+		countBefore = this.links.countAtOrBefore(establishDate.getTime());
+		if (establishDate.getTime() >= tearDownDate.getTime() || this.links.countAtOrBefore(tearDownDate.getTime()) != countBefore) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DATE);
+			return false;
+		} else if (countBefore % 2 == 1) {
+			status.setStatus(SocialNetworkStatus.StatusCode.ALREADY_ACTIVE);
+			return false;
+		}
+		
+		if (!(this.links instanceof TreeTimeline)) {
+			Timeline tree = new TreeTimeline(this.links);
+			this.links.release();
+			this.links = tree;
+		}
+		((TreeTimeline) this.links).insert(establishDate.getTime());
+		((TreeTimeline) this.links).insert(tearDownDate.getTime());
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return true;
+	}
+	
 	/**
 	 * Finds status of the link at the given date. If the link is invalid, throw
-	 * an exception. If it is, determine if the date is already present, and if not,
-	 * find where it fits into the list
+	 * an exception. If it is, count the events up to the date with a binary search
 	 * @param date - Desired date to determine whether or not the link was active then
 	 * @return boolean - True if link is active, false otherwise
 	 * @throws UninitializedObjectException
 	 * @throws NullPointerException
 	 */
 	public boolean isActive(Date date) throws UninitializedObjectException{
-		//Variable to hold the event index that determines if we're active
-		int dateCount = -1;
+		//Variable to hold the event count that determines if we're active
+		int dateCount;
 		
 		this.checkNull(date);
 		this.checkLinkIsValid("Error: Link is invalid", "Cannot get status of an invalid link");
 		
-		if (this.links.size() == 0)
-			dateCount = 0;
-		else if (this.links.size() == 1) {
-			//If the date is before the only element, we're inactive, otherwise we're active
-			dateCount = this.binaryDateComparison(date);
-		} else {
-			//Don't add one because the index returned is also the number of the events
-			dateCount = this.findSizeForDate(date);
-		}
+		dateCount = this.links.countAtOrBefore(date.getTime());
 		
 		//If the index is divisible by two, then we are currently not active
 		if (dateCount % 2 == 0)
@@ -183,7 +296,7 @@ public class Link {
 		if (this.links.size() == 0)
 			return null;
 		else
-			return this.links.get(0);
+			return new Date(this.links.get(0));
 	}
 	
 	/**
@@ -196,16 +309,14 @@ public class Link {
 	 */
 	public Date nextEvent(Date date) throws UninitializedObjectException {
 		Date returnDate = null;
+		int dateCount;
 		this.checkNull(date);
 		this.checkLinkIsValid("Error: Link is invalid", "Cannot get an event from of an invalid link");
-			
-		if (!this.links.isEmpty()){
-			//If the list only has one date that is after date
-			if (this.links.size() == 1 && date.before(this.links.get(0)))
-				returnDate =  this.links.get(0);
-			else if (date.before(this.links.get(this.links.size() - 1)))
-				returnDate =  this.links.get(this.findSizeForDate(date));
-		}
+		
+		//The events at or before the date come first, so the next one is right after them
+		dateCount = this.links.countAtOrBefore(date.getTime());
+		if (dateCount < this.links.size())
+			returnDate = new Date(this.links.get(dateCount));
 		
 		return returnDate;
 	}
@@ -234,6 +345,21 @@ public class Link {
 			return null;
 	}
 	
+	/**
+	 * Package-private helper to grab the other user besides the given one without
+	 * sorting the user set. Traversals already hold the user object, so this skips
+	 * the array copies getOtherUser(String) makes.
+	 * @param user - the undesired user
+	 * @return User - the other user in the link, null if the link is invalid
+	 */
+	User getOtherUser(User user) {
+		for (User linkUser: this.users) {
+			if (!linkUser.equals(user))
+				return linkUser;
+		}
+		return null;
+	}
+	
 	/**
 	 * Returns a human-friendly string showing the two users in the link and
 	 * every event of establishing or tearing down. If the link is invalid,
@@ -251,21 +377,20 @@ public class Link {
 			returnString.append("Invalid Link: Uninitialized IDs");
 		} else {
 			//Sort so the lowest ID is displayed in front consistently
-			if (genericSet[0].toString().compareTo(genericSet[1].toString()) <= 0) {
-				 user1 = this.users.toArray()[0].toString();
-				 user2 = this.users.toArray()[1].toString();
-			} else {
-				user1 = this.users.toArray()[1].toString();
-				user2 = this.users.toArray()[0].toString();
+			user1 = genericSet[0].toString();
+			user2 = genericSet[1].toString();
+			if (user1.compareTo(user2) > 0) {
+				user1 = genericSet[1].toString();
+				user2 = genericSet[0].toString();
 			}
-			returnString.append("Link between " + user1 + " and " + user2 + "\n");
+			returnString.append("Link between ").append(user1).append(" and ").append(user2).append('\n');
 			for (int i = 0; i < this.links.size(); i++) {
 				//If we have an odd number of elements then the link was established, but
 				//because we index at 0, odd is divisible by 2
 				if(i % 2 == 0) 
-					returnString.append("Link established on " + this.links.get(i).toString() + "\n");
+					returnString.append("Link established on ").append(new Date(this.links.get(i))).append('\n');
 				else
-					returnString.append("Link torn down on " + this.links.get(i).toString() + "\n");
+					returnString.append("Link torn down on ").append(new Date(this.links.get(i))).append('\n');
 			}
 		}
 		
@@ -307,6 +432,17 @@ public class Link {
 	
 	//Private Methods
 	
+	/**
+	 * Private helper that records an event, switching a long plain history to the compressed
+	 * form once it passes COMPRESSION_THRESHOLD. Off-heap timelines are left where they are.
+	 * @param time - time of the event in milliseconds
+	 */
+	private void recordEvent(long time) {
+		this.links.add(time);
+		if (this.links.size() == COMPRESSION_THRESHOLD && this.links instanceof HeapTimeline)
+			this.links = new CompressedTimeline(this.links);
+	}
+	
 	/**
 	 * Private helper method that will throw a NullPointerException if the input is null
 	 * @param input - any input objects to be checked
@@ -356,89 +492,6 @@ public class Link {
 		return false;
 	}
 	
-	/**
-	 * Private helper to compare the date against an event list that is one
-	 * element in size.
-	 * @param date - date to query list with
-	 * @return int - Number of elements in list at the date given
-	 */
-	private int binaryDateComparison(Date date) {
-		Date compDate = this.links.get(0);
-		this.checkNull(date);
-		
-		if (date.before(compDate))
-			//At that time, there were 0 elements in the list
-			return 0;
-		else
-			//At date, we have one event in the list
-			return 1;
-		
-	}
-	
-	/**
-	 * Private helper method that finds where a date that doesn't exist within links should be
-	 * and returns the index of the element that comes before it.
-	 * @param date - date in question
-	 * @return int - Index of previous element
-	 * @throws NullPointerException
-	 */
-	private int findSizeForDate(Date date) {
-		int returnIdx = this.links.lastIndexOf(date) + 1;
-
-		this.checkNull(date);
-		
-		for (int i = 0; i < this.links.size() - 1; i++) {
-			
-			if (returnIdx > 0) 
-				return returnIdx;
-			
-			if(this.dateIsBetween(this.links.get(i), date, this.links.get(i + 1))) 
-				returnIdx = i + 1;
-		}
-		
-		if(returnIdx <= 0) 
-			returnIdx = this.dateFitsAtEnd(date);
-		
-		return returnIdx;
-	}
-	
-	/**
-	 * Private helper that compares two dates against a third date to see if the third
-	 * date fits between the two
-	 * @param before - Date that should be before the middle date
-	 * @param now - The date that is trying to be placed
-	 * @param after - Date that should be after the middle date
-	 * @return boolean - true if between, false otherwise
-	 */
-	private boolean dateIsBetween(Date before, Date now, Date after) {
-		this.checkNull(before);
-		this.checkNull(now);
-		this.checkNull(after);
-		
-		//If it's either before or equal to the prior date and the following date actually comes after
-		if ((before.before(now) || before.equals(now)) && after.after(now) && !after.equals(now))
-			return true;
-		return false;
-	}
-	
-	/**
-	 * Private helper that checks if the date comes before or after the last
-	 * event in the list and returns the total number of events that occurred
-	 * at the given date
-	 * @param date - Date being compared
-	 * @return int - number of events at the input date
-	 */
-	private int dateFitsAtEnd(Date date) {
-		this.checkNull(date);
-		
-		Date compDate = this.links.get(this.links.size() - 1);
-		//If the input date happened before the last event
-		if (compDate.after(date))
-			//Then don't count the last event
-			return this.links.size() - 1;
-		else
-			return this.links.size();
-	}
 	
 	
 
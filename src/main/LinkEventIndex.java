@@ -0,0 +1,301 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.concurrent.CancellationException;
+
+/**
+ * LinkEventIndex class flattens the network into numbered users, numbered links and a
+ * single list of every establish and tear down event sorted by date. Engines that need to
+ * know what changed between two dates can then binary search the list instead of asking
+ * every link. The index knows which network modification it is up to date with. New users
+ * and events no older than the newest one can be appended as the network changes; anything
+ * else leaves the index stale, and its owner builds a new one.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+class LinkEventIndex {
+
+	//Orders events by date
+	private static final Comparator<long[]> EVENT_ORDER = new Comparator<long[]>() {
+		@Override
+		public int compare(long[] event1, long[] event2) {
+			return event1[0] < event2[0] ? -1 : (event1[0] == event2[0] ? 0 : 1);
+		}
+	};
+
+	private long						modificationCount;	//Network modification the index is up to date with
+	private User[]						users;				//Users by index
+	private int							userCount;			//Slots of users in use
+	private HashMap<String, Integer>	indices;			//Ids to their index in users
+	private Link[]						links;				//Links by index
+	private int							linkCount;			//Slots of links in use
+	private IdentityHashMap<Link, Integer>	linkIndices;	//Links to their index, made on the first append
+	private int[]						linkFirst;			//Index of one user of each link
+	private int[]						linkSecond;			//Index of the other user of each link
+	private long[]						times;				//Event dates in milliseconds, sorted
+	private int							eventCount;			//Slots of events in use
+	private int[]						eventLinks;			//Link each event belongs to
+	private boolean[]					establishes;		//True if the event established its link
+
+	/**
+	 * Class constructor
+	 * Numbers the users and links of the network and sorts all of their events
+	 * @param network - network to index
+	 * @throws NullPointerException
+	 * @throws CancellationException
+	 */
+	LinkEventIndex(SocialNetwork network) {
+		ArrayList<Link> linkList = new ArrayList<Link>();
+		ArrayList<int[]> endList = new ArrayList<int[]>();
+		ArrayList<long[]> eventList = new ArrayList<long[]>();
+		long[][] sorted;
+		int otherIdx;
+
+		if (network == null)
+			throw new NullPointerException("Input parameter is null");
+
+		this.modificationCount = network.getModificationCount();
+		this.users = network.getUsers().toArray(new User[0]);
+		this.userCount = this.users.length;
+		this.indices = new HashMap<String, Integer>(this.users.length * 2);
+		for (int i = 0; i < this.users.length; i++)
+			this.indices.put(this.users[i].getID(), i);
+
+		//Take each link from the endpoint with the lower index so it's only counted once
+		for (int i = 0; i < this.users.length; i++) {
+			if (Thread.currentThread().isInterrupted())
+				throw new CancellationException("Indexing interrupted");
+			for (Link link: network.getLinksOf(this.users[i])) {
+				if (link.isRemoved())
+					continue;
+				otherIdx = this.indices.get(link.getOtherUser(this.users[i]).getID());
+				if (otherIdx > i) {
+					linkList.add(link);
+					endList.add(new int[] {i, otherIdx});
+				}
+			}
+		}
+
+		this.links = linkList.toArray(new Link[linkList.size()]);
+		this.linkCount = this.links.length;
+		this.linkIndices = null;
+		this.linkFirst = new int[this.links.length];
+		this.linkSecond = new int[this.links.length];
+		for (int linkIdx = 0; linkIdx < this.links.length; linkIdx++) {
+			this.linkFirst[linkIdx] = endList.get(linkIdx)[0];
+			this.linkSecond[linkIdx] = endList.get(linkIdx)[1];
+			for (int eventIdx = 0; eventIdx < this.links[linkIdx].getEventCount(); eventIdx++)
+				eventList.add(new long[] {this.links[linkIdx].getEventTime(eventIdx), linkIdx, eventIdx % 2 == 0 ? 1 : 0});
+		}
+
+		//Stable sort, so same date events of one link keep their order
+		sorted = eventList.toArray(new long[eventList.size()][]);
+		Arrays.sort(sorted, EVENT_ORDER);
+		this.times = new long[sorted.length];
+		this.eventLinks = new int[sorted.length];
+		this.establishes = new boolean[sorted.length];
+		this.eventCount = sorted.length;
+		for (int i = 0; i < sorted.length; i++) {
+			this.times[i] = sorted[i][0];
+			this.eventLinks[i] = (int) sorted[i][1];
+			this.establishes[i] = sorted[i][2] == 1;
+		}
+	}
+
+	/**
+	 * Getter for the network modification the index was built at
+	 * @return long - modification count of the network at build time
+	 */
+	long getModificationCount() {
+		return this.modificationCount;
+	}
+
+	/**
+	 * Number of users in the index
+	 * @return int - number of users
+	 */
+	int userCount() {
+		return this.userCount;
+	}
+
+	/**
+	 * Number of links in the index
+	 * @return int - number of links
+	 */
+	int linkCount() {
+		return this.linkCount;
+	}
+
+	/**
+	 * Number of events in the index
+	 * @return int - number of events
+	 */
+	int eventCount() {
+		return this.eventCount;
+	}
+
+	/**
+	 * Appends a user just added to the network
+	 * @param user - the new member
+	 * @param modificationCount - network modification the index is up to date with afterwards
+	 */
+	void appendUser(User user, long modificationCount) {
+		if (this.userCount == this.users.length)
+			this.users = Arrays.copyOf(this.users, this.userCount * 2 + 1);
+		this.indices.put(user.getID(), this.userCount);
+		this.users[this.userCount++] = user;
+		this.modificationCount = modificationCount;
+	}
+
+	/**
+	 * Appends an establish or tear down just made on a link, numbering the link if it's new.
+	 * Events older than the newest indexed event would have to go in the middle, so they
+	 * aren't appended and the index is left stale.
+	 * @param link - link the event was made on
+	 * @param time - date of the event in milliseconds
+	 * @param establish - true if the link was established
+	 * @param modificationCount - network modification the index is up to date with afterwards
+	 * @return boolean - true if appended, false if the index is now stale
+	 * @throws UninitializedObjectException
+	 */
+	boolean appendEvent(Link link, long time, boolean establish, long modificationCount) throws UninitializedObjectException {
+		Integer linkIdx;
+
+		if (this.eventCount > 0 && time < this.times[this.eventCount - 1])
+			return false;
+
+		if (this.linkIndices == null) {
+			this.linkIndices = new IdentityHashMap<Link, Integer>(this.linkCount * 2);
+			for (int i = 0; i < this.linkCount; i++)
+				this.linkIndices.put(this.links[i], i);
+		}
+		linkIdx = this.linkIndices.get(link);
+		if (linkIdx == null) {
+			User[] ends = link.getUsers().toArray(new User[2]);
+			Integer first = this.indices.get(ends[0].getID());
+			Integer second = this.indices.get(ends[1].getID());
+			if (first == null || second == null)
+				return false;
+			if (this.linkCount == this.links.length) {
+				this.links = Arrays.copyOf(this.links, this.linkCount * 2 + 1);
+				this.linkFirst = Arrays.copyOf(this.linkFirst, this.links.length);
+				this.linkSecond = Arrays.copyOf(this.linkSecond, this.links.length);
+			}
+			linkIdx = this.linkCount++;
+			this.links[linkIdx] = link;
+			this.linkFirst[linkIdx] = Math.min(first, second);
+			this.linkSecond[linkIdx] = Math.max(first, second);
+			this.linkIndices.put(link, linkIdx);
+		}
+
+		if (this.eventCount == this.times.length) {
+			this.times = Arrays.copyOf(this.times, this.eventCount * 2 + 1);
+			this.eventLinks = Arrays.copyOf(this.eventLinks, this.times.length);
+			this.establishes = Arrays.copyOf(this.establishes, this.times.length);
+		}
+		this.times[this.eventCount] = time;
+		this.eventLinks[this.eventCount] = linkIdx;
+		this.establishes[this.eventCount] = establish;
+		this.eventCount++;
+		this.modificationCount = modificationCount;
+		return true;
+	}
+
+	/**
+	 * Finds the index of the user with the given id
+	 * @param id - id of the user
+	 * @return int - index of the user, -1 if not indexed
+	 */
+	int indexOf(String id) {
+		Integer index = this.indices.get(id);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Grabs the user at an index
+	 * @param index - index of the user
+	 * @return User - the user
+	 */
+	User getUser(int index) {
+		return this.users[index];
+	}
+
+	/**
+	 * Grabs the link at an index
+	 * @param index - index of the link
+	 * @return Link - the link
+	 */
+	Link getLink(int index) {
+		return this.links[index];
+	}
+
+	/**
+	 * Index of one user of a link
+	 * @param link - index of the link
+	 * @return int - index of the first user
+	 */
+	int getFirstUser(int link) {
+		return this.linkFirst[link];
+	}
+
+	/**
+	 * Index of the other user of a link
+	 * @param link - index of the link
+	 * @return int - index of the second user
+	 */
+	int getSecondUser(int link) {
+		return this.linkSecond[link];
+	}
+
+	/**
+	 * Date of an event in milliseconds
+	 * @param event - index of the event
+	 * @return long - date of the event
+	 */
+	long getTime(int event) {
+		return this.times[event];
+	}
+
+	/**
+	 * Link an event belongs to
+	 * @param event - index of the event
+	 * @return int - index of the link
+	 */
+	int getEventLink(int event) {
+		return this.eventLinks[event];
+	}
+
+	/**
+	 * Whether an event established or tore down its link
+	 * @param event - index of the event
+	 * @return boolean - true if established
+	 */
+	boolean isEstablish(int event) {
+		return this.establishes[event];
+	}
+
+	/**
+	 * Binary searches for the number of events that happened on or before a date, which
+	 * matches how Link.isActive counts events
+	 * @param time - date in milliseconds
+	 * @return int - number of events at or before the date
+	 */
+	int countAtOrBefore(long time) {
+		int low = 0;
+		int high = this.eventCount;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.times[middle] <= time)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+
+		return low;
+	}
+
+}
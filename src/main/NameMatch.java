@@ -0,0 +1,69 @@
+package main;
+
+/**
+ * NameMatch class pairs a user found by a fuzzy name search with how far their name was
+ * from the query, and how far they are from the searcher if the search was ranked by
+ * network distance
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class NameMatch {
+
+	//Marks a match whose network distance wasn't probed or wasn't reached
+	public static final int UNKNOWN_DISTANCE = -1;
+
+	//Elements of a match
+	private User user;
+	private int editDistance;
+	private int networkDistance;
+
+	/**
+	 * Constructor for a match of a user at a given edit distance
+	 * @param user - User whose name matched
+	 * @param editDistance - edits between the query and the user's closest name
+	 * @param networkDistance - neighborhood distance from the searcher, UNKNOWN_DISTANCE if not reached
+	 * @throws NullPointerException
+	 */
+	public NameMatch(User user, int editDistance, int networkDistance) {
+		if (user == null)
+			throw new NullPointerException("Input parameter is null");
+
+		this.user = user;
+		this.editDistance = editDistance;
+		this.networkDistance = networkDistance;
+	}
+
+	/**
+	 * Getter for the matched user
+	 * @return User - the user whose name matched
+	 */
+	public User getUser() {
+		return this.user;
+	}
+
+	/**
+	 * Getter for the edit distance
+	 * @return int - edits between the query and the user's closest name
+	 */
+	public int getEditDistance() {
+		return this.editDistance;
+	}
+
+	/**
+	 * Getter for the network distance
+	 * @return int - neighborhood distance from the searcher, UNKNOWN_DISTANCE if not reached
+	 */
+	public int getNetworkDistance() {
+		return this.networkDistance;
+	}
+
+	/**
+	 * Overridden toString method that prints out a human friendly representation of
+	 * the match
+	 * @return String - string representation of the match
+	 */
+	@Override
+	public String toString() {
+		return String.format("Match %s\nEdit distance: %d", this.user, this.editDistance);
+	}
+
+}
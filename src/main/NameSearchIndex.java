@@ -0,0 +1,322 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * NameSearchIndex class finds members whose first or last name is within a few typos of a
+ * query. Every distinct name is split into trigrams, and each trigram keeps a posting list
+ * of the names containing it, stored as varint gaps between name numbers. A name within k
+ * edits of the query still shares all but k * 3 of the query's distinct trigrams, so only
+ * names that clear that bar get the bounded edit distance check. Queries too short for the
+ * bar to prune anything check every distinct name instead, which is still far fewer than
+ * the members. Like UserIndex, it listens to members and follows name changes.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+class NameSearchIndex implements UserChangeListener {
+
+	//Length of the grams names are split into
+	private static final int GRAM = 3;
+
+	//Pads names so their first and last letters are in as many grams as the middle ones
+	private static final char PAD = '\u0000';
+
+	private HashMap<String, Integer>	nameNumbers;	//Distinct lower case names to their number
+	private ArrayList<String>			names;			//Distinct names by number
+	private ArrayList<Set<User>>		holders;		//Members holding each name as a first or last name
+	private HashMap<Long, Postings>		postings;		//Names containing each trigram
+
+	/**
+	 * Class constructor
+	 * Creates an empty index
+	 */
+	NameSearchIndex() {
+		this.nameNumbers = new HashMap<String, Integer>();
+		this.names = new ArrayList<String>();
+		this.holders = new ArrayList<Set<User>>();
+		this.postings = new HashMap<Long, Postings>();
+	}
+
+	/**
+	 * Indexes a member's first and last names and starts listening for changes
+	 * @param user - member to index
+	 */
+	void add(User user) {
+		this.addName(user.getFirstName(), user);
+		this.addName(user.getLastName(), user);
+		user.addChangeListener(this);
+	}
+
+	/**
+	 * Drops a member from the names they hold and stops listening to them
+	 * @param user - member to remove
+	 */
+	void remove(User user) {
+		this.removeName(user.getFirstName(), user);
+		this.removeName(user.getLastName(), user);
+		user.removeChangeListener(this);
+	}
+
+	/**
+	 * Finds every member with a first or last name within maxEdits of the query
+	 * @param query - name to look for
+	 * @param maxEdits - most insertions, deletions and substitutions allowed
+	 * @return HashMap<User, Integer> - matching members and the edits to their closest name
+	 */
+	HashMap<User, Integer> search(String query, int maxEdits) {
+		HashMap<User, Integer> returnMap = new HashMap<User, Integer>();
+		String key = NameSearchIndex.normalize(query);
+		long[] grams = NameSearchIndex.distinctGrams(key);
+		int needed = grams.length - maxEdits * GRAM;
+
+		if (needed <= 0) {
+			for (int name = 0; name < this.names.size(); name++)
+				this.verify(key, name, maxEdits, returnMap);
+		} else {
+			int[] counts = new int[this.names.size()];
+			for (long gram: grams) {
+				Postings list = this.postings.get(gram);
+				if (list == null)
+					continue;
+				int name = -1;
+				for (int i = 0, offset = 0; i < list.count; i++) {
+					int gap = 0;
+					int shift = 0;
+					byte next;
+					do {
+						next = list.gaps[offset++];
+						gap |= (next & 0x7f) << shift;
+						shift += 7;
+					} while (next < 0);
+					name += gap;
+					//Verify the moment a name clears the bar, so each name is checked once
+					if (++counts[name] == needed)
+						this.verify(key, name, maxEdits, returnMap);
+				}
+			}
+		}
+
+		return returnMap;
+	}
+
+	/**
+	 * Moves a member from their old first or last name to the new one. Middle names aren't searched.
+	 * @param user - member that changed
+	 * @param field - field that changed
+	 * @param oldValue - value before the change
+	 * @param newValue - value after the change
+	 */
+	@Override
+	public void userChanged(User user, Field field, String oldValue, String newValue) {
+		if (field == Field.FIRST_NAME || field == Field.LAST_NAME) {
+			String other = field == Field.FIRST_NAME ? user.getLastName() : user.getFirstName();
+			//Keep the member under the old name if their other name is the same
+			if (oldValue != null && (other == null || !NameSearchIndex.normalize(other).equals(NameSearchIndex.normalize(oldValue))))
+				this.removeName(oldValue, user);
+			this.addName(newValue, user);
+		}
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that checks a name against the query and records its holders if it's close enough
+	 * @param key - normalized query
+	 * @param name - number of the name
+	 * @param maxEdits - most edits allowed
+	 * @param matches - matches found so far, keeping each member's smallest edit count
+	 */
+	private void verify(String key, int name, int maxEdits, HashMap<User, Integer> matches) {
+		int edits;
+
+		if (this.holders.get(name).isEmpty())
+			return;
+		edits = NameSearchIndex.boundedEditDistance(key, this.names.get(name), maxEdits);
+		if (edits > maxEdits)
+			return;
+		for (User user: this.holders.get(name)) {
+			Integer best = matches.get(user);
+			if (best == null || edits < best)
+				matches.put(user, edits);
+		}
+	}
+
+	/**
+	 * Private helper that records a member as holding a name, numbering and indexing the name
+	 * if it hasn't been seen yet
+	 * @param value - name, may be null
+	 * @param user - member holding it
+	 */
+	private void addName(String value, User user) {
+		String key;
+		Integer name;
+
+		if (value == null)
+			return;
+		key = NameSearchIndex.normalize(value);
+		name = this.nameNumbers.get(key);
+		if (name == null) {
+			name = this.names.size();
+			this.nameNumbers.put(key, name);
+			this.names.add(key);
+			this.holders.add(new HashSet<User>());
+			//Names are numbered in order, so every posting list stays sorted
+			for (long gram: NameSearchIndex.distinctGrams(key)) {
+				Postings list = this.postings.get(gram);
+				if (list == null) {
+					list = new Postings();
+					this.postings.put(gram, list);
+				}
+				list.append(name);
+			}
+		}
+		this.holders.get(name).add(user);
+	}
+
+	/**
+	 * Private helper that drops a member from a name. The name stays numbered so posting
+	 * lists never need rewriting; names nobody holds are skipped when verifying.
+	 * @param value - name, may be null
+	 * @param user - member holding it
+	 */
+	private void removeName(String value, User user) {
+		Integer name;
+
+		if (value == null)
+			return;
+		name = this.nameNumbers.get(NameSearchIndex.normalize(value));
+		if (name != null)
+			this.holders.get(name).remove(user);
+	}
+
+	/**
+	 * Private helper for the distinct trigrams of a padded name, each packed into a long
+	 * @param key - normalized name
+	 * @return long[] - distinct trigrams
+	 */
+	private static long[] distinctGrams(String key) {
+		StringBuilder padded = new StringBuilder(key.length() + 2 * (GRAM - 1));
+		long[] grams;
+		int count = 0;
+
+		for (int i = 0; i < GRAM - 1; i++)
+			padded.append(PAD);
+		padded.append(key);
+		for (int i = 0; i < GRAM - 1; i++)
+			padded.append(PAD);
+
+		grams = new long[padded.length() - GRAM + 1];
+		for (int i = 0; i < grams.length; i++)
+			grams[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+		Arrays.sort(grams);
+		for (int i = 0; i < grams.length; i++) {
+			if (i == 0 || grams[i] != grams[i - 1])
+				grams[count++] = grams[i];
+		}
+
+		return Arrays.copyOf(grams, count);
+	}
+
+	/**
+	 * Private helper for the Levenshtein distance of two strings that gives up once it's
+	 * sure to pass the bound. Only the band of cells within maxEdits of the diagonal is filled.
+	 * @param source - first string
+	 * @param target - second string
+	 * @param maxEdits - bound on the distance
+	 * @return int - edit distance, or maxEdits + 1 if it's over the bound
+	 */
+	static int boundedEditDistance(String source, String target, int maxEdits) {
+		int over = maxEdits + 1;
+		int[] previous;
+		int[] current;
+		int[] swap;
+
+		if (Math.abs(source.length() - target.length()) > maxEdits)
+			return over;
+
+		previous = new int[target.length() + 1];
+		current = new int[target.length() + 1];
+		for (int j = 0; j <= target.length(); j++)
+			previous[j] = Math.min(j, over);
+
+		for (int i = 1; i <= source.length(); i++) {
+			int low = Math.max(1, i - maxEdits);
+			int high = Math.min(target.length(), i + maxEdits);
+			int rowBest = over;
+
+			current[0] = Math.min(i, over);
+			if (low > 1)
+				current[low - 1] = over;
+			for (int j = low; j <= high; j++) {
+				int cost = source.charAt(i - 1) == target.charAt(j - 1) ? 0 : 1;
+				int best = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+				current[j] = Math.min(best, over);
+				rowBest = Math.min(rowBest, current[j]);
+			}
+			if (high < target.length())
+				current[high + 1] = over;
+			if (Math.min(rowBest, current[0]) >= over)
+				return over;
+
+			swap = previous;
+			previous = current;
+			current = swap;
+		}
+
+		return previous[target.length()];
+	}
+
+	/**
+	 * Private helper for the key of a name
+	 * @param name - name
+	 * @return String - trimmed lower case name
+	 */
+	private static String normalize(String name) {
+		return name.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Posting list of name numbers, stored as varint gaps from the previous number
+	 */
+	private static class Postings {
+
+		private byte[]	gaps;		//Gaps between numbers, varint encoded
+		private int		length;		//Bytes of gaps in use
+		private int		count;		//Numbers in the list
+		private int		last;		//Last number appended
+
+		/**
+		 * Class constructor
+		 * Creates an empty list
+		 */
+		Postings() {
+			this.gaps = new byte[4];
+			this.length = 0;
+			this.count = 0;
+			this.last = -1;
+		}
+
+		/**
+		 * Appends a number larger than every number already in the list
+		 * @param number - number to append
+		 */
+		void append(int number) {
+			int gap = number - this.last;
+
+			if (this.length + 5 > this.gaps.length)
+				this.gaps = Arrays.copyOf(this.gaps, this.gaps.length * 2);
+			while ((gap & ~0x7f) != 0) {
+				this.gaps[this.length++] = (byte) ((gap & 0x7f) | 0x80);
+				gap >>>= 7;
+			}
+			this.gaps[this.length++] = (byte) gap;
+			this.last = number;
+			this.count++;
+		}
+	}
+
+}
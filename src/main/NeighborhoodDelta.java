@@ -0,0 +1,94 @@
+package main;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * NeighborhoodDelta class lists how a user's neighborhood changed: users who joined it,
+ * users who left it, and users who stayed but moved to a new distance. Distances follow
+ * neighborhood(), so direct friends are at distance 0.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class NeighborhoodDelta {
+
+	//Elements of a delta
+	private Set<Friend> added;
+	private Set<User> removed;
+	private Set<Friend> changed;
+
+	/**
+	 * Class constructor
+	 * Creates an empty delta, only filled in by the network
+	 */
+	NeighborhoodDelta() {
+		this.added = new HashSet<Friend>();
+		this.removed = new HashSet<User>();
+		this.changed = new HashSet<Friend>();
+	}
+
+	/**
+	 * Getter for the users who joined the neighborhood
+	 * @return Set<Friend> - new users and their distances
+	 */
+	public Set<Friend> getAdded() {
+		return Collections.unmodifiableSet(this.added);
+	}
+
+	/**
+	 * Getter for the users who left the neighborhood
+	 * @return Set<User> - users no longer in it
+	 */
+	public Set<User> getRemoved() {
+		return Collections.unmodifiableSet(this.removed);
+	}
+
+	/**
+	 * Getter for the users who stayed but are now at a different distance
+	 * @return Set<Friend> - users and their new distances
+	 */
+	public Set<Friend> getChanged() {
+		return Collections.unmodifiableSet(this.changed);
+	}
+
+	/**
+	 * Checks if nothing changed
+	 * @return boolean - true if the delta is empty
+	 */
+	public boolean isEmpty() {
+		return this.added.isEmpty() && this.removed.isEmpty() && this.changed.isEmpty();
+	}
+
+	/**
+	 * Package-private helper that records one user's move
+	 * @param user - user that moved
+	 * @param oldDistance - distance before, -1 if they weren't in the neighborhood
+	 * @param newDistance - distance after, -1 if they aren't in the neighborhood
+	 */
+	void record(User user, int oldDistance, int newDistance) {
+		Friend friend = new Friend();
+
+		if (oldDistance == newDistance)
+			return;
+		if (newDistance < 0)
+			this.removed.add(user);
+		else {
+			friend.set(user, newDistance);
+			if (oldDistance < 0)
+				this.added.add(friend);
+			else
+				this.changed.add(friend);
+		}
+	}
+
+	/**
+	 * Overridden toString method that prints out a human friendly representation of
+	 * the delta
+	 * @return String - string representation of the delta
+	 */
+	@Override
+	public String toString() {
+		return String.format("Added: %s\nRemoved: %s\nChanged: %s", this.added, this.removed, this.changed);
+	}
+
+}
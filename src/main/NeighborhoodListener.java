@@ -0,0 +1,16 @@
+package main;
+
+/**
+ * NeighborhoodListener interface is told whenever a watched neighborhood changes
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public interface NeighborhoodListener {
+
+	/**
+	 * Called on the thread that changed the network, right after the change
+	 * @param id - id of the watched user
+	 * @param delta - users who joined, left, or moved in the neighborhood
+	 */
+	void neighborhoodChanged(String id, NeighborhoodDelta delta);
+
+}
@@ -0,0 +1,224 @@
+package main;
+
+import java.util.Date;
+import java.util.concurrent.CancellationException;
+
+/**
+ * NeighborhoodSizeEstimator class approximates the size of every user's neighborhood at
+ * each distance in one pass over the network (HyperANF). Each user gets a HyperLogLog
+ * counter seeded with their own id; merging a counter with those of the user's active
+ * friends, level after level, makes it count everyone within one more link. Memory is one
+ * byte per register per user no matter how big the neighborhoods are, and no Friend
+ * objects are made. Estimates are within the relative standard error about two thirds of
+ * the time.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class NeighborhoodSizeEstimator {
+
+	//Smallest and largest allowed number of bits used to pick a register
+	public static final int MIN_REGISTER_BITS = 4;
+	public static final int MAX_REGISTER_BITS = 16;
+
+	private ActiveGraph	graph;			//Links active at the date
+	private int			registerBits;	//Bits of the hash used to pick a register
+	private int			registerCount;	//Registers per counter
+	private int			levels;			//Distances estimated, 0 through distance_max
+	private float[]		estimates;		//Estimated sizes, levels entries per user
+
+	/**
+	 * Class constructor
+	 * Package-private since estimators are made through SocialNetwork, which validates the inputs
+	 * @param network - network to estimate for
+	 * @param date - date to check activity against
+	 * @param distance_max - max distance to estimate sizes for
+	 * @param registerBits - counters get 2^registerBits registers
+	 * @throws UninitializedObjectException
+	 * @throws CancellationException
+	 */
+	NeighborhoodSizeEstimator(SocialNetwork network, Date date, int distance_max, int registerBits) throws UninitializedObjectException {
+		this.graph = new ActiveGraph(network, date);
+		this.registerBits = registerBits;
+		this.registerCount = 1 << registerBits;
+		this.levels = distance_max + 1;
+		this.estimates = new float[this.graph.size() * this.levels];
+		this.propagate();
+	}
+
+	/**
+	 * Estimates how many users would be in neighborhood(id, date, distance, status)
+	 * @param id - id of the user
+	 * @param distance - max distance of the neighborhood, 0 being direct friends
+	 * @return double - estimated neighborhood size, -1 if the user or distance is out of range
+	 */
+	public double estimateNeighborhoodSize(String id, int distance) {
+		int index = this.graph.indexOf(id);
+
+		if (index < 0 || distance < 0 || distance >= this.levels)
+			return -1;
+		return this.estimates[index * this.levels + distance];
+	}
+
+	/**
+	 * Relative standard error of the estimates, 1.04 / sqrt(registers)
+	 * @return double - relative standard error
+	 */
+	public double getRelativeStandardError() {
+		return 1.04 / Math.sqrt(this.registerCount);
+	}
+
+	/**
+	 * Getter for the largest distance estimated
+	 * @return int - max distance
+	 */
+	public int getDistanceMax() {
+		return this.levels - 1;
+	}
+
+	/**
+	 * Getter for the memory used by the counters while estimating
+	 * @return long - bytes used by the two register arrays
+	 */
+	public long getRegisterBytes() {
+		return 2L * this.graph.size() * this.registerCount;
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that seeds every counter and merges counters along active links once per
+	 * level. After merging k times, a user's counter holds everyone within k links.
+	 * @throws CancellationException
+	 */
+	private void propagate() {
+		byte[] current = new byte[this.graph.size() * this.registerCount];
+		byte[] next = new byte[current.length];
+		byte[] swap;
+		boolean changed = true;
+
+		for (int user = 0; user < this.graph.size(); user++)
+			this.seed(current, user);
+
+		for (int level = 0; level < this.levels; level++) {
+			//Once nothing changes, every later level has the same sizes
+			if (changed) {
+				changed = false;
+				for (int user = 0; user < this.graph.size(); user++) {
+					if (Thread.currentThread().isInterrupted())
+						throw new CancellationException("Estimate interrupted");
+					changed |= this.merge(current, next, user);
+				}
+				swap = current;
+				current = next;
+				next = swap;
+			}
+			for (int user = 0; user < this.graph.size(); user++)
+				this.estimates[user * this.levels + level] = (float) Math.max(this.count(current, user) - 1, 0);
+		}
+	}
+
+	/**
+	 * Private helper that adds a user's own id to their counter
+	 * @param registers - all counters
+	 * @param user - index of the user
+	 */
+	private void seed(byte[] registers, int user) {
+		long hash = NeighborhoodSizeEstimator.hash(this.graph.getUser(user).getID());
+		int register = (int) (hash >>> (64 - this.registerBits));
+		//Count leading zeros of the rest of the hash, with a stop bit so it can't run off the end
+		long rest = (hash << this.registerBits) | (1L << (this.registerBits - 1));
+		byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+		int slot = user * this.registerCount + register;
+
+		if (registers[slot] < rank)
+			registers[slot] = rank;
+	}
+
+	/**
+	 * Private helper that sets a user's next counter to the union of their current counter
+	 * and the current counters of their active friends
+	 * @param current - counters after the last level
+	 * @param next - counters being built
+	 * @param user - index of the user
+	 * @return boolean - true if the user's counter grew
+	 */
+	private boolean merge(byte[] current, byte[] next, int user) {
+		int base = user * this.registerCount;
+		boolean changed = false;
+
+		System.arraycopy(current, base, next, base, this.registerCount);
+		for (int neighbor: this.graph.getNeighbors(user)) {
+			int neighborBase = neighbor * this.registerCount;
+			for (int i = 0; i < this.registerCount; i++) {
+				if (current[neighborBase + i] > next[base + i]) {
+					next[base + i] = current[neighborBase + i];
+					changed = true;
+				}
+			}
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Private helper that turns a counter into a size estimate, switching to linear counting
+	 * while many registers are still empty
+	 * @param registers - all counters
+	 * @param user - index of the user
+	 * @return double - estimated number of users in the counter
+	 */
+	private double count(byte[] registers, int user) {
+		int base = user * this.registerCount;
+		double sum = 0;
+		int zeros = 0;
+		double estimate;
+
+		for (int i = 0; i < this.registerCount; i++) {
+			sum += 1.0 / (1L << registers[base + i]);
+			if (registers[base + i] == 0)
+				zeros++;
+		}
+
+		estimate = NeighborhoodSizeEstimator.alpha(this.registerCount) * this.registerCount * this.registerCount / sum;
+		if (estimate <= 2.5 * this.registerCount && zeros > 0)
+			estimate = this.registerCount * Math.log((double) this.registerCount / zeros);
+
+		return estimate;
+	}
+
+	/**
+	 * Private helper for the HyperLogLog bias correction constant
+	 * @param registerCount - registers per counter
+	 * @return double - correction constant
+	 */
+	private static double alpha(int registerCount) {
+		if (registerCount == 16)
+			return 0.673;
+		else if (registerCount == 32)
+			return 0.697;
+		else if (registerCount == 64)
+			return 0.709;
+		return 0.7213 / (1 + 1.079 / registerCount);
+	}
+
+	/**
+	 * Private helper that hashes an id to 64 well mixed bits (FNV-1a, then the MurmurHash3 finalizer)
+	 * @param id - id to hash
+	 * @return long - hash of the id
+	 */
+	private static long hash(String id) {
+		long hash = 0xcbf29ce484222325L;
+
+		for (int i = 0; i < id.length(); i++) {
+			hash ^= id.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+}
@@ -0,0 +1,89 @@
+package main;
+
+/**
+ * OffHeapTimeline class keeps event times in a region of a TimelineArena, so the heap only
+ * holds the region's address and size. When the region fills up, the times move to a
+ * region twice as big and the old one goes back to the arena for reuse.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+class OffHeapTimeline extends Timeline {
+
+	private TimelineArena	arena;		//Arena the region lives in
+	private long			address;	//Start of the region in the arena, -1 if none yet
+	private int				capacity;	//Number of times the region holds
+	private int				size;		//Number of events
+
+	/**
+	 * Class constructor
+	 * Creates an empty timeline. No region is taken until the first event.
+	 * @param arena - arena to store times in
+	 */
+	OffHeapTimeline(TimelineArena arena) {
+		this.arena = arena;
+		this.address = -1;
+		this.capacity = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * Getter for the number of events
+	 * @return int - number of events
+	 */
+	@Override
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Grabs the time of an event
+	 * @param index - index of the event, 0 being the oldest
+	 * @return long - time of the event in milliseconds
+	 * @throws IndexOutOfBoundsException
+	 */
+	@Override
+	long get(int index) {
+		if (index >= this.size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+		return this.arena.get(this.address, index);
+	}
+
+	/**
+	 * Appends an event, growing the storage if it's full
+	 * @param time - time of the event in milliseconds
+	 */
+	@Override
+	void add(long time) {
+		if (this.size == this.capacity)
+			this.grow();
+		this.arena.set(this.address, this.size++, time);
+	}
+
+	/**
+	 * Gives the region back to the arena. The timeline is empty afterwards.
+	 */
+	@Override
+	void release() {
+		if (this.address >= 0)
+			this.arena.free(this.address, this.capacity);
+		this.address = -1;
+		this.capacity = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * Private helper that moves the times to a region twice as big
+	 */
+	private void grow() {
+		int newCapacity = this.capacity == 0 ? TimelineArena.MIN_REGION : this.capacity * 2;
+		long newAddress = this.arena.allocate(newCapacity);
+
+		for (int i = 0; i < this.size; i++)
+			this.arena.set(newAddress, i, this.arena.get(this.address, i));
+		if (this.address >= 0)
+			this.arena.free(this.address, this.capacity);
+
+		this.address = newAddress;
+		this.capacity = newCapacity;
+	}
+
+}
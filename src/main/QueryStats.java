@@ -0,0 +1,252 @@
+package main;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * QueryStats class records how much work one traversal did, for finding out why a query
+ * was slow without a profiler. Pass one to the overloads of neighborhood, neighborhoodDiff
+ * and neighborhoodTrend that take it; it's cleared at the start of the call and filled in
+ * as the call runs. Counts add up over every search the call makes, so a trend reports the
+ * work of all of its dates together.
+ * Timeline entries and allocated bytes are estimates: entries from the size of each
+ * timeline searched, bytes from typical object sizes on a 64-bit JVM.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class QueryStats {
+
+	//Rough heap cost of the structures a traversal makes
+	static final long MAP_ENTRY_BYTES = 48;		//Hash map entry plus its boxed distance
+	static final long REFERENCE_BYTES = 8;		//Slot in a list or queue
+	static final long FRIEND_BYTES = 64;		//Friend plus its hash set entry
+
+	private long						searches;			//Searches run, one per date
+	private long						usersVisited;		//Users reached, sources included
+	private long						linksExamined;		//Link slots looked at, tombstones included
+	private long						activityChecks;		//Times a link was asked if it was active
+	private long						timelineEntries;	//Timeline entries those checks looked at
+	private long						levels;				//Levels of links expanded
+	private long						bottomUpLevels;		//Levels expanded bottom-up
+	private long						allocatedBytes;		//Estimated bytes allocated
+	private LinkedHashMap<String, Long>	phaseNanos;			//Wall time of each phase, in the order they ran
+
+	/**
+	 * Class constructor
+	 * Creates empty stats to hand to a query
+	 */
+	public QueryStats() {
+		this.phaseNanos = new LinkedHashMap<String, Long>();
+		this.clear();
+	}
+
+	/**
+	 * Getter for the number of searches run, one per date
+	 * @return long - searches
+	 */
+	public long getSearches() {
+		return this.searches;
+	}
+
+	/**
+	 * Getter for the number of users reached, the sources included
+	 * @return long - users visited
+	 */
+	public long getUsersVisited() {
+		return this.usersVisited;
+	}
+
+	/**
+	 * Getter for the number of link slots looked at, tombstones included
+	 * @return long - links examined
+	 */
+	public long getLinksExamined() {
+		return this.linksExamined;
+	}
+
+	/**
+	 * Getter for the number of times a link was asked whether it was active
+	 * @return long - activity checks
+	 */
+	public long getActivityChecks() {
+		return this.activityChecks;
+	}
+
+	/**
+	 * Getter for the estimated number of timeline entries the activity checks looked at
+	 * @return long - timeline entries scanned
+	 */
+	public long getTimelineEntriesScanned() {
+		return this.timelineEntries;
+	}
+
+	/**
+	 * Getter for the number of levels of links expanded
+	 * @return long - levels
+	 */
+	public long getLevels() {
+		return this.levels;
+	}
+
+	/**
+	 * Getter for the number of levels expanded bottom-up, only ever above 0 in
+	 * DIRECTION_OPTIMIZING mode
+	 * @return long - bottom-up levels
+	 */
+	public long getBottomUpLevels() {
+		return this.bottomUpLevels;
+	}
+
+	/**
+	 * Getter for the estimated bytes allocated by the traversal and its results
+	 * @return long - allocated bytes
+	 */
+	public long getAllocatedBytes() {
+		return this.allocatedBytes;
+	}
+
+	/**
+	 * Getter for the wall time of each phase, in the order the phases first ran
+	 * @return Map<String, Long> - phase names and nanoseconds
+	 */
+	public Map<String, Long> getPhaseNanos() {
+		return Collections.unmodifiableMap(this.phaseNanos);
+	}
+
+	/**
+	 * Getter for the wall time of every phase together
+	 * @return long - nanoseconds
+	 */
+	public long getTotalNanos() {
+		long returnNanos = 0;
+
+		for (long nanos: this.phaseNanos.values())
+			returnNanos += nanos;
+
+		return returnNanos;
+	}
+
+	/**
+	 * Overridden toString method that prints out a human friendly representation of
+	 * the stats
+	 * @return String - string representation of the stats
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+
+		builder.append("Searches: ").append(this.searches)
+			.append("\nUsers visited: ").append(this.usersVisited)
+			.append("\nLinks examined: ").append(this.linksExamined)
+			.append("\nActivity checks: ").append(this.activityChecks)
+			.append("\nTimeline entries scanned: ").append(this.timelineEntries)
+			.append("\nLevels: ").append(this.levels)
+			.append(" (").append(this.bottomUpLevels).append(" bottom-up)")
+			.append("\nAllocated bytes: ").append(this.allocatedBytes);
+		for (Map.Entry<String, Long> entry: this.phaseNanos.entrySet())
+			builder.append("\nPhase ").append(entry.getKey()).append(": ").append(entry.getValue() / 1000).append(" us");
+
+		return builder.toString();
+	}
+
+	//Package-private recorders used by the traversals
+
+	/**
+	 * Resets every count and phase
+	 */
+	void clear() {
+		this.searches = 0;
+		this.usersVisited = 0;
+		this.linksExamined = 0;
+		this.activityChecks = 0;
+		this.timelineEntries = 0;
+		this.levels = 0;
+		this.bottomUpLevels = 0;
+		this.allocatedBytes = 0;
+		this.phaseNanos.clear();
+	}
+
+	/**
+	 * Adds the wall time since a start time to a phase
+	 * @param phase - name of the phase
+	 * @param startNanos - System.nanoTime() when the phase started
+	 */
+	void endPhase(String phase, long startNanos) {
+		Long nanos = this.phaseNanos.get(phase);
+		this.phaseNanos.put(phase, (nanos == null ? 0 : nanos) + System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Counts a search
+	 */
+	void addSearch() {
+		this.searches++;
+	}
+
+	/**
+	 * Counts reached users
+	 * @param count - users reached
+	 */
+	void addUsersVisited(long count) {
+		this.usersVisited += count;
+	}
+
+	/**
+	 * Counts looked at link slots
+	 * @param count - links examined
+	 */
+	void addLinksExamined(long count) {
+		this.linksExamined += count;
+	}
+
+	/**
+	 * Counts an expanded level
+	 * @param bottomUp - true if it was expanded bottom-up
+	 */
+	void addLevel(boolean bottomUp) {
+		this.levels++;
+		if (bottomUp)
+			this.bottomUpLevels++;
+	}
+
+	/**
+	 * Adds to the allocation estimate
+	 * @param bytes - estimated bytes allocated
+	 */
+	void addAllocatedBytes(long bytes) {
+		this.allocatedBytes += bytes;
+	}
+
+	/**
+	 * Asks a link if it was active at a date, counting the check if there are stats to count in
+	 * @param link - link to check
+	 * @param date - date to check activity against
+	 * @param stats - stats to count in, null for none
+	 * @return boolean - true if the link was active
+	 * @throws UninitializedObjectException
+	 */
+	static boolean isActive(Link link, Date date, QueryStats stats) throws UninitializedObjectException {
+		if (stats != null) {
+			stats.activityChecks++;
+			stats.timelineEntries += link.getSearchCost();
+		}
+		return link.isActive(date);
+	}
+
+	/**
+	 * Asks a link if it was active at a time, counting the check if there are stats to count in
+	 * @param link - link to check
+	 * @param time - date in milliseconds
+	 * @param stats - stats to count in, null for none
+	 * @return boolean - true if the link was active and isn't removed
+	 */
+	static boolean isActiveAt(Link link, long time, QueryStats stats) {
+		if (stats != null) {
+			stats.activityChecks++;
+			stats.timelineEntries += link.getSearchCost();
+		}
+		return link.isActiveAt(time);
+	}
+
+}
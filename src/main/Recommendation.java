@@ -0,0 +1,54 @@
+package main;
+
+/**
+ * Recommendation class that pairs a suggested user with the number of mutual
+ * active links they share with the user the suggestion was made for
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class Recommendation {
+
+	//Elements of a recommendation
+	private User user;
+	private int mutualCount;
+
+	/**
+	 * Constructor for a recommendation of a user with a given number of mutual friends
+	 * @param user - User being suggested
+	 * @param mutualCount - number of mutual active links
+	 * @throws NullPointerException
+	 */
+	public Recommendation(User user, int mutualCount) {
+		if (user == null)
+			throw new NullPointerException("Input parameter is null");
+
+		this.user = user;
+		this.mutualCount = mutualCount;
+	}
+
+	/**
+	 * Getter for the suggested user
+	 * @return User - the user being recommended
+	 */
+	public User getUser() {
+		return this.user;
+	}
+
+	/**
+	 * Getter for the number of mutual friends
+	 * @return int - number of mutual active links shared with the source user
+	 */
+	public int getMutualCount() {
+		return this.mutualCount;
+	}
+
+	/**
+	 * Overridden toString method that prints out a human friendly representation of
+	 * the recommendation
+	 * @return String - string representation of the recommendation
+	 */
+	@Override
+	public String toString() {
+		return String.format("Recommendation %s\nMutual friends: %d", this.user, this.mutualCount);
+	}
+
+}
@@ -0,0 +1,257 @@
+package main;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * ReorderWindow class takes establish and tear down events that may arrive somewhat out of
+ * order and hands them to its network in date order. Events wait in a buffer until the
+ * watermark, the latest date seen minus the window, passes them, so any event up to a
+ * window late still lands in the right place in its link's history. Events older than the
+ * watermark can no longer be placed and are rejected with INVALID_DATE. The buffer never
+ * holds more than its capacity: when it's full, the oldest event is released early and the
+ * watermark moves up to it. Windows are made through SocialNetwork.openReorderWindow, and
+ * like the network they're only used from one thread at a time.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class ReorderWindow {
+
+	//Orders buffered events by date, then by arrival so same date events keep their order
+	private static final Comparator<PendingEvent> EVENT_ORDER = new Comparator<PendingEvent>() {
+		@Override
+		public int compare(PendingEvent event1, PendingEvent event2) {
+			if (event1.time != event2.time)
+				return event1.time < event2.time ? -1 : 1;
+			return event1.sequence < event2.sequence ? -1 : (event1.sequence == event2.sequence ? 0 : 1);
+		}
+	};
+
+	private SocialNetwork				network;		//Network events are released to
+	private long						windowMillis;	//How late an event may arrive
+	private int							capacity;		//Most events buffered at once
+	private PriorityQueue<PendingEvent>	buffer;			//Events waiting for the watermark
+	private long						latest;			//Latest date seen in milliseconds
+	private long						watermark;		//Events before this date are rejected
+	private long						nextSequence;	//Arrival number of the next event
+	private long						rejectedCount;	//Events rejected for being too late
+	private long						appliedCount;	//Released events the network took
+	private long						failedCount;	//Released events the network turned down
+
+	/**
+	 * Class constructor
+	 * Package-private since windows are made through SocialNetwork, which validates the inputs
+	 * @param network - network to release events to
+	 * @param windowMillis - how late an event may arrive, in milliseconds
+	 * @param capacity - most events buffered at once
+	 */
+	ReorderWindow(SocialNetwork network, long windowMillis, int capacity) {
+		this.network = network;
+		this.windowMillis = windowMillis;
+		this.capacity = capacity;
+		this.buffer = new PriorityQueue<PendingEvent>(Math.min(capacity, 1024), EVENT_ORDER);
+		this.latest = Long.MIN_VALUE;
+		this.watermark = Long.MIN_VALUE;
+		this.nextSequence = 0;
+		this.rejectedCount = 0;
+		this.appliedCount = 0;
+		this.failedCount = 0;
+	}
+
+	/**
+	 * Buffers an establish, releasing every event the watermark has passed
+	 * @param ids - ids of the two users
+	 * @param date - date to establish on
+	 * @param status - SUCCESS if buffered, INVALID_USERS or INVALID_DATE if rejected
+	 * @return boolean - true if buffered, false if rejected
+	 * @throws UninitializedObjectException
+	 * @throws NullPointerException
+	 */
+	public boolean establishLink(Set<String> ids, Date date, SocialNetworkStatus status) throws UninitializedObjectException {
+		return this.submit(ids, date, true, status);
+	}
+
+	/**
+	 * Buffers a tear down, releasing every event the watermark has passed
+	 * @param ids - ids of the two users
+	 * @param date - date to tear down on
+	 * @param status - SUCCESS if buffered, INVALID_USERS or INVALID_DATE if rejected
+	 * @return boolean - true if buffered, false if rejected
+	 * @throws UninitializedObjectException
+	 * @throws NullPointerException
+	 */
+	public boolean tearDownLink(Set<String> ids, Date date, SocialNetworkStatus status) throws UninitializedObjectException {
+		return this.submit(ids, date, false, status);
+	}
+
+	/**
+	 * Releases every buffered event in order, for the end of a stream. The watermark moves up
+	 * to the latest date seen, so later events must not be older than that.
+	 * @return int - number of events released
+	 * @throws UninitializedObjectException
+	 */
+	public int flush() throws UninitializedObjectException {
+		int returnCount = this.buffer.size();
+
+		if (this.latest != Long.MIN_VALUE)
+			this.watermark = Math.max(this.watermark, this.latest);
+		while (!this.buffer.isEmpty())
+			this.release(this.buffer.poll());
+
+		return returnCount;
+	}
+
+	/**
+	 * Getter for the watermark. Events dated before it are rejected.
+	 * @return Date - watermark, null until the first event arrives
+	 */
+	public Date getWatermark() {
+		return this.watermark == Long.MIN_VALUE ? null : new Date(this.watermark);
+	}
+
+	/**
+	 * Getter for how late an event may arrive
+	 * @return long - window in milliseconds
+	 */
+	public long getWindowMillis() {
+		return this.windowMillis;
+	}
+
+	/**
+	 * Getter for the most events buffered at once
+	 * @return int - capacity
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Getter for the number of events waiting for the watermark
+	 * @return int - buffered events
+	 */
+	public int getBufferedCount() {
+		return this.buffer.size();
+	}
+
+	/**
+	 * Getter for the number of events rejected for arriving after the watermark passed them
+	 * @return long - rejected events
+	 */
+	public long getRejectedCount() {
+		return this.rejectedCount;
+	}
+
+	/**
+	 * Getter for the number of released events the network took
+	 * @return long - applied events
+	 */
+	public long getAppliedCount() {
+		return this.appliedCount;
+	}
+
+	/**
+	 * Getter for the number of released events the network turned down, like establishing
+	 * an active link or a link between users that have since been removed
+	 * @return long - failed events
+	 */
+	public long getFailedCount() {
+		return this.failedCount;
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that checks and buffers an event, then releases what it can
+	 * @param ids - ids of the two users
+	 * @param date - date of the event
+	 * @param establish - true to establish, false to tear down
+	 * @param status - return status of event
+	 * @return boolean - true if buffered, false if rejected
+	 * @throws UninitializedObjectException
+	 */
+	private boolean submit(Set<String> ids, Date date, boolean establish, SocialNetworkStatus status) throws UninitializedObjectException {
+		long time;
+
+		if (ids == null || date == null || status == null)
+			throw new NullPointerException("Input parameter is null");
+
+		if (ids.size() != 2 || ids.contains(null) || !this.network.isMember((String) ids.toArray()[0]) || !this.network.isMember((String) ids.toArray()[1])) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return false;
+		}
+		time = date.getTime();
+		if (time < this.watermark) {
+			this.rejectedCount++;
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DATE);
+			return false;
+		}
+
+		//A full buffer gives up its oldest event early rather than growing
+		if (this.buffer.size() >= this.capacity) {
+			PendingEvent oldest = this.buffer.poll();
+			this.watermark = Math.max(this.watermark, oldest.time);
+			this.release(oldest);
+		}
+		this.buffer.add(new PendingEvent(ids, time, establish, this.nextSequence++));
+		this.latest = Math.max(this.latest, time);
+
+		if (this.latest - this.windowMillis > this.watermark)
+			this.watermark = this.latest - this.windowMillis;
+		while (!this.buffer.isEmpty() && this.buffer.peek().time <= this.watermark)
+			this.release(this.buffer.poll());
+
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return true;
+	}
+
+	/**
+	 * Private helper that hands one event to the network
+	 * @param event - event to release
+	 * @throws UninitializedObjectException
+	 */
+	private void release(PendingEvent event) throws UninitializedObjectException {
+		SocialNetworkStatus releaseStatus = new SocialNetworkStatus();
+		boolean applied;
+
+		if (event.establish)
+			applied = this.network.establishLink(event.ids, new Date(event.time), releaseStatus);
+		else
+			applied = this.network.tearDownLink(event.ids, new Date(event.time), releaseStatus);
+
+		if (applied)
+			this.appliedCount++;
+		else
+			this.failedCount++;
+	}
+
+	/**
+	 * PendingEvent class holds one buffered event
+	 */
+	private static class PendingEvent {
+
+		private Set<String>	ids;		//Ids of the two users
+		private long		time;		//Date of the event in milliseconds
+		private boolean		establish;	//True to establish, false to tear down
+		private long		sequence;	//Arrival number, to break date ties
+
+		/**
+		 * Class constructor
+		 * Copies the ids so later changes to the caller's set don't matter
+		 * @param ids - ids of the two users
+		 * @param time - date of the event in milliseconds
+		 * @param establish - true to establish, false to tear down
+		 * @param sequence - arrival number
+		 */
+		PendingEvent(Set<String> ids, long time, boolean establish, long sequence) {
+			this.ids = Collections.unmodifiableSet(new HashSet<String>(ids));
+			this.time = time;
+			this.establish = establish;
+			this.sequence = sequence;
+		}
+
+	}
+
+}
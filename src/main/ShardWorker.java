@@ -0,0 +1,353 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * ShardWorker class holds one shard of a ShardedSocialNetwork in its own process. The shard
+ * owns the users whose ids hash to it, along with every link of those users. A link whose
+ * other user lives on another shard is kept on both shards, so the shard keeps a bare copy
+ * of that remote user too, but never reports it as a member. The worker answers requests
+ * from one coordinator connection at a time over loopback.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class ShardWorker {
+
+	//Request codes sent by the coordinator
+	static final byte ADD_USER = 1;
+	static final byte IS_MEMBER = 2;
+	static final byte GET_USERS = 3;
+	static final byte ESTABLISH_LINK = 4;
+	static final byte TEAR_DOWN_LINK = 5;
+	static final byte IS_ACTIVE = 6;
+	static final byte EXPAND = 7;
+	static final byte SHUTDOWN = 8;
+
+	//Reply codes sent back before any reply data
+	static final byte REPLY_OK = 0;
+	static final byte REPLY_UNINITIALIZED = 1;
+
+	//Line printed on standard out once the worker is listening
+	static final String PORT_ANNOUNCEMENT = "PORT ";
+
+	private SocialNetwork	shard;		//Owned users, bare copies of remote users, and all their links
+	private Set<String>		ownedIDs;	//Ids of the users this shard owns
+	private boolean			running;	//False once the coordinator asks to shut down
+
+	/**
+	 * Class constructor
+	 * Creates an empty shard
+	 */
+	public ShardWorker() {
+		this.shard = new SocialNetwork();
+		this.ownedIDs = new HashSet<String>();
+		this.running = true;
+	}
+
+	/**
+	 * Starts a worker on a free loopback port, announces the port on standard out, and
+	 * serves until the coordinator shuts it down
+	 * @param args - unused
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		System.out.println(PORT_ANNOUNCEMENT + server.getLocalPort());
+		System.out.flush();
+		new ShardWorker().serve(server);
+	}
+
+	/**
+	 * Accepts coordinator connections one after another and answers their requests until
+	 * a shutdown request arrives, then closes the server socket
+	 * @param server - socket to accept connections on
+	 * @throws IOException
+	 */
+	public void serve(ServerSocket server) throws IOException {
+		try {
+			while (this.running) {
+				Socket connection = server.accept();
+				try {
+					connection.setTcpNoDelay(true);
+					this.handle(new DataInputStream(new BufferedInputStream(connection.getInputStream())),
+							new DataOutputStream(new BufferedOutputStream(connection.getOutputStream())));
+				} finally {
+					connection.close();
+				}
+			}
+		} finally {
+			server.close();
+		}
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that answers requests on one connection until it closes or shuts the worker down
+	 * @param in - request stream
+	 * @param out - reply stream
+	 * @throws IOException
+	 */
+	private void handle(DataInputStream in, DataOutputStream out) throws IOException {
+		byte request;
+
+		while (this.running) {
+			try {
+				request = in.readByte();
+			} catch (EOFException e) {
+				return;
+			}
+
+			try {
+				this.answer(request, in, out);
+			} catch (UninitializedObjectException e) {
+				out.writeByte(REPLY_UNINITIALIZED);
+				out.writeUTF(String.valueOf(e.getMessage()));
+			}
+			out.flush();
+		}
+	}
+
+	/**
+	 * Private helper that reads one request and writes its reply
+	 * @param request - request code
+	 * @param in - request stream
+	 * @param out - reply stream
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	private void answer(byte request, DataInputStream in, DataOutputStream out) throws IOException, UninitializedObjectException {
+		switch (request) {
+		case ADD_USER:
+			boolean added = this.addOwnedUser(ShardWorker.readUser(in));
+			out.writeByte(REPLY_OK);
+			out.writeBoolean(added);
+			break;
+		case IS_MEMBER:
+			boolean member = this.ownedIDs.contains(in.readUTF());
+			out.writeByte(REPLY_OK);
+			out.writeBoolean(member);
+			break;
+		case GET_USERS:
+			int count = in.readInt();
+			String[] ids = new String[count];
+			for (int i = 0; i < count; i++)
+				ids[i] = in.readUTF();
+			out.writeByte(REPLY_OK);
+			for (String id: ids)
+				ShardWorker.writeUser(out, this.ownedIDs.contains(id) ? this.shard.getUser(id) : null);
+			break;
+		case ESTABLISH_LINK:
+		case TEAR_DOWN_LINK:
+			this.answerLinkEvent(request == ESTABLISH_LINK, in, out);
+			break;
+		case IS_ACTIVE:
+			Set<String> pair = ShardWorker.readPair(in);
+			boolean active = this.shard.isActive(pair, new Date(in.readLong()));
+			out.writeByte(REPLY_OK);
+			out.writeBoolean(active);
+			break;
+		case EXPAND:
+			this.answerExpand(in, out);
+			break;
+		case SHUTDOWN:
+			this.running = false;
+			out.writeByte(REPLY_OK);
+			break;
+		default:
+			throw new IOException("Unknown request " + request);
+		}
+	}
+
+	/**
+	 * Private helper that makes a user owned by this shard. If a bare copy was already made
+	 * for a link from another shard, it's filled in with the user's fields instead.
+	 * @param user - user to own
+	 * @return boolean - true if the user wasn't owned yet
+	 * @throws UninitializedObjectException
+	 */
+	private boolean addOwnedUser(User user) throws UninitializedObjectException {
+		User existing;
+
+		if (this.ownedIDs.contains(user.getID()))
+			return false;
+
+		existing = this.shard.getUser(user.getID());
+		if (existing == null)
+			this.shard.addUser(user);
+		else
+			ShardWorker.copyFields(user, existing);
+		this.ownedIDs.add(user.getID());
+		return true;
+	}
+
+	/**
+	 * Private helper that applies an establish or tear down to the local copy of a link,
+	 * making bare copies of any remote user first
+	 * @param establish - true to establish, false to tear down
+	 * @param in - request stream
+	 * @param out - reply stream
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	private void answerLinkEvent(boolean establish, DataInputStream in, DataOutputStream out) throws IOException, UninitializedObjectException {
+		Set<String> pair = ShardWorker.readPair(in);
+		Date date = new Date(in.readLong());
+		SocialNetworkStatus status = new SocialNetworkStatus();
+		boolean changed;
+
+		for (String id: pair) {
+			if (!this.shard.isMember(id)) {
+				User remote = new User();
+				remote.setID(id);
+				this.shard.addUser(remote);
+			}
+		}
+
+		if (establish)
+			changed = this.shard.establishLink(pair, date, status);
+		else
+			changed = this.shard.tearDownLink(pair, date, status);
+
+		out.writeByte(REPLY_OK);
+		out.writeBoolean(changed);
+		out.writeByte(status.getStatus() == null ? -1 : status.getStatus().ordinal());
+	}
+
+	/**
+	 * Private helper that gathers the users actively linked to any of the frontier users at
+	 * a date. Only owned users are expanded, since only their link lists are complete here.
+	 * @param in - request stream
+	 * @param out - reply stream
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	private void answerExpand(DataInputStream in, DataOutputStream out) throws IOException, UninitializedObjectException {
+		Date date = new Date(in.readLong());
+		int count = in.readInt();
+		Set<String> reached = new LinkedHashSet<String>();
+		User user;
+
+		for (int i = 0; i < count; i++) {
+			String id = in.readUTF();
+			if (!this.ownedIDs.contains(id))
+				continue;
+			user = this.shard.getUser(id);
+			for (Link link: this.shard.getLinksOf(user)) {
+				if (!link.isRemoved() && link.isActive(date))
+					reached.add(link.getOtherUser(user).getID());
+			}
+		}
+
+		out.writeByte(REPLY_OK);
+		out.writeInt(reached.size());
+		for (String id: reached)
+			out.writeUTF(id);
+	}
+
+	/**
+	 * Package-private helper that writes a user and its fields, or a marker for a missing user
+	 * @param out - stream to write to
+	 * @param user - user to write, may be null
+	 * @throws IOException
+	 */
+	static void writeUser(DataOutputStream out, User user) throws IOException {
+		out.writeBoolean(user != null);
+		if (user == null)
+			return;
+		out.writeUTF(user.getID());
+		for (String field: new String[] {user.getFirstName(), user.getMiddleName(), user.getLastName(), user.getEmail(), user.getPhoneNumber()}) {
+			out.writeBoolean(field != null);
+			if (field != null)
+				out.writeUTF(field);
+		}
+	}
+
+	/**
+	 * Package-private helper that reads a user written by writeUser
+	 * @param in - stream to read from
+	 * @return User - the user, null if a missing user was written
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	static User readUser(DataInputStream in) throws IOException, UninitializedObjectException {
+		User returnUser;
+		String[] fields = new String[5];
+
+		if (!in.readBoolean())
+			return null;
+		returnUser = new User();
+		returnUser.setID(in.readUTF());
+		for (int i = 0; i < fields.length; i++)
+			fields[i] = in.readBoolean() ? in.readUTF() : null;
+
+		if (fields[0] != null)
+			returnUser.setFirstName(fields[0]);
+		if (fields[1] != null)
+			returnUser.setMiddleName(fields[1]);
+		if (fields[2] != null)
+			returnUser.setLastName(fields[2]);
+		if (fields[3] != null)
+			returnUser.setEmail(fields[3]);
+		if (fields[4] != null)
+			returnUser.setPhoneNumber(fields[4]);
+
+		return returnUser;
+	}
+
+	/**
+	 * Package-private helper that writes the two ids of a link
+	 * @param out - stream to write to
+	 * @param idA - id of one user
+	 * @param idB - id of the other user
+	 * @throws IOException
+	 */
+	static void writePair(DataOutputStream out, String idA, String idB) throws IOException {
+		out.writeUTF(idA);
+		out.writeUTF(idB);
+	}
+
+	/**
+	 * Private helper that reads the two ids of a link into a set
+	 * @param in - stream to read from
+	 * @return Set<String> - the two ids
+	 * @throws IOException
+	 */
+	private static Set<String> readPair(DataInputStream in) throws IOException {
+		Set<String> returnSet = new HashSet<String>();
+		returnSet.add(in.readUTF());
+		returnSet.add(in.readUTF());
+		return returnSet;
+	}
+
+	/**
+	 * Private helper that copies the set fields of one user onto another
+	 * @param from - user to copy from
+	 * @param to - user to copy to
+	 * @throws UninitializedObjectException
+	 */
+	private static void copyFields(User from, User to) throws UninitializedObjectException {
+		if (from.getFirstName() != null)
+			to.setFirstName(from.getFirstName());
+		if (from.getMiddleName() != null)
+			to.setMiddleName(from.getMiddleName());
+		if (from.getLastName() != null)
+			to.setLastName(from.getLastName());
+		if (from.getEmail() != null)
+			to.setEmail(from.getEmail());
+		if (from.getPhoneNumber() != null)
+			to.setPhoneNumber(from.getPhoneNumber());
+	}
+
+}
@@ -0,0 +1,564 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ShardedSocialNetwork class spreads a social network over several ShardWorker processes
+ * so no single heap has to hold it. Users are assigned to shards by the hash of their id,
+ * and every call is routed to the shard that owns the users involved. Neighborhoods are
+ * found with a breadth first search whose frontier is split by shard and exchanged with
+ * all shards once per level. The coordinator itself keeps no users or links.
+ * A coordinator is not safe to share between threads.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class ShardedSocialNetwork implements Closeable {
+
+	private Socket[]			sockets;	//Connection to each shard
+	private DataInputStream[]	inputs;		//Reply stream of each shard
+	private DataOutputStream[]	outputs;	//Request stream of each shard
+	private List<Process>		workers;	//Worker processes started by launchLocal, if any
+
+	/**
+	 * Class constructor
+	 * Connects to workers that are already running
+	 * @param shardAddresses - address of each shard, in shard order
+	 * @throws IOException
+	 * @throws NullPointerException
+	 */
+	public ShardedSocialNetwork(List<InetSocketAddress> shardAddresses) throws IOException {
+		if (shardAddresses == null)
+			throw new NullPointerException("Input parameter is null");
+		if (shardAddresses.isEmpty())
+			throw new IOException("A sharded network needs at least one shard");
+
+		this.sockets = new Socket[shardAddresses.size()];
+		this.inputs = new DataInputStream[shardAddresses.size()];
+		this.outputs = new DataOutputStream[shardAddresses.size()];
+		this.workers = new ArrayList<Process>();
+		for (int shard = 0; shard < shardAddresses.size(); shard++) {
+			this.sockets[shard] = new Socket(shardAddresses.get(shard).getAddress(), shardAddresses.get(shard).getPort());
+			this.sockets[shard].setTcpNoDelay(true);
+			this.inputs[shard] = new DataInputStream(new BufferedInputStream(this.sockets[shard].getInputStream()));
+			this.outputs[shard] = new DataOutputStream(new BufferedOutputStream(this.sockets[shard].getOutputStream()));
+		}
+	}
+
+	/**
+	 * Starts the given number of worker JVMs on this machine, using the same Java and class
+	 * path as the current process, and connects to them over loopback
+	 * @param shardCount - number of shards
+	 * @return ShardedSocialNetwork - coordinator for the new shards
+	 * @throws IOException
+	 */
+	public static ShardedSocialNetwork launchLocal(int shardCount) throws IOException {
+		List<Process> started = new ArrayList<Process>();
+		List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+		String javaBinary = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ShardedSocialNetwork returnNetwork;
+
+		try {
+			for (int shard = 0; shard < shardCount; shard++) {
+				ProcessBuilder builder = new ProcessBuilder(javaBinary, "-cp", System.getProperty("java.class.path"), ShardWorker.class.getName());
+				builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+				Process worker = builder.start();
+				started.add(worker);
+				addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), ShardedSocialNetwork.readPort(worker)));
+			}
+			returnNetwork = new ShardedSocialNetwork(addresses);
+		} catch (IOException e) {
+			for (Process worker: started)
+				worker.destroy();
+			throw e;
+		}
+
+		returnNetwork.workers = started;
+		return returnNetwork;
+	}
+
+	/**
+	 * Getter for the number of shards
+	 * @return int - number of shards
+	 */
+	public int getShardCount() {
+		return this.sockets.length;
+	}
+
+	/**
+	 * Adds a user to the shard that owns their id, if they aren't a member yet
+	 * @param user - User to add
+	 * @return boolean - true if added, false otherwise
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	public boolean addUser(User user) throws IOException, UninitializedObjectException {
+		int shard;
+
+		this.checkNullInput(user);
+		if (!user.isValid())
+			return false;
+
+		shard = this.shardFor(user.getID());
+		this.outputs[shard].writeByte(ShardWorker.ADD_USER);
+		ShardWorker.writeUser(this.outputs[shard], user);
+		this.send(shard);
+		this.readReply(shard);
+		return this.inputs[shard].readBoolean();
+	}
+
+	/**
+	 * Asks the owning shard if the user is a member
+	 * @param id - target user id
+	 * @return boolean - true if found, false if not
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	public boolean isMember(String id) throws IOException, UninitializedObjectException {
+		int shard;
+
+		this.checkNullInput(id);
+		if (id.isEmpty())
+			return false;
+
+		shard = this.shardFor(id);
+		this.outputs[shard].writeByte(ShardWorker.IS_MEMBER);
+		this.outputs[shard].writeUTF(id);
+		this.send(shard);
+		this.readReply(shard);
+		return this.inputs[shard].readBoolean();
+	}
+
+	/**
+	 * Fetches a copy of a user and their fields from the owning shard
+	 * @param id - Search target id
+	 * @return User - copy of the user with a matching id, null if not a member
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	public User getUser(String id) throws IOException, UninitializedObjectException {
+		Set<String> ids = new HashSet<String>();
+
+		this.checkNullInput(id);
+		if (id.isEmpty())
+			return null;
+
+		ids.add(id);
+		return this.fetchUsers(ids).get(id);
+	}
+
+	/**
+	 * Establishes a link between two members. A link between users on different shards is
+	 * recorded on both of them.
+	 * @param ids - Ids of the two users
+	 * @param date - Date to establish on
+	 * @param status - return status of event
+	 * @return boolean - true if established, false if otherwise
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	public boolean establishLink(Set<String> ids, Date date, SocialNetworkStatus status) throws IOException, UninitializedObjectException {
+		return this.linkEvent(ShardWorker.ESTABLISH_LINK, ids, date, status);
+	}
+
+	/**
+	 * Tears down a link between two members on every shard that holds it
+	 * @param ids - ids of users to tear
+	 * @param date - date of teardown
+	 * @param status - return status of event
+	 * @return boolean - true if torn down, false if otherwise
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	public boolean tearDownLink(Set<String> ids, Date date, SocialNetworkStatus status) throws IOException, UninitializedObjectException {
+		return this.linkEvent(ShardWorker.TEAR_DOWN_LINK, ids, date, status);
+	}
+
+	/**
+	 * Asks the shard of the first user if the link between the two users is active
+	 * @param ids - ids of users
+	 * @param date - date to check activity
+	 * @return boolean - true if active, false if inactive or no link
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	public boolean isActive(Set<String> ids, Date date) throws IOException, UninitializedObjectException {
+		String[] pair;
+		int shard;
+
+		this.checkNullInput(ids, date);
+		if (!this.idSetIsLegal(ids))
+			return false;
+
+		pair = ids.toArray(new String[2]);
+		shard = this.shardFor(pair[0]);
+		this.outputs[shard].writeByte(ShardWorker.IS_ACTIVE);
+		ShardWorker.writePair(this.outputs[shard], pair[0], pair[1]);
+		this.outputs[shard].writeLong(date.getTime());
+		this.send(shard);
+		this.readReply(shard);
+		return this.inputs[shard].readBoolean();
+	}
+
+	/**
+	 * Finds all connections of the user and their distances, with no limit to distance
+	 * @param id - id of the user to find all connections of
+	 * @param date - date to check activity against
+	 * @param status - return status of event
+	 * @return Set<Friend> - Set of all users and their distances, null if the user isn't a member
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	public Set<Friend> neighborhood(String id, Date date, SocialNetworkStatus status) throws IOException, UninitializedObjectException {
+		this.checkNullInput(id, date, status);
+		return this.makeNeighborhood(id, date, -1, status);
+	}
+
+	/**
+	 * Finds all connections of the user up to a max distance, where directly linked users are at distance 0
+	 * @param id - id of the user in question
+	 * @param date - date to cross activity against
+	 * @param distance_max - max distance of connections
+	 * @param status - return status of event
+	 * @return Set<Friend> - Set of all users and their distances, null if the inputs are invalid
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	public Set<Friend> neighborhood(String id, Date date, int distance_max, SocialNetworkStatus status) throws IOException, UninitializedObjectException {
+		this.checkNullInput(id, date, distance_max, status);
+		if (distance_max < 0) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+			return null;
+		}
+		return this.makeNeighborhood(id, date, distance_max, status);
+	}
+
+	/**
+	 * Shuts down every shard, closes the connections and waits for any workers started by launchLocal
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		for (int shard = 0; shard < this.sockets.length; shard++) {
+			try {
+				this.outputs[shard].writeByte(ShardWorker.SHUTDOWN);
+				this.send(shard);
+				this.inputs[shard].readByte();
+			} catch (IOException e) {
+				//The shard is already gone, nothing left to shut down
+			} finally {
+				this.sockets[shard].close();
+			}
+		}
+
+		for (Process worker: this.workers) {
+			try {
+				worker.waitFor();
+			} catch (InterruptedException e) {
+				worker.destroy();
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that picks the shard owning an id
+	 * @param id - user id
+	 * @return int - index of the shard
+	 */
+	private int shardFor(String id) {
+		return (id.hashCode() & 0x7fffffff) % this.sockets.length;
+	}
+
+	/**
+	 * Private helper that runs the level by level search. Each level, the frontier is split
+	 * by owning shard, every shard is sent its part before any reply is read so the shards
+	 * expand in parallel, and the users they reach become the next frontier.
+	 * @param id - id of the user
+	 * @param date - date to check activity against
+	 * @param limit - max distance, -1 for no limit
+	 * @param status - return status of event
+	 * @return Set<Friend> - the neighborhood, null if the user isn't a member
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	private Set<Friend> makeNeighborhood(String id, Date date, int limit, SocialNetworkStatus status) throws IOException, UninitializedObjectException {
+		HashMap<String, Integer> distances = new HashMap<String, Integer>();
+		List<List<String>> frontierByShard;
+		List<String> nextFrontier;
+		Set<Friend> returnSet = new HashSet<Friend>();
+		Map<String, User> users;
+		Friend friend;
+		int distance = 0;
+
+		if (id.isEmpty() || !this.isMember(id)) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return null;
+		}
+
+		frontierByShard = this.splitByShard(Collections.singletonList(id));
+		while (limit == -1 || distance <= limit) {
+			for (int shard = 0; shard < this.sockets.length; shard++)
+				this.sendExpand(shard, date, frontierByShard.get(shard));
+
+			nextFrontier = new ArrayList<String>();
+			for (int shard = 0; shard < this.sockets.length; shard++) {
+				if (frontierByShard.get(shard).isEmpty())
+					continue;
+				this.readReply(shard);
+				int count = this.inputs[shard].readInt();
+				for (int i = 0; i < count; i++) {
+					String reached = this.inputs[shard].readUTF();
+					if (!reached.equals(id) && !distances.containsKey(reached)) {
+						distances.put(reached, distance);
+						nextFrontier.add(reached);
+					}
+				}
+			}
+
+			if (nextFrontier.isEmpty())
+				break;
+			frontierByShard = this.splitByShard(nextFrontier);
+			distance++;
+		}
+
+		users = this.fetchUsers(distances.keySet());
+		for (Map.Entry<String, Integer> entry: distances.entrySet()) {
+			friend = new Friend();
+			friend.set(users.get(entry.getKey()), entry.getValue());
+			returnSet.add(friend);
+		}
+
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return returnSet;
+	}
+
+	/**
+	 * Private helper that sends the part of a frontier a shard owns, if there is any
+	 * @param shard - index of the shard
+	 * @param date - date to check activity against
+	 * @param frontier - ids owned by the shard
+	 * @throws IOException
+	 */
+	private void sendExpand(int shard, Date date, List<String> frontier) throws IOException {
+		if (frontier.isEmpty())
+			return;
+		this.outputs[shard].writeByte(ShardWorker.EXPAND);
+		this.outputs[shard].writeLong(date.getTime());
+		this.outputs[shard].writeInt(frontier.size());
+		for (String id: frontier)
+			this.outputs[shard].writeUTF(id);
+		this.send(shard);
+	}
+
+	/**
+	 * Private helper that groups ids by the shard that owns them
+	 * @param ids - ids to group
+	 * @return List<List<String>> - ids for each shard, in shard order
+	 */
+	private List<List<String>> splitByShard(Iterable<String> ids) {
+		List<List<String>> returnList = new ArrayList<List<String>>();
+
+		for (int shard = 0; shard < this.sockets.length; shard++)
+			returnList.add(new ArrayList<String>());
+		for (String id: ids)
+			returnList.get(this.shardFor(id)).add(id);
+
+		return returnList;
+	}
+
+	/**
+	 * Private helper that fetches copies of many users, one request per shard
+	 * @param ids - ids to fetch
+	 * @return Map<String, User> - users by id, missing users are left out
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	private Map<String, User> fetchUsers(Set<String> ids) throws IOException, UninitializedObjectException {
+		Map<String, User> returnMap = new HashMap<String, User>();
+		List<List<String>> idsByShard = this.splitByShard(ids);
+
+		for (int shard = 0; shard < this.sockets.length; shard++) {
+			if (idsByShard.get(shard).isEmpty())
+				continue;
+			this.outputs[shard].writeByte(ShardWorker.GET_USERS);
+			this.outputs[shard].writeInt(idsByShard.get(shard).size());
+			for (String id: idsByShard.get(shard))
+				this.outputs[shard].writeUTF(id);
+			this.send(shard);
+		}
+
+		for (int shard = 0; shard < this.sockets.length; shard++) {
+			if (idsByShard.get(shard).isEmpty())
+				continue;
+			this.readReply(shard);
+			for (int i = 0; i < idsByShard.get(shard).size(); i++) {
+				User user = ShardWorker.readUser(this.inputs[shard]);
+				if (user != null)
+					returnMap.put(user.getID(), user);
+			}
+		}
+
+		return returnMap;
+	}
+
+	/**
+	 * Private helper that sends an establish or tear down to the shards owning either user.
+	 * Both copies of a cross shard link hold the same events, so they must give the same answer;
+	 * if they don't, the copies have diverged and the event fails rather than picking one.
+	 * @param request - ESTABLISH_LINK or TEAR_DOWN_LINK
+	 * @param ids - ids of the two users
+	 * @param date - date of the event
+	 * @param status - return status of event
+	 * @return boolean - true if the link changed
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	private boolean linkEvent(byte request, Set<String> ids, Date date, SocialNetworkStatus status) throws IOException, UninitializedObjectException {
+		String[] pair;
+		int firstShard;
+		int secondShard;
+		boolean changed;
+		SocialNetworkStatus.StatusCode code;
+
+		this.checkNullInput(ids, date, status);
+		if (!this.idSetIsLegal(ids)) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return false;
+		}
+
+		pair = ids.toArray(new String[2]);
+		firstShard = this.shardFor(pair[0]);
+		secondShard = this.shardFor(pair[1]);
+		for (int shard: new int[] {firstShard, secondShard}) {
+			this.outputs[shard].writeByte(request);
+			ShardWorker.writePair(this.outputs[shard], pair[0], pair[1]);
+			this.outputs[shard].writeLong(date.getTime());
+			this.send(shard);
+			if (firstShard == secondShard)
+				break;
+		}
+
+		this.readReply(firstShard);
+		changed = this.inputs[firstShard].readBoolean();
+		code = this.readStatus(firstShard);
+		if (secondShard != firstShard) {
+			boolean otherChanged;
+			SocialNetworkStatus.StatusCode otherCode;
+
+			this.readReply(secondShard);
+			otherChanged = this.inputs[secondShard].readBoolean();
+			otherCode = this.readStatus(secondShard);
+			if (otherChanged != changed || otherCode != code)
+				throw new IOException("Shards " + firstShard + " and " + secondShard + " disagree on the link between "
+						+ pair[0] + " and " + pair[1] + ": " + code + " and " + otherCode);
+		}
+
+		status.setStatus(code);
+		return changed;
+	}
+
+	/**
+	 * Private helper that reads the status code a shard gave a link event. A shard sends a code
+	 * outside the known ones when its network set no status, which only happens when it
+	 * couldn't take the event for its users.
+	 * @param shard - index of the shard
+	 * @return StatusCode - status of the event, INVALID_USERS if the code is unknown
+	 * @throws IOException
+	 */
+	private SocialNetworkStatus.StatusCode readStatus(int shard) throws IOException {
+		SocialNetworkStatus.StatusCode[] codes = SocialNetworkStatus.StatusCode.values();
+		byte code = this.inputs[shard].readByte();
+
+		if (code < 0 || code >= codes.length)
+			return SocialNetworkStatus.StatusCode.INVALID_USERS;
+		return codes[code];
+	}
+
+	/**
+	 * Private helper to determine if ids in a set are unique and the members are in the network
+	 * @param set - set of user ids
+	 * @return boolean - true if legal, false otherwise
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	private boolean idSetIsLegal(Set<String> set) throws IOException, UninitializedObjectException {
+		if (set.size() == 2) {
+			String[] pair = set.toArray(new String[2]);
+			if (!pair[0].equals(pair[1]) && this.isMember(pair[0]) && this.isMember(pair[1]))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Private helper that flushes the requests written to a shard
+	 * @param shard - index of the shard
+	 * @throws IOException
+	 */
+	private void send(int shard) throws IOException {
+		this.outputs[shard].flush();
+	}
+
+	/**
+	 * Private helper that reads the reply code from a shard and rethrows a worker side failure
+	 * @param shard - index of the shard
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	private void readReply(int shard) throws IOException, UninitializedObjectException {
+		byte reply = this.inputs[shard].readByte();
+		if (reply == ShardWorker.REPLY_UNINITIALIZED)
+			throw new UninitializedObjectException(this.inputs[shard].readUTF());
+		else if (reply != ShardWorker.REPLY_OK)
+			throw new IOException("Unexpected reply " + reply + " from shard " + shard);
+	}
+
+	/**
+	 * Private helper that reads the port a freshly started worker announces
+	 * @param worker - worker process
+	 * @return int - port the worker listens on
+	 * @throws IOException
+	 */
+	private static int readPort(Process worker) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(worker.getInputStream(), "UTF-8"));
+		String line = reader.readLine();
+
+		if (line == null || !line.startsWith(ShardWorker.PORT_ANNOUNCEMENT))
+			throw new IOException("Shard worker did not announce a port");
+		return Integer.parseInt(line.substring(ShardWorker.PORT_ANNOUNCEMENT.length()).trim());
+	}
+
+	/**
+	 * Helper method that checks if the given inputs are null. Throws exception
+	 * if so.
+	 * @param input
+	 * @throws NullPointerException
+	 */
+	private void checkNullInput(Object... input) throws NullPointerException {
+		for (Object obj: input) {
+			if (obj == null)
+				throw new NullPointerException("Input parameter is null");
+		}
+	}
+
+}
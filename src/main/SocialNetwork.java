@@ -1,11 +1,19 @@
 package main;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 /**
  * SocialNetwork class manages a map of users and links associated with them,
@@ -14,235 +22,1279 @@ import java.util.Set;
  */
 public class SocialNetwork {
 
-	//Pairs each user to a list of all links they have
-	private HashMap<User, ArrayList<Link>> network;
+	/**
+	 * How neighborhoods walk the network. TOP_DOWN expands every link of every user it
+	 * reaches. DIRECTION_OPTIMIZING switches to having unreached users look for the frontier
+	 * once the frontier gets large, which skips most of a hub's links on power-law networks.
+	 */
+	public enum TraversalMode {
+		TOP_DOWN, DIRECTION_OPTIMIZING
+	}
+
+	//Pairs each user to a list of all links they have, laid out to suit their degree
+	private HashMap<User, Adjacency> network;
+	
+	//Finds members by id and personal fields
+	private UserIndex userIndex;
+	
+	//Finds members whose names are close to a query
+	private NameSearchIndex nameSearch;
+	
+	//Counts successful changes so derived indexes know when they're stale
+	private long modificationCount;
+	
+	//Live links between members, kept as links come and go so searches never have to count them
+	private long linkCount;
+	
+	//Component index for connectivity queries, created on first use
+	private ConnectivityIndex connectivity;
+	
+	//Off-heap storage for link events, null to keep them on the heap
+	private TimelineArena arena;
+	
+	//Feed told about every successful change, null if none
+	private ChangeFeed changeFeed;
+	
+	//Neighborhoods kept up to date as links change
+	private ArrayList<StandingNeighborhood> watches;
+	
+	//How neighborhoods walk the network
+	private TraversalMode traversalMode;
+	
+	//Orders name matches best first: fewest edits, then closest in the network, then lowest id
+	private static final Comparator<NameMatch> NAME_MATCH_ORDER = new Comparator<NameMatch>() {
+		@Override
+		public int compare(NameMatch match1, NameMatch match2) {
+			//Users the probe didn't reach go after every reached user
+			int distance1 = match1.getNetworkDistance() == NameMatch.UNKNOWN_DISTANCE ? Integer.MAX_VALUE : match1.getNetworkDistance();
+			int distance2 = match2.getNetworkDistance() == NameMatch.UNKNOWN_DISTANCE ? Integer.MAX_VALUE : match2.getNetworkDistance();
+			if (match1.getEditDistance() != match2.getEditDistance())
+				return match1.getEditDistance() - match2.getEditDistance();
+			if (distance1 != distance2)
+				return distance1 < distance2 ? -1 : 1;
+			return match1.getUser().getID().compareTo(match2.getUser().getID());
+		}
+	};
+	
+	//Orders recommendations best first: most mutual friends, then lowest id
+	private static final Comparator<Recommendation> RECOMMENDATION_ORDER = new Comparator<Recommendation>() {
+		@Override
+		public int compare(Recommendation rec1, Recommendation rec2) {
+			if (rec1.getMutualCount() != rec2.getMutualCount())
+				return rec2.getMutualCount() - rec1.getMutualCount();
+			return rec1.getUser().getID().compareTo(rec2.getUser().getID());
+		}
+	};
+
+	/**
+	 * Class constructor
+	 * Creates a new network HashMap
+	 */
+	public SocialNetwork() {
+		this.network = new HashMap<User, Adjacency>();
+		this.userIndex = new UserIndex();
+		this.nameSearch = new NameSearchIndex();
+		this.modificationCount = 0;
+		this.linkCount = 0;
+		this.connectivity = null;
+		this.arena = null;
+		this.changeFeed = null;
+		this.watches = new ArrayList<StandingNeighborhood>();
+		this.traversalMode = TraversalMode.TOP_DOWN;
+	}
+	
+	/**
+	 * Class constructor
+	 * Creates a new network HashMap whose link events are kept off the heap in the arena.
+	 * Links behave exactly the same, they just leave less for the garbage collector.
+	 * @param arena - arena to store link events in
+	 * @throws NullPointerException
+	 */
+	public SocialNetwork(TimelineArena arena) {
+		this();
+		this.checkNullInput(arena);
+		this.arena = arena;
+	}
+	
+	/**
+	 * Checks if user is in the system. If he isn't, add them.
+	 * @param user - User to add
+	 * @return boolean - true if added, false otherwise
+	 */
+	public boolean addUser(User user) {
+		this.checkNullInput(user);
+		//If our user isn't a member and he's a valid user
+		if (!this.isMember(user.getID()) && user.isValid()) {
+			this.network.put(user, new Adjacency(user));
+			this.userIndex.add(user);
+			this.nameSearch.add(user);
+			this.modificationCount++;
+			if (this.connectivity != null)
+				this.connectivity.userAdded(user);
+			this.publishChange(ChangeEvent.Type.USER_ADDED, user.getID(), null, ChangeEvent.NO_TIME);
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Tries to grab the user using getUser(). If the user is returned,
+	 * then obviously it must be in the map.
+	 * @param id - target user id
+	 * @return boolean - true if found, false if not
+	 */
+	public boolean isMember(String id) {
+		this.checkNullInput(id);
+		if (!id.isEmpty()) {
+			User user = this.getUser(id);
+			if (user != null)
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Retrieve a user from network by looking the id up in the user index
+	 * @param id - Search target id
+	 * @return User - user that has a matching id
+	 */
+	public User getUser(String id) {
+		this.checkNullInput(id);
+		if (!id.isEmpty())
+			return this.userIndex.getUser(id);
+		return null;
+	}
+	
+	/**
+	 * Finds the members with an email, ignoring case. The index follows changes made to
+	 * members' fields after they were added.
+	 * @param email - email to look for
+	 * @return Set<User> - matching members, empty if none
+	 */
+	public Set<User> findUsersByEmail(String email) {
+		this.checkNullInput(email);
+		return this.userIndex.findByEmail(email);
+	}
+	
+	/**
+	 * Finds the members with a phone number, comparing only the digits
+	 * @param phoneNumber - phone number to look for
+	 * @return Set<User> - matching members, empty if none
+	 */
+	public Set<User> findUsersByPhoneNumber(String phoneNumber) {
+		this.checkNullInput(phoneNumber);
+		return this.userIndex.findByPhoneNumber(phoneNumber);
+	}
+	
+	/**
+	 * Finds the members with a first, middle or last name that starts with the prefix,
+	 * ignoring case
+	 * @param prefix - start of the name
+	 * @return Set<User> - matching members, empty if none
+	 */
+	public Set<User> findUsersByNamePrefix(String prefix) {
+		this.checkNullInput(prefix);
+		return this.userIndex.findByNamePrefix(prefix);
+	}
+	
+	/**
+	 * Establishes a link between two users if they exist in the system. If they
+	 * don't share a link yet, a new link is created and established.
+	 * @param ids - Ids of the two users
+	 * @param date - Date to establish on
+	 * @param status - Wrapper class to return a status result depending on whether or not actions occurred and if not, why
+	 * @return boolean - true if established, false if otherwise
+	 * @throws UninitializedObjectException
+	 */
+	public boolean establishLink(Set<String> ids, Date date, SocialNetworkStatus status) throws UninitializedObjectException{
+	
+		Link userLink = null;	//Link to catch whether or not a link exists
+		boolean returnBool = false;	//Variable to keep track of our return value
+	
+		this.checkNullInput(ids);
+		this.checkNullInput(date);
+		
+		//If our ids don't match each other and are in the system
+		if (this.idSetIsLegal(ids)){
+			//Search the users for a common link
+			userLink = this.findLinkWithUsers(ids);
+				
+			//If a link was returned, check to see that it isn't null. If it's inactive, establish a link
+			if (userLink != null) {
+				/* If the date comes before the most recent event or it's already active, then
+				 * status will propagate that error message
+				 */
+				returnBool = userLink.establish(date, status);
+				
+			//Else if the link doesn't exist yet, create one
+			} else {
+				//Create a new link and establish it
+				userLink = this.newLink(ids, status);
+				userLink.establish(date, status);
+				
+				//Set status to SUCCESS
+				status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+				//We've modified network, so return true
+				returnBool = true;
+			}
+		} else 
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			
+		if (returnBool) {
+			this.modificationCount++;
+			if (this.connectivity != null)
+				this.connectivity.linkChanged(userLink, date.getTime(), true);
+			this.publishLinkChange(ChangeEvent.Type.LINK_ESTABLISHED, ids, date.getTime());
+			this.repairWatches(ids, true);
+		}
+		
+		return returnBool;
+		
+	}
+	
+	/**
+	 * Tears down a link if it exists and is active. Since we can't tear down a link
+	 * that hasn't been established yet, no link creation is done here.
+	 * @param ids - ids of users to tear
+	 * @param date	- date of teardown
+	 * @param status - Status of event
+	 * @return boolean - true if torn down, false if otherwise
+	 * @throws UninitializedObjectException
+	 */
+	public boolean tearDownLink(Set<String> ids, Date date, SocialNetworkStatus status) throws UninitializedObjectException {
+		Link userLink = null;	//userLink to reference for the teardown
+		boolean returnBool = false;
+		
+		this.checkNullInput(ids);
+		this.checkNullInput(date);
+		//If the users are in the system, the ids are unique, the link exists and it's active
+		if (this.idSetIsLegal(ids)){
+			userLink = this.findLinkWithUsers(ids);
+			if (userLink != null){
+				//Grab the link and tear it down
+				returnBool = userLink.tearDown(date, status);
+			} else
+				status.setStatus(SocialNetworkStatus.StatusCode.ALREADY_INACTIVE);
+			
+		} else
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+		
+		if (returnBool) {
+			this.modificationCount++;
+			if (this.connectivity != null)
+				this.connectivity.linkChanged(userLink, date.getTime(), false);
+			this.publishLinkChange(ChangeEvent.Type.LINK_TORN_DOWN, ids, date.getTime());
+			this.repairWatches(ids, false);
+		}
+		
+		return returnBool;
+	}
+	
+	/**
+	 * Adds an establish and a tear down to the history of the link between two users, at
+	 * any point in the past, for corrections that arrive after later events. The link must
+	 * have been inactive from the establish date through the tear down date. A link is made
+	 * if the users never had one. The link's current state doesn't change.
+	 * @param ids - ids of the two users
+	 * @param establishDate - date the link was established
+	 * @param tearDownDate - date the link was torn down, after establishDate
+	 * @param status - return status of event
+	 * @return boolean - true if added, false if otherwise
+	 * @throws UninitializedObjectException
+	 */
+	public boolean backfillLink(Set<String> ids, Date establishDate, Date tearDownDate, SocialNetworkStatus status) throws UninitializedObjectException {
+		Link userLink;
+		
+		this.checkNullInput(ids, establishDate, tearDownDate, status);
+		
+		if (!this.idSetIsLegal(ids)) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return false;
+		} else if (establishDate.getTime() >= tearDownDate.getTime()) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DATE);
+			return false;
+		}
+		
+		userLink = this.findLinkWithUsers(ids);
+		if (userLink == null)
+			userLink = this.newLink(ids, status);
+		if (!userLink.backfill(establishDate, tearDownDate, status))
+			return false;
+		
+		this.modificationCount++;
+		this.publishLinkChange(ChangeEvent.Type.LINK_ESTABLISHED, ids, establishDate.getTime());
+		this.publishLinkChange(ChangeEvent.Type.LINK_TORN_DOWN, ids, tearDownDate.getTime());
+		return true;
+	}
+	
+	/**
+	 * Removes a user and every link they have from the network. Each link is marked removed
+	 * and left in the other user's list as a tombstone, so this only costs the user's number
+	 * of links. A list is compacted once more than half of it is tombstones, which keeps
+	 * traversals dense for an amortized constant cost per removed link.
+	 * @param id - id of the user to remove
+	 * @param status - return status of event
+	 * @return boolean - true if removed, false if otherwise
+	 */
+	public boolean removeUser(String id, SocialNetworkStatus status) {
+		User user;
+		boolean wasActive;
+		
+		this.checkNullInput(id, status);
+		user = id.isEmpty() ? null : this.getUser(id);
+		
+		if (user == null) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return false;
+		}
+		
+		for (StandingNeighborhood watch: new ArrayList<StandingNeighborhood>(this.watches)) {
+			if (watch.getID().equals(user.getID())) {
+				this.watches.remove(watch);
+				watch.sourceRemoved();
+			}
+		}
+		
+		//Watches are repaired after each link, since a repair assumes only one link changed
+		for (Link link: this.network.get(user)) {
+			if (!link.isRemoved()) {
+				wasActive = link.isCurrentlyActive();
+				link.markRemoved();
+				this.linkCount--;
+				this.network.get(link.getOtherUser(user)).linkRemoved(link);
+				if (wasActive)
+					this.repairWatches(user, link.getOtherUser(user), false);
+			}
+		}
+		this.network.remove(user);
+		this.userIndex.remove(user);
+		this.nameSearch.remove(user);
+		
+		this.modificationCount++;
+		this.publishChange(ChangeEvent.Type.USER_REMOVED, user.getID(), null, ChangeEvent.NO_TIME);
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return true;
+	}
+	
+	/**
+	 * Removes the link between two users along with its whole history, as if it had never been
+	 * established. Establishing it again later starts a new link. Like removeUser, the link is
+	 * left as a tombstone in both lists until they're compacted.
+	 * @param ids - ids of the two users
+	 * @param status - return status of event
+	 * @return boolean - true if removed, false if otherwise
+	 * @throws UninitializedObjectException
+	 */
+	public boolean purgeLink(Set<String> ids, SocialNetworkStatus status) throws UninitializedObjectException {
+		Link userLink;
+		boolean wasActive;
+		
+		this.checkNullInput(ids, status);
+		
+		if (!this.idSetIsLegal(ids)) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return false;
+		}
+		
+		userLink = this.findLinkWithUsers(ids);
+		if (userLink == null) {
+			status.setStatus(SocialNetworkStatus.StatusCode.ALREADY_INACTIVE);
+			return false;
+		}
+		
+		wasActive = userLink.isCurrentlyActive();
+		userLink.markRemoved();
+		this.linkCount--;
+		for (User user: userLink.getUsers())
+			this.network.get(user).linkRemoved(userLink);
+		
+		this.modificationCount++;
+		this.publishLinkChange(ChangeEvent.Type.LINK_PURGED, ids, ChangeEvent.NO_TIME);
+		if (wasActive)
+			this.repairWatches(ids, false);
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return true;
+	}
+	
+	/**
+	 * Attaches a feed that's told about every successful addUser, establishLink, tearDownLink,
+	 * removeUser and purgeLink from now on. Publishing takes no locks, but the feed must only
+	 * be attached to this network.
+	 * @param feed - feed to publish to, null to stop publishing
+	 */
+	public void setChangeFeed(ChangeFeed feed) {
+		this.changeFeed = feed;
+	}
+	
+	/**
+	 * Watches a user's whole neighborhood, keeping it up to date as links change
+	 * @param id - id of the user to watch
+	 * @param listener - told about every change, may be null to only poll
+	 * @param status - return status of event
+	 * @return StandingNeighborhood - the watch, null if the user is invalid
+	 */
+	public StandingNeighborhood watchNeighborhood(String id, NeighborhoodListener listener, SocialNetworkStatus status) {
+		this.checkNullInput(id, status);
+		
+		if (id.isEmpty() || this.getUser(id) == null) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return null;
+		}
+		
+		return this.startWatch(id, -1, listener, status);
+	}
+	
+	/**
+	 * Watches a user's neighborhood up to a distance, keeping it up to date as links change.
+	 * The watch covers the current state of the network, where a link counts if its last
+	 * event was an establish, and each change costs only the part of the neighborhood it
+	 * touches. The listener is told on the changing thread, right after the change.
+	 * @param id - id of the user to watch
+	 * @param distance_max - max distance of connections
+	 * @param listener - told about every change, may be null to only poll
+	 * @param status - return status of event
+	 * @return StandingNeighborhood - the watch, null if the user or distance is invalid
+	 */
+	public StandingNeighborhood watchNeighborhood(String id, int distance_max, NeighborhoodListener listener, SocialNetworkStatus status) {
+		this.checkNullInput(id, status);
+		
+		if (id.isEmpty() || this.getUser(id) == null) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return null;
+		} else if (distance_max < 0) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+			return null;
+		}
+		
+		return this.startWatch(id, distance_max, listener, status);
+	}
+	
+	/**
+	 * Opens a window that takes establish and tear down events arriving up to windowMillis
+	 * out of order, and applies them to this network in date order once the watermark
+	 * passes them. See ReorderWindow.
+	 * @param windowMillis - how late an event may arrive, in milliseconds
+	 * @param capacity - most events buffered at once
+	 * @param status - INVALID_DATE for a negative window, INVALID_LIMIT for a capacity under 1
+	 * @return ReorderWindow - the window, null if the inputs are invalid
+	 */
+	public ReorderWindow openReorderWindow(long windowMillis, int capacity, SocialNetworkStatus status) {
+		this.checkNullInput(status);
+		
+		if (windowMillis < 0) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DATE);
+			return null;
+		} else if (capacity < 1) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_LIMIT);
+			return null;
+		}
+		
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return new ReorderWindow(this, windowMillis, capacity);
+	}
+	
+	/**
+	 * Setter for how neighborhoods walk the network. Both modes give the same answers.
+	 * @param mode - traversal mode
+	 * @throws NullPointerException
+	 */
+	public void setTraversalMode(TraversalMode mode) {
+		this.checkNullInput(mode);
+		this.traversalMode = mode;
+	}
+	
+	/**
+	 * Getter for how neighborhoods walk the network
+	 * @return TraversalMode - traversal mode, TOP_DOWN unless set
+	 */
+	public TraversalMode getTraversalMode() {
+		return this.traversalMode;
+	}
+	
+	/**
+	 * Drops every tombstone left by removed users and links from the lists of links, for
+	 * callers that want the network fully dense after a batch of removals
+	 * @return int - number of tombstones dropped
+	 */
+	public int compact() {
+		int returnCount = 0;
+		
+		for (Adjacency links: this.network.values())
+			returnCount += links.compact();
+		
+		return returnCount;
+	}
+	
+	/**
+	 * Checks to see if the ids are unique and in the system, if they have a link,
+	 * and if so if it's active
+	 * @param ids - ids of users
+	 * @param date - date to check activity
+	 * @return boolean - true if active, false if inactive or no link
+	 * @throws UninitializedObjectException
+	 */
+	public boolean isActive(Set<String> ids, Date date) throws UninitializedObjectException {
+		Link userLink;
+		boolean returnBool = false;
+		
+		this.checkNullInput(ids);
+		this.checkNullInput(date);
+		
+		//If our id set has two ids that aren't equal
+		if (this.idSetIsLegal(ids)){
+			userLink = this.findLinkWithUsers(ids);
+			if (userLink != null && userLink.isValid() && userLink.isActive(date)) {
+				returnBool = true;
+			}
+		}
+		
+		return returnBool;
+	}
+
+	/**
+	 * Checks many links against many dates at once. Every distinct id is looked up once for
+	 * the whole batch, and each pair's link is found from whichever user finds it cheapest:
+	 * a hub by its index, otherwise the user with fewer links.
+	 * Each link is then asked about every date in turn, without re-checking it per date.
+	 * Bit (pair * dates.size() + date) of the result is set if that pair's link is active at
+	 * that date. Pairs that wouldn't pass isActive's checks leave their bits clear.
+	 * @param idPairs - ids of the two users of each link
+	 * @param dates - dates to check activity against
+	 * @return BitSet - activity of every pair at every date
+	 * @throws UninitializedObjectException
+	 */
+	public BitSet isActive(List<Set<String>> idPairs, List<Date> dates) throws UninitializedObjectException {
+		BitSet returnBits;
+		HashMap<String, User> users = new HashMap<String, User>();
+		String[][] pairs;
+		long[] times;
 
+		this.checkNullInput(idPairs, dates);
+		times = new long[dates.size()];
+		for (int j = 0; j < times.length; j++) {
+			this.checkNullInput(dates.get(j));
+			times[j] = dates.get(j).getTime();
+		}
+		returnBits = new BitSet(idPairs.size() * dates.size());
+		pairs = new String[idPairs.size()][];
+
+		//Resolve each id of a legal looking pair once
+		for (int i = 0; i < pairs.length; i++) {
+			Set<String> ids = idPairs.get(i);
+			this.checkNullInput(ids);
+			if (ids.size() != 2)
+				continue;
+			pairs[i] = ids.toArray(new String[2]);
+			if (pairs[i][0].equals(pairs[i][1])) {
+				pairs[i] = null;
+				continue;
+			}
+			for (String id: pairs[i]) {
+				if (!users.containsKey(id))
+					users.put(id, this.getUser(id));
+			}
+		}
+
+		for (int i = 0; i < pairs.length; i++) {
+			if (pairs[i] == null)
+				continue;
+			User user1 = users.get(pairs[i][0]);
+			User user2 = users.get(pairs[i][1]);
+			if (user1 == null || user2 == null)
+				continue;
+
+			Link link = this.findLink(user1, user2);
+			if (link == null || !link.isValid())
+				continue;
+			for (int j = 0; j < times.length; j++) {
+				if (link.isActiveAt(times[j]))
+					returnBits.set(i * times.length + j);
+			}
+		}
+
+		return returnBits;
+	}
+
+	/**
+	 * Searches the network to find all connections and their distances from the user with the id given.
+	 * No limit to distance. Throws errors if inputs are null or if an object is uninitialized.
+	 * @param id - id of the user to find all connections of
+	 * @param date - date to check activity against
+	 * @param status - return status of event
+	 * @return Set<Friend> - Set of all users and their distances (i.e. friends)
+	 * @throws UninitializedObjectException
+	 */
+	public Set<Friend> neighborhood(String id, Date date, SocialNetworkStatus status) throws UninitializedObjectException {
+		this.checkNullInput(id, date, status);
+		return this.findNeighborhood(id, date, -1, false, status, null);
+	}
+	
+	/**
+	 * Same as neighborhood(id, date, status), but also records how much work the search did
+	 * @param id - id of the user to find all connections of
+	 * @param date - date to check activity against
+	 * @param status - return status of event
+	 * @param stats - cleared, then filled in with the work done
+	 * @return Set<Friend> - Set of all users and their distances (i.e. friends)
+	 * @throws UninitializedObjectException
+	 */
+	public Set<Friend> neighborhood(String id, Date date, SocialNetworkStatus status, QueryStats stats) throws UninitializedObjectException {
+		this.checkNullInput(id, date, status, stats);
+		stats.clear();
+		return this.findNeighborhood(id, date, -1, false, status, stats);
+	}
+	
+	/**
+	 * Method to grab all connections of a user with given id up to a certain distance. Throws an
+	 * exception if parameters are null or an object is uninitialized.
+	 * @param id - id of the user in question
+	 * @param date - date to cross activity against
+ 	 * @param distance_max - max distance of connections
+	 * @param status - return status of event
+	 * @return Set<Friend> - Set of all users and their distances (i.e. friends)
+	 * @throws UninitializedObjectException
+	 */
+	public Set<Friend> neighborhood(String id, Date date, int distance_max, SocialNetworkStatus status) throws UninitializedObjectException {
+		this.checkNullInput(id, date, distance_max, status);
+		return this.findNeighborhood(id, date, distance_max, true, status, null);
+	}
+	
+	/**
+	 * Same as neighborhood(id, date, distance_max, status), but also records how much work
+	 * the search did
+	 * @param id - id of the user in question
+	 * @param date - date to cross activity against
+ 	 * @param distance_max - max distance of connections
+	 * @param status - return status of event
+	 * @param stats - cleared, then filled in with the work done
+	 * @return Set<Friend> - Set of all users and their distances (i.e. friends)
+	 * @throws UninitializedObjectException
+	 */
+	public Set<Friend> neighborhood(String id, Date date, int distance_max, SocialNetworkStatus status, QueryStats stats) throws UninitializedObjectException {
+		this.checkNullInput(id, date, distance_max, status, stats);
+		stats.clear();
+		return this.findNeighborhood(id, date, distance_max, true, status, stats);
+	}
+	
+	/**
+	 * Counts how many users are at each distance in a user's whole neighborhood
+	 * @param id - id of the user in question
+	 * @param date - date to cross activity against
+	 * @param status - return status of event
+	 * @return int[] - users at each distance, 0 being direct friends, up to the farthest reached. Null if the user is invalid.
+	 */
+	public int[] distanceHistogram(String id, Date date, SocialNetworkStatus status) {
+		this.checkNullInput(id, date, status);
+		
+		if (id.isEmpty() || this.getUser(id) == null) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return null;
+		}
+		
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return this.countDistances(this.getUser(id), date.getTime(), -1, null);
+	}
+	
+	/**
+	 * Counts how many users are at each distance in a user's neighborhood, the same counts
+	 * neighborhood() would give without making a Friend for each user. Only a visited set and
+	 * the current and next levels are kept while searching.
+	 * @param id - id of the user in question
+	 * @param date - date to cross activity against
+	 * @param distance_max - max distance of connections
+	 * @param status - return status of event
+	 * @return int[] - users at each distance from 0 to distance_max, null if the user or distance is invalid
+	 */
+	public int[] distanceHistogram(String id, Date date, int distance_max, SocialNetworkStatus status) {
+		this.checkNullInput(id, date, status);
+		
+		if (id.isEmpty() || this.getUser(id) == null) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return null;
+		} else if (distance_max < 0) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+			return null;
+		}
+		
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return Arrays.copyOf(this.countDistances(this.getUser(id), date.getTime(), distance_max, null), distance_max + 1);
+	}
+	
+	/**
+	 * Finds how a user's whole neighborhood changed between two dates
+	 * @param id - id of the user in question
+	 * @param date1 - date to diff from
+	 * @param date2 - date to diff to
+	 * @param status - return status of event
+	 * @return NeighborhoodDelta - users who joined, left, or moved, null if the user is invalid
+	 * @throws UninitializedObjectException
+	 */
+	public NeighborhoodDelta neighborhoodDiff(String id, Date date1, Date date2, SocialNetworkStatus status) throws UninitializedObjectException {
+		this.checkNullInput(id, date1, date2, status);
+		
+		if (id.isEmpty() || this.getUser(id) == null) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return null;
+		}
+		
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return this.makeNeighborhoodDiff(this.getUser(id), date1.getTime(), date2.getTime(), -1, null);
+	}
+	
+	/**
+	 * Same as neighborhoodDiff(id, date1, date2, status), but also records how much work the
+	 * diff did
+	 * @param id - id of the user in question
+	 * @param date1 - date to diff from
+	 * @param date2 - date to diff to
+	 * @param status - return status of event
+	 * @param stats - cleared, then filled in with the work done
+	 * @return NeighborhoodDelta - users who joined, left, or moved, null if the user is invalid
+	 * @throws UninitializedObjectException
+	 */
+	public NeighborhoodDelta neighborhoodDiff(String id, Date date1, Date date2, SocialNetworkStatus status, QueryStats stats) throws UninitializedObjectException {
+		this.checkNullInput(id, date1, date2, status, stats);
+		stats.clear();
+		
+		if (id.isEmpty() || this.getUser(id) == null) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return null;
+		}
+		
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return this.makeNeighborhoodDiff(this.getUser(id), date1.getTime(), date2.getTime(), -1, stats);
+	}
+	
+	/**
+	 * Finds how a user's neighborhood up to a distance changed between two dates. Rather than
+	 * searching at both dates, it searches once at the first date, then replays only the links
+	 * with an odd number of events between the dates, repairing just the part of the search
+	 * each one touches. Users are added if they're in the neighborhood at date2 but not date1,
+	 * removed if the other way around, and changed if they're in both at different distances.
+	 * @param id - id of the user in question
+	 * @param date1 - date to diff from
+	 * @param date2 - date to diff to
+	 * @param distance_max - max distance of connections
+	 * @param status - return status of event
+	 * @return NeighborhoodDelta - users who joined, left, or moved, null if the user or distance is invalid
+	 * @throws UninitializedObjectException
+	 */
+	public NeighborhoodDelta neighborhoodDiff(String id, Date date1, Date date2, int distance_max, SocialNetworkStatus status) throws UninitializedObjectException {
+		this.checkNullInput(id, date1, date2, status);
+		
+		if (id.isEmpty() || this.getUser(id) == null) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return null;
+		} else if (distance_max < 0) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+			return null;
+		}
+		
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return this.makeNeighborhoodDiff(this.getUser(id), date1.getTime(), date2.getTime(), distance_max + 1, null);
+	}
+	
+	/**
+	 * Same as neighborhoodDiff(id, date1, date2, distance_max, status), but also records how
+	 * much work the diff did
+	 * @param id - id of the user in question
+	 * @param date1 - date to diff from
+	 * @param date2 - date to diff to
+	 * @param distance_max - max distance of connections
+	 * @param status - return status of event
+	 * @param stats - cleared, then filled in with the work done
+	 * @return NeighborhoodDelta - users who joined, left, or moved, null if the user or distance is invalid
+	 * @throws UninitializedObjectException
+	 */
+	public NeighborhoodDelta neighborhoodDiff(String id, Date date1, Date date2, int distance_max, SocialNetworkStatus status, QueryStats stats) throws UninitializedObjectException {
+		this.checkNullInput(id, date1, date2, status, stats);
+		stats.clear();
+		
+		if (id.isEmpty() || this.getUser(id) == null) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return null;
+		} else if (distance_max < 0) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+			return null;
+		}
+		
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return this.makeNeighborhoodDiff(this.getUser(id), date1.getTime(), date2.getTime(), distance_max + 1, stats);
+	}
+	
+	/**
+	 * Method that maps dates of events in a neighborhood to the size of the neighborhood
+	 * at that time. If user isn't in the network, we return null and a status code
+	 * to reflect that state, otherwise return a map and success code.
+	 * @param id - id of the user 
+	 * @param status - object to keep track of outcome of the action
+	 * @return Map<Date, Integer> - Map of event dates to size of neighborhood
+	 * @throws UninitializedObjectException
+	 */
+	public Map<Date, Integer> neighborhoodTrend (String id, SocialNetworkStatus status) throws UninitializedObjectException {
+		this.checkNullInput(id, status);
+		return this.makeTrend(id, status, null);
+	}
+	
+	/**
+	 * Same as neighborhoodTrend(id, status), but also records how much work was done. The
+	 * phases are the search for the current neighborhood, collecting the event dates, and
+	 * counting the neighborhood at every date.
+	 * @param id - id of the user 
+	 * @param status - object to keep track of outcome of the action
+	 * @param stats - cleared, then filled in with the work done
+	 * @return Map<Date, Integer> - Map of event dates to size of neighborhood
+	 * @throws UninitializedObjectException
+	 */
+	public Map<Date, Integer> neighborhoodTrend (String id, SocialNetworkStatus status, QueryStats stats) throws UninitializedObjectException {
+		this.checkNullInput(id, status, stats);
+		stats.clear();
+		return this.makeTrend(id, status, stats);
+	}
+	
+	/**
+	 * Suggests new links for the user with the given id. Candidates are users exactly two links
+	 * away who aren't actively linked to the user at the date, ranked by the number of mutual
+	 * active links they share with the user (ties go to the lower id). Only the user's direct
+	 * friends and their links are visited, so the search never goes past distance 2.
+	 * @param id - id of the user to make suggestions for
+	 * @param date - date to check activity against
+	 * @param limit - max number of suggestions to return
+	 * @param excludedIDs - ids of users that should never be suggested
+	 * @param status - return status of event
+	 * @return List<Recommendation> - suggestions ordered best first, null if the inputs are invalid
+	 * @throws UninitializedObjectException
+	 */
+	public List<Recommendation> recommendFriends(String id, Date date, int limit, Set<String> excludedIDs, SocialNetworkStatus status) throws UninitializedObjectException {
+		this.checkNullInput(id, date, limit, excludedIDs, status);
+		
+		//If we're dealing with an empty string or a nonexistent user, stop and set status
+		if (id.isEmpty() || this.getUser(id) == null) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return null;
+		//A negative limit can't be satisfied
+		} else if (limit < 0) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_LIMIT);
+			return null;
+		} else {
+			List<Recommendation> recommendations = this.makeRecommendations(this.getUser(id), date, limit, excludedIDs);
+			
+			status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+			return recommendations;
+		}
+	}
+	
+	/**
+	 * Finds members whose first or last name is within maxEdits typos of the query, using a
+	 * trigram index so only names sharing enough of the query's trigrams get compared
+	 * @param query - name to look for
+	 * @param maxEdits - most insertions, deletions and substitutions allowed
+	 * @param limit - max number of matches to return
+	 * @param status - return status of event
+	 * @return List<NameMatch> - matches ordered by fewest edits, then id, null if the inputs are invalid
+	 */
+	public List<NameMatch> searchUsersByName(String query, int maxEdits, int limit, SocialNetworkStatus status) {
+		this.checkNullInput(query, status);
+		
+		if (maxEdits < 0) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+			return null;
+		} else if (limit < 0) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_LIMIT);
+			return null;
+		}
+		
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return this.rankNameMatches(this.nameSearch.search(query, maxEdits), new HashMap<User, Integer>(), null, limit);
+	}
+	
+	/**
+	 * Finds members whose first or last name is within maxEdits typos of the query, putting
+	 * matches close to the searcher ahead of others with the same number of edits. Only the
+	 * searcher's neighborhood up to distance_max is probed, and the searcher is never a match.
+	 * @param query - name to look for
+	 * @param maxEdits - most insertions, deletions and substitutions allowed
+	 * @param limit - max number of matches to return
+	 * @param searcherID - id of the user searching
+	 * @param date - date to check activity against
+	 * @param distance_max - max neighborhood distance to probe
+	 * @param status - return status of event
+	 * @return List<NameMatch> - matches ordered by fewest edits, then network distance, then id, null if the inputs are invalid
+	 * @throws UninitializedObjectException
+	 */
+	public List<NameMatch> searchUsersByName(String query, int maxEdits, int limit, String searcherID, Date date, int distance_max, SocialNetworkStatus status) throws UninitializedObjectException {
+		HashMap<User, Integer> distances = new HashMap<User, Integer>();
+		User searcher;
+		
+		this.checkNullInput(query, searcherID, date, status);
+		searcher = searcherID.isEmpty() ? null : this.getUser(searcherID);
+		
+		if (searcher == null) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			return null;
+		} else if (maxEdits < 0 || distance_max < 0) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+			return null;
+		} else if (limit < 0) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_LIMIT);
+			return null;
+		}
+		
+		for (Friend friend: this.makeNeighborhood(searcherID, date, distance_max, null))
+			distances.put(friend.getUser(), friend.getDistance());
+		
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return this.rankNameMatches(this.nameSearch.search(query, maxEdits), distances, searcher, limit);
+	}
+	
+	/**
+	 * Counts the triangles formed by links active at the given date and reports the global and
+	 * per user clustering coefficients that follow from them
+	 * @param date - date to check activity against
+	 * @param status - return status of event
+	 * @return ClusteringReport - triangle counts and clustering coefficients
+	 * @throws UninitializedObjectException
+	 */
+	public ClusteringReport clusteringReport(Date date, SocialNetworkStatus status) throws UninitializedObjectException {
+		ClusteringReport report;
+		
+		this.checkNullInput(date, status);
+		
+		report = new TriangleCounter().count(this, date);
+		
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return report;
+	}
+	
+	/**
+	 * Approximates the neighborhood size of every user at every distance up to distance_max in
+	 * one pass, using HyperLogLog counters instead of building Friend sets. Each estimate is
+	 * within the estimator's relative standard error of 1.04 / sqrt(2^registerBits) about two
+	 * thirds of the time, and memory grows with users times 2^registerBits.
+	 * @param date - date to check activity against
+	 * @param distance_max - max distance to estimate sizes for
+	 * @param registerBits - counters get 2^registerBits registers, from 4 to 16
+	 * @param status - return status of event
+	 * @return NeighborhoodSizeEstimator - estimates for every user, null if the inputs are invalid
+	 * @throws UninitializedObjectException
+	 */
+	public NeighborhoodSizeEstimator approximateNeighborhoodSizes(Date date, int distance_max, int registerBits, SocialNetworkStatus status) throws UninitializedObjectException {
+		this.checkNullInput(date, distance_max, registerBits, status);
+		
+		if (distance_max < 0) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+			return null;
+		} else if (registerBits < NeighborhoodSizeEstimator.MIN_REGISTER_BITS || registerBits > NeighborhoodSizeEstimator.MAX_REGISTER_BITS) {
+			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_LIMIT);
+			return null;
+		} else {
+			NeighborhoodSizeEstimator estimator = new NeighborhoodSizeEstimator(this, date, distance_max, registerBits);
+			
+			status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+			return estimator;
+		}
+	}
+	
+	/**
+	 * Checks if two users are joined by a path of links active at the given date. Repeated
+	 * queries at dates between the same two events are answered from a cached union-find.
+	 * @param idA - id of the first user
+	 * @param idB - id of the second user
+	 * @param date - date to check activity against
+	 * @return boolean - true if connected, false if not or if either user isn't a member
+	 */
+	public boolean areConnected(String idA, String idB, Date date) {
+		this.checkNullInput(idA, idB, date);
+		return this.getConnectivity().areConnected(idA, idB, date);
+	}
+	
+	/**
+	 * Finds how many users can be reached from the user through links active at the given
+	 * date, counting the user themselves
+	 * @param id - id of the user
+	 * @param date - date to check activity against
+	 * @return int - size of the user's component, 0 if the user isn't a member
+	 */
+	public int componentSizeAt(String id, Date date) {
+		this.checkNullInput(id, date);
+		return this.getConnectivity().componentSizeAt(id, date);
+	}
+	
+	
+	//Package-private accessors for the engines built on top of the network
+	
+	/**
+	 * Grabs every user in the network. The set is backed by the network, so callers must not modify it.
+	 * @return Set<User> - all members
+	 */
+	Set<User> getUsers() {
+		return this.network.keySet();
+	}
+	
+	/**
+	 * Grabs the links of a member. The list is backed by the network, so callers must not modify it.
+	 * @param user - member whose links we want
+	 * @return List<Link> - all links of the user, null if the user isn't a member
+	 */
+	List<Link> getLinksOf(User user) {
+		return this.network.get(user);
+	}
+	
 	/**
-	 * Class constructor
-	 * Creates a new network HashMap
+	 * Grabs the number of live links of a member, leaving out tombstones
+	 * @param user - member whose links we want
+	 * @return int - live links of the user
 	 */
-	public SocialNetwork() {
-		this.network = new HashMap<User, ArrayList<Link>>();
+	int getDegreeOf(User user) {
+		Adjacency links = this.network.get(user);
+		return links.size() - links.getRemovedCount();
 	}
 	
 	/**
-	 * Checks if user is in the system. If he isn't, add them.
-	 * @param user - User to add
-	 * @return boolean - true if added, false otherwise
+	 * Getter for the number of live links in the network, each counted once
+	 * @return long - live links
 	 */
-	public boolean addUser(User user) {
-		this.checkNullInput(user);
-		//If our user isn't a member and he's a valid user
-		if (!this.isMember(user.getID()) && user.isValid()) {
-			this.network.put(user, new ArrayList<Link>());
-			return true;
-		}
-		return false;
+	long getLinkCount() {
+		return this.linkCount;
 	}
 	
 	/**
-	 * Tries to grab the user using getUser(). If the user is returned,
-	 * then obviously it must be in the map.
-	 * @param id - target user id
-	 * @return boolean - true if found, false if not
+	 * Getter for the number of successful changes made to the network so far
+	 * @return long - modification count
 	 */
-	public boolean isMember(String id) {
-		this.checkNullInput(id);
-		if (!id.isEmpty()) {
-			User user = this.getUser(id);
-			if (user != null)
-				return true;
-		}
-		return false;
+	long getModificationCount() {
+		return this.modificationCount;
 	}
 	
 	/**
-	 * Retrieve a user from network by scanning each user key for a matching
-	 * id.
-	 * @param id - Search target id
-	 * @return User - user that has a matching id
+	 * Bulk build path for importers: makes a link whose whole history is already known,
+	 * without checking each event on the way in. Callers make sure both users are members,
+	 * the times never decrease, and the first event is an establish.
+	 * @param userA - one user of the link
+	 * @param userB - the other user of the link
+	 * @param times - event times in milliseconds, alternating establish and tear down
+	 * @param count - number of times to use
+	 * @return boolean - true if made, false if the users already have a link
+	 * @throws UninitializedObjectException
 	 */
-	public User getUser(String id) {
-		this.checkNullInput(id);
-		if (!id.isEmpty()) {
-			//For each user key in network
-			for(User user: this.network.keySet()) {
-				if (user.getID().equals(id))
-					return user;
-			}
+	boolean addLinkWithHistory(User userA, User userB, long[] times, int count) throws UninitializedObjectException {
+		Timeline timeline = this.arena == null ? new HeapTimeline() : new OffHeapTimeline(this.arena);
+		HashSet<User> userSet = new HashSet<User>();
+		Link link;
+		
+		if (this.network.get(userA).find(userB) != null)
+			return false;
+		
+		for (int i = 0; i < count; i++)
+			timeline.add(times[i]);
+		if (count >= Link.COMPRESSION_THRESHOLD && timeline instanceof HeapTimeline)
+			timeline = new CompressedTimeline(timeline);
+		
+		link = new Link(timeline);
+		userSet.add(userA);
+		userSet.add(userB);
+		link.setUsers(userSet, new SocialNetworkStatus());
+		this.network.get(userA).add(link);
+		this.network.get(userB).add(link);
+		this.linkCount++;
+		
+		this.modificationCount++;
+		for (int i = 0; i < count; i++) {
+			ChangeEvent.Type type = i % 2 == 0 ? ChangeEvent.Type.LINK_ESTABLISHED : ChangeEvent.Type.LINK_TORN_DOWN;
+			if (userA.getID().compareTo(userB.getID()) <= 0)
+				this.publishChange(type, userA.getID(), userB.getID(), times[i]);
+			else
+				this.publishChange(type, userB.getID(), userA.getID(), times[i]);
 		}
-		return null;
+		if (link.isCurrentlyActive())
+			this.repairWatches(userA, userB, true);
+		
+		return true;
 	}
 	
 	/**
-	 * Establishes a link between two users if they exist in the system. If they
-	 * don't share a link yet, a new link is created and established.
-	 * @param ids - Ids of the two users
-	 * @param date - Date to establish on
-	 * @param status - Wrapper class to return a status result depending on whether or not actions occurred and if not, why
-	 * @return boolean - true if established, false if otherwise
-	 * @throws UninitializedObjectException
+	 * Stops repairing a watch, called when the watch is closed
+	 * @param watch - watch to drop
 	 */
-	public boolean establishLink(Set<String> ids, Date date, SocialNetworkStatus status) throws UninitializedObjectException{
+	void unwatchNeighborhood(StandingNeighborhood watch) {
+		this.watches.remove(watch);
+	}
 	
-		Link userLink;	//Link to catch whether or not a link exists
-		HashSet<User> userSet;	//Set to create a user set if necessary
-		boolean returnBool = false;	//Variable to keep track of our return value
+	//Private Methods
 	
-		this.checkNullInput(ids);
-		this.checkNullInput(date);
+	/**
+	 * Private helper that searches outward a level at a time, only counting who it reaches
+	 * @param user - user to search from
+	 * @param time - date to check activity against in milliseconds
+	 * @param distance_max - max distance to count, -1 for no limit
+	 * @param stats - stats to fill in, null for none
+	 * @return int[] - users at each distance, up to the farthest reached
+	 */
+	private int[] countDistances(User user, long time, int distance_max, QueryStats stats) {
+		HashSet<User> visited = new HashSet<User>();
+		ArrayList<User> level = new ArrayList<User>();
+		ArrayList<User> nextLevel = new ArrayList<User>();
+		ArrayList<User> swap;
+		int[] counts = new int[4];
+		int distance = 0;
 		
-		//If our ids don't match each other and are in the system
-		if (this.idSetIsLegal(ids)){
-			//Search the users for a common link
-			userLink = this.findLinkWithUsers(ids);
-				
-			//If a link was returned, check to see that it isn't null. If it's inactive, establish a link
-			if (userLink != null) {
-				/* If the date comes before the most recent event or it's already active, then
-				 * status will propagate that error message
-				 */
-				returnBool = userLink.establish(date, status);
-				
-			//Else if the link doesn't exist yet, create one
-			} else {
-				//Setup user set
-				userSet = new HashSet<User>();
-				userSet.add(this.getUser((String) ids.toArray()[0]));
-				userSet.add(this.getUser((String) ids.toArray()[1]));
-				
-				//Create a new link, add the users, and establish the link
-				userLink = new Link();
-				userLink.setUsers(userSet, status);
-				userLink.establish(date, status);
-				
-				//Add the link to both users in the network 
-				this.network.get(this.getUser((String) ids.toArray()[0])).add(userLink);
-				this.network.get(this.getUser((String) ids.toArray()[1])).add(userLink);
-				
-				//Set status to SUCCESS
-				status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
-				//We've modified network, so return true
-				returnBool = true;
+		visited.add(user);
+		level.add(user);
+		while (!level.isEmpty() && (distance_max == -1 || distance <= distance_max)) {
+			this.checkInterrupted();
+			for (User parent: level) {
+				List<Link> links = this.network.get(parent);
+				if (stats != null)
+					stats.addLinksExamined(links.size());
+				for (Link link: links) {
+					User child = link.getOtherUser(parent);
+					if (QueryStats.isActiveAt(link, time, stats) && visited.add(child))
+						nextLevel.add(child);
+				}
 			}
-		} else 
-			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
+			if (stats != null)
+				stats.addLevel(false);
+			if (nextLevel.isEmpty())
+				break;
+			if (distance == counts.length)
+				counts = Arrays.copyOf(counts, counts.length * 2);
+			counts[distance++] = nextLevel.size();
 			
+			swap = level;
+			level = nextLevel;
+			nextLevel = swap;
+			nextLevel.clear();
+		}
 		
-		return returnBool;
-		
+		if (stats != null) {
+			stats.addSearch();
+			stats.addUsersVisited(visited.size());
+			stats.addAllocatedBytes(visited.size() * (QueryStats.MAP_ENTRY_BYTES + QueryStats.REFERENCE_BYTES));
+		}
+		return Arrays.copyOf(counts, distance);
 	}
 	
 	/**
-	 * Tears down a link if it exists and is active. Since we can't tear down a link
-	 * that hasn't been established yet, no link creation is done here.
-	 * @param ids - ids of users to tear
-	 * @param date	- date of teardown
-	 * @param status - Status of event
-	 * @return boolean - true if torn down, false if otherwise
-	 * @throws UninitializedObjectException
+	 * Private helper that adds up an array of counts
+	 * @param counts - counts to add
+	 * @return int - total
 	 */
-	public boolean tearDownLink(Set<String> ids, Date date, SocialNetworkStatus status) throws UninitializedObjectException {
-		Link userLink;	//userLink to reference for the teardown
-		boolean returnBool = false;
-		
-		this.checkNullInput(ids);
-		this.checkNullInput(date);
-		//If the users are in the system, the ids are unique, the link exists and it's active
-		if (this.idSetIsLegal(ids)){
-			userLink = this.findLinkWithUsers(ids);
-			if (userLink != null){
-				//Grab the link and tear it down
-				returnBool = userLink.tearDown(date, status);
-			} else
-				status.setStatus(SocialNetworkStatus.StatusCode.ALREADY_INACTIVE);
-			
-		} else
-			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
-		
-		return returnBool;
+	private static int sum(int[] counts) {
+		int returnSum = 0;
+		for (int count: counts)
+			returnSum += count;
+		return returnSum;
 	}
 	
 	/**
-	 * Checks to see if the ids are unique and in the system, if they have a link,
-	 * and if so if it's active
-	 * @param ids - ids of users
-	 * @param date - date to check activity
-	 * @return boolean - true if active, false if inactive or no link
+	 * Private helper that diffs a neighborhood between two dates. A search is made at the
+	 * first date, then the links whose state differs at the second date are found from the
+	 * events between the dates and replayed one at a time. Each link's state at the first
+	 * date is looked up once and kept, so the replays don't ask its timeline again. A replayed
+	 * link away from the search is passed over, and it's seen in its new state if a later
+	 * replay reaches it, so once every link is replayed the search matches one made then.
+	 * @param user - user in question
+	 * @param time1 - date to diff from in milliseconds
+	 * @param time2 - date to diff to in milliseconds
+	 * @param maxHops - most hops to track, -1 for no limit
+	 * @param stats - stats to fill in, null for none
+	 * @return NeighborhoodDelta - users who joined, left, or moved
 	 * @throws UninitializedObjectException
 	 */
-	public boolean isActive(Set<String> ids, Date date) throws UninitializedObjectException {
-		Link userLink;
-		boolean returnBool = false;
+	private NeighborhoodDelta makeNeighborhoodDiff(User user, final long time1, long time2, int maxHops, final QueryStats stats) throws UninitializedObjectException {
+		final HashSet<Link> flipped = new HashSet<Link>();
+		final HashMap<Link, Boolean> activeBefore = new HashMap<Link, Boolean>();
+		NeighborhoodDelta returnDelta;
+		DynamicBfs search;
+		long start = System.nanoTime();
 		
-		this.checkNullInput(ids);
-		this.checkNullInput(date);
+		//Links count as they were at the first date, except for the ones replayed so far
+		search = new DynamicBfs(this, user, maxHops) {
+			@Override
+			boolean isEdgeActive(Link link) {
+				Boolean wasActive = activeBefore.get(link);
+				if (wasActive == null) {
+					wasActive = QueryStats.isActiveAt(link, time1, stats);
+					activeBefore.put(link, wasActive);
+				}
+				return wasActive != flipped.contains(link);
+			}
+		};
+		search.build();
+		if (stats != null) {
+			stats.addSearch();
+			stats.endPhase("traverse", start);
+			start = System.nanoTime();
+		}
 		
-		//If our id set has two ids that aren't equal
-		if (this.idSetIsLegal(ids)){
-			userLink = this.findLinkWithUsers(ids);
-			if (userLink != null && userLink.isValid() && userLink.isActive(date)) {
-				returnBool = true;
+		for (Link link: this.getConnectivity().linksChangedBetween(time1, time2)) {
+			Iterator<User> ends;
+			User userA;
+			User userB;
+			boolean wasActive;
+			if (link.isRemoved())
+				continue;
+			this.checkInterrupted();
+			ends = link.getUsers().iterator();
+			userA = ends.next();
+			userB = ends.next();
+			//Neither end is reached, so the search sees the new state if it ever gets there
+			if (!search.getHops().containsKey(userA) && !search.getHops().containsKey(userB)) {
+				flipped.add(link);
+				continue;
 			}
+			wasActive = search.isEdgeActive(link);
+			flipped.add(link);
+			if (wasActive)
+				search.edgeRemoved(userA, userB);
+			else
+				search.edgeAdded(userA, userB);
 		}
 		
-		return returnBool;
+		returnDelta = search.takeDelta();
+		if (stats != null) {
+			stats.addUsersVisited(search.getHops().size());
+			stats.addAllocatedBytes(activeBefore.size() * QueryStats.MAP_ENTRY_BYTES);
+			stats.endPhase("replay", start);
+		}
+		return returnDelta;
 	}
 	
 	/**
-	 * Searches the network to find all connections and their distances from the user with the id given.
-	 * No limit to distance. Throws errors if inputs are null or if an object is uninitialized.
-	 * @param id - id of the user to find all connections of
-	 * @param date - date to check activity against
-	 * @param status - return status of event
-	 * @return Set<Friend> - Set of all users and their distances (i.e. friends)
-	 * @throws UninitializedObjectException
+	 * Private helper that creates the connectivity index on first use
+	 * @return ConnectivityIndex - index for this network
 	 */
-	public Set<Friend> neighborhood(String id, Date date, SocialNetworkStatus status) throws UninitializedObjectException {
-		Set<Friend> returnFriends = new HashSet<Friend>();
-		
-		this.checkNullInput(id, date, status);
-				
-		//If we're dealing with an empty string or a nonexistent user, stop and set status
-		if (id.isEmpty() || this.getUser(id) == null) {
-			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
-			return null;
-		} else {
-			
-			returnFriends = this.makeNeighborhood(id, date, -1);
-			
-			//Success!
-			status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
-			return returnFriends;
-		}
+	private synchronized ConnectivityIndex getConnectivity() {
+		if (this.connectivity == null)
+			this.connectivity = new ConnectivityIndex(this);
+		return this.connectivity;
 	}
 	
 	/**
-	 * Method to grab all connections of a user with given id up to a certain distance. Throws an
-	 * exception if parameters are null or an object is uninitialized.
+	 * Private helper that checks the inputs of a neighborhood and finds it
 	 * @param id - id of the user in question
 	 * @param date - date to cross activity against
- 	 * @param distance_max - max distance of connections
+	 * @param distance_max - max distance of connections, ignored if unbounded
+	 * @param bounded - true if there's a max distance
 	 * @param status - return status of event
+	 * @param stats - stats to fill in, null for none
 	 * @return Set<Friend> - Set of all users and their distances (i.e. friends)
 	 * @throws UninitializedObjectException
 	 */
-	public Set<Friend> neighborhood(String id, Date date, int distance_max, SocialNetworkStatus status) throws UninitializedObjectException {
+	private Set<Friend> findNeighborhood(String id, Date date, int distance_max, boolean bounded, SocialNetworkStatus status, QueryStats stats) throws UninitializedObjectException {
 		Set<Friend> returnFriends = new HashSet<Friend>();
 		
-		this.checkNullInput(id, date, distance_max, status);
-				
 		//If we're dealing with an empty string or a nonexistent user, stop and set status
 		if (id.isEmpty() || this.getUser(id) == null) {
 			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_USERS);
 			return null;
 		//If the distance is less that 0, it's invalid and we should stop
-		} else if (distance_max < 0) {
+		} else if (bounded && distance_max < 0) {
 			status.setStatus(SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
 			return null;
 		} else {
 			
-			returnFriends = this.makeNeighborhood(id, date, distance_max);
+			returnFriends = this.makeNeighborhood(id, date, bounded ? distance_max : -1, stats);
 			
 			//Success!
 			status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
@@ -251,20 +1303,18 @@ public class SocialNetwork {
 	}
 	
 	/**
-	 * Method that maps dates of events in a neighborhood to the size of the neighborhood
-	 * at that time. If user isn't in the network, we return null and a status code
-	 * to reflect that state, otherwise return a map and success code.
+	 * Private helper that finds the neighborhood of a user at every date of an event in it
 	 * @param id - id of the user 
 	 * @param status - object to keep track of outcome of the action
+	 * @param stats - stats to fill in, null for none
 	 * @return Map<Date, Integer> - Map of event dates to size of neighborhood
 	 * @throws UninitializedObjectException
 	 */
-	public Map<Date, Integer> neighborhoodTrend (String id, SocialNetworkStatus status) throws UninitializedObjectException {
-		
+	private Map<Date, Integer> makeTrend(String id, SocialNetworkStatus status, QueryStats stats) throws UninitializedObjectException {
 		Map<Date, Integer> returnMap = null;
 		Set<Date> eventDates;
 		Set<Friend> neighborhood;
-		this.checkNullInput(id, status);
+		long start;
 		
 		//If our user isn't in the network, there's no event map
 		if (!this.isMember(id)) {
@@ -272,11 +1322,21 @@ public class SocialNetwork {
 		} else {
 			//Gather the neighborhood and dates of events and get ready to store them in a map
 			returnMap = new HashMap<Date, Integer>();
-			neighborhood = this.neighborhood(id, new Date(), status);
+			neighborhood = this.findNeighborhood(id, new Date(), -1, false, status, stats);
+			start = System.nanoTime();
 			eventDates = this.getNeighborhoodDates(neighborhood);
+			if (stats != null)
+				stats.endPhase("dates", start);
 			//For each date that an event occurred on
-			for (Date date: eventDates)
-				returnMap.put(date, this.neighborhood(id, date, status).size());
+			start = System.nanoTime();
+			for (Date date: eventDates) {
+				this.checkInterrupted();
+				returnMap.put(date, SocialNetwork.sum(this.countDistances(this.getUser(id), date.getTime(), -1, stats)));
+			}
+			if (stats != null) {
+				stats.addAllocatedBytes(eventDates.size() * QueryStats.MAP_ENTRY_BYTES);
+				stats.endPhase("count", start);
+			}
 			
 			status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
 		}
@@ -284,39 +1344,159 @@ public class SocialNetwork {
 		return returnMap;
 	}
 	
-	
-	//Private Methods
-	
 	/**
 	 * Private helper that starts the recursive process and converts the hashmap into a set
 	 * @param id - id of user to get the neighborhood of
 	 * @param date -  date to match activity against
 	 * @param distance_max - max distance to get users of
+	 * @param stats - stats to fill in, null for none
 	 * @return Set<Friend> - Set of friends to make up the neighborhood
 	 * @throws UninitializedObjectException
 	 */
-	private Set<Friend> makeNeighborhood (String id, Date date, int distance_max) throws UninitializedObjectException {
+	private Set<Friend> makeNeighborhood (String id, Date date, int distance_max, QueryStats stats) throws UninitializedObjectException {
 		HashMap<User, Integer> mappedFriends = new HashMap<User, Integer>();
+		Set<Friend> returnFriends;
 		User thisUser;
-		ArrayList<Link> userLinks;
+		List<Link> userLinks;
 		ArrayList<String> idList;
+		long start = System.nanoTime();
 		
 		//Grab the user who the id belongs to so we can
 		thisUser = this.getUser(id);
 		
-		//Get a list of all links and create a list of all ids that map to them
-		userLinks = this.network.get(this.getUser(id));
-		idList = SocialNetwork.createListOfManyElements(id, userLinks.size());
+		if (this.traversalMode == TraversalMode.DIRECTION_OPTIMIZING)
+			mappedFriends = new DirectionOptimizingBfs(this, date).search(thisUser, distance_max, stats);
+		else {
+			//Get a list of all links and create a list of all ids that map to them
+			//mapFriends reads by position, which a hub's table can't do cheaply
+			userLinks = this.network.get(thisUser);
+			if (this.network.get(thisUser).isHub())
+				userLinks = new ArrayList<Link>(userLinks);
+			idList = SocialNetwork.createListOfManyElements(id, userLinks.size());
+			
+			//Start a recursive route to grab all of the connections.
+			//We send -1 as the limit since we aren't concerned with max distance
+			mappedFriends = this.mapFriends(new HashMap<User, Integer>(), idList, userLinks, date, 0, distance_max, stats);
+			if (stats != null)
+				stats.addUsersVisited(mappedFriends.containsKey(thisUser) ? mappedFriends.size() : mappedFriends.size() + 1);
+			//Remove this user since he'll be added by a 0 degree connection
+			mappedFriends.remove(thisUser);
+		}
+		if (stats != null) {
+			stats.addSearch();
+			stats.endPhase("traverse", start);
+			start = System.nanoTime();
+		}
+		
+		returnFriends = this.makeFriendSetFromMap(mappedFriends);
+		if (stats != null) {
+			stats.addAllocatedBytes(returnFriends.size() * QueryStats.FRIEND_BYTES);
+			stats.endPhase("results", start);
+		}
+		return returnFriends;
+	}
+		
+	/**
+	 * Private helper that counts mutual friends for every user two links away and keeps the
+	 * best few in a bounded heap, so only the top suggestions are ever sorted
+	 * @param user - user to make suggestions for
+	 * @param date - date to check activity against
+	 * @param limit - max number of suggestions
+	 * @param excludedIDs - ids that should never be suggested
+	 * @return List<Recommendation> - suggestions ordered best first
+	 * @throws UninitializedObjectException
+	 */
+	private List<Recommendation> makeRecommendations(User user, Date date, int limit, Set<String> excludedIDs) throws UninitializedObjectException {
+		ArrayList<Recommendation> returnList = new ArrayList<Recommendation>();
+		HashMap<User, int[]> mutualCounts = new HashMap<User, int[]>();
+		ArrayList<User> friends;
+		Set<User> friendSet;
+		PriorityQueue<Recommendation> bestQueue;
+		User candidate;
+		int[] count;
+		
+		//Nothing to compute if no suggestions were asked for
+		if (limit == 0)
+			return returnList;
+		
+		friends = this.getActiveFriends(user, date);
+		friendSet = new HashSet<User>(friends);
+		
+		//Each active link of a friend that reaches a new user is one mutual friend for them
+		for (User friend: friends) {
+			this.checkInterrupted();
+			for (Link link: this.network.get(friend)) {
+				candidate = link.getOtherUser(friend);
+				//Cheap checks first so we only pay for isActive on real candidates
+				if (link.isRemoved() || candidate.equals(user) || friendSet.contains(candidate) || excludedIDs.contains(candidate.getID()))
+					continue;
+				if (link.isActive(date)) {
+					count = mutualCounts.get(candidate);
+					if (count == null)
+						mutualCounts.put(candidate, new int[] {1});
+					else
+						count[0]++;
+				}
+			}
+		}
+		
+		//Keep the worst of the current best at the head so it can be evicted
+		bestQueue = new PriorityQueue<Recommendation>(Math.min(limit, mutualCounts.size()) + 1, Collections.reverseOrder(RECOMMENDATION_ORDER));
+		for (Map.Entry<User, int[]> entry: mutualCounts.entrySet()) {
+			//Once the heap is full, skip anyone who can't beat its worst member
+			if (bestQueue.size() == limit && entry.getValue()[0] < bestQueue.peek().getMutualCount())
+				continue;
+			bestQueue.add(new Recommendation(entry.getKey(), entry.getValue()[0]));
+			if (bestQueue.size() > limit)
+				bestQueue.poll();
+		}
+		
+		while (!bestQueue.isEmpty())
+			returnList.add(bestQueue.poll());
+		Collections.reverse(returnList);
 		
-		//Start a recursive route to grab all of the connections.
-		//We send -1 as the limit since we aren't concerned with max distance
-		mappedFriends = this.mapFriends(new HashMap<User, Integer>(), idList, userLinks, date, 0, distance_max);
-		//Remove this user since he'll be added by a 0 degree connection
-		mappedFriends.remove(thisUser);
+		return returnList;
+	}
+	
+	/**
+	 * Private helper that turns name search results into the best matches in order
+	 * @param edits - matching members and their edit distances
+	 * @param distances - network distances of the members probed
+	 * @param searcher - member searching, left out of the results, null if none
+	 * @param limit - max number of matches to return
+	 * @return List<NameMatch> - best matches first
+	 */
+	private List<NameMatch> rankNameMatches(HashMap<User, Integer> edits, HashMap<User, Integer> distances, User searcher, int limit) {
+		List<NameMatch> returnList = new ArrayList<NameMatch>(edits.size());
+		
+		for (Map.Entry<User, Integer> entry: edits.entrySet()) {
+			Integer distance = distances.get(entry.getKey());
+			if (entry.getKey() != searcher)
+				returnList.add(new NameMatch(entry.getKey(), entry.getValue(), distance == null ? NameMatch.UNKNOWN_DISTANCE : distance));
+		}
+		Collections.sort(returnList, NAME_MATCH_ORDER);
 		
-		return this.makeFriendSetFromMap(mappedFriends);
+		return returnList.size() > limit ? new ArrayList<NameMatch>(returnList.subList(0, limit)) : returnList;
 	}
+	
+	/**
+	 * Private helper that gathers every user with an active link to the given user at the date
+	 * @param user - user whose friends we want
+	 * @param date - date to check activity against
+	 * @return ArrayList<User> - directly linked users
+	 * @throws UninitializedObjectException
+	 */
+	private ArrayList<User> getActiveFriends(User user, Date date) throws UninitializedObjectException {
+		ArrayList<User> returnList = new ArrayList<User>();
 		
+		for (Link link: this.network.get(user)) {
+			if (!link.isRemoved() && link.isActive(date))
+				returnList.add(link.getOtherUser(user));
+		}
+		
+		return returnList;
+	}
+	
 	/**
 	 * Helper method that organizes all links in the neighborhood into a set of dates
 	 * where events occurred in the links
@@ -343,12 +1523,13 @@ public class SocialNetwork {
 	 * @param linkList - array list of all the links of a user
 	 * @return Set<Date> - a set of all the dates in those links
 	 */
-	private Set<Date> getDatesFromManyLinks (ArrayList<Link> linkList) {
+	private Set<Date> getDatesFromManyLinks (List<Link> linkList) {
 		Set<Date> returnSet = new HashSet<Date>();
 		
 		//For each link in the linked list, grab the dates
 		for (Link link: linkList) {
-			returnSet.addAll(link.getLinks());
+			if (!link.isRemoved())
+				returnSet.addAll(link.getLinks());
 		}
 		
 		return returnSet;
@@ -367,6 +1548,17 @@ public class SocialNetwork {
 		}
 	}
 	
+	/**
+	 * Private helper that lets long traversals stop early when the thread running them is
+	 * interrupted, which is how AsyncSocialNetwork cancels a query already in flight. The
+	 * interrupt flag is left set for the caller.
+	 * @throws CancellationException
+	 */
+	private void checkInterrupted() throws CancellationException {
+		if (Thread.currentThread().isInterrupted())
+			throw new CancellationException("Traversal interrupted");
+	}
+	
 	/**
 	 * Private helper to determine if ids in a set are unique and the members are in the network
 	 * @param set - set of user ids
@@ -390,53 +1582,137 @@ public class SocialNetwork {
 	 * @return Link - the shared link or null if not found
 	 */
 	private Link findLinkWithUsers(Set<String> ids) {
-		String user1ID = (String) ids.toArray()[0];
-		ArrayList<Link> links;
-		SocialNetworkStatus status = new SocialNetworkStatus();
+		String[] idArray;
+		User user1;
+		User user2;
 		
 		this.checkNullInput(ids);
 		
-		//Create a link to compare against
-		Link compLink = new Link();
-		compLink.setUsers(this.createUserSetFromIDs(ids), status);
+		idArray = ids.toArray(new String[ids.size()]);
+		user1 = this.getUser(idArray[0]);
+		user2 = this.getUser(idArray[1]);
+		if (user1 == null || user2 == null)
+			return null;
 		
-		links = this.network.get(this.getUser(user1ID));
-		//Check each link in the network
-		for (Link link: links) {
-			if (link.equals(compLink)) 
-				return link;
-		}
+		return this.findLink(user1, user2);
+	}
 	
-		return null;
+	/**
+	 * Private helper to find the live link between two members from whichever side is
+	 * cheaper. Hubs find it by the other user, everyone else scans their few links.
+	 * @param user1 - one member
+	 * @param user2 - the other member
+	 * @return Link - the shared link or null if not found
+	 */
+	private Link findLink(User user1, User user2) {
+		Adjacency links1 = this.network.get(user1);
+		Adjacency links2 = this.network.get(user2);
+		
+		if (links2.isHub() || (!links1.isHub() && links2.size() < links1.size()))
+			return links2.find(user1);
+		return links1.find(user2);
 	}
 
 	/**
-	 * Helper that creates a set of users from a set of ids
-	 * @param ids - ids to create users from
-	 * @return Set<User> - the user set we want, but not the one we deserve
+	 * Private helper that makes an empty link between two users and adds it to both of
+	 * their lists of links
+	 * @param ids - ids of the two users
+	 * @param status - return status of setting the users
+	 * @return Link - the new link
+	 * @throws UninitializedObjectException
+	 */
+	private Link newLink(Set<String> ids, SocialNetworkStatus status) throws UninitializedObjectException {
+		Link returnLink = new Link(this.arena == null ? new HeapTimeline() : new OffHeapTimeline(this.arena));
+		HashSet<User> userSet = new HashSet<User>();
+		
+		for (String id: ids)
+			userSet.add(this.getUser(id));
+		returnLink.setUsers(userSet, status);
+		for (User user: userSet)
+			this.network.get(user).add(returnLink);
+		this.linkCount++;
+		
+		return returnLink;
+	}
+	
+	/**
+	 * Private helper that makes a watch and starts repairing it
+	 * @param id - id of the user to watch
+	 * @param distance_max - max distance of connections, -1 for no limit
+	 * @param listener - told about every change
+	 * @param status - return status of event
+	 * @return StandingNeighborhood - the watch
 	 */
-	private Set<User> createUserSetFromIDs (Set<String> ids) {
-		String[] idArray;
-		Set<User> returnSet = new HashSet<User>();
-		User addUser = new User();
+	private StandingNeighborhood startWatch(String id, int distance_max, NeighborhoodListener listener, SocialNetworkStatus status) {
+		StandingNeighborhood returnWatch = new StandingNeighborhood(this, this.getUser(id), distance_max, listener);
 		
-		this.checkNullInput(ids);
+		this.watches.add(returnWatch);
+		status.setStatus(SocialNetworkStatus.StatusCode.SUCCESS);
+		return returnWatch;
+	}
+	
+	/**
+	 * Private helper that tells every watch the link between two users turned on or off
+	 * @param ids - ids of the two users
+	 * @param added - true if it turned on, false if it turned off
+	 */
+	private void repairWatches(Set<String> ids, boolean added) {
+		Iterator<String> idIterator;
 		
-		idArray = ids.toArray(new String[ids.size()]);
-		//If we can create the first user, then add and make the second	
-		if (addUser.setID(idArray[0])) {
-			returnSet.add(addUser);
-			addUser = new User();
-			//If we can make the second user, make and add baby
-			if (addUser.setID(idArray[1]))
-				returnSet.add(addUser);
+		if (this.watches.isEmpty())
+			return;
+		idIterator = ids.iterator();
+		this.repairWatches(this.getUser(idIterator.next()), this.getUser(idIterator.next()), added);
+	}
+	
+	/**
+	 * Private helper that tells every watch the link between two users turned on or off
+	 * @param userA - one user of the link
+	 * @param userB - the other user of the link
+	 * @param added - true if it turned on, false if it turned off
+	 */
+	private void repairWatches(User userA, User userB, boolean added) {
+		//Copied since a listener may close its watch
+		for (StandingNeighborhood watch: new ArrayList<StandingNeighborhood>(this.watches)) {
+			if (added)
+				watch.edgeAdded(userA, userB);
 			else
-				returnSet = null;
-		} else
-			returnSet = null;
-		
-		return returnSet;
+				watch.edgeRemoved(userA, userB);
+		}
+	}
+	
+	/**
+	 * Private helper that publishes a change if a feed is attached
+	 * @param type - kind of change
+	 * @param firstID - id of the user, or of one user of the link
+	 * @param secondID - id of the other user of the link, null for user events
+	 * @param time - date of a link event in milliseconds, ChangeEvent.NO_TIME otherwise
+	 */
+	private void publishChange(ChangeEvent.Type type, String firstID, String secondID, long time) {
+		if (this.changeFeed != null)
+			this.changeFeed.publish(type, firstID, secondID, time);
+	}
+	
+	/**
+	 * Private helper that publishes a link change with the lower id first
+	 * @param type - kind of change
+	 * @param ids - ids of the two users
+	 * @param time - date of the event in milliseconds, ChangeEvent.NO_TIME for purges
+	 */
+	private void publishLinkChange(ChangeEvent.Type type, Set<String> ids, long time) {
+		Iterator<String> idIterator;
+		String firstID;
+		String secondID;
 		
+		if (this.changeFeed == null)
+			return;
+		idIterator = ids.iterator();
+		firstID = idIterator.next();
+		secondID = idIterator.next();
+		if (firstID.compareTo(secondID) <= 0)
+			this.changeFeed.publish(type, firstID, secondID, time);
+		else
+			this.changeFeed.publish(type, secondID, firstID, time);
 	}
 	
 	/**
@@ -468,10 +1744,11 @@ public class SocialNetwork {
 	 * @param date - date to compare activity against
 	 * @param distance - distance that the new users should be added at
 	 * @param limit - limit for the distance, if -1 then no limit
+	 * @param stats - stats to fill in, null for none
 	 * @return HashMap<User, Integer> - map of users to distances
 	 * @throws UninitializedObjectException
 	 */
-	private HashMap<User, Integer> mapFriends(HashMap<User, Integer> totalMap, ArrayList<String> ids, ArrayList<Link> links, Date date, int distance, int limit) throws UninitializedObjectException {
+	private HashMap<User, Integer> mapFriends(HashMap<User, Integer> totalMap, ArrayList<String> ids, List<Link> links, Date date, int distance, int limit, QueryStats stats) throws UninitializedObjectException {
 		//Create new lists for the next batch of ids and links
 		ArrayList<String> nextIDs = new ArrayList<String>();
 		ArrayList<Link> nextLinks = new ArrayList<Link>();
@@ -480,9 +1757,14 @@ public class SocialNetwork {
 		String id;
 		
 		this.checkNullInput(totalMap, ids, links, date, distance, limit);
+		if (stats != null) {
+			stats.addLevel(false);
+			stats.addLinksExamined(links.size());
+		}
 		
 		//For each link we need to check
 		for(int linkCounter = 0; linkCounter < links.size(); linkCounter++) {
+			this.checkInterrupted();
 			//Grab the current link and the parent id in that link
 			link = links.get(linkCounter);
 			id = ids.get(linkCounter);
@@ -492,8 +1774,11 @@ public class SocialNetwork {
 			checkUser = link.getOtherUser(id);
 			
 			//If the user is unique, active, and within acceptable distance, then continue
-			if(this.userShouldBeAddedToMap(totalMap, checkUser, link, date, distance, limit)) {
+			if(this.userShouldBeAddedToMap(totalMap, checkUser, link, date, distance, limit, stats)) {
 				totalMap.put(checkUser, distance);
+				//Each of his links is queued along with a copy of his id
+				if (stats != null)
+					stats.addAllocatedBytes(QueryStats.MAP_ENTRY_BYTES + 2 * QueryStats.REFERENCE_BYTES * this.network.get(checkUser).size());
 				//If the user is unique, then we need to process all of his links
 				nextLinks.addAll(this.network.get(checkUser));
 				//Add his id to pair against his links
@@ -503,7 +1788,7 @@ public class SocialNetwork {
 		}
 		//If there are more links to process, then recurse and be glad!
 		if (!nextLinks.isEmpty())
-			return this.mapFriends(totalMap, nextIDs, nextLinks, date, distance + 1, limit);
+			return this.mapFriends(totalMap, nextIDs, nextLinks, date, distance + 1, limit, stats);
 		else //Otherwise, finish up
 			return totalMap;
 	}
@@ -516,13 +1801,14 @@ public class SocialNetwork {
 	 * @param date - date to check activity
 	 * @param distance - distance of the user to the original id
 	 * @param limit - limit for the distance, if -1 then no limit to consider
+	 * @param stats - stats to count the activity check in, null for none
 	 * @return boolean - true if unique and active, false if otherwise 
 	 * @throws UninitializedObjectException
 	 */
-	private boolean userShouldBeAddedToMap (HashMap<User, Integer> map, User user, Link link, Date date, int distance, int limit) throws UninitializedObjectException {
+	private boolean userShouldBeAddedToMap (HashMap<User, Integer> map, User user, Link link, Date date, int distance, int limit, QueryStats stats) throws UninitializedObjectException {
 		this.checkNullInput(map, user, link, date, distance, limit);
 		//If the user isn't in the map, he's active, and if there isn't a limit or if he's not too far away yet, then he's good
-		if (!map.containsKey(user) && link.isActive(date) && (limit == -1 || distance <= limit))
+		if (!map.containsKey(user) && !link.isRemoved() && QueryStats.isActive(link, date, stats) && (limit == -1 || distance <= limit))
 			return true;
 		else
 			return false;
@@ -13,7 +13,7 @@ public class SocialNetworkStatus {
 	public enum StatusCode {
 		SUCCESS, 
 		ALREADY_VALID, ALREADY_ACTIVE, ALREADY_INACTIVE,
-		INVALID_USERS, INVALID_DATE, INVALID_DISTANCE
+		INVALID_USERS, INVALID_DATE, INVALID_DISTANCE, INVALID_LIMIT
 		
 	}
 	
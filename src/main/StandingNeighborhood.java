@@ -0,0 +1,137 @@
+package main;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * StandingNeighborhood class is a neighborhood kept up to date as links are established,
+ * torn down, purged and removed, instead of being searched again on every call. It covers
+ * the current state of the network, where a link counts if its last event was an establish.
+ * Each change only repairs the part of the search it touches, and the listener hears about
+ * the users who joined, left or moved. Watches are made through SocialNetwork.watchNeighborhood.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class StandingNeighborhood {
+
+	private SocialNetwork			network;	//Network being watched
+	private String					id;			//Id of the watched user
+	private int						distanceMax;	//Max distance watched, -1 for no limit
+	private DynamicBfs				search;		//Hops to everyone in the neighborhood
+	private NeighborhoodListener	listener;	//Told about every change
+	private boolean					closed;		//True once the watch has stopped
+
+	/**
+	 * Class constructor
+	 * Package-private since watches are made through SocialNetwork, which validates the inputs
+	 * @param network - network to watch
+	 * @param user - user whose neighborhood is watched
+	 * @param distanceMax - max distance to watch, -1 for no limit
+	 * @param listener - told about every change
+	 */
+	StandingNeighborhood(SocialNetwork network, User user, int distanceMax, NeighborhoodListener listener) {
+		this.network = network;
+		this.id = user.getID();
+		this.distanceMax = distanceMax;
+		this.listener = listener;
+		this.closed = false;
+		this.search = new DynamicBfs(network, user, distanceMax < 0 ? -1 : distanceMax + 1);
+		this.search.build();
+	}
+
+	/**
+	 * Getter for the id of the watched user
+	 * @return String - id
+	 */
+	public String getID() {
+		return this.id;
+	}
+
+	/**
+	 * Getter for the max distance watched
+	 * @return int - max distance, -1 for no limit
+	 */
+	public int getDistanceMax() {
+		return this.distanceMax;
+	}
+
+	/**
+	 * Copies out the neighborhood as it stands, the same set neighborhood() would give for
+	 * a date after every event
+	 * @return Set<Friend> - users and their distances
+	 */
+	public Set<Friend> getNeighborhood() {
+		Set<Friend> returnFriends = new HashSet<Friend>();
+
+		for (Map.Entry<User, Integer> entry: this.search.getHops().entrySet()) {
+			if (entry.getValue() == 0)
+				continue;
+			Friend friend = new Friend();
+			friend.set(entry.getKey(), entry.getValue() - 1);
+			returnFriends.add(friend);
+		}
+
+		return returnFriends;
+	}
+
+	/**
+	 * Checks if the watch has stopped
+	 * @return boolean - true once closed
+	 */
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	/**
+	 * Stops the watch. The network stops repairing it and the listener hears nothing more.
+	 */
+	public void close() {
+		if (!this.closed) {
+			this.closed = true;
+			this.network.unwatchNeighborhood(this);
+		}
+	}
+
+	/**
+	 * Package-private hook called after a link turned on
+	 * @param userA - one user of the link
+	 * @param userB - the other user of the link
+	 */
+	void edgeAdded(User userA, User userB) {
+		this.search.edgeAdded(userA, userB);
+		this.publish();
+	}
+
+	/**
+	 * Package-private hook called after a link turned off
+	 * @param userA - one user of the link
+	 * @param userB - the other user of the link
+	 */
+	void edgeRemoved(User userA, User userB) {
+		this.search.edgeRemoved(userA, userB);
+		this.publish();
+	}
+
+	/**
+	 * Package-private hook called when the watched user leaves the network. Everyone leaves
+	 * the neighborhood and the watch stops.
+	 */
+	void sourceRemoved() {
+		this.search.clear();
+		this.publish();
+		this.closed = true;
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that tells the listener about the changes since the last call, if any
+	 */
+	private void publish() {
+		NeighborhoodDelta delta = this.search.takeDelta();
+
+		if (!delta.isEmpty() && this.listener != null)
+			this.listener.neighborhoodChanged(this.id, delta);
+	}
+
+}
@@ -0,0 +1,75 @@
+package main;
+
+/**
+ * Timeline class stores the event times of one link as milliseconds, oldest first. Events
+ * alternate establish, tear down, establish, and so on, so the number of events at or
+ * before a time tells whether the link was active then. Subclasses decide where the times
+ * live; Link only ever talks to this class.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+abstract class Timeline {
+
+	/**
+	 * Getter for the number of events
+	 * @return int - number of events
+	 */
+	abstract int size();
+
+	/**
+	 * Grabs the time of an event
+	 * @param index - index of the event, 0 being the oldest
+	 * @return long - time of the event in milliseconds
+	 */
+	abstract long get(int index);
+
+	/**
+	 * Appends an event. Callers make sure it isn't older than the last event.
+	 * @param time - time of the event in milliseconds
+	 */
+	abstract void add(long time);
+
+	/**
+	 * Gives back any storage held outside the heap, for when a link moves its events to
+	 * another timeline. Heap timelines have nothing to give back.
+	 */
+	void release() {
+	}
+
+	/**
+	 * Estimates how many events countAtOrBefore looks at, which for a binary search is one
+	 * per bit of the size
+	 * @return int - events looked at per count
+	 */
+	int searchCost() {
+		return 32 - Integer.numberOfLeadingZeros(this.size());
+	}
+
+	/**
+	 * Grabs the time of the newest event
+	 * @return long - time of the last event in milliseconds
+	 */
+	long last() {
+		return this.get(this.size() - 1);
+	}
+
+	/**
+	 * Counts the events at or before a time with a binary search, since times never decrease
+	 * @param time - time in milliseconds
+	 * @return int - number of events that happened at or before the time
+	 */
+	int countAtOrBefore(long time) {
+		int low = 0;
+		int high = this.size();
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.get(middle) <= time)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+
+		return low;
+	}
+
+}
@@ -0,0 +1,150 @@
+package main;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * TimelineArena class stores link event times outside the Java heap. Times are packed as
+ * longs into large direct buffers, and each link keeps only the address and size of its
+ * region, so millions of events cost the garbage collector nothing to trace. Regions come
+ * in power of two sizes, and freed regions are reused by the next timeline that needs one
+ * of the same size. Pass an arena to the SocialNetwork constructor to use it. An arena
+ * isn't safe to change from several threads at once, same as the network using it.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class TimelineArena {
+
+	//Default size of each direct buffer
+	public static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+
+	//Smallest region handed out, enough for one establish and tear down
+	static final int MIN_REGION = 2;
+
+	private ArrayList<ByteBuffer>	chunks;			//Direct buffers holding the regions
+	private int						chunkShift;		//log2 of the longs per chunk
+	private long					nextAddress;	//Next unused long in the newest chunk
+	private long[][]				freeRegions;	//Freed region addresses by log2 of their size
+	private int[]					freeCounts;		//Number of freed regions of each size
+	private long					usedLongs;		//Longs in regions currently handed out
+
+	/**
+	 * Class constructor
+	 * Creates an arena that grows in chunks of DEFAULT_CHUNK_BYTES
+	 */
+	public TimelineArena() {
+		this(DEFAULT_CHUNK_BYTES);
+	}
+
+	/**
+	 * Class constructor
+	 * Creates an arena that grows in chunks of at least the given size, rounded up to a power
+	 * of two. No single link can hold more events than fit in one chunk.
+	 * @param chunkBytes - size of each direct buffer
+	 * @throws IllegalArgumentException
+	 */
+	public TimelineArena(int chunkBytes) {
+		int chunkLongs;
+
+		if (chunkBytes <= 0)
+			throw new IllegalArgumentException("Chunk size must be positive");
+
+		chunkLongs = Integer.highestOneBit(Math.max(chunkBytes / 8, MIN_REGION));
+		if (chunkLongs * 8L < chunkBytes)
+			chunkLongs <<= 1;
+		if (chunkLongs > (1 << 27))
+			throw new IllegalArgumentException("Chunk size must be at most 1GB");
+
+		this.chunks = new ArrayList<ByteBuffer>();
+		this.chunkShift = Integer.numberOfTrailingZeros(chunkLongs);
+		this.nextAddress = 0;
+		this.freeRegions = new long[this.chunkShift + 1][];
+		this.freeCounts = new int[this.chunkShift + 1];
+		this.usedLongs = 0;
+	}
+
+	/**
+	 * Getter for the off-heap memory the arena has reserved
+	 * @return long - bytes in all direct buffers
+	 */
+	public long getAllocatedBytes() {
+		return ((long) this.chunks.size() << this.chunkShift) * 8;
+	}
+
+	/**
+	 * Getter for the off-heap memory in regions that links are using
+	 * @return long - bytes in regions currently handed out
+	 */
+	public long getUsedBytes() {
+		return this.usedLongs * 8;
+	}
+
+	/**
+	 * Package-private helper that hands out a region, reusing a freed one of the same size if
+	 * there is one
+	 * @param capacity - number of longs the region holds, a power of two
+	 * @return long - address of the region
+	 * @throws IllegalArgumentException
+	 */
+	long allocate(int capacity) {
+		int sizeClass = Integer.numberOfTrailingZeros(capacity);
+		long returnAddress;
+
+		if (Integer.bitCount(capacity) != 1 || sizeClass > this.chunkShift)
+			throw new IllegalArgumentException("Timeline of " + capacity + " events doesn't fit in an arena chunk");
+
+		if (this.freeCounts[sizeClass] > 0)
+			returnAddress = this.freeRegions[sizeClass][--this.freeCounts[sizeClass]];
+		else {
+			//Regions never straddle chunks, so skip the tail of a chunk that's too short
+			if ((this.nextAddress >>> this.chunkShift) != ((this.nextAddress + capacity - 1) >>> this.chunkShift))
+				this.nextAddress = (this.nextAddress >>> this.chunkShift) + 1 << this.chunkShift;
+			if ((this.nextAddress >>> this.chunkShift) == this.chunks.size())
+				this.chunks.add(ByteBuffer.allocateDirect(8 << this.chunkShift));
+			returnAddress = this.nextAddress;
+			this.nextAddress += capacity;
+		}
+
+		this.usedLongs += capacity;
+		return returnAddress;
+	}
+
+	/**
+	 * Package-private helper that takes back a region so it can be handed out again
+	 * @param address - address of the region
+	 * @param capacity - number of longs the region holds
+	 */
+	void free(long address, int capacity) {
+		int sizeClass = Integer.numberOfTrailingZeros(capacity);
+
+		if (this.freeRegions[sizeClass] == null)
+			this.freeRegions[sizeClass] = new long[4];
+		else if (this.freeCounts[sizeClass] == this.freeRegions[sizeClass].length)
+			this.freeRegions[sizeClass] = Arrays.copyOf(this.freeRegions[sizeClass], this.freeCounts[sizeClass] * 2);
+		this.freeRegions[sizeClass][this.freeCounts[sizeClass]++] = address;
+		this.usedLongs -= capacity;
+	}
+
+	/**
+	 * Package-private helper that reads one long of a region
+	 * @param address - address of the region
+	 * @param index - index of the long in the region
+	 * @return long - value stored there
+	 */
+	long get(long address, int index) {
+		long slot = address + index;
+		return this.chunks.get((int) (slot >>> this.chunkShift)).getLong((int) (slot & ((1L << this.chunkShift) - 1)) << 3);
+	}
+
+	/**
+	 * Package-private helper that writes one long of a region
+	 * @param address - address of the region
+	 * @param index - index of the long in the region
+	 * @param value - value to store
+	 */
+	void set(long address, int index, long value) {
+		long slot = address + index;
+		this.chunks.get((int) (slot >>> this.chunkShift)).putLong((int) (slot & ((1L << this.chunkShift) - 1)) << 3, value);
+	}
+
+}
@@ -0,0 +1,237 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * TreeTimeline class keeps event times in a treap, a binary search tree balanced by random
+ * priorities, so events can go anywhere in the history and not just on the end. Since
+ * times never decrease, the tree is ordered by time and by position at once, and each node
+ * knows how many events are under it. Inserting, grabbing an event by index and counting
+ * the events up to a time all take O(log n) expected. Nodes live in parallel arrays
+ * indexed by insertion order, so the tree is a handful of arrays instead of an object per
+ * event. Links switch to this timeline the first time history is backfilled.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+class TreeTimeline extends Timeline {
+
+	//Index that stands for no node
+	private static final int NIL = -1;
+
+	private long[]	times;		//Event time of each node
+	private int[]	priorities;	//Random heap priority of each node
+	private int[]	lefts;		//Left child of each node
+	private int[]	rights;		//Right child of each node
+	private int[]	counts;		//Number of nodes under and including each node
+	private int		root;		//Root node, NIL if empty
+	private int		size;		//Number of events
+	private int		seed;		//State of the priority generator
+	private int		splitLeft;	//Left tree left by the last split
+	private int		splitRight;	//Right tree left by the last split
+
+	/**
+	 * Class constructor
+	 * Copies the events of another timeline
+	 * @param timeline - timeline to copy events from
+	 */
+	TreeTimeline(Timeline timeline) {
+		int capacity = Math.max(timeline.size() + 2, 4);
+
+		this.times = new long[capacity];
+		this.priorities = new int[capacity];
+		this.lefts = new int[capacity];
+		this.rights = new int[capacity];
+		this.counts = new int[capacity];
+		this.root = NIL;
+		this.size = 0;
+		this.seed = 0x9E3779B9;
+		for (int i = 0; i < timeline.size(); i++)
+			this.add(timeline.get(i));
+	}
+
+	/**
+	 * Getter for the number of events
+	 * @return int - number of events
+	 */
+	@Override
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Grabs the time of an event by walking down the node counts
+	 * @param index - index of the event, 0 being the oldest
+	 * @return long - time of the event in milliseconds
+	 * @throws IndexOutOfBoundsException
+	 */
+	@Override
+	long get(int index) {
+		int node = this.root;
+
+		if (index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+
+		while (true) {
+			int leftCount = this.countOf(this.lefts[node]);
+			if (index < leftCount)
+				node = this.lefts[node];
+			else if (index == leftCount)
+				return this.times[node];
+			else {
+				index -= leftCount + 1;
+				node = this.rights[node];
+			}
+		}
+	}
+
+	/**
+	 * Appends an event
+	 * @param time - time of the event in milliseconds
+	 */
+	@Override
+	void add(long time) {
+		this.insert(time);
+	}
+
+	/**
+	 * Inserts an event after every event at or before its time. Callers make sure the
+	 * events still alternate establish and tear down.
+	 * @param time - time of the event in milliseconds
+	 */
+	void insert(long time) {
+		int node = this.newNode(time);
+
+		this.split(this.root, time);
+		this.root = this.merge(this.merge(this.splitLeft, node), this.splitRight);
+	}
+
+	/**
+	 * Grabs the time of the newest event from the rightmost node
+	 * @return long - time of the last event in milliseconds
+	 */
+	@Override
+	long last() {
+		int node = this.root;
+
+		if (node == NIL)
+			throw new IndexOutOfBoundsException("Index: -1, Size: 0");
+		while (this.rights[node] != NIL)
+			node = this.rights[node];
+		return this.times[node];
+	}
+
+	/**
+	 * Counts the events at or before a time in one walk down the tree
+	 * @param time - time in milliseconds
+	 * @return int - number of events that happened at or before the time
+	 */
+	@Override
+	int countAtOrBefore(long time) {
+		int node = this.root;
+		int returnCount = 0;
+
+		while (node != NIL) {
+			if (this.times[node] <= time) {
+				returnCount += this.countOf(this.lefts[node]) + 1;
+				node = this.rights[node];
+			} else
+				node = this.lefts[node];
+		}
+
+		return returnCount;
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that makes a lone node, growing the arrays if they're full
+	 * @param time - time of the event
+	 * @return int - index of the node
+	 */
+	private int newNode(long time) {
+		int node = this.size++;
+
+		if (node == this.times.length) {
+			int capacity = this.times.length * 2;
+			this.times = Arrays.copyOf(this.times, capacity);
+			this.priorities = Arrays.copyOf(this.priorities, capacity);
+			this.lefts = Arrays.copyOf(this.lefts, capacity);
+			this.rights = Arrays.copyOf(this.rights, capacity);
+			this.counts = Arrays.copyOf(this.counts, capacity);
+		}
+
+		//Xorshift, plenty random for balancing
+		this.seed ^= this.seed << 13;
+		this.seed ^= this.seed >>> 17;
+		this.seed ^= this.seed << 5;
+
+		this.times[node] = time;
+		this.priorities[node] = this.seed;
+		this.lefts[node] = NIL;
+		this.rights[node] = NIL;
+		this.counts[node] = 1;
+		return node;
+	}
+
+	/**
+	 * Private helper that splits a tree into the events at or before a time, left in
+	 * splitLeft, and the events after it, left in splitRight
+	 * @param node - root of the tree to split
+	 * @param time - time to split at
+	 */
+	private void split(int node, long time) {
+		if (node == NIL) {
+			this.splitLeft = NIL;
+			this.splitRight = NIL;
+		} else if (this.times[node] <= time) {
+			this.split(this.rights[node], time);
+			this.rights[node] = this.splitLeft;
+			this.update(node);
+			this.splitLeft = node;
+		} else {
+			this.split(this.lefts[node], time);
+			this.lefts[node] = this.splitRight;
+			this.update(node);
+			this.splitRight = node;
+		}
+	}
+
+	/**
+	 * Private helper that joins two trees whose events are already in order
+	 * @param left - root of the earlier tree
+	 * @param right - root of the later tree
+	 * @return int - root of the joined tree
+	 */
+	private int merge(int left, int right) {
+		if (left == NIL)
+			return right;
+		if (right == NIL)
+			return left;
+
+		if (this.priorities[left] > this.priorities[right]) {
+			this.rights[left] = this.merge(this.rights[left], right);
+			this.update(left);
+			return left;
+		}
+		this.lefts[right] = this.merge(left, this.lefts[right]);
+		this.update(right);
+		return right;
+	}
+
+	/**
+	 * Private helper that recounts a node from its children
+	 * @param node - node to recount
+	 */
+	private void update(int node) {
+		this.counts[node] = this.countOf(this.lefts[node]) + this.countOf(this.rights[node]) + 1;
+	}
+
+	/**
+	 * Private helper for the number of nodes in a tree
+	 * @param node - root of the tree, may be NIL
+	 * @return int - number of nodes
+	 */
+	private int countOf(int node) {
+		return node == NIL ? 0 : this.counts[node];
+	}
+
+}
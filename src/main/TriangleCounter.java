@@ -0,0 +1,222 @@
+package main;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * TriangleCounter class counts the triangles in the links active at a date. Each link is
+ * oriented from the endpoint with the lower degree to the one with the higher degree, so a
+ * user only intersects against neighbors ranked above them and hubs never have to compare
+ * their whole neighbor lists against each other. Users are split across cores with fork/join.
+ * The calling thread waits for the count interruptibly; if it's interrupted, the tasks are
+ * told to stop through a shared flag, since the pool's threads never see the interrupt.
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class TriangleCounter {
+
+	//Number of users a task handles before it stops splitting
+	private static final int SEQUENTIAL_THRESHOLD = 512;
+
+	//Shared pool of daemon workers, sized to the number of cores
+	private static final ForkJoinPool SHARED_POOL = new ForkJoinPool();
+
+	private ForkJoinPool pool;
+
+	/**
+	 * Class constructor
+	 * Creates a counter that runs on a pool shared by all counters
+	 */
+	public TriangleCounter() {
+		this(SHARED_POOL);
+	}
+
+	/**
+	 * Class constructor
+	 * Creates a counter that runs on the given pool
+	 * @param pool - fork/join pool to run on
+	 * @throws NullPointerException
+	 */
+	public TriangleCounter(ForkJoinPool pool) {
+		if (pool == null)
+			throw new NullPointerException("Input parameter is null");
+		this.pool = pool;
+	}
+
+	/**
+	 * Counts triangles over every link in the network that is active at the given date
+	 * @param network - network to count in
+	 * @param date - date to check activity against
+	 * @return ClusteringReport - total and per user triangle counts
+	 * @throws UninitializedObjectException
+	 * @throws NullPointerException
+	 * @throws CancellationException
+	 */
+	public ClusteringReport count(SocialNetwork network, Date date) throws UninitializedObjectException {
+		ActiveGraph graph = new ActiveGraph(network, date);
+		int[][] higherNeighbors = TriangleCounter.orientByDegree(graph);
+		AtomicLongArray counts = new AtomicLongArray(graph.size());
+		AtomicBoolean cancelled = new AtomicBoolean(false);
+		CountTask task = new CountTask(higherNeighbors, counts, cancelled, 0, graph.size());
+		long[] triangles = new long[graph.size()];
+		long total;
+
+		//Unlike invoke, waiting on get lets an interrupt through
+		this.pool.execute(task);
+		try {
+			total = task.get();
+		} catch (InterruptedException e) {
+			cancelled.set(true);
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Count interrupted");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw (Error) e.getCause();
+		}
+		for (int i = 0; i < triangles.length; i++)
+			triangles[i] = counts.get(i);
+
+		return new ClusteringReport(graph, triangles, total);
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that keeps, for each user, only the neighbors ranked above them. Rank is
+	 * by degree with the index breaking ties, so every link points exactly one way and each
+	 * triangle is found once from its lowest ranked user.
+	 * @param graph - snapshot to orient
+	 * @return int[][] - sorted higher ranked neighbors of each user
+	 * @throws CancellationException
+	 */
+	private static int[][] orientByDegree(ActiveGraph graph) {
+		int[][] returnArray = new int[graph.size()][];
+		int[] neighbors;
+		int count;
+
+		for (int user = 0; user < graph.size(); user++) {
+			if (Thread.currentThread().isInterrupted())
+				throw new CancellationException("Count interrupted");
+			neighbors = graph.getNeighbors(user);
+			returnArray[user] = new int[neighbors.length];
+			count = 0;
+			//Neighbors are sorted, so the kept ones stay sorted
+			for (int neighbor: neighbors) {
+				if (TriangleCounter.ranksBelow(graph, user, neighbor))
+					returnArray[user][count++] = neighbor;
+			}
+			returnArray[user] = Arrays.copyOf(returnArray[user], count);
+		}
+
+		return returnArray;
+	}
+
+	/**
+	 * Private helper that decides if one user ranks below another
+	 * @param graph - snapshot holding degrees
+	 * @param first - index of the first user
+	 * @param second - index of the second user
+	 * @return boolean - true if first ranks below second
+	 */
+	private static boolean ranksBelow(ActiveGraph graph, int first, int second) {
+		int firstDegree = graph.degree(first);
+		int secondDegree = graph.degree(second);
+		return firstDegree < secondDegree || (firstDegree == secondDegree && first < second);
+	}
+
+	/**
+	 * Fork/join task that counts the triangles whose lowest ranked user falls in a range of indices
+	 */
+	@SuppressWarnings("serial")
+	private static class CountTask extends RecursiveTask<Long> {
+
+		private int[][]			higherNeighbors;	//Oriented adjacency
+		private AtomicLongArray	counts;				//Shared per user triangle counts
+		private AtomicBoolean	cancelled;			//Set once the caller stops waiting
+		private int				start;				//First user of the range
+		private int				end;				//One past the last user of the range
+
+		/**
+		 * Class constructor
+		 * @param higherNeighbors - oriented adjacency
+		 * @param counts - shared per user counts
+		 * @param cancelled - flag set once the caller stops waiting
+		 * @param start - first user of the range
+		 * @param end - one past the last user of the range
+		 */
+		CountTask(int[][] higherNeighbors, AtomicLongArray counts, AtomicBoolean cancelled, int start, int end) {
+			this.higherNeighbors = higherNeighbors;
+			this.counts = counts;
+			this.cancelled = cancelled;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * Splits the range in half until it's small enough, then intersects each user's
+		 * higher neighbors with those of every higher neighbor
+		 * @return Long - number of triangles found in the range
+		 * @throws CancellationException
+		 */
+		@Override
+		protected Long compute() {
+			long found = 0;
+
+			if (this.end - this.start > SEQUENTIAL_THRESHOLD) {
+				int middle = (this.start + this.end) >>> 1;
+				CountTask left = new CountTask(this.higherNeighbors, this.counts, this.cancelled, this.start, middle);
+				CountTask right = new CountTask(this.higherNeighbors, this.counts, this.cancelled, middle, this.end);
+				left.fork();
+				found = right.compute();
+				return found + left.join();
+			}
+
+			for (int user = this.start; user < this.end; user++) {
+				if (this.cancelled.get())
+					throw new CancellationException("Count cancelled");
+				for (int neighbor: this.higherNeighbors[user])
+					found += this.intersect(user, neighbor);
+			}
+
+			return found;
+		}
+
+		/**
+		 * Merges two sorted neighbor arrays and records a triangle for each shared neighbor
+		 * @param user - lowest ranked user of the triangles
+		 * @param neighbor - middle ranked user of the triangles
+		 * @return long - number of triangles found
+		 */
+		private long intersect(int user, int neighbor) {
+			int[] userList = this.higherNeighbors[user];
+			int[] neighborList = this.higherNeighbors[neighbor];
+			int userIdx = 0;
+			int neighborIdx = 0;
+			long found = 0;
+
+			while (userIdx < userList.length && neighborIdx < neighborList.length) {
+				if (userList[userIdx] < neighborList[neighborIdx])
+					userIdx++;
+				else if (userList[userIdx] > neighborList[neighborIdx])
+					neighborIdx++;
+				else {
+					this.counts.incrementAndGet(user);
+					this.counts.incrementAndGet(neighbor);
+					this.counts.incrementAndGet(userList[userIdx]);
+					found++;
+					userIdx++;
+					neighborIdx++;
+				}
+			}
+
+			return found;
+		}
+	}
+
+}
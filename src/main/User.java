@@ -1,5 +1,7 @@
 package main;
 
+import java.util.ArrayList;
+
 /**
  * User class for LinkedWith networking program
  * @author Adam Gleichsner (amg188@case.edu)
@@ -13,6 +15,7 @@ public class User {
 	private String		email;
 	private String		phoneNumber;
 	private boolean		isValid;	//If User has been initialized and set
+	private ArrayList<UserChangeListener> listeners;	//Told when a personal field changes
 	
 	/**
 	 * Class constructor
@@ -26,6 +29,7 @@ public class User {
 		this.email = null;
 		this.phoneNumber = null;
 		this.isValid = false;
+		this.listeners = new ArrayList<UserChangeListener>();
 	}
 	
 	//Getter Methods
@@ -90,7 +94,9 @@ public class User {
 		this.checkUserIsValid("User has not been initialized", "Can't set personal field of an invalid user");
 		this.checkNull(firstName, id);
 		
+		String oldValue = this.firstName;
 		this.firstName = firstName;
+		this.notifyListeners(UserChangeListener.Field.FIRST_NAME, oldValue, firstName);
 			
 		return this;
 	}
@@ -105,7 +111,9 @@ public class User {
 		this.checkUserIsValid("User has not been initialized", "Can't set personal field of an invalid user");
 		this.checkNull(middleName, id);
 		
+		String oldValue = this.middleName;
 		this.middleName = middleName;
+		this.notifyListeners(UserChangeListener.Field.MIDDLE_NAME, oldValue, middleName);
 		
 		return this;
 	}
@@ -120,7 +128,9 @@ public class User {
 		this.checkUserIsValid("User has not been initialized", "Can't set personal field of an invalid user");
 		this.checkNull(lastName, id); 
 		
+		String oldValue = this.lastName;
 		this.lastName = lastName;
+		this.notifyListeners(UserChangeListener.Field.LAST_NAME, oldValue, lastName);
 
 		return this;
 	}
@@ -135,7 +145,9 @@ public class User {
 		this.checkUserIsValid("User has not been initialized", "Can't set personal field of an invalid user");
 		this.checkNull(email, id);
 		
+		String oldValue = this.email;
 		this.email = email;
+		this.notifyListeners(UserChangeListener.Field.EMAIL, oldValue, email);
 		
 		return this;
 	}
@@ -150,7 +162,9 @@ public class User {
 		this.checkUserIsValid("User has not been initialized", "Can't set personal field of an invalid user");
 		this.checkNull(phoneNumber, id);
 		
+		String oldValue = this.phoneNumber;
 		this.phoneNumber = phoneNumber;
+		this.notifyListeners(UserChangeListener.Field.PHONE_NUMBER, oldValue, phoneNumber);
 
 		return this;
 	}
@@ -232,6 +246,33 @@ public class User {
 		return false;
 	}
 	
+	/**
+	 * Package-private helper that registers something to be told when a personal field changes
+	 * @param listener - listener to register
+	 */
+	void addChangeListener(UserChangeListener listener) {
+		this.listeners.add(listener);
+	}
+	
+	/**
+	 * Package-private helper that stops telling a listener about changes
+	 * @param listener - listener to remove
+	 */
+	void removeChangeListener(UserChangeListener listener) {
+		this.listeners.remove(listener);
+	}
+	
+	/**
+	 * Private helper that tells every listener a field has changed
+	 * @param field - field that changed
+	 * @param oldValue - value before the change
+	 * @param newValue - value after the change
+	 */
+	private void notifyListeners(UserChangeListener.Field field, String oldValue, String newValue) {
+		for (UserChangeListener listener: this.listeners)
+			listener.userChanged(this, field, oldValue, newValue);
+	}
+	
 	/**
 	 * Private helper method that will throw a NullPointerException if the input is null
 	 * @param input - any input objects to be checked
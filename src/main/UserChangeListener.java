@@ -0,0 +1,26 @@
+package main;
+
+/**
+ * UserChangeListener interface is told whenever a personal field of a user changes, so
+ * anything indexing users by those fields can keep up
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+interface UserChangeListener {
+
+	/**
+	 * Personal fields of a user that can change
+	 */
+	enum Field {
+		FIRST_NAME, MIDDLE_NAME, LAST_NAME, EMAIL, PHONE_NUMBER
+	}
+
+	/**
+	 * Called after a field of the user has been set
+	 * @param user - user that changed
+	 * @param field - field that changed
+	 * @param oldValue - value before the change, null if it wasn't set
+	 * @param newValue - value after the change
+	 */
+	void userChanged(User user, Field field, String oldValue, String newValue);
+
+}
@@ -0,0 +1,235 @@
+package main;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * UserIndex class finds members by id, email, phone number, or the start of any of their
+ * names without scanning every user. It listens to each member it holds, so setting a
+ * field on a member moves them to the right entries right away. Emails and names are
+ * matched ignoring case, and phone numbers are matched on their digits alone, so
+ * "(216) 555-0100" finds "216.555.0100".
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+class UserIndex implements UserChangeListener {
+
+	private HashMap<String, User>			byID;		//Members by id
+	private HashMap<String, Set<User>>		byEmail;	//Members by lower case email
+	private HashMap<String, Set<User>>		byPhone;	//Members by phone number digits
+	private TreeMap<String, Set<User>>		byName;		//Members by each lower case name, sorted for prefix search
+
+	/**
+	 * Class constructor
+	 * Creates an empty index
+	 */
+	UserIndex() {
+		this.byID = new HashMap<String, User>();
+		this.byEmail = new HashMap<String, Set<User>>();
+		this.byPhone = new HashMap<String, Set<User>>();
+		this.byName = new TreeMap<String, Set<User>>();
+	}
+
+	/**
+	 * Indexes a new member under their current fields and starts listening for changes
+	 * @param user - member to index
+	 */
+	void add(User user) {
+		this.byID.put(user.getID(), user);
+		UserIndex.put(this.byEmail, UserIndex.normalizeEmail(user.getEmail()), user);
+		UserIndex.put(this.byPhone, UserIndex.normalizePhone(user.getPhoneNumber()), user);
+		for (String name: new String[] {user.getFirstName(), user.getMiddleName(), user.getLastName()})
+			UserIndex.put(this.byName, UserIndex.normalizeName(name), user);
+		user.addChangeListener(this);
+	}
+
+	/**
+	 * Takes a member out of every entry and stops listening to them
+	 * @param user - member to remove
+	 */
+	void remove(User user) {
+		this.byID.remove(user.getID());
+		UserIndex.take(this.byEmail, UserIndex.normalizeEmail(user.getEmail()), user);
+		UserIndex.take(this.byPhone, UserIndex.normalizePhone(user.getPhoneNumber()), user);
+		for (String name: new String[] {user.getFirstName(), user.getMiddleName(), user.getLastName()})
+			UserIndex.take(this.byName, UserIndex.normalizeName(name), user);
+		user.removeChangeListener(this);
+	}
+
+	/**
+	 * Finds a member by id
+	 * @param id - id of the member
+	 * @return User - the member, null if none
+	 */
+	User getUser(String id) {
+		return this.byID.get(id);
+	}
+
+	/**
+	 * Finds the members with an email, ignoring case
+	 * @param email - email to look for
+	 * @return Set<User> - matching members, empty if none
+	 */
+	Set<User> findByEmail(String email) {
+		return UserIndex.copy(this.byEmail.get(UserIndex.normalizeEmail(email)));
+	}
+
+	/**
+	 * Finds the members with a phone number, comparing digits only
+	 * @param phoneNumber - phone number to look for
+	 * @return Set<User> - matching members, empty if none
+	 */
+	Set<User> findByPhoneNumber(String phoneNumber) {
+		return UserIndex.copy(this.byPhone.get(UserIndex.normalizePhone(phoneNumber)));
+	}
+
+	/**
+	 * Finds the members with a first, middle or last name starting with a prefix, ignoring case
+	 * @param prefix - start of the name
+	 * @return Set<User> - matching members, empty if none
+	 */
+	Set<User> findByNamePrefix(String prefix) {
+		Set<User> returnSet = new HashSet<User>();
+		String start = UserIndex.normalizeName(prefix);
+
+		//Every name starting with the prefix sorts between it and the prefix followed by the last char
+		for (Set<User> users: this.byName.subMap(start, true, start + Character.MAX_VALUE, false).values())
+			returnSet.addAll(users);
+
+		return returnSet;
+	}
+
+	/**
+	 * Moves a member from the entry for the old value of a field to the entry for the new one
+	 * @param user - member that changed
+	 * @param field - field that changed
+	 * @param oldValue - value before the change
+	 * @param newValue - value after the change
+	 */
+	@Override
+	public void userChanged(User user, Field field, String oldValue, String newValue) {
+		switch (field) {
+		case EMAIL:
+			UserIndex.take(this.byEmail, UserIndex.normalizeEmail(oldValue), user);
+			UserIndex.put(this.byEmail, UserIndex.normalizeEmail(newValue), user);
+			break;
+		case PHONE_NUMBER:
+			UserIndex.take(this.byPhone, UserIndex.normalizePhone(oldValue), user);
+			UserIndex.put(this.byPhone, UserIndex.normalizePhone(newValue), user);
+			break;
+		default:
+			//The same name can be in two fields, so only drop it if neither of the others still has it
+			if (!UserIndex.hasOtherName(user, field, oldValue))
+				UserIndex.take(this.byName, UserIndex.normalizeName(oldValue), user);
+			UserIndex.put(this.byName, UserIndex.normalizeName(newValue), user);
+			break;
+		}
+	}
+
+	//Private Methods
+
+	/**
+	 * Private helper that adds a member to the entry for a key, doing nothing for a null key
+	 * @param map - index to add to
+	 * @param key - key of the entry
+	 * @param user - member to add
+	 */
+	private static void put(Map<String, Set<User>> map, String key, User user) {
+		Set<User> users;
+
+		if (key == null)
+			return;
+		users = map.get(key);
+		if (users == null) {
+			users = new HashSet<User>();
+			map.put(key, users);
+		}
+		users.add(user);
+	}
+
+	/**
+	 * Private helper that removes a member from the entry for a key, dropping the entry once empty
+	 * @param map - index to remove from
+	 * @param key - key of the entry
+	 * @param user - member to remove
+	 */
+	private static void take(Map<String, Set<User>> map, String key, User user) {
+		Set<User> users;
+
+		if (key == null)
+			return;
+		users = map.get(key);
+		if (users != null) {
+			users.remove(user);
+			if (users.isEmpty())
+				map.remove(key);
+		}
+	}
+
+	/**
+	 * Private helper that checks if a name is still in one of the user's other name fields
+	 * @param user - user to check
+	 * @param field - name field that changed
+	 * @param name - old value of that field
+	 * @return boolean - true if another name field matches the name
+	 */
+	private static boolean hasOtherName(User user, Field field, String name) {
+		String key = UserIndex.normalizeName(name);
+
+		if (key == null)
+			return false;
+		return (field != Field.FIRST_NAME && key.equals(UserIndex.normalizeName(user.getFirstName())))
+				|| (field != Field.MIDDLE_NAME && key.equals(UserIndex.normalizeName(user.getMiddleName())))
+				|| (field != Field.LAST_NAME && key.equals(UserIndex.normalizeName(user.getLastName())));
+	}
+
+	/**
+	 * Private helper that copies an entry so callers can't change the index
+	 * @param users - entry to copy, may be null
+	 * @return Set<User> - copy of the entry, empty if null
+	 */
+	private static Set<User> copy(Set<User> users) {
+		return users == null ? new HashSet<User>() : new HashSet<User>(users);
+	}
+
+	/**
+	 * Private helper for the key of an email
+	 * @param email - email, may be null
+	 * @return String - trimmed lower case email, null if none
+	 */
+	private static String normalizeEmail(String email) {
+		return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Private helper for the key of a phone number
+	 * @param phoneNumber - phone number, may be null
+	 * @return String - digits of the phone number, null if none or if it has no digits
+	 */
+	private static String normalizePhone(String phoneNumber) {
+		StringBuilder returnString;
+
+		if (phoneNumber == null)
+			return null;
+		returnString = new StringBuilder(phoneNumber.length());
+		for (int i = 0; i < phoneNumber.length(); i++) {
+			if (Character.isDigit(phoneNumber.charAt(i)))
+				returnString.append(phoneNumber.charAt(i));
+		}
+		//A number without digits says nothing, so it shouldn't match every other such number
+		return returnString.length() == 0 ? null : returnString.toString();
+	}
+
+	/**
+	 * Private helper for the key of a name
+	 * @param name - name, may be null
+	 * @return String - trimmed lower case name, null if none
+	 */
+	private static String normalizeName(String name) {
+		return name == null ? null : name.trim().toLowerCase(Locale.ROOT);
+	}
+
+}
@@ -1,5 +1,6 @@
 package tests;
 
+import main.CompressedTimelineTest;
 import main.FriendTest;
 
 import org.junit.runner.RunWith;
@@ -7,7 +8,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ LinkTest.class, SocialNetworkTest.class, UserTest.class, FriendTest.class })
+@SuiteClasses({ LinkTest.class, SocialNetworkTest.class, UserTest.class, FriendTest.class, DistanceOracleTest.class, ShardedSocialNetworkTest.class, AsyncSocialNetworkTest.class, ChangeFeedTest.class, GraphExporterTest.class, GraphImporterTest.class, BatchQueryExecutorTest.class, CompressedTimelineTest.class })
 public class AllTests {
 
 }
@@ -0,0 +1,281 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import main.AsyncResult;
+import main.AsyncSocialNetwork;
+import main.CompletionListener;
+import main.Friend;
+import main.NeighborhoodDelta;
+import main.SocialNetwork;
+import main.SocialNetworkStatus;
+import main.UninitializedObjectException;
+import main.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit testing for the AsyncSocialNetwork class
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class AsyncSocialNetworkTest {
+
+	//General variables to be used during testing
+	SocialNetwork network;
+	AsyncSocialNetwork async;
+	Date date1;
+	Date date2;
+	SocialNetworkStatus status;
+	
+	/**
+	 * Setup an empty network behind a facade with one thread
+	 */
+	@Before
+	public void setupTests() {
+		this.network = new SocialNetwork();
+		this.async = new AsyncSocialNetwork(this.network, 1);
+		this.date1 = new Date(951886800000L);		//Mar 1, 2000
+		this.date2 = new Date(954565200000L);		//Apr 1, 2000
+		this.status = new SocialNetworkStatus();
+	}
+	
+	/**
+	 * Stop the facade's threads
+	 */
+	@After
+	public void tearDownTests() {
+		this.async.shutdown();
+	}
+	
+	/**
+	 * Test that calls made through the facade give the same answers as the network
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 * @throws TimeoutException
+	 */
+	@Test
+	public void testResults() throws InterruptedException, ExecutionException, TimeoutException {
+		Set<String> idSet = new HashSet<String>();
+		Set<Friend> friends;
+		
+		for (String id: new String[] {"1", "2", "3"})
+			assertTrue("Users should be added", this.async.addUser(this.makeUser(id)).get(5, TimeUnit.SECONDS));
+		assertTrue("Added users should be members", this.async.isMember("2").get(5, TimeUnit.SECONDS));
+		assertEquals("Added users should be found", "3", this.async.getUser("3").get(5, TimeUnit.SECONDS).getID());
+		
+		idSet.add("1");
+		idSet.add("2");
+		assertTrue("Link should be established", this.async.establishLink(idSet, this.date1, this.status).get(5, TimeUnit.SECONDS));
+		assertEquals("Status code should be SUCCESS", this.status.getStatus(), SocialNetworkStatus.StatusCode.SUCCESS);
+		idSet.remove("1");
+		idSet.add("3");
+		assertTrue("Link should be established", this.async.establishLink(idSet, this.date2, this.status).get(5, TimeUnit.SECONDS));
+		
+		assertTrue("Link should be active", this.async.isActive(idSet, this.date2).get(5, TimeUnit.SECONDS));
+		assertFalse("Link shouldn't be active before it was made", this.async.isActive(idSet, this.date1).get(5, TimeUnit.SECONDS));
+		
+		friends = this.async.neighborhood("1", this.date2, this.status).get(5, TimeUnit.SECONDS);
+		assertEquals("Neighborhood should hold both other users", 2, friends.size());
+		friends = this.async.neighborhood("1", this.date2, 0, this.status).get(5, TimeUnit.SECONDS);
+		assertEquals("Neighborhood at distance 0 should hold direct friends", 1, friends.size());
+		assertEquals("Trend should have an entry per event date", 2, this.async.neighborhoodTrend("1", this.status).get(5, TimeUnit.SECONDS).size());
+		assertTrue("Users should be connected", this.async.areConnected("1", "3", this.date2).get(5, TimeUnit.SECONDS));
+		assertEquals("Component should hold all three users", 3, (int) this.async.componentSizeAt("1", this.date2).get(5, TimeUnit.SECONDS));
+		
+		this.async.neighborhood("42", this.date2, this.status).get(5, TimeUnit.SECONDS);
+		assertEquals("Status should be filled in once the future completes", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_USERS);
+	}
+	
+	/**
+	 * Test that cancelling a long trend stops it and frees the only thread for the next call
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 * @throws TimeoutException
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testCancellation() throws InterruptedException, ExecutionException, TimeoutException, UninitializedObjectException {
+		Set<String> idSet = new HashSet<String>();
+		Future<?> trend;
+		int chainLength = 3000;
+		
+		for (int i = 0; i < chainLength; i++)
+			this.network.addUser(this.makeUser(Integer.toString(i)));
+		for (int i = 1; i < chainLength; i++) {
+			idSet.clear();
+			idSet.add(Integer.toString(i - 1));
+			idSet.add(Integer.toString(i));
+			this.network.establishLink(idSet, new Date(this.date1.getTime() + i), this.status);
+		}
+		
+		trend = this.async.neighborhoodTrend("0", this.status);
+		Thread.sleep(50);
+		assertTrue("Trend should still be running when cancelled", trend.cancel(true));
+		assertTrue("Trend should be cancelled", trend.isCancelled());
+		assertTrue("The thread should be free again soon after cancelling", this.async.isMember("0").get(5, TimeUnit.SECONDS));
+	}
+	
+	/**
+	 * Test that cancelling a long estimate stops the work itself, so the only thread and the
+	 * read lock are free again long before the estimate would have finished
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 * @throws TimeoutException
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testCancelEstimate() throws InterruptedException, ExecutionException, TimeoutException, UninitializedObjectException {
+		Set<String> idSet = new HashSet<String>();
+		Future<?> estimate;
+		int chainLength = 1000;
+		long cancelledAt;
+		
+		for (int i = 0; i < chainLength; i++)
+			this.network.addUser(this.makeUser(Integer.toString(i)));
+		for (int i = 1; i < chainLength; i++) {
+			idSet.clear();
+			idSet.add(Integer.toString(i - 1));
+			idSet.add(Integer.toString(i));
+			this.network.establishLink(idSet, this.date1, this.status);
+		}
+		
+		//Every level merges big counters along the whole chain, so all of them take many seconds
+		estimate = this.async.approximateNeighborhoodSizes(this.date2, chainLength, 14, this.status);
+		Thread.sleep(50);
+		assertTrue("Estimate should still be running when cancelled", estimate.cancel(true));
+		cancelledAt = System.currentTimeMillis();
+		assertTrue("A change should get the write lock soon after cancelling", this.async.addUser(this.makeUser("late")).get(5, TimeUnit.SECONDS));
+		assertTrue("The estimate should stop within a second, took " + (System.currentTimeMillis() - cancelledAt) + "ms", System.currentTimeMillis() - cancelledAt < 1000);
+	}
+	
+	/**
+	 * Test that the later queries give the same answers through the facade as on the network
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 * @throws TimeoutException
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testLaterQueries() throws InterruptedException, ExecutionException, TimeoutException, UninitializedObjectException {
+		Set<String> idSet = new HashSet<String>();
+		List<Set<String>> pairs = new ArrayList<Set<String>>();
+		List<Date> dates = new ArrayList<Date>();
+		NeighborhoodDelta delta;
+		BitSet bits;
+		
+		for (String id: new String[] {"1", "2", "3"})
+			this.network.addUser(this.makeUser(id).setLastName("Smith"));
+		idSet.add("1");
+		idSet.add("2");
+		this.network.establishLink(idSet, this.date2, this.status);
+		pairs.add(new HashSet<String>(idSet));
+		idSet.remove("1");
+		idSet.add("3");
+		assertTrue("Past history should be backfilled", this.async.backfillLink(idSet, this.date1, new Date(this.date1.getTime() + 1), this.status).get(5, TimeUnit.SECONDS));
+		pairs.add(new HashSet<String>(idSet));
+		dates.add(this.date1);
+		dates.add(this.date2);
+		
+		bits = this.async.isActive(pairs, dates).get(5, TimeUnit.SECONDS);
+		assertEquals("Batch activity should match the network", bits, this.network.isActive(pairs, dates));
+		assertTrue("Backfilled link should be active at its establish date", bits.get(2));
+		assertTrue("Histogram should match the network", Arrays.equals(this.async.distanceHistogram("1", this.date2, this.status).get(5, TimeUnit.SECONDS), this.network.distanceHistogram("1", this.date2, this.status)));
+		assertTrue("Histogram should match the network", Arrays.equals(this.async.distanceHistogram("3", this.date1, 2, this.status).get(5, TimeUnit.SECONDS), this.network.distanceHistogram("3", this.date1, 2, this.status)));
+		delta = this.async.neighborhoodDiff("1", this.date1, this.date2, this.status).get(5, TimeUnit.SECONDS);
+		assertEquals("Diff should see the new friend", delta.getAdded().size(), 1);
+		delta = this.async.neighborhoodDiff("3", this.date1, this.date2, 0, this.status).get(5, TimeUnit.SECONDS);
+		assertEquals("Diff should see the friend leave", delta.getRemoved().size(), 1);
+		assertEquals("Search should find the user by name", this.async.searchUsersByName("Smith", 1, 10, this.status).get(5, TimeUnit.SECONDS).size(), 3);
+		assertEquals("Search should skip the searcher", this.async.searchUsersByName("Smith", 1, 10, "1", this.date2, 1, this.status).get(5, TimeUnit.SECONDS).size(), 2);
+	}
+	
+	/**
+	 * Test that completion listeners are called once, whether added before or after the call
+	 * finishes, and when it's cancelled
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 * @throws TimeoutException
+	 */
+	@Test
+	public void testCompletionListeners() throws InterruptedException, ExecutionException, TimeoutException {
+		final List<Boolean> results = new ArrayList<Boolean>();
+		final CountDownLatch called = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Future<Boolean>> cancelled = new ArrayList<Future<Boolean>>();
+		AsyncResult<Boolean> result;
+		AsyncResult<Boolean> queued;
+		AsyncSocialNetwork held;
+		ExecutorService executor;
+		CompletionListener<Boolean> recorder = new CompletionListener<Boolean>() {
+			@Override
+			public void completed(Future<Boolean> future) {
+				try {
+					results.add(future.get());
+				} catch (Exception e) {
+					results.add(null);
+				}
+				called.countDown();
+			}
+		};
+		
+		result = this.async.addUser(this.makeUser("1")).addListener(recorder);
+		assertTrue("Listener should be called when the call finishes", called.await(5, TimeUnit.SECONDS));
+		assertTrue("Call should have finished", result.get(5, TimeUnit.SECONDS));
+		result.addListener(recorder);
+		assertEquals("Listener added after the call should be called right away", results, Arrays.asList(true, true));
+		
+		//Hold the only thread so the next call stays queued until cancelled
+		executor = Executors.newSingleThreadExecutor();
+		held = new AsyncSocialNetwork(this.network, executor);
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		queued = held.isMember("1").addListener(new CompletionListener<Boolean>() {
+			@Override
+			public void completed(Future<Boolean> future) {
+				cancelled.add(future);
+			}
+		});
+		assertTrue("Queued call should cancel", queued.cancel(false));
+		release.countDown();
+		held.shutdown();
+		assertEquals("Listener should be told about the cancel", cancelled.size(), 1);
+		assertTrue("Listener should see the cancelled call", cancelled.get(0).isCancelled());
+	}
+	
+	/**
+	 * Helper that makes a user with the given id
+	 * @param id - id of the user
+	 * @return User - the new user
+	 */
+	private User makeUser(String id) {
+		User user = new User();
+		user.setID(id);
+		return user;
+	}
+	
+}
@@ -0,0 +1,303 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import main.BatchQueryExecutor;
+import main.Friend;
+import main.SocialNetwork;
+import main.SocialNetworkStatus;
+import main.UninitializedObjectException;
+import main.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit testing for the BatchQueryExecutor class
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class BatchQueryExecutorTest {
+
+	//General variables to be used during testing
+	SocialNetwork network;
+	BatchQueryExecutor executor;
+	Date date1;
+	Date date2;
+	SocialNetworkStatus status;
+	
+	/**
+	 * Setup an empty network behind an executor that only runs batches when flushed
+	 */
+	@Before
+	public void setupTests() {
+		this.network = new SocialNetwork();
+		this.executor = new BatchQueryExecutor(this.network, 1000);
+		this.date1 = new Date(951886800000L);		//Mar 1, 2000
+		this.date2 = new Date(954565200000L);		//Apr 1, 2000
+		this.status = new SocialNetworkStatus();
+	}
+	
+	/**
+	 * Stop the executor's thread
+	 */
+	@After
+	public void tearDownTests() {
+		this.executor.close();
+	}
+	
+	/**
+	 * Test that a batch over a random network gives the same answers as the network, while
+	 * building one snapshot per date
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 * @throws TimeoutException
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testResults() throws InterruptedException, ExecutionException, TimeoutException, UninitializedObjectException {
+		Random random = new Random(47);
+		Date[] dates = {this.date1, this.date2};
+		List<Set<String>> pairs = new ArrayList<Set<String>>();
+		List<Future<Boolean>> active = new ArrayList<Future<Boolean>>();
+		List<Future<Set<Friend>>> neighborhoods = new ArrayList<Future<Set<Friend>>>();
+		List<SocialNetworkStatus> statuses = new ArrayList<SocialNetworkStatus>();
+		Future<Integer> distance;
+		
+		for (int i = 0; i < 30; i++)
+			this.network.addUser(this.makeUser("u" + i));
+		for (int i = 0; i < 60; i++) {
+			Set<String> pair = new HashSet<String>();
+			pair.add("u" + random.nextInt(30));
+			pair.add("u" + random.nextInt(30));
+			this.network.establishLink(pair, new Date(this.date1.getTime() - random.nextInt(1000000)), this.status);
+			if (random.nextBoolean())
+				this.network.tearDownLink(pair, new Date(this.date1.getTime() + random.nextInt(1000000)), this.status);
+			pairs.add(pair);
+		}
+		
+		for (Date date: dates) {
+			for (Set<String> pair: pairs)
+				active.add(this.executor.isActive(pair, date));
+			for (int i = 0; i < 30; i++) {
+				statuses.add(new SocialNetworkStatus());
+				neighborhoods.add(this.executor.neighborhood("u" + i, date, i % 4, statuses.get(statuses.size() - 1)));
+			}
+		}
+		assertFalse("Nothing should be answered before the batch runs", active.get(0).isDone());
+		this.executor.flush();
+		
+		assertEquals("One batch should have run", this.executor.getBatchCount(), 1L);
+		assertEquals("One snapshot per date should have been built", this.executor.getGraphCount(), 2L);
+		for (int d = 0; d < dates.length; d++) {
+			for (int i = 0; i < pairs.size(); i++)
+				assertEquals("Activity should match the network", active.get(d * pairs.size() + i).get(5, TimeUnit.SECONDS), (Boolean) this.network.isActive(pairs.get(i), dates[d]));
+			for (int i = 0; i < 30; i++) {
+				assertEquals("Neighborhood should match the network", this.distancesOf(neighborhoods.get(d * 30 + i).get(5, TimeUnit.SECONDS)), this.distancesOf(this.network.neighborhood("u" + i, dates[d], i % 4, this.status)));
+				assertEquals("Status code should be SUCCESS", statuses.get(d * 30 + i).getStatus(), SocialNetworkStatus.StatusCode.SUCCESS);
+			}
+		}
+		
+		distance = this.executor.distance("u0", "u0", this.date1);
+		this.executor.flush();
+		assertEquals("A user should be no distance from themselves", distance.get(5, TimeUnit.SECONDS), (Integer) (-1));
+	}
+	
+	/**
+	 * Test distances along a chain, and queries for users that aren't members
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 * @throws TimeoutException
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testDistanceAndInvalid() throws InterruptedException, ExecutionException, TimeoutException, UninitializedObjectException {
+		Set<String> pair = new HashSet<String>();
+		SocialNetworkStatus missing = new SocialNetworkStatus();
+		SocialNetworkStatus negative = new SocialNetworkStatus();
+		Future<Integer> far;
+		Future<Integer> near;
+		Future<Integer> unreachable;
+		Future<Set<Friend>> noUser;
+		Future<Set<Friend>> noDistance;
+		
+		for (int i = 0; i < 6; i++)
+			this.network.addUser(this.makeUser("c" + i));
+		for (int i = 0; i < 4; i++) {
+			pair.clear();
+			pair.add("c" + i);
+			pair.add("c" + (i + 1));
+			this.network.establishLink(pair, this.date1, this.status);
+		}
+		
+		far = this.executor.distance("c0", "c4", this.date2);
+		near = this.executor.distance("c0", "c1", this.date2);
+		unreachable = this.executor.distance("c0", "c5", this.date2);
+		noUser = this.executor.neighborhood("nobody", this.date2, 2, missing);
+		noDistance = this.executor.neighborhood("c0", this.date2, -1, negative);
+		this.executor.flush();
+		
+		assertEquals("Chain ends should be three apart", far.get(5, TimeUnit.SECONDS), (Integer) 3);
+		assertEquals("Direct friends should be no distance apart", near.get(5, TimeUnit.SECONDS), (Integer) 0);
+		assertEquals("Unconnected users should have no distance", unreachable.get(5, TimeUnit.SECONDS), (Integer) (-1));
+		assertNull("Missing users should have no neighborhood", noUser.get(5, TimeUnit.SECONDS));
+		assertEquals("Status code should be INVALID_USERS", missing.getStatus(), SocialNetworkStatus.StatusCode.INVALID_USERS);
+		assertNull("Negative distances should have no neighborhood", noDistance.get(5, TimeUnit.SECONDS));
+		assertEquals("Status code should be INVALID_DISTANCE", negative.getStatus(), SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+		assertEquals("One snapshot should answer all the queries", this.executor.getGraphCount(), 1L);
+	}
+	
+	/**
+	 * Test that a distance query sharing a search with a deeper neighborhood query doesn't
+	 * cut the neighborhood short, in either order
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 * @throws TimeoutException
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testMixedQueriesOnOneSource() throws InterruptedException, ExecutionException, TimeoutException, UninitializedObjectException {
+		Set<String> pair = new HashSet<String>();
+		Future<Set<Friend>> before;
+		Future<Set<Friend>> after;
+		Future<Integer> near;
+		Future<Integer> far;
+		
+		for (String id: new String[] {"a", "b", "c", "d"})
+			this.network.addUser(this.makeUser(id));
+		for (String[] link: new String[][] {{"a", "b"}, {"b", "c"}, {"c", "d"}}) {
+			pair.clear();
+			pair.add(link[0]);
+			pair.add(link[1]);
+			this.network.establishLink(pair, this.date1, this.status);
+		}
+		
+		before = this.executor.neighborhood("a", this.date2, 3, this.status);
+		near = this.executor.distance("a", "b", this.date2);
+		this.executor.flush();
+		assertEquals("A near target shouldn't cut the neighborhood short", this.distancesOf(before.get(5, TimeUnit.SECONDS)), this.distancesOf(this.network.neighborhood("a", this.date2, 3, this.status)));
+		assertEquals("Direct friends should be no distance apart", near.get(5, TimeUnit.SECONDS), (Integer) 0);
+		
+		far = this.executor.distance("a", "d", this.date2);
+		after = this.executor.neighborhood("a", this.date2, 0, this.status);
+		this.executor.flush();
+		assertEquals("A shallow neighborhood should stay shallow", this.distancesOf(after.get(5, TimeUnit.SECONDS)), this.distancesOf(this.network.neighborhood("a", this.date2, 0, this.status)));
+		assertEquals("Far targets should still be reached", far.get(5, TimeUnit.SECONDS), (Integer) 2);
+	}
+	
+	/**
+	 * Test that a batch runs on its own once its window closes or it fills up
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 * @throws TimeoutException
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testTriggers() throws InterruptedException, ExecutionException, TimeoutException, UninitializedObjectException {
+		BatchQueryExecutor quick = new BatchQueryExecutor(this.network, new ReentrantReadWriteLock().readLock(), 10, 1000);
+		BatchQueryExecutor small = new BatchQueryExecutor(this.network, 2);
+		Set<String> pair = new HashSet<String>();
+		Future<Boolean> first;
+		
+		this.network.addUser(this.makeUser("1"));
+		this.network.addUser(this.makeUser("2"));
+		pair.add("1");
+		pair.add("2");
+		this.network.establishLink(pair, this.date1, this.status);
+		
+		try {
+			assertTrue("Batch should run when its window closes", quick.isActive(pair, this.date2).get(5, TimeUnit.SECONDS));
+			
+			first = small.isActive(pair, this.date2);
+			assertFalse("Batch shouldn't run before it fills", first.isDone());
+			assertFalse("Link shouldn't be active before it's established", small.isActive(pair, new Date(this.date1.getTime() - 1000)).get(5, TimeUnit.SECONDS));
+			assertTrue("Batch should run once it fills", first.isDone());
+			assertEquals("Both dates should have been snapshotted", small.getGraphCount(), 2L);
+		} finally {
+			quick.close();
+			small.close();
+		}
+	}
+	
+	/**
+	 * Test that a batch waits for a change holding the other side of its lock, and that
+	 * batches without a lock never run on their own
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 * @throws TimeoutException
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testLocking() throws InterruptedException, ExecutionException, TimeoutException, UninitializedObjectException {
+		ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+		BatchQueryExecutor locked = new BatchQueryExecutor(this.network, lock.readLock(), 10, 1000);
+		Set<String> pair = new HashSet<String>();
+		Future<Boolean> during;
+		Future<Boolean> unscheduled;
+		
+		this.network.addUser(this.makeUser("1"));
+		this.network.addUser(this.makeUser("2"));
+		pair.add("1");
+		pair.add("2");
+		
+		try {
+			lock.writeLock().lock();
+			try {
+				during = locked.isActive(pair, this.date2);
+				Thread.sleep(100);
+				assertFalse("Batch shouldn't run while a change holds the lock", during.isDone());
+				this.network.establishLink(pair, this.date1, this.status);
+			} finally {
+				lock.writeLock().unlock();
+			}
+			assertTrue("Batch should run once the change is done and see it", during.get(5, TimeUnit.SECONDS));
+			
+			unscheduled = this.executor.isActive(pair, this.date2);
+			Thread.sleep(100);
+			assertFalse("Batch without a lock should wait for flush", unscheduled.isDone());
+			this.executor.flush();
+			assertTrue("Flush should answer the batch", unscheduled.get(5, TimeUnit.SECONDS));
+		} finally {
+			locked.close();
+		}
+	}
+	
+	/**
+	 * Helper that maps each friend's id to their distance, since friends don't hash by value
+	 * @param friends - friends to map
+	 * @return Map<String, Integer> - ids and distances
+	 * @throws UninitializedObjectException
+	 */
+	private Map<String, Integer> distancesOf(Set<Friend> friends) throws UninitializedObjectException {
+		Map<String, Integer> returnMap = new HashMap<String, Integer>();
+		for (Friend friend: friends)
+			returnMap.put(friend.getUser().getID(), friend.getDistance());
+		return returnMap;
+	}
+	
+	/**
+	 * Helper that makes a user with just an id
+	 * @param id - id of the user
+	 * @return User - the user
+	 */
+	private User makeUser(String id) {
+		User user = new User();
+		user.setID(id);
+		return user;
+	}
+	
+}
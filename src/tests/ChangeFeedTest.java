@@ -0,0 +1,283 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import main.ChangeEvent;
+import main.ChangeFeed;
+import main.ChangeListener;
+import main.SocialNetwork;
+import main.SocialNetworkStatus;
+import main.UninitializedObjectException;
+import main.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit testing for the ChangeFeed class
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class ChangeFeedTest {
+
+	//General variables to be used during testing
+	SocialNetwork network;
+	ChangeFeed feed;
+	Date date1;
+	Date date2;
+	SocialNetworkStatus status;
+	
+	/**
+	 * Setup an empty network
+	 */
+	@Before
+	public void setupTests() {
+		this.network = new SocialNetwork();
+		this.date1 = new Date(951886800000L);		//Mar 1, 2000
+		this.date2 = new Date(954565200000L);		//Apr 1, 2000
+		this.status = new SocialNetworkStatus();
+	}
+	
+	/**
+	 * Stop the feed's threads
+	 */
+	@After
+	public void tearDownTests() {
+		if (this.feed != null)
+			this.feed.close();
+	}
+	
+	/**
+	 * Test that every successful change reaches the subscriber in order, and failed ones don't
+	 * @throws UninitializedObjectException
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testPublishing() throws UninitializedObjectException, InterruptedException {
+		final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+		ChangeFeed.Subscription subscription;
+		Set<String> idSet = new HashSet<String>();
+		
+		this.feed = new ChangeFeed(16, ChangeFeed.OverflowPolicy.BLOCK);
+		subscription = this.feed.subscribe(new ChangeListener() {
+			@Override
+			public void onEvent(ChangeEvent event, long sequence, boolean endOfBatch) {
+				received.add(sequence + " " + event.toString());
+			}
+		});
+		this.network.setChangeFeed(this.feed);
+		
+		this.addUser("2");
+		this.addUser("1");
+		this.addUser("1");
+		idSet.add("1");
+		idSet.add("2");
+		this.network.establishLink(idSet, this.date1, this.status);
+		this.network.establishLink(idSet, this.date2, this.status);
+		this.network.tearDownLink(idSet, this.date2, this.status);
+		this.network.purgeLink(idSet, this.status);
+		this.network.removeUser("2", this.status);
+		
+		assertEquals("Only successful changes are published", this.feed.getCursor(), 5);
+		this.awaitCaughtUp(subscription);
+		assertEquals("Events should arrive in order", received.get(0), "0 USER_ADDED 2");
+		assertEquals("Events should arrive in order", received.get(1), "1 USER_ADDED 1");
+		assertEquals("Link events put the lower id first", received.get(2), "2 LINK_ESTABLISHED 1 and 2 at " + this.date1.getTime());
+		assertEquals("Tear downs should be published", received.get(3), "3 LINK_TORN_DOWN 1 and 2 at " + this.date2.getTime());
+		assertEquals("Purges should be published", received.get(4), "4 LINK_PURGED 1 and 2 at " + ChangeEvent.NO_TIME);
+		assertEquals("Removals should be published", received.get(5), "5 USER_REMOVED 2");
+		
+		subscription.close();
+		this.addUser("3");
+		Thread.sleep(50);
+		assertEquals("Closed subscriptions get nothing more", received.size(), 6);
+	}
+	
+	/**
+	 * Test that a stuck subscriber makes the feed drop new events under DROP_NEWEST
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testDropNewest() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		ChangeFeed.Subscription subscription;
+		
+		this.feed = new ChangeFeed(4, ChangeFeed.OverflowPolicy.DROP_NEWEST);
+		subscription = this.feed.subscribe(this.stuckListener(release));
+		this.network.setChangeFeed(this.feed);
+		
+		for (int i = 0; i < 20; i++)
+			this.addUser(Integer.toString(i));
+		
+		assertTrue("Events past a full ring should be dropped", this.feed.getDroppedCount() >= 20 - 1 - this.feed.getCapacity());
+		assertTrue("Every user should still be added", this.network.isMember("19"));
+		release.countDown();
+		this.awaitCaughtUp(subscription);
+		assertEquals("Kept events are never lost", subscription.getLostCount(), 0);
+	}
+	
+	/**
+	 * Test that a stuck subscriber skips overwritten events under DROP_OLDEST
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testDropOldest() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		ChangeFeed.Subscription subscription;
+		
+		this.feed = new ChangeFeed(4, ChangeFeed.OverflowPolicy.DROP_OLDEST);
+		subscription = this.feed.subscribe(this.stuckListener(release));
+		this.network.setChangeFeed(this.feed);
+		
+		for (int i = 0; i < 20; i++)
+			this.addUser(Integer.toString(i));
+		
+		assertEquals("Nothing is dropped on publish", this.feed.getDroppedCount(), 0);
+		release.countDown();
+		this.awaitCaughtUp(subscription);
+		assertTrue("The subscriber should have skipped overwritten events", subscription.getLostCount() > 0);
+	}
+	
+	/**
+	 * Test that a subscriber racing the producer under DROP_OLDEST never gets an event whose
+	 * contents came from a later lap of the ring than its sequence
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testDropOldestNeverTorn() throws InterruptedException {
+		final List<String> mismatches = Collections.synchronizedList(new ArrayList<String>());
+		ChangeFeed.Subscription subscription;
+		
+		this.feed = new ChangeFeed(2, ChangeFeed.OverflowPolicy.DROP_OLDEST);
+		subscription = this.feed.subscribe(new ChangeListener() {
+			@Override
+			public void onEvent(ChangeEvent event, long sequence, boolean endOfBatch) {
+				//Only users are added, so each event's user id is its sequence
+				if (!Long.toString(sequence).equals(event.getFirstID()) || event.getType() != ChangeEvent.Type.USER_ADDED)
+					mismatches.add(sequence + ": " + event);
+			}
+		});
+		this.network.setChangeFeed(this.feed);
+		
+		for (int i = 0; i < 20000; i++)
+			this.addUser(Integer.toString(i));
+		
+		this.awaitCaughtUp(subscription);
+		assertEquals("No event should mix up contents and sequence", mismatches.size(), 0);
+	}
+	
+	/**
+	 * Test that a stuck subscriber makes the network wait under BLOCK, and nothing is lost
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testBlock() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(1);
+		final ChangeFeed.Subscription subscription;
+		Thread producer;
+		
+		this.feed = new ChangeFeed(4, ChangeFeed.OverflowPolicy.BLOCK);
+		subscription = this.feed.subscribe(this.stuckListener(release));
+		this.network.setChangeFeed(this.feed);
+		
+		producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < 20; i++)
+					addUser(Integer.toString(i));
+				done.countDown();
+			}
+		});
+		producer.setDaemon(true);
+		producer.start();
+		
+		assertFalse("The producer should wait for the stuck subscriber", done.await(100, TimeUnit.MILLISECONDS));
+		release.countDown();
+		assertTrue("The producer should finish once the subscriber moves", done.await(5, TimeUnit.SECONDS));
+		this.awaitCaughtUp(subscription);
+		assertEquals("Nothing is dropped", this.feed.getDroppedCount(), 0);
+		assertEquals("Nothing is lost", subscription.getLostCount(), 0);
+		assertEquals("Every event is read", subscription.getSequence(), 19);
+	}
+	
+	/**
+	 * Test that a listener that throws is counted and keeps getting the events after it
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testListenerFailures() throws InterruptedException {
+		final List<Long> received = Collections.synchronizedList(new ArrayList<Long>());
+		ChangeFeed.Subscription subscription;
+		
+		this.feed = new ChangeFeed(16, ChangeFeed.OverflowPolicy.BLOCK);
+		subscription = this.feed.subscribe(new ChangeListener() {
+			@Override
+			public void onEvent(ChangeEvent event, long sequence, boolean endOfBatch) {
+				if (sequence % 2 == 1)
+					throw new IllegalStateException("Failed on " + sequence);
+				received.add(sequence);
+			}
+		});
+		this.network.setChangeFeed(this.feed);
+		
+		assertEquals("Nothing has failed yet", subscription.getLastFailure(), null);
+		for (int i = 0; i < 6; i++)
+			this.addUser(Integer.toString(i));
+		
+		this.awaitCaughtUp(subscription);
+		assertEquals("Every throwing event should be counted", subscription.getFailureCount(), 3);
+		assertEquals("The last exception should be kept", subscription.getLastFailure().getMessage(), "Failed on 5");
+		assertEquals("Events after a failure should still arrive", received.size(), 3);
+	}
+	
+	/**
+	 * Helper that adds a fresh user with the given id
+	 * @param id - id of the user
+	 */
+	private void addUser(String id) {
+		User user = new User();
+		user.setID(id);
+		this.network.addUser(user);
+	}
+	
+	/**
+	 * Helper that makes a listener that waits on the latch before returning from its first event
+	 * @param release - latch to wait on
+	 * @return ChangeListener - the stuck listener
+	 */
+	private ChangeListener stuckListener(final CountDownLatch release) {
+		return new ChangeListener() {
+			@Override
+			public void onEvent(ChangeEvent event, long sequence, boolean endOfBatch) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+	}
+	
+	/**
+	 * Helper that waits until the subscriber has read everything published
+	 * @param subscription - subscription to wait on
+	 * @throws InterruptedException
+	 */
+	private void awaitCaughtUp(ChangeFeed.Subscription subscription) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (subscription.getSequence() < this.feed.getCursor() && System.currentTimeMillis() < deadline)
+			Thread.sleep(1);
+		assertEquals("Subscriber should catch up", subscription.getSequence(), this.feed.getCursor());
+	}
+	
+}
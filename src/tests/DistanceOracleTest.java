@@ -0,0 +1,130 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import main.DistanceOracle;
+import main.SocialNetwork;
+import main.SocialNetworkStatus;
+import main.UninitializedObjectException;
+import main.User;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit testing for the DistanceOracle class
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class DistanceOracleTest {
+
+	//General variables to be used during testing
+	SocialNetwork network;
+	Date date1;
+	Date date2;
+	SocialNetworkStatus status;
+	
+	/**
+	 * Setup a chain of users 1 through 6 with a hub linked to 1, 3 and 5, plus an unlinked user
+	 * @throws UninitializedObjectException
+	 */
+	@Before
+	public void setupTests() throws UninitializedObjectException {
+		this.network = new SocialNetwork();
+		this.date1 = new Date(951886800000L);		//Mar 1, 2000
+		this.date2 = new Date(954565200000L);		//Apr 1, 2000
+		this.status = new SocialNetworkStatus();
+		
+		for (String id: new String[] {"1", "2", "3", "4", "5", "6", "hub", "alone"}) {
+			User user = new User();
+			user.setID(id);
+			this.network.addUser(user);
+		}
+		for (int i = 1; i < 6; i++)
+			this.link(Integer.toString(i), Integer.toString(i + 1));
+		this.link("hub", "1");
+		this.link("hub", "3");
+		this.link("hub", "5");
+	}
+	
+	/**
+	 * Test that answers match neighborhood() semantics, whether they come from the bounds or a search
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testWithinDistance() throws UninitializedObjectException {
+		DistanceOracle oracle = new DistanceOracle(this.network, this.date2, 1);
+		
+		assertFalse("Nonexistent users are never within distance", oracle.isWithinDistance("1", "42", 3, this.status));
+		assertEquals("Status code should be INVALID_USERS", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_USERS);
+		assertFalse("Negative distances are invalid", oracle.isWithinDistance("1", "2", -1, this.status));
+		assertEquals("Status code should be INVALID_DISTANCE", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+		
+		assertTrue("Directly linked users are at distance 0", oracle.isWithinDistance("1", "2", 0, this.status));
+		assertEquals("Status code should be SUCCESS", this.status.getStatus(), SocialNetworkStatus.StatusCode.SUCCESS);
+		assertFalse("A user isn't in their own neighborhood", oracle.isWithinDistance("1", "1", 3, this.status));
+		assertTrue("Users two links apart through the hub are at distance 1", oracle.isWithinDistance("1", "5", 1, this.status));
+		assertFalse("Users two links apart aren't at distance 0", oracle.isWithinDistance("1", "5", 0, this.status));
+		assertTrue("Users three links apart are at distance 2", oracle.isWithinDistance("2", "5", 2, this.status));
+		assertFalse("Users three links apart aren't at distance 1", oracle.isWithinDistance("2", "5", 1, this.status));
+		assertFalse("Users in different components are never within distance", oracle.isWithinDistance("alone", "1", 10, this.status));
+		
+		assertTrue("Some queries should be decided by the bounds alone", oracle.getBoundAnswerCount() > 0);
+		assertTrue("Some queries should need a search", oracle.getSearchAnswerCount() > 0);
+	}
+	
+	/**
+	 * Test that the oracle only counts links active at its date and notices new links
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testRebuild() throws UninitializedObjectException {
+		DistanceOracle oracle = new DistanceOracle(this.network, this.date1, 2);
+		
+		assertFalse("Links established after the date don't count", oracle.isWithinDistance("1", "2", 5, this.status));
+		
+		oracle = new DistanceOracle(this.network, this.date2, 2);
+		assertFalse("Unlinked users aren't within distance", oracle.isWithinDistance("alone", "6", 0, this.status));
+		this.link("alone", "6");
+		assertTrue("Oracle should rebuild once the network changes", oracle.isWithinDistance("alone", "6", 0, this.status));
+		assertTrue("Rebuilt oracle should reach further users too", oracle.isWithinDistance("alone", "hub", 2, this.status));
+	}
+	
+	/**
+	 * Test that one oracle answering every query in a row agrees with a new oracle per query,
+	 * so no search is misled by the users an earlier search reached
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testRepeatedQueries() throws UninitializedObjectException {
+		String[] ids = {"1", "2", "3", "4", "5", "6", "hub", "alone"};
+		DistanceOracle oracle = new DistanceOracle(this.network, this.date2, 1);
+		
+		for (int distance = 0; distance < 4; distance++) {
+			for (String idA: ids) {
+				for (String idB: ids) {
+					boolean expected = new DistanceOracle(this.network, this.date2, 1).isWithinDistance(idA, idB, distance, this.status);
+					assertEquals("Answer for " + idA + " and " + idB + " within " + distance + " should match a new oracle", oracle.isWithinDistance(idA, idB, distance, this.status), expected);
+				}
+			}
+		}
+		assertTrue("Some queries should need a search", oracle.getSearchAnswerCount() > 1);
+	}
+	
+	/**
+	 * Helper that establishes a link between two users on the second date
+	 * @param id1 - id of the first user
+	 * @param id2 - id of the second user
+	 * @throws UninitializedObjectException
+	 */
+	private void link(String id1, String id2) throws UninitializedObjectException {
+		Set<String> idSet = new HashSet<String>();
+		idSet.add(id1);
+		idSet.add(id2);
+		this.network.establishLink(idSet, this.date2, this.status);
+	}
+
+}
@@ -0,0 +1,149 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import main.GraphExporter;
+import main.SocialNetwork;
+import main.SocialNetworkStatus;
+import main.UninitializedObjectException;
+import main.User;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit testing for the GraphExporter class
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class GraphExporterTest {
+
+	//General variables to be used during testing
+	SocialNetwork network;
+	GraphExporter exporter;
+	Date date1;
+	Date date2;
+	SocialNetworkStatus status;
+	
+	/**
+	 * Setup a small network: a and b linked and torn down, b and c linked
+	 * @throws UninitializedObjectException
+	 */
+	@Before
+	public void setupTests() throws UninitializedObjectException {
+		User user;
+		
+		this.network = new SocialNetwork();
+		this.exporter = new GraphExporter(this.network);
+		this.date1 = new Date(951886800000L);		//Mar 1, 2000
+		this.date2 = new Date(954565200000L);		//Apr 1, 2000
+		this.status = new SocialNetworkStatus();
+		
+		for (String id: new String[] {"a", "b", "c"}) {
+			user = new User();
+			user.setID(id);
+			this.network.addUser(user);
+		}
+		this.network.getUser("a").setFirstName("Smith, \"Jo\"");
+		this.network.getUser("b").setLastName("Zo\u00EB <&>");
+		this.network.establishLink(this.pair("b", "a"), date1, status);
+		this.network.tearDownLink(this.pair("a", "b"), date2, status);
+		this.network.establishLink(this.pair("b", "c"), date2, status);
+	}
+	
+	/**
+	 * Test the edge list holds every user and event, with fields quoted where needed
+	 * @throws IOException
+	 */
+	@Test
+	public void testEdgeList() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long bytes = this.exporter.writeEdgeList(Channels.newChannel(out), null);
+		List<String> lines = Arrays.asList(out.toString("UTF-8").split("\n"));
+		
+		assertEquals("Every byte is counted", bytes, out.size());
+		assertEquals("Three users and three events", lines.size(), 6);
+		assertTrue("Fields with commas and quotes are quoted", lines.contains("U,a,\"Smith, \"\"Jo\"\"\",,,,"));
+		assertTrue("Other characters are written as UTF-8", lines.contains("U,b,,,Zo\u00EB <&>,,"));
+		assertTrue("Establishes are written lower id first", lines.contains("E,a,b," + date1.getTime()));
+		assertTrue("Tear downs follow their establish", lines.indexOf("T,a,b," + date2.getTime()) == lines.indexOf("E,a,b," + date1.getTime()) + 1);
+		assertTrue("Every link is written", lines.contains("E,b,c," + date2.getTime()));
+		
+		out.reset();
+		this.exporter.writeEdgeList(Channels.newChannel(out), date2);
+		lines = Arrays.asList(out.toString("UTF-8").split("\n"));
+		assertEquals("Only links active at the date are written", lines.size(), 4);
+		assertTrue("The active link is written", lines.contains("E,b,c," + date2.getTime()));
+	}
+	
+	/**
+	 * Test the GraphML holds nodes and edges, escaped where needed
+	 * @throws IOException
+	 */
+	@Test
+	public void testGraphML() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		String xml;
+		
+		this.exporter.writeGraphML(Channels.newChannel(out), null);
+		xml = out.toString("UTF-8");
+		
+		assertTrue("Documents are closed", xml.endsWith("</graphml>\n"));
+		assertTrue("Fields are escaped", xml.contains("<node id=\"b\"><data key=\"lastName\">Zo\u00EB &lt;&amp;&gt;</data></node>"));
+		assertTrue("Quotes in fields are escaped", xml.contains("Smith, &quot;Jo&quot;"));
+		assertTrue("Edges list their events", xml.contains("<edge source=\"a\" target=\"b\"><data key=\"events\">" + date1.getTime() + " " + date2.getTime() + "</data></edge>"));
+		
+		out.reset();
+		this.exporter.writeGraphML(Channels.newChannel(out), date1);
+		xml = out.toString("UTF-8");
+		assertFalse("Links inactive at the date are left out", xml.contains("target=\"c\""));
+	}
+	
+	/**
+	 * Test that exports bigger than the buffer come out whole
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testLargeExport() throws IOException, UninitializedObjectException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		String[] lines;
+		User user;
+		
+		for (int i = 0; i < 5000; i++) {
+			user = new User();
+			user.setID("user" + i);
+			this.network.addUser(user);
+			if (i > 0)
+				this.network.establishLink(this.pair("user" + i, "user" + (i - 1)), new Date(i), status);
+		}
+		
+		assertTrue("Exports can be bigger than the buffer", this.exporter.writeEdgeList(Channels.newChannel(out), null) > GraphExporter.BUFFER_SIZE);
+		lines = out.toString("UTF-8").split("\n");
+		assertEquals("Every user and event is written", lines.length, 5003 + 4999 + 3);
+		for (String line: lines)
+			assertTrue("No record is cut off", line.matches("U,.*,.*,.*,.*,.*,.*|[ET],[^,]+,[^,]+,[0-9]+"));
+	}
+	
+	/**
+	 * Helper that makes a set of two ids
+	 * @param id1 - first id
+	 * @param id2 - second id
+	 * @return Set<String> - the ids
+	 */
+	private Set<String> pair(String id1, String id2) {
+		Set<String> returnSet = new HashSet<String>();
+		returnSet.add(id1);
+		returnSet.add(id2);
+		return returnSet;
+	}
+
+}
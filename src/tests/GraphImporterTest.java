@@ -0,0 +1,170 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import main.GraphExporter;
+import main.GraphImporter;
+import main.SocialNetwork;
+import main.SocialNetworkStatus;
+import main.UninitializedObjectException;
+import main.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit testing for the GraphImporter class
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class GraphImporterTest {
+
+	//General variables to be used during testing
+	SocialNetwork network;
+	File file;
+	Date date1;
+	SocialNetworkStatus status;
+	
+	/**
+	 * Setup an empty network and a scratch file
+	 * @throws IOException
+	 */
+	@Before
+	public void setupTests() throws IOException {
+		this.network = new SocialNetwork();
+		this.file = File.createTempFile("edges", ".csv");
+		this.date1 = new Date(951886800000L);		//Mar 1, 2000
+		this.status = new SocialNetworkStatus();
+	}
+	
+	/**
+	 * Delete the scratch file
+	 */
+	@After
+	public void tearDownTests() {
+		this.file.delete();
+	}
+	
+	/**
+	 * Test that an exported network comes back the same through many small chunks
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testRoundTrip() throws IOException, UninitializedObjectException {
+		SocialNetwork copy = new SocialNetwork();
+		Random random = new Random(46);
+		FileOutputStream out;
+		Set<String> idSet;
+		User user;
+		long events = 0;
+		
+		for (int i = 0; i < 40; i++) {
+			user = new User();
+			user.setID("user" + i);
+			this.network.addUser(user);
+		}
+		this.network.getUser("user0").setFirstName("Smith, \"Jo\"").setEmail("jo@case.edu");
+		this.network.getUser("user1").setLastName("Zo\u00EB");
+		for (int i = 0; i < 600; i++) {
+			idSet = this.pair("user" + random.nextInt(40), "user" + random.nextInt(40));
+			if (idSet.size() < 2)
+				continue;
+			if (this.network.establishLink(idSet, new Date(date1.getTime() + i), status) || this.network.tearDownLink(idSet, new Date(date1.getTime() + i), status))
+				events++;
+		}
+		//A history long enough to be compressed
+		for (int i = 0; i < 300; i++) {
+			idSet = this.pair("user0", "user1");
+			if (this.network.establishLink(idSet, new Date(date1.getTime() + 1000 + i), status) || this.network.tearDownLink(idSet, new Date(date1.getTime() + 1000 + i), status))
+				events++;
+		}
+		
+		out = new FileOutputStream(this.file);
+		try {
+			new GraphExporter(this.network).writeEdgeList(out.getChannel(), null);
+		} finally {
+			out.close();
+		}
+		
+		assertEquals("Every event is imported", new GraphImporter(4, 97).importEdgeList(this.file.toPath(), copy), events);
+		assertEquals("Fields with quotes come back", copy.getUser("user0").getFirstName(), "Smith, \"Jo\"");
+		assertEquals("Other fields come back", copy.getUser("user0").getEmail(), "jo@case.edu");
+		assertEquals("Other characters come back", copy.getUser("user1").getLastName(), "Zo\u00EB");
+		assertEquals("Imported users are indexed", copy.findUsersByEmail("jo@case.edu").size(), 1);
+		for (int i = 0; i < 40; i++) {
+			for (int j = i + 1; j < 40; j++) {
+				idSet = this.pair("user" + i, "user" + j);
+				for (long time = -1; time < 1301; time += 7)
+					assertEquals("Histories match", copy.isActive(idSet, new Date(date1.getTime() + time)), this.network.isActive(idSet, new Date(date1.getTime() + time)));
+			}
+		}
+	}
+	
+	/**
+	 * Test that bad files add nothing, and that links the network already has are replayed
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testBadFilesAndExistingLinks() throws IOException, UninitializedObjectException {
+		GraphImporter importer = new GraphImporter(2, 8);
+		
+		this.write("U,a\r\nE,a,b,100\r\nT,a,b,50\r\n");
+		try {
+			importer.importEdgeList(this.file.toPath(), this.network);
+			fail("Out of order events should be rejected");
+		} catch (IOException e) {
+			assertTrue("Nothing is added from a bad file", this.network.getUser("a") == null);
+		}
+		
+		this.write("U,a\nE,a,b,oops\n");
+		try {
+			importer.importEdgeList(this.file.toPath(), this.network);
+			fail("Malformed records should be rejected");
+		} catch (IOException e) {
+			assertTrue("Errors say where the record is", e.getMessage().contains("byte 4"));
+		}
+		
+		this.write("U,a\r\nE,a,b,100\r\nT,a,b,200\r\n\r\n");
+		assertEquals("Windows line breaks are fine", importer.importEdgeList(this.file.toPath(), this.network), 2);
+		assertTrue("Ids only seen in events become users", this.network.isMember("b"));
+		
+		this.write("E,\"a\",b,300\n");
+		assertEquals("Events for existing links are replayed", importer.importEdgeList(this.file.toPath(), this.network), 1);
+		assertTrue("Replayed events count", this.network.isActive(this.pair("a", "b"), new Date(300)));
+		assertEquals("Replayed events still get checked", importer.importEdgeList(this.file.toPath(), this.network), 0);
+	}
+	
+	/**
+	 * Helper that writes text to the scratch file
+	 * @param text - text to write
+	 * @throws IOException
+	 */
+	private void write(String text) throws IOException {
+		Files.write(this.file.toPath(), text.getBytes("UTF-8"));
+	}
+	
+	/**
+	 * Helper that makes a set of two ids
+	 * @param id1 - first id
+	 * @param id2 - second id
+	 * @return Set<String> - the ids
+	 */
+	private Set<String> pair(String id1, String id2) {
+		Set<String> returnSet = new HashSet<String>();
+		returnSet.add(id1);
+		returnSet.add(id2);
+		return returnSet;
+	}
+
+}
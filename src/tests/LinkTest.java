@@ -2,8 +2,11 @@ package tests;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 
 import main.Link;
@@ -268,5 +271,95 @@ public class LinkTest {
 		assertEquals("One event should produce an additional established link", this.link.toString(), "Link between User ID: 1 and User ID: 2\nLink established on Sat Jan 01 00:00:00 EST 2000\nLink torn down on Tue Feb 01 00:00:00 EST 2000\n");
 	}
 	
+	/**
+	 * Test that a link keeps answering the same once its history is long enough to be compressed,
+	 * with gaps from a millisecond to years and several events on one date
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testLongHistory() throws UninitializedObjectException {
+		ArrayList<Date> events = new ArrayList<Date>();
+		Random random = new Random(35);
+		long time = 946702800000L;		//Jan 1, 2000
+		Set<User> rightSet = new HashSet<User>();
+		rightSet.add(user1);
+		rightSet.add(user2);
+		this.link.setUsers(rightSet, this.status);
+		
+		for (int i = 0; i < 1000; i++) {
+			time += random.nextInt(4) == 0 ? 0 : 1 + (long) random.nextInt(1 << random.nextInt(31));
+			Date date = new Date(time);
+			if (i % 2 == 0)
+				assertTrue("Establish should succeed", this.link.establish(date, this.status));
+			else
+				assertTrue("Tear down should succeed", this.link.tearDown(date, this.status));
+			events.add(date);
+		}
+		
+		assertEquals("Every event should be kept in order", this.link.getLinks(), events);
+		assertEquals("First event should be the first establish", this.link.firstEvent(), events.get(0));
+		for (int i = 0; i < events.size(); i++) {
+			Date date = events.get(i);
+			int count = events.lastIndexOf(date) + 1;
+			Date before = new Date(date.getTime() - 1);
+			assertEquals("Activity at an event should count every event on that date", this.link.isActive(date), count % 2 == 1);
+			assertEquals("Next event should skip every event on that date", this.link.nextEvent(date), count < events.size() ? events.get(count) : null);
+			assertEquals("Next event before a date should be the first event on it", this.link.nextEvent(before), events.get(events.indexOf(date)));
+		}
+		assertFalse("Link shouldn't be active before its first event", this.link.isActive(new Date(946702800000L - 1)));
+		assertFalse("Out of order events should still be rejected", this.link.establish(events.get(500), this.status));
+		assertEquals("Status code should be INVALID_DATE", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_DATE);
+	}
+	
+	/**
+	 * Tests that establish and tear down pairs can be backfilled anywhere in a link's history
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testBackfill() throws UninitializedObjectException {
+		ArrayList<Integer> slots = new ArrayList<Integer>();
+		ArrayList<Date> events = new ArrayList<Date>();
+		Random random = new Random(44);
+		long start = 946702800000L;		//Jan 1, 2000
+		Set<User> rightSet = new HashSet<User>();
+		rightSet.add(user1);
+		rightSet.add(user2);
+		this.link.setUsers(rightSet, this.status);
+		
+		//Each slot is a thousand milliseconds wide and holds one pair
+		for (int i = 0; i < 600; i++)
+			slots.add(i);
+		Collections.shuffle(slots, random);
+		assertTrue("The latest slot goes in like a normal establish", this.link.establish(new Date(start + 599 * 1000L), this.status));
+		assertTrue("The latest slot goes in like a normal tear down", this.link.tearDown(new Date(start + 599 * 1000L + 500), this.status));
+		for (int slot: slots) {
+			if (slot == 599)
+				continue;
+			assertTrue("Pairs in free stretches of history go in", this.link.backfill(new Date(start + slot * 1000L), new Date(start + slot * 1000L + 500), this.status));
+			assertEquals("Status code should be SUCCESS", this.status.getStatus(), SocialNetworkStatus.StatusCode.SUCCESS);
+		}
+		for (int slot = 0; slot < 600; slot++) {
+			events.add(new Date(start + slot * 1000L));
+			events.add(new Date(start + slot * 1000L + 500));
+		}
+		
+		assertEquals("Every event should be kept in order", this.link.getLinks(), events);
+		for (int i = 0; i < events.size(); i++) {
+			Date date = events.get(i);
+			assertEquals("Activity alternates at each event", this.link.isActive(date), i % 2 == 0);
+			assertEquals("Activity holds between events", this.link.isActive(new Date(date.getTime() + 250)), i % 2 == 0);
+			assertEquals("Next event is the following one", this.link.nextEvent(date), i + 1 < events.size() ? events.get(i + 1) : null);
+		}
+		
+		assertFalse("Pairs can't overlap an active stretch", this.link.backfill(new Date(start + 100), new Date(start + 200), this.status));
+		assertEquals("Status code should be ALREADY_ACTIVE", this.status.getStatus(), SocialNetworkStatus.StatusCode.ALREADY_ACTIVE);
+		assertFalse("Pairs can't cover other events", this.link.backfill(new Date(start + 600), new Date(start + 1200), this.status));
+		assertEquals("Status code should be INVALID_DATE", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_DATE);
+		assertFalse("Pairs must tear down after they establish", this.link.backfill(new Date(start + 800), new Date(start + 700), this.status));
+		assertEquals("Status code should be INVALID_DATE", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_DATE);
+		assertTrue("Links keep taking new events after a backfill", this.link.establish(new Date(start + 600 * 1000L), this.status));
+		assertTrue("New events count after a backfill", this.link.isActive(new Date(start + 600 * 1000L)));
+	}
+	
 
 }
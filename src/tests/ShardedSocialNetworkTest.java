@@ -0,0 +1,144 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import main.Friend;
+import main.ShardedSocialNetwork;
+import main.SocialNetworkStatus;
+import main.UninitializedObjectException;
+import main.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit testing for the ShardedSocialNetwork class, using worker JVMs on this machine
+ * @author Adam Gleichsner (amg188@case.edu)
+ */
+public class ShardedSocialNetworkTest {
+
+	//General variables to be used during testing
+	ShardedSocialNetwork network;
+	Date date1;
+	Date date2;
+	SocialNetworkStatus status;
+	
+	/**
+	 * Start three local shards before each test
+	 * @throws IOException
+	 */
+	@Before
+	public void setupTests() throws IOException {
+		this.network = ShardedSocialNetwork.launchLocal(3);
+		this.date1 = new Date(951886800000L);		//Mar 1, 2000
+		this.date2 = new Date(954565200000L);		//Apr 1, 2000
+		this.status = new SocialNetworkStatus();
+	}
+	
+	/**
+	 * Shut the shards down after each test
+	 * @throws IOException
+	 */
+	@After
+	public void tearDownTests() throws IOException {
+		this.network.close();
+	}
+	
+	/**
+	 * Test that users are routed to their shard and keep their fields
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testUsers() throws IOException, UninitializedObjectException {
+		User user = new User();
+		user.setID("1");
+		user.setFirstName("Bill");
+		
+		assertEquals("Network should have three shards", this.network.getShardCount(), 3);
+		assertFalse("Cannot be a member if not added", this.network.isMember("1"));
+		assertTrue("Member should be added if not previously in the system", this.network.addUser(user));
+		assertFalse("Member cannot be readded once put into the system", this.network.addUser(user));
+		assertTrue("Must be a member if added to system", this.network.isMember("1"));
+		assertEquals("Member should be retrievable", this.network.getUser("1"), user);
+		assertEquals("Member fields should survive the trip to the shard", this.network.getUser("1").getFirstName(), "Bill");
+		assertNull("Cannot get a member that doesn't exist", this.network.getUser("2"));
+	}
+	
+	/**
+	 * Test links between users on the same and different shards, and a search across shards
+	 * @throws IOException
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testLinksAndNeighborhood() throws IOException, UninitializedObjectException {
+		Map<String, Integer> expected = new HashMap<String, Integer>();
+		Set<Friend> friends;
+		
+		for (int i = 0; i < 12; i++) {
+			User user = new User();
+			user.setID(Integer.toString(i));
+			this.network.addUser(user);
+		}
+		
+		assertFalse("Links need two members", this.network.establishLink(this.pair("0", "42"), this.date1, this.status));
+		assertEquals("Status code should be INVALID_USERS", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_USERS);
+		
+		//A chain 0 - 1 - ... - 9, which crosses shards many times
+		for (int i = 0; i < 9; i++)
+			assertTrue("Link should be established", this.network.establishLink(this.pair(Integer.toString(i), Integer.toString(i + 1)), this.date1, this.status));
+		assertFalse("Cannot re-establish an active link", this.network.establishLink(this.pair("1", "0"), this.date2, this.status));
+		assertEquals("Status code should be ALREADY_ACTIVE", this.status.getStatus(), SocialNetworkStatus.StatusCode.ALREADY_ACTIVE);
+		
+		assertTrue("Link should be active from either side", this.network.isActive(this.pair("4", "3"), this.date1));
+		assertTrue("Tear down should reach both copies of a link", this.network.tearDownLink(this.pair("5", "6"), this.date2, this.status));
+		assertFalse("Torn down link should be inactive from one side", this.network.isActive(this.pair("5", "6"), this.date2));
+		assertFalse("Torn down link should be inactive from the other side", this.network.isActive(this.pair("6", "5"), this.date2));
+		
+		friends = this.network.neighborhood("0", this.date1, this.status);
+		assertEquals("Status code should be SUCCESS", this.status.getStatus(), SocialNetworkStatus.StatusCode.SUCCESS);
+		for (int i = 1; i < 10; i++)
+			expected.put(Integer.toString(i), i - 1);
+		assertEquals("Whole chain should be reached across shards", this.toMap(friends), expected);
+		
+		assertEquals("Torn down link should cut the chain", this.network.neighborhood("0", this.date2, this.status).size(), 5);
+		assertEquals("Distance limit should stop the search", this.network.neighborhood("0", this.date1, 2, this.status).size(), 3);
+		assertNull("Nonexistent users have no neighborhood", this.network.neighborhood("42", this.date1, this.status));
+		assertEquals("Status code should be INVALID_USERS", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_USERS);
+	}
+	
+	/**
+	 * Helper that makes a set of two ids
+	 * @param id1 - first id
+	 * @param id2 - second id
+	 * @return Set<String> - the pair
+	 */
+	private Set<String> pair(String id1, String id2) {
+		Set<String> returnSet = new HashSet<String>();
+		returnSet.add(id1);
+		returnSet.add(id2);
+		return returnSet;
+	}
+	
+	/**
+	 * Helper that maps the ids in a neighborhood to their distances
+	 * @param friends - neighborhood
+	 * @return Map<String, Integer> - ids to distances
+	 * @throws UninitializedObjectException
+	 */
+	private Map<String, Integer> toMap(Set<Friend> friends) throws UninitializedObjectException {
+		Map<String, Integer> returnMap = new HashMap<String, Integer>();
+		for (Friend friend: friends)
+			returnMap.put(friend.getUser().getID(), friend.getDistance());
+		return returnMap;
+	}
+
+}
@@ -2,15 +2,32 @@ package tests;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
+import main.ClusteringReport;
 import main.Friend;
+import main.NameMatch;
+import main.NeighborhoodDelta;
+import main.NeighborhoodListener;
+import main.NeighborhoodSizeEstimator;
+import main.QueryStats;
+import main.Recommendation;
+import main.ReorderWindow;
 import main.SocialNetwork;
 import main.SocialNetworkStatus;
+import main.StandingNeighborhood;
+import main.TimelineArena;
 import main.UninitializedObjectException;
 import main.User;
 
@@ -212,6 +229,1134 @@ public class SocialNetworkTest {
 		
 	}
 	
+	/**
+	 * Test friend recommendations ranked by mutual friends, with limits, exclusions, and
+	 * links that are inactive at the date
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testRecommendations() throws UninitializedObjectException {
+		List<Recommendation> recommendations;
+		Set<String> excluded = new HashSet<String>();
+		
+		this.addUsers("1", "2", "3", "4", "5", "6");
+		this.linkUsers(date1, "1", "2");
+		this.linkUsers(date1, "1", "3");
+		this.linkUsers(date1, "2", "4");
+		this.linkUsers(date1, "3", "4");
+		this.linkUsers(date1, "2", "5");
+		this.linkUsers(date2, "3", "6");
+		
+		assertNull("A nonexistent user should get no recommendations", this.network.recommendFriends("42", date1, 5, excluded, status));
+		assertEquals("Status code should be INVALID_USERS", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_USERS);
+		assertNull("A negative limit should get no recommendations", this.network.recommendFriends("1", date1, -1, excluded, status));
+		assertEquals("Status code should be INVALID_LIMIT", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_LIMIT);
+		
+		recommendations = this.network.recommendFriends("1", date1, 5, excluded, status);
+		assertEquals("Status code should be SUCCESS", this.status.getStatus(), SocialNetworkStatus.StatusCode.SUCCESS);
+		assertEquals("Only users at distance two that are active should be recommended", recommendations.size(), 2);
+		assertEquals("User with the most mutual friends should be first", recommendations.get(0).getUser().getID(), "4");
+		assertEquals("User 4 shares two mutual friends", recommendations.get(0).getMutualCount(), 2);
+		assertEquals("User 5 shares one mutual friend", recommendations.get(1).getUser().getID(), "5");
+		
+		recommendations = this.network.recommendFriends("1", date2, 1, excluded, status);
+		assertEquals("Limit should cap the number of recommendations", recommendations.size(), 1);
+		assertEquals("Limit should keep the best recommendation", recommendations.get(0).getUser().getID(), "4");
+		
+		recommendations = this.network.recommendFriends("1", date2, 5, excluded, status);
+		assertEquals("Ties should be broken by id", recommendations.get(1).getUser().getID(), "5");
+		assertEquals("Links established later should count at later dates", recommendations.get(2).getUser().getID(), "6");
+		
+		excluded.add("4");
+		recommendations = this.network.recommendFriends("1", date1, 5, excluded, status);
+		assertEquals("Excluded users should never be recommended", recommendations.size(), 1);
+		assertEquals("Remaining recommendation should be user 5", recommendations.get(0).getUser().getID(), "5");
+	}
+	
+	/**
+	 * Test triangle counts and clustering coefficients, including a network big enough
+	 * to be split across several fork/join tasks
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testClustering() throws UninitializedObjectException {
+		ClusteringReport report;
+		String[] ids = new String[600];
+		
+		this.addUsers("1", "2", "3", "4");
+		this.linkUsers(date1, "1", "2");
+		this.linkUsers(date1, "2", "3");
+		this.linkUsers(date2, "1", "3");
+		this.linkUsers(date1, "3", "4");
+		
+		report = this.network.clusteringReport(date1, status);
+		assertEquals("Status code should be SUCCESS", this.status.getStatus(), SocialNetworkStatus.StatusCode.SUCCESS);
+		assertEquals("Links that aren't active yet shouldn't close triangles", report.getTriangleCount(), 0);
+		assertEquals("A network without triangles should have a global coefficient of 0", report.getGlobalClusteringCoefficient(), 0.0, 0.0);
+		
+		report = this.network.clusteringReport(date2, status);
+		assertEquals("One triangle should be found once the third link is active", report.getTriangleCount(), 1);
+		assertEquals("Every user in the triangle should count it", report.getTriangleCount("1"), 1);
+		assertEquals("Users outside the triangle shouldn't count it", report.getTriangleCount("4"), 0);
+		assertEquals("A user whose two friends are linked has a coefficient of 1", report.getClusteringCoefficient("1"), 1.0, 0.0001);
+		assertEquals("A user with three friends and one linked pair has a coefficient of 1/3", report.getClusteringCoefficient("3"), 1.0 / 3, 0.0001);
+		assertEquals("A user with one friend has a coefficient of 0", report.getClusteringCoefficient("4"), 0.0, 0.0);
+		assertEquals("Global coefficient should be three triangles over five triples", report.getGlobalClusteringCoefficient(), 3.0 / 5, 0.0001);
+		
+		//Each user links to the next two, so every consecutive three form a triangle
+		this.network = new SocialNetwork();
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = Integer.toString(i);
+			this.addUsers(ids[i]);
+		}
+		for (int i = 0; i < ids.length - 1; i++) {
+			this.linkUsers(date1, ids[i], ids[i + 1]);
+			if (i < ids.length - 2)
+				this.linkUsers(date1, ids[i], ids[i + 2]);
+		}
+		report = this.network.clusteringReport(date1, status);
+		assertEquals("Split counting should find every triangle exactly once", report.getTriangleCount(), ids.length - 2);
+		assertEquals("A user in the middle of the chain is in three triangles", report.getTriangleCount("300"), 3);
+	}
+	
+	/**
+	 * Test connectivity and component sizes across establishes, tear downs, and changes made
+	 * after the index has already answered queries
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testConnectivity() throws UninitializedObjectException {
+		Date date3 = new Date(957153600000L);		//May 1, 2000
+		Set<String> idSet = new HashSet<String>();
+		
+		this.addUsers("1", "2", "3", "4");
+		this.linkUsers(date1, "1", "2");
+		this.linkUsers(date2, "2", "3");
+		idSet.add("1");
+		idSet.add("2");
+		this.network.tearDownLink(idSet, date3, status);
+		
+		assertTrue("Users are connected to themselves", this.network.areConnected("1", "1", date1));
+		assertFalse("Nonexistent users aren't connected", this.network.areConnected("1", "42", date1));
+		assertEquals("Nonexistent users have no component", this.network.componentSizeAt("42", date1), 0);
+		
+		assertTrue("Directly linked users should be connected", this.network.areConnected("1", "2", date1));
+		assertFalse("Links that aren't established yet shouldn't connect users", this.network.areConnected("1", "3", date1));
+		assertEquals("Component should have two users before the second link", this.network.componentSizeAt("1", date1), 2);
+		
+		assertTrue("Users should be connected through a path", this.network.areConnected("1", "3", date2));
+		assertEquals("Component should grow with the second link", this.network.componentSizeAt("3", date2), 3);
+		
+		assertFalse("Torn down links shouldn't connect users", this.network.areConnected("1", "3", date3));
+		assertTrue("Remaining links should still connect users", this.network.areConnected("2", "3", date3));
+		assertEquals("Component should shrink after the tear down", this.network.componentSizeAt("1", date3), 1);
+		assertEquals("A user with no links is in a component of one", this.network.componentSizeAt("4", date2), 1);
+		
+		//Asking an earlier date again should still be right after later ones were cached
+		assertFalse("Earlier dates should be unaffected by later queries", this.network.areConnected("1", "3", date1));
+		
+		this.linkUsers(date3, "3", "4");
+		assertTrue("New links should be picked up after the network changes", this.network.areConnected("2", "4", date3));
+		assertEquals("Component should include the newly linked user", this.network.componentSizeAt("4", date3), 3);
+	}
+	
+	/**
+	 * Test connectivity answers while users and links keep arriving between queries, in date
+	 * order and occasionally out of it, against the sizes of neighborhoods
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testConnectivityUnderLiveUpdates() throws UninitializedObjectException {
+		Random random = new Random(28);
+		Set<String> idSet = new HashSet<String>();
+		long now = date1.getTime();
+		int users = 2;
+		
+		this.addUsers("c0", "c1");
+		for (int step = 0; step < 300; step++) {
+			if (random.nextInt(10) == 0)
+				this.addUsers("c" + users++);
+			idSet.clear();
+			idSet.add("c" + random.nextInt(users));
+			idSet.add("c" + random.nextInt(users));
+			now += random.nextInt(3) * 1000L;
+			//Every so often an event is a little late
+			Date date = new Date(random.nextInt(15) == 0 ? now - 5000 : now);
+			if (random.nextInt(4) == 0)
+				this.network.tearDownLink(idSet, date, status);
+			else
+				this.network.establishLink(idSet, date, status);
+			
+			String id = "c" + random.nextInt(users);
+			Date asked = new Date(random.nextBoolean() ? now : date1.getTime() + random.nextInt((int) (now - date1.getTime() + 1)));
+			assertEquals("Components should match neighborhoods", this.network.componentSizeAt(id, asked), this.network.neighborhood(id, asked, status).size() + 1);
+		}
+	}
+	
+	/**
+	 * Test connectivity over a history long enough to be split into several checkpoint windows,
+	 * full of tear downs, asked about far more dates than are cached and in no order, then
+	 * again while new events spill into a new window
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testConnectivityAcrossCheckpoints() throws UninitializedObjectException {
+		Random random = new Random(280);
+		List<Set<String>> linked = new ArrayList<Set<String>>();
+		Set<String> idSet;
+		long now = date1.getTime();
+		int users = 600;
+		
+		for (int i = 0; i < users; i++)
+			this.addUsers("k" + i);
+		for (int step = 0; step < 5000; step++) {
+			if (step == 4000)
+				assertEquals("First query should index the history", this.network.componentSizeAt("k0", new Date(now)), this.network.neighborhood("k0", new Date(now), status).size() + 1);
+			now += 1000L;
+			//Tear down often enough that the components keep splitting apart
+			if (!linked.isEmpty() && random.nextInt(20) < 9) {
+				idSet = linked.remove(random.nextInt(linked.size()));
+				this.network.tearDownLink(idSet, new Date(now), status);
+			} else {
+				idSet = new HashSet<String>();
+				idSet.add("k" + random.nextInt(users));
+				idSet.add("k" + random.nextInt(users));
+				if (this.network.establishLink(idSet, new Date(now), status))
+					linked.add(idSet);
+			}
+			
+			//Past the first query, every event is appended live
+			if (step >= 4000 && step % 25 == 0) {
+				String id = "k" + random.nextInt(users);
+				Date asked = new Date(date1.getTime() + random.nextInt((int) (now - date1.getTime() + 1)));
+				assertEquals("Components should match neighborhoods while appending", this.network.componentSizeAt(id, asked), this.network.neighborhood(id, asked, status).size() + 1);
+			}
+		}
+		
+		for (int query = 0; query < 200; query++) {
+			String id = "k" + random.nextInt(users);
+			Date asked = new Date(date1.getTime() + random.nextInt((int) (now - date1.getTime() + 1)));
+			assertEquals("Components should match neighborhoods", this.network.componentSizeAt(id, asked), this.network.neighborhood(id, asked, status).size() + 1);
+		}
+	}
+	
+	/**
+	 * Test approximate neighborhood sizes against the exact neighborhood sizes
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testApproximateNeighborhoodSizes() throws UninitializedObjectException {
+		NeighborhoodSizeEstimator estimator;
+		String[] ids = new String[300];
+		
+		//A chain of users, so each extra distance adds two more users in the middle
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = Integer.toString(i);
+			this.addUsers(ids[i]);
+			if (i > 0)
+				this.linkUsers(date1, ids[i - 1], ids[i]);
+		}
+		
+		assertNull("Negative distances are invalid", this.network.approximateNeighborhoodSizes(date1, -1, 10, status));
+		assertEquals("Status code should be INVALID_DISTANCE", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+		assertNull("Register bits out of range are invalid", this.network.approximateNeighborhoodSizes(date1, 3, 2, status));
+		assertEquals("Status code should be INVALID_LIMIT", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_LIMIT);
+		
+		estimator = this.network.approximateNeighborhoodSizes(date1, 100, 10, status);
+		assertEquals("Status code should be SUCCESS", this.status.getStatus(), SocialNetworkStatus.StatusCode.SUCCESS);
+		assertEquals("Unknown users have no estimate", estimator.estimateNeighborhoodSize("nobody", 1), -1, 0);
+		assertEquals("Distances past the max have no estimate", estimator.estimateNeighborhoodSize("150", 101), -1, 0);
+		
+		for (int distance: new int[] {0, 5, 40, 100}) {
+			double exact = this.network.neighborhood("150", date1, distance, status).size();
+			double estimate = estimator.estimateNeighborhoodSize("150", distance);
+			assertEquals("Estimate should be within three standard errors of the exact size", exact, estimate, 3 * estimator.getRelativeStandardError() * exact + 1);
+		}
+		
+		estimator = this.network.approximateNeighborhoodSizes(date2, 3, 10, status);
+		this.linkUsers(date2, "0", "299");
+		assertEquals("Estimates are a snapshot of the date they were made for", estimator.estimateNeighborhoodSize("0", 3), 4, 0.5);
+	}
+	
+	/**
+	 * Test that the batch activity check matches isActive for every pair and date
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testBatchIsActive() throws UninitializedObjectException {
+		Date date3 = new Date(957153600000L);		//May 1, 2000
+		List<Set<String>> pairs = new ArrayList<Set<String>>();
+		List<Date> dates = new ArrayList<Date>();
+		Set<String> idSet = new HashSet<String>();
+		BitSet active;
+		
+		this.addUsers("hub", "1", "2", "3", "4");
+		this.linkUsers(date1, "hub", "1");
+		this.linkUsers(date2, "hub", "2");
+		this.linkUsers(date1, "3", "4");
+		idSet.add("hub");
+		idSet.add("1");
+		this.network.tearDownLink(idSet, date3, status);
+		
+		for (String[] pair: new String[][] {{"hub", "1"}, {"2", "hub"}, {"hub", "3"}, {"3", "4"}, {"hub", "42"}, {"hub"}}) {
+			Set<String> pairSet = new HashSet<String>();
+			for (String id: pair)
+				pairSet.add(id);
+			pairs.add(pairSet);
+		}
+		dates.add(date1);
+		dates.add(date2);
+		dates.add(date3);
+		
+		active = this.network.isActive(pairs, dates);
+		for (int i = 0; i < pairs.size(); i++) {
+			for (int j = 0; j < dates.size(); j++)
+				assertEquals("Batch should match isActive for pair " + i + " at date " + j, this.network.isActive(pairs.get(i), dates.get(j)), active.get(i * dates.size() + j));
+		}
+		assertEquals("Only the active pairs and dates should be set", active.cardinality(), 7);
+		assertTrue("An empty batch has no active bits", this.network.isActive(new ArrayList<Set<String>>(), dates).isEmpty());
+	}
+	
+	/**
+	 * Test batch activity checks where both, one, or neither endpoint is a hub
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testBatchIsActiveWithHubs() throws UninitializedObjectException {
+		Random random = new Random(33);
+		List<Set<String>> pairs = new ArrayList<Set<String>>();
+		List<Date> dates = new ArrayList<Date>();
+		Set<String> idSet = new HashSet<String>();
+		BitSet active;
+		
+		this.addUsers("hubA", "hubB");
+		this.linkUsers(date1, "hubA", "hubB");
+		for (int i = 0; i < 150; i++) {
+			this.addUsers("leaf" + i);
+			if (i % 3 != 0)
+				this.linkUsers(new Date(date1.getTime() + i * 1000L), "hubA", "leaf" + i);
+			if (i % 2 == 0)
+				this.linkUsers(new Date(date1.getTime() + i * 1000L), "hubB", "leaf" + i);
+			if (i > 0 && i % 5 == 0)
+				this.linkUsers(date1, "leaf" + i, "leaf" + (i - 1));
+		}
+		idSet.add("hubA");
+		idSet.add("leaf7");
+		this.network.tearDownLink(idSet, date2, status);
+		
+		for (int i = 0; i < 400; i++) {
+			Set<String> pairSet = new HashSet<String>();
+			String[] choices = {"hubA", "hubB", "leaf" + random.nextInt(150), "leaf" + random.nextInt(150), "missing"};
+			pairSet.add(choices[random.nextInt(choices.length)]);
+			pairSet.add(choices[random.nextInt(choices.length)]);
+			pairs.add(pairSet);
+		}
+		dates.add(new Date(date1.getTime() - 1000));
+		dates.add(new Date(date1.getTime() + 75000));
+		dates.add(date2);
+		
+		active = this.network.isActive(pairs, dates);
+		for (int i = 0; i < pairs.size(); i++) {
+			for (int j = 0; j < dates.size(); j++)
+				assertEquals("Batch should match isActive for pair " + pairs.get(i) + " at date " + j, active.get(i * dates.size() + j), this.network.isActive(pairs.get(i), dates.get(j)));
+		}
+		assertTrue("Some hub links should be active", active.cardinality() > 0);
+	}
+	
+	/**
+	 * Test that a network keeping link events off the heap answers exactly like one that doesn't
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testOffHeapTimelines() throws UninitializedObjectException {
+		TimelineArena arena = new TimelineArena(256);
+		SocialNetwork offHeap = new SocialNetwork(arena);
+		Random random = new Random(34);
+		Set<String> idSet = new HashSet<String>();
+		SocialNetworkStatus offHeapStatus = new SocialNetworkStatus();
+		
+		for (int i = 0; i < 10; i++) {
+			this.addUsers(Integer.toString(i));
+			User user = new User();
+			user.setID(Integer.toString(i));
+			offHeap.addUser(user);
+		}
+		
+		//Random establishes and tear downs, including repeated and out of order dates
+		for (int i = 0; i < 400; i++) {
+			idSet.clear();
+			idSet.add(Integer.toString(random.nextInt(5)));
+			idSet.add(Integer.toString(5 + random.nextInt(5)));
+			Date date = new Date(date1.getTime() + random.nextInt(200) * 1000L);
+			if (random.nextBoolean())
+				assertEquals("Establish should agree", this.network.establishLink(idSet, date, status), offHeap.establishLink(idSet, date, offHeapStatus));
+			else
+				assertEquals("Tear down should agree", this.network.tearDownLink(idSet, date, status), offHeap.tearDownLink(idSet, date, offHeapStatus));
+			assertEquals("Statuses should agree", status.getStatus(), offHeapStatus.getStatus());
+		}
+		
+		for (int i = 0; i < 400; i++) {
+			idSet.clear();
+			idSet.add(Integer.toString(random.nextInt(5)));
+			idSet.add(Integer.toString(5 + random.nextInt(5)));
+			Date date = new Date(date1.getTime() + random.nextInt(220) * 1000L - 10000L);
+			assertEquals("Activity should agree", this.network.isActive(idSet, date), offHeap.isActive(idSet, date));
+		}
+		assertEquals("Trends should agree", this.network.neighborhoodTrend("0", status), offHeap.neighborhoodTrend("0", offHeapStatus));
+		
+		assertTrue("Events should be stored in the arena", arena.getUsedBytes() > 0);
+		assertTrue("The arena can't use more than it reserved", arena.getUsedBytes() <= arena.getAllocatedBytes());
+	}
+	
+	/**
+	 * Test that purging links and removing users gives their events back to the arena
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testRemovalFreesArena() throws UninitializedObjectException {
+		TimelineArena arena = new TimelineArena(1 << 12);
+		SocialNetwork offHeap = new SocialNetwork(arena);
+		Set<String> idSet = new HashSet<String>();
+		long emptyBytes = arena.getUsedBytes();
+		
+		for (String id: new String[] {"hub", "a", "b", "c"}) {
+			User user = new User();
+			user.setID(id);
+			offHeap.addUser(user);
+		}
+		for (String id: new String[] {"a", "b", "c"}) {
+			idSet.clear();
+			idSet.add("hub");
+			idSet.add(id);
+			for (int i = 0; i < 5; i++) {
+				offHeap.establishLink(idSet, new Date(date1.getTime() + 2000L * i), status);
+				offHeap.tearDownLink(idSet, new Date(date1.getTime() + 2000L * i + 1000), status);
+			}
+		}
+		assertTrue("Events should be stored in the arena", arena.getUsedBytes() > emptyBytes);
+		
+		idSet.clear();
+		idSet.add("hub");
+		idSet.add("a");
+		assertTrue("Links can be purged", offHeap.purgeLink(idSet, status));
+		assertTrue("Removing a user frees all their links", offHeap.removeUser("hub", status));
+		assertEquals("Every region should be back in the arena", arena.getUsedBytes(), emptyBytes);
+	}
+	
+	/**
+	 * Test finding members by email, phone number and name prefix, including after their fields change
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testUserIndexes() throws UninitializedObjectException {
+		User outsider = new User();
+		outsider.setID("3");
+		outsider.setEmail("outsider@case.edu");
+		
+		this.user1.setFirstName("Adam").setLastName("Gleichsner").setEmail("AMG188@case.edu").setPhoneNumber("(216) 555-0100");
+		this.network.addUser(this.user1);
+		this.network.addUser(this.user2);
+		this.user2.setFirstName("Ada").setMiddleName("Ada").setEmail("ada@case.edu");
+		
+		assertEquals("Ids should still be found", this.network.getUser("2"), this.user2);
+		assertTrue("Email should match ignoring case", this.network.findUsersByEmail("amg188@CASE.edu").contains(this.user1));
+		assertTrue("Phone should match on digits alone", this.network.findUsersByPhoneNumber("216.555.0100").contains(this.user1));
+		this.user2.setPhoneNumber("unlisted");
+		assertTrue("Numbers without digits should match nobody", this.network.findUsersByPhoneNumber("n/a").isEmpty());
+		assertTrue("Fields set after joining should be indexed", this.network.findUsersByEmail("ada@case.edu").contains(this.user2));
+		assertTrue("Non members aren't indexed", this.network.findUsersByEmail("outsider@case.edu").isEmpty());
+		
+		assertEquals("Prefix should match both first names", this.network.findUsersByNamePrefix("ad").size(), 2);
+		assertEquals("Longer prefix should match one first name", this.network.findUsersByNamePrefix("ADAM").size(), 1);
+		assertTrue("Prefix should match last names", this.network.findUsersByNamePrefix("glei").contains(this.user1));
+		assertTrue("Unknown prefixes match nobody", this.network.findUsersByNamePrefix("z").isEmpty());
+		
+		this.user1.setEmail("adam@case.edu");
+		assertTrue("Old email should be dropped on change", this.network.findUsersByEmail("amg188@case.edu").isEmpty());
+		assertTrue("New email should be found on change", this.network.findUsersByEmail("adam@case.edu").contains(this.user1));
+		
+		this.user2.setFirstName("Beth");
+		assertTrue("A name still in another field should still match", this.network.findUsersByNamePrefix("ada").contains(this.user2));
+		this.user2.setMiddleName("Jo");
+		assertFalse("A name in no field shouldn't match", this.network.findUsersByNamePrefix("ada").contains(this.user2));
+		assertTrue("New names should match", this.network.findUsersByNamePrefix("beth").contains(this.user2));
+	}
+	
+	/**
+	 * Test typo tolerant name search, with and without ranking by network distance
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testNameSearch() throws UninitializedObjectException {
+		String[][] names = {{"1", "Adam", "Gleichsner"}, {"2", "Adan", "Smith"}, {"3", "Adams", "Jones"}, {"4", "Eve", "Adam"}, {"5", "Bob", "Stone"}, {"6", "Al", "Ng"}};
+		List<NameMatch> matches;
+		
+		for (String[] name: names) {
+			User user = new User();
+			user.setID(name[0]);
+			user.setFirstName(name[1]).setLastName(name[2]);
+			this.network.addUser(user);
+		}
+		this.linkUsers(date1, "1", "3");
+		
+		assertNull("Negative edits are invalid", this.network.searchUsersByName("adam", -1, 10, status));
+		assertEquals("Status code should be INVALID_DISTANCE", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+		assertNull("Negative limits are invalid", this.network.searchUsersByName("adam", 1, -1, status));
+		assertEquals("Status code should be INVALID_LIMIT", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_LIMIT);
+		assertNull("Unknown searchers are invalid", this.network.searchUsersByName("adam", 1, 10, "42", date1, 2, status));
+		assertEquals("Status code should be INVALID_USERS", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_USERS);
+		
+		matches = this.network.searchUsersByName("adam", 0, 10, status);
+		assertEquals("Status code should be SUCCESS", this.status.getStatus(), SocialNetworkStatus.StatusCode.SUCCESS);
+		assertEquals("Exact search should match first and last names", matches.size(), 2);
+		assertEquals("Ties should go to the lower id", matches.get(0).getUser().getID(), "1");
+		
+		matches = this.network.searchUsersByName("ADAM", 1, 10, status);
+		assertEquals("One typo should also match Adan and Adams", matches.size(), 4);
+		assertEquals("Exact matches should come first", matches.get(1).getEditDistance(), 0);
+		assertEquals("Typos should come after", matches.get(2).getEditDistance(), 1);
+		assertEquals("Limit should cut the results", this.network.searchUsersByName("adam", 1, 3, status).size(), 3);
+		assertEquals("Short names should be found even when the trigram filter can't prune", this.network.searchUsersByName("AL", 1, 10, status).get(0).getUser().getID(), "6");
+		assertEquals("Transposed letters take two edits", this.network.searchUsersByName("gleichnser", 1, 10, status).size(), 0);
+		assertEquals("Transposed letters take two edits", this.network.searchUsersByName("gleichnser", 2, 10, status).size(), 1);
+		
+		matches = this.network.searchUsersByName("adan", 1, 10, "3", date1, 2, status);
+		assertEquals("The exact match still comes first", matches.get(0).getUser().getID(), "2");
+		assertEquals("Among one edit matches, the searcher's friend comes first", matches.get(1).getUser().getID(), "1");
+		assertEquals("Friends are at distance 0", matches.get(1).getNetworkDistance(), 0);
+		assertEquals("Unreached users have an unknown distance", matches.get(2).getNetworkDistance(), NameMatch.UNKNOWN_DISTANCE);
+		for (NameMatch match: matches)
+			assertFalse("The searcher is never a match", match.getUser().getID().equals("3"));
+		
+		this.network.getUser("5").setLastName("Adamo");
+		assertTrue("Renamed users should be found under their new name", this.network.searchUsersByName("adamo", 0, 10, status).get(0).getUser().getID().equals("5"));
+		assertTrue("Renamed users shouldn't be found under their old name", this.network.searchUsersByName("stone", 0, 10, status).isEmpty());
+	}
+	
+	/**
+	 * Test removing users and purging links, and that traversals and indexes forget them
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testRemoval() throws UninitializedObjectException {
+		Set<String> idSet = new HashSet<String>();
+		
+		this.addUsers("hub", "1", "2", "3");
+		this.network.getUser("2").setEmail("two@case.edu");
+		for (int i = 0; i < 20; i++) {
+			this.addUsers("leaf" + i);
+			this.linkUsers(date1, "hub", "leaf" + i);
+		}
+		this.linkUsers(date1, "1", "2");
+		this.linkUsers(date1, "2", "3");
+		this.linkUsers(date1, "hub", "1");
+		
+		assertFalse("Nonexistent users can't be removed", this.network.removeUser("42", status));
+		assertEquals("Status code should be INVALID_USERS", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_USERS);
+		
+		assertTrue("Members can be removed", this.network.removeUser("2", status));
+		assertEquals("Status code should be SUCCESS", this.status.getStatus(), SocialNetworkStatus.StatusCode.SUCCESS);
+		assertFalse("Removed users aren't members", this.network.isMember("2"));
+		assertTrue("Removed users aren't indexed", this.network.findUsersByEmail("two@case.edu").isEmpty());
+		assertEquals("Neighborhood shouldn't go through a removed user", this.network.neighborhood("1", date1, status).size(), 21);
+		assertFalse("Removed users' links are gone", this.network.areConnected("1", "3", date1));
+		
+		this.addUsers("2");
+		this.linkUsers(date2, "2", "3");
+		idSet.add("2");
+		idSet.add("3");
+		assertFalse("A returning user starts with no history", this.network.isActive(idSet, date1));
+		assertTrue("A returning user can link again", this.network.isActive(idSet, date2));
+		
+		assertFalse("Links that don't exist can't be purged", this.network.purgeLink(this.ids, status));
+		assertEquals("Status code should be ALREADY_INACTIVE", this.status.getStatus(), SocialNetworkStatus.StatusCode.ALREADY_INACTIVE);
+		assertTrue("Existing links can be purged", this.network.purgeLink(idSet, status));
+		assertFalse("Purged links are never active", this.network.isActive(idSet, date2));
+		assertTrue("Purged links can be established again", this.network.establishLink(idSet, date1, status));
+		
+		for (int i = 0; i < 15; i++)
+			assertTrue("Leaves can be removed", this.network.removeUser("leaf" + i, status));
+		assertEquals("Neighborhood of the hub shrinks with each removal", this.network.neighborhood("hub", date1, 0, status).size(), 6);
+		assertEquals("The hub was compacted once half its list was tombstones, so only later ones are left", this.network.compact(), 8);
+		assertEquals("Nothing is left to compact", this.network.compact(), 0);
+		assertEquals("Compacting doesn't change answers", this.network.neighborhood("hub", date1, 0, status).size(), 6);
+	}
+	
+	/**
+	 * Tests that standing neighborhoods match a fresh search after every change and report what moved
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testStandingNeighborhood() throws UninitializedObjectException {
+		final List<NeighborhoodDelta> deltas = new ArrayList<NeighborhoodDelta>();
+		NeighborhoodListener listener = new NeighborhoodListener() {
+			@Override
+			public void neighborhoodChanged(String id, NeighborhoodDelta delta) {
+				deltas.add(delta);
+			}
+		};
+		Date future = new Date(Long.MAX_VALUE);
+		Random random = new Random(40);
+		StandingNeighborhood whole;
+		StandingNeighborhood near;
+		StandingNeighborhood chain;
+		Set<String> idSet;
+		long time = date1.getTime();
+		
+		this.addUsers("a", "b", "c", "d");
+		assertNull("Nonexistent users can't be watched", this.network.watchNeighborhood("42", listener, status));
+		assertEquals("Status code should be INVALID_USERS", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_USERS);
+		assertNull("Negative distances can't be watched", this.network.watchNeighborhood("a", -1, listener, status));
+		assertEquals("Status code should be INVALID_DISTANCE", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+		
+		chain = this.network.watchNeighborhood("a", listener, status);
+		assertEquals("Status code should be SUCCESS", this.status.getStatus(), SocialNetworkStatus.StatusCode.SUCCESS);
+		this.linkUsers(date1, "a", "b");
+		this.linkUsers(date1, "b", "c");
+		this.linkUsers(date1, "c", "d");
+		assertEquals("Each link reports one new user", deltas.size(), 3);
+		assertEquals("The last link added d two links past a's friend", deltas.get(2).getAdded().iterator().next().getDistance(), 2);
+		
+		this.linkUsers(date1, "a", "d");
+		assertEquals("A shortcut only moves d", deltas.get(3).getChanged().size(), 1);
+		assertTrue("A shortcut adds no one", deltas.get(3).getAdded().isEmpty());
+		
+		idSet = new HashSet<String>();
+		idSet.add("a");
+		idSet.add("b");
+		this.network.tearDownLink(idSet, date2, status);
+		assertEquals("Tearing down a-b only moves b, to the far side of the loop", deltas.get(4).getChanged().size(), 1);
+		assertEquals("The watch agrees with a fresh search", this.distancesOf(chain.getNeighborhood()), this.distancesOf(this.network.neighborhood("a", future, status)));
+		
+		this.network.removeUser("d", status);
+		assertEquals("Removing d cuts off everyone", chain.getNeighborhood().size(), 0);
+		assertEquals("Each removed user is reported", deltas.get(deltas.size() - 1).getRemoved().size() + deltas.get(deltas.size() - 2).getRemoved().size(), 3);
+		chain.close();
+		assertTrue("Closed watches say so", chain.isClosed());
+		
+		//Random establishes and tear downs, checked against a fresh search after each
+		for (int i = 0; i < 30; i++)
+			this.addUsers("r" + i);
+		whole = this.network.watchNeighborhood("r0", null, status);
+		near = this.network.watchNeighborhood("r0", 2, null, status);
+		for (int step = 0; step < 400; step++) {
+			idSet = new HashSet<String>();
+			idSet.add("r" + random.nextInt(30));
+			idSet.add("r" + random.nextInt(30));
+			if (idSet.size() < 2)
+				continue;
+			time += 1000;
+			if (!this.network.establishLink(idSet, new Date(time), status))
+				this.network.tearDownLink(idSet, new Date(time), status);
+			if (step % 50 == 0)
+				this.network.purgeLink(idSet, status);
+			assertEquals("Whole watch agrees with a fresh search", this.distancesOf(whole.getNeighborhood()), this.distancesOf(this.network.neighborhood("r0", future, status)));
+			assertEquals("Bounded watch agrees with a fresh search", this.distancesOf(near.getNeighborhood()), this.distancesOf(this.network.neighborhood("r0", future, 2, status)));
+		}
+		
+		this.network.removeUser("r0", status);
+		assertTrue("Watches of a removed user stop", whole.isClosed());
+		assertEquals("Watches of a removed user are empty", near.getNeighborhood().size(), 0);
+	}
+	
+	/**
+	 * Tests that neighborhood diffs match diffing two full neighborhoods
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testNeighborhoodDiff() throws UninitializedObjectException {
+		Random random = new Random(41);
+		Set<String> idSet;
+		NeighborhoodDelta delta;
+		long time = date1.getTime();
+		
+		for (int i = 0; i < 25; i++)
+			this.addUsers("r" + i);
+		assertNull("Nonexistent users can't be diffed", this.network.neighborhoodDiff("42", date1, date2, status));
+		assertEquals("Status code should be INVALID_USERS", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_USERS);
+		assertNull("Negative distances can't be diffed", this.network.neighborhoodDiff("r0", date1, date2, -1, status));
+		assertEquals("Status code should be INVALID_DISTANCE", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+		assertTrue("Nothing changes without links", this.network.neighborhoodDiff("r0", date1, date2, status).isEmpty());
+		assertEquals("Status code should be SUCCESS", this.status.getStatus(), SocialNetworkStatus.StatusCode.SUCCESS);
+		
+		for (int step = 0; step < 300; step++) {
+			idSet = new HashSet<String>();
+			idSet.add("r" + random.nextInt(25));
+			idSet.add("r" + random.nextInt(25));
+			if (idSet.size() < 2)
+				continue;
+			time += 1000;
+			if (!this.network.establishLink(idSet, new Date(time), status))
+				this.network.tearDownLink(idSet, new Date(time), status);
+		}
+		
+		for (int check = 0; check < 40; check++) {
+			Date from = new Date(date1.getTime() + random.nextInt(300) * 1000L);
+			Date to = new Date(date1.getTime() + random.nextInt(300) * 1000L);
+			String id = "r" + random.nextInt(25);
+			int distance = random.nextInt(4);
+			this.checkDiff(this.network.neighborhoodDiff(id, from, to, status), this.network.neighborhood(id, from, status), this.network.neighborhood(id, to, status));
+			this.checkDiff(this.network.neighborhoodDiff(id, from, to, distance, status),
+					this.network.neighborhood(id, from, distance, status), this.network.neighborhood(id, to, distance, status));
+		}
+		
+		delta = this.network.neighborhoodDiff("r0", date2, date2, status);
+		assertTrue("A date diffed against itself has no changes", delta.isEmpty());
+		
+		//A sparse network, where links that change far from the user only matter once other
+		//changed links bring them into reach
+		for (int i = 0; i < 80; i++)
+			this.addUsers("q" + i);
+		for (int step = 0; step < 150; step++) {
+			idSet = new HashSet<String>();
+			idSet.add("q" + random.nextInt(80));
+			idSet.add("q" + random.nextInt(80));
+			if (idSet.size() < 2)
+				continue;
+			time += 1000;
+			if (!this.network.establishLink(idSet, new Date(time), status))
+				this.network.tearDownLink(idSet, new Date(time), status);
+		}
+		for (int check = 0; check < 40; check++) {
+			Date from = new Date(date1.getTime() + 300000L + random.nextInt(150) * 1000L);
+			Date to = new Date(date1.getTime() + 300000L + random.nextInt(150) * 1000L);
+			String id = "q" + random.nextInt(80);
+			this.checkDiff(this.network.neighborhoodDiff(id, from, to, status), this.network.neighborhood(id, from, status), this.network.neighborhood(id, to, status));
+			this.checkDiff(this.network.neighborhoodDiff(id, from, to, 2, status),
+					this.network.neighborhood(id, from, 2, status), this.network.neighborhood(id, to, 2, status));
+		}
+	}
+	
+	/**
+	 * Tests that a neighborhood diff asks timelines less than the two neighborhoods it
+	 * replaces, and stays right as events are appended after it
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testNeighborhoodDiffLookups() throws UninitializedObjectException {
+		Random random = new Random(7);
+		QueryStats diffStats = new QueryStats();
+		QueryStats fromStats = new QueryStats();
+		QueryStats toStats = new QueryStats();
+		Set<String> idSet;
+		long time = date1.getTime();
+		
+		for (int i = 0; i < 300; i++)
+			this.addUsers("s" + i);
+		for (int step = 0; step < 3500; step++) {
+			idSet = new HashSet<String>();
+			idSet.add("s" + random.nextInt(300));
+			idSet.add("s" + random.nextInt(300));
+			if (idSet.size() < 2)
+				continue;
+			time += 1000;
+			if (!this.network.establishLink(idSet, new Date(time), status))
+				this.network.tearDownLink(idSet, new Date(time), status);
+			
+			//Diffs between live appends read the events without re-indexing them
+			if (step >= 3000 && step % 50 == 0) {
+				Date from = new Date(time - 20000);
+				Date to = new Date(time - random.nextInt(20000));
+				String id = "s" + random.nextInt(300);
+				this.checkDiff(this.network.neighborhoodDiff(id, from, to, status, diffStats),
+						this.network.neighborhood(id, from, status, fromStats), this.network.neighborhood(id, to, status, toStats));
+				assertTrue("A diff asks fewer timelines than two neighborhoods",
+						diffStats.getActivityChecks() < fromStats.getActivityChecks() + toStats.getActivityChecks());
+				this.checkDiff(this.network.neighborhoodDiff(id, to, from, 2, status, diffStats),
+						this.network.neighborhood(id, to, 2, status, toStats), this.network.neighborhood(id, from, 2, status, fromStats));
+				assertTrue("A bounded diff asks fewer timelines than two neighborhoods",
+						diffStats.getActivityChecks() < fromStats.getActivityChecks() + toStats.getActivityChecks());
+				assertEquals("A diff is one search", diffStats.getSearches(), 1);
+			}
+		}
+		
+		//An event older than the newest one re-indexes the events on the next diff
+		this.addUsers("late");
+		idSet = new HashSet<String>();
+		idSet.add("s0");
+		idSet.add("late");
+		assertTrue("A new link can start before the newest event", this.network.establishLink(idSet, new Date(time - 10500), status));
+		this.checkDiff(this.network.neighborhoodDiff("s0", new Date(time - 20000), new Date(time), status),
+				this.network.neighborhood("s0", new Date(time - 20000), status), this.network.neighborhood("s0", new Date(time), status));
+	}
+	
+	/**
+	 * Tests that distance histograms count the same users as neighborhood
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testDistanceHistogram() throws UninitializedObjectException {
+		Random random = new Random(42);
+		Set<String> idSet;
+		int[] counts;
+		int[] histogram;
+		
+		for (int i = 0; i < 30; i++)
+			this.addUsers("r" + i);
+		assertNull("Nonexistent users have no histogram", this.network.distanceHistogram("42", date1, status));
+		assertEquals("Status code should be INVALID_USERS", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_USERS);
+		assertNull("Negative distances have no histogram", this.network.distanceHistogram("r0", date1, -1, status));
+		assertEquals("Status code should be INVALID_DISTANCE", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_DISTANCE);
+		assertEquals("Users without links have an empty histogram", this.network.distanceHistogram("r0", date1, status).length, 0);
+		assertEquals("Status code should be SUCCESS", this.status.getStatus(), SocialNetworkStatus.StatusCode.SUCCESS);
+		assertEquals("Bounded histograms always have a count per distance", this.network.distanceHistogram("r0", date1, 3, status).length, 4);
+		
+		for (int i = 0; i < 45; i++) {
+			idSet = new HashSet<String>();
+			idSet.add("r" + random.nextInt(30));
+			idSet.add("r" + random.nextInt(30));
+			if (idSet.size() == 2)
+				this.network.establishLink(idSet, random.nextBoolean() ? date1 : date2, status);
+		}
+		
+		for (int i = 0; i < 30; i++) {
+			counts = new int[30];
+			for (Friend friend: this.network.neighborhood("r" + i, date2, status))
+				counts[friend.getDistance()]++;
+			histogram = this.network.distanceHistogram("r" + i, date2, status);
+			for (int distance = 0; distance < counts.length; distance++)
+				assertEquals("Counts match the neighborhood", distance < histogram.length ? histogram[distance] : 0, counts[distance]);
+			assertTrue("Histograms end at the farthest user", histogram.length == 0 || histogram[histogram.length - 1] > 0);
+			assertArrayEquals("Bounded histograms are cut off at the distance", this.network.distanceHistogram("r" + i, date2, 1, status), Arrays.copyOf(counts, 2));
+		}
+	}
+	
+	/**
+	 * Tests that a reorder window applies late events in date order and rejects ones past the watermark
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testReorderWindow() throws UninitializedObjectException {
+		SocialNetwork ordered = new SocialNetwork();
+		ReorderWindow window;
+		Random random = new Random(43);
+		List<long[]> events = new ArrayList<long[]>();
+		Set<String> idSet;
+		long time = date1.getTime();
+		
+		assertNull("Negative windows are invalid", this.network.openReorderWindow(-1, 10, status));
+		assertEquals("Status code should be INVALID_DATE", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_DATE);
+		assertNull("Windows need room for an event", this.network.openReorderWindow(1000, 0, status));
+		assertEquals("Status code should be INVALID_LIMIT", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_LIMIT);
+		window = this.network.openReorderWindow(5000, 64, status);
+		assertEquals("Status code should be SUCCESS", this.status.getStatus(), SocialNetworkStatus.StatusCode.SUCCESS);
+		
+		for (int i = 0; i < 6; i++) {
+			this.addUsers("r" + i);
+			User user = new User();
+			user.setID("r" + i);
+			ordered.addUser(user);
+		}
+		assertFalse("Events need members", window.establishLink(this.ids, date1, status));
+		assertEquals("Status code should be INVALID_USERS", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_USERS);
+		
+		//Each pair alternates establish and tear down, a second apart
+		for (int i = 0; i < 300; i++) {
+			int first = random.nextInt(6);
+			int second = (first + 1 + random.nextInt(5)) % 6;
+			time += 1000;
+			events.add(new long[] {Math.min(first, second), Math.max(first, second), time, 0});
+		}
+		for (long[] event: events) {
+			idSet = this.pairOf(event);
+			if (!ordered.establishLink(idSet, new Date(event[2]), status))
+				ordered.tearDownLink(idSet, new Date(event[2]), status);
+			event[2] = ordered.isActive(idSet, new Date(event[2])) ? event[2] : -event[2];
+		}
+		
+		//Deliver each event with up to four seconds of delay, so it can arrive after later ones
+		for (long[] event: events)
+			event[3] = Math.abs(event[2]) + random.nextInt(4000);
+		Collections.sort(events, new Comparator<long[]>() {
+			@Override
+			public int compare(long[] event1, long[] event2) {
+				return event1[3] < event2[3] ? -1 : (event1[3] == event2[3] ? 0 : 1);
+			}
+		});
+		for (long[] event: events) {
+			idSet = this.pairOf(event);
+			if (event[2] > 0)
+				assertTrue("Late events within the window are buffered", window.establishLink(idSet, new Date(event[2]), status));
+			else
+				assertTrue("Late events within the window are buffered", window.tearDownLink(idSet, new Date(-event[2]), status));
+			assertTrue("The buffer stays within its capacity", window.getBufferedCount() <= window.getCapacity());
+		}
+		window.flush();
+		
+		assertEquals("Every event was applied", window.getAppliedCount(), events.size());
+		assertEquals("No event failed", window.getFailedCount(), 0);
+		for (long[] event: events) {
+			idSet = this.pairOf(event);
+			Date date = new Date(Math.abs(event[2]));
+			assertEquals("Histories match applying the events in order", this.network.isActive(idSet, date), ordered.isActive(idSet, date));
+		}
+		
+		assertFalse("Events older than the watermark are rejected", window.establishLink(this.pairOf(events.get(0)), date1, status));
+		assertEquals("Status code should be INVALID_DATE", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_DATE);
+		assertEquals("Rejections are counted", window.getRejectedCount(), 1);
+		
+		//A window with room for one event releases each one as the next arrives
+		window = this.network.openReorderWindow(Long.MAX_VALUE / 2, 1, status);
+		idSet = this.pairOf(new long[] {0, 1});
+		window.establishLink(idSet, new Date(time + 2000), status);
+		window.tearDownLink(idSet, new Date(time + 1000), status);
+		assertEquals("A full buffer releases its oldest event", window.getAppliedCount(), 1);
+		assertEquals("Releasing early moves the watermark up", window.getWatermark(), new Date(time + 2000));
+	}
+	
+	/**
+	 * Helper that turns the user numbers of an event into a set of ids
+	 * @param event - event whose first two entries number the users
+	 * @return Set<String> - ids of the two users
+	 */
+	private Set<String> pairOf(long[] event) {
+		Set<String> returnSet = new HashSet<String>();
+		returnSet.add("r" + event[0]);
+		returnSet.add("r" + event[1]);
+		return returnSet;
+	}
+	
+	/**
+	 * Tests backfilling link history through the network
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testBackfillLink() throws UninitializedObjectException {
+		this.addUsers("1", "2");
+		
+		assertTrue("Backfills make a link if there's none", this.network.backfillLink(this.ids, date1, date2, status));
+		assertTrue("Backfilled links are active in between", this.network.isActive(this.ids, new Date(date1.getTime() + 1)));
+		assertFalse("Backfilled links are torn down afterwards", this.network.isActive(this.ids, date2));
+		assertTrue("Links can still be established after", this.network.establishLink(this.ids, date2, status));
+		assertTrue("Earlier pairs can be backfilled", this.network.backfillLink(this.ids, new Date(date1.getTime() - 2000), new Date(date1.getTime() - 1000), status));
+		assertEquals("Backfills show up in neighborhoods at that date", this.network.distanceHistogram("1", new Date(date1.getTime() - 1500), status)[0], 1);
+		assertFalse("Backfills can't overlap history", this.network.backfillLink(this.ids, new Date(date1.getTime() - 500), new Date(date1.getTime() + 500), status));
+		assertEquals("Status code should be INVALID_DATE", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_DATE);
+		assertFalse("Backfills need the dates in order", this.network.backfillLink(this.ids, date2, date1, status));
+		assertEquals("Status code should be INVALID_DATE", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_DATE);
+		this.ids.add("42");
+		this.ids.remove("2");
+		assertFalse("Backfills need members", this.network.backfillLink(this.ids, date1, date2, status));
+		assertEquals("Status code should be INVALID_USERS", this.status.getStatus(), SocialNetworkStatus.StatusCode.INVALID_USERS);
+	}
+	
+	/**
+	 * Tests that a user's links keep working as they grow past the hub threshold and shrink back
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testHubLinks() throws UninitializedObjectException {
+		Set<String> idSet = new HashSet<String>();
+		
+		this.addUsers("hub");
+		for (int i = 0; i < 100; i++) {
+			this.addUsers("spoke" + i);
+			this.linkUsers(date1, "hub", "spoke" + i);
+		}
+		idSet.add("hub");
+		idSet.add("spoke77");
+		assertEquals("A hub's neighborhood holds every spoke", this.network.neighborhood("hub", date2, status).size(), 100);
+		assertEquals("Spokes reach each other through the hub", this.network.neighborhood("spoke3", date2, status).size(), 100);
+		assertTrue("Hub links are found", this.network.isActive(idSet, date2));
+		assertTrue("Hub links can be torn down", this.network.tearDownLink(idSet, date2, status));
+		assertFalse("Hub links stay torn down", this.network.isActive(idSet, date2));
+		assertFalse("Hub links can't be torn down twice", this.network.tearDownLink(idSet, date2, status));
+		assertEquals("Status code should be ALREADY_INACTIVE", this.status.getStatus(), SocialNetworkStatus.StatusCode.ALREADY_INACTIVE);
+		
+		for (int i = 0; i < 95; i++) {
+			if (i != 77)
+				assertTrue("Spokes can be removed", this.network.removeUser("spoke" + i, status));
+		}
+		this.network.compact();
+		idSet.remove("spoke77");
+		idSet.add("spoke99");
+		assertTrue("Links are still found once the hub shrinks", this.network.isActive(idSet, date1));
+		assertTrue("Links can be purged once the hub shrinks", this.network.purgeLink(idSet, status));
+		assertFalse("Purged links aren't found", this.network.isActive(idSet, date1));
+		assertTrue("Purged links can be made again", this.network.establishLink(idSet, date2, status));
+		assertEquals("The hub keeps its remaining friends", this.network.neighborhood("hub", date2, 0, status).size(), 5);
+	}
+	
+	/**
+	 * Tests that direction optimizing neighborhoods match top-down ones on a hub-heavy network
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testDirectionOptimizing() throws UninitializedObjectException {
+		Random random = new Random(49);
+		ArrayList<String> ends = new ArrayList<String>();
+		Map<String, Integer> topDown;
+		
+		assertEquals("Networks start top-down", this.network.getTraversalMode(), SocialNetwork.TraversalMode.TOP_DOWN);
+		
+		//Preferential attachment, so a few users end up with most of the links
+		this.addUsers("p0", "p1");
+		this.linkUsers(date1, "p0", "p1");
+		ends.add("p0");
+		ends.add("p1");
+		for (int i = 2; i < 300; i++) {
+			this.addUsers("p" + i);
+			for (int j = 0; j < 2; j++) {
+				String other = ends.get(random.nextInt(ends.size()));
+				Set<String> idSet = new HashSet<String>();
+				idSet.add("p" + i);
+				idSet.add(other);
+				if (this.network.establishLink(idSet, new Date(date1.getTime() + random.nextInt(1000000)), status)) {
+					ends.add("p" + i);
+					ends.add(other);
+					if (random.nextInt(5) == 0)
+						this.network.tearDownLink(idSet, new Date(date2.getTime() - random.nextInt(1000000)), status);
+				}
+			}
+		}
+		for (int i = 0; i < 300; i += 37)
+			this.network.removeUser("p" + (i + 5), status);
+		
+		for (int i = 0; i < 300; i += 23) {
+			if (!this.network.isMember("p" + i))
+				continue;
+			for (int distance = 0; distance < 4; distance++) {
+				this.network.setTraversalMode(SocialNetwork.TraversalMode.TOP_DOWN);
+				topDown = this.distancesOf(this.network.neighborhood("p" + i, date2, distance, status));
+				this.network.setTraversalMode(SocialNetwork.TraversalMode.DIRECTION_OPTIMIZING);
+				assertEquals("Bounded neighborhoods match", this.distancesOf(this.network.neighborhood("p" + i, date2, distance, status)), topDown);
+			}
+			this.network.setTraversalMode(SocialNetwork.TraversalMode.TOP_DOWN);
+			topDown = this.distancesOf(this.network.neighborhood("p" + i, date2, status));
+			this.network.setTraversalMode(SocialNetwork.TraversalMode.DIRECTION_OPTIMIZING);
+			assertEquals("Unbounded neighborhoods match", this.distancesOf(this.network.neighborhood("p" + i, date2, status)), topDown);
+			assertEquals("Status code should be SUCCESS", this.status.getStatus(), SocialNetworkStatus.StatusCode.SUCCESS);
+		}
+		assertNull("Missing users still have no neighborhood", this.network.neighborhood("nobody", date2, status));
+	}
+	
+	/**
+	 * Tests the work recorded by queries that are handed stats
+	 * @throws UninitializedObjectException
+	 */
+	@Test
+	public void testQueryStats() throws UninitializedObjectException {
+		QueryStats stats = new QueryStats();
+		QueryStats pushStats = new QueryStats();
+		Map<Date, Integer> trend;
+		
+		//Chain s0 - s1 - s2 - s3, plus a star around s0
+		this.addUsers("s0", "s1", "s2", "s3");
+		this.linkUsers(date1, "s0", "s1");
+		this.linkUsers(date1, "s1", "s2");
+		this.linkUsers(date2, "s2", "s3");
+		for (int i = 0; i < 40; i++) {
+			this.addUsers("star" + i);
+			this.linkUsers(date1, "s0", "star" + i);
+		}
+		
+		assertEquals("Stats don't change answers", this.distancesOf(this.network.neighborhood("s0", date2, 1, status, stats)), this.distancesOf(this.network.neighborhood("s0", date2, 1, status)));
+		assertEquals("One search ran", stats.getSearches(), 1L);
+		assertEquals("The source, its friends and s2 were visited", stats.getUsersVisited(), 43L);
+		assertTrue("Every link of every expanded user was examined", stats.getLinksExamined() >= 41 + 2 + 40);
+		assertTrue("Links were checked for activity", stats.getActivityChecks() > 0);
+		assertTrue("Every check looks at a timeline entry", stats.getTimelineEntriesScanned() >= stats.getActivityChecks());
+		assertTrue("Levels are counted", stats.getLevels() >= 2);
+		assertEquals("Top-down searches never go bottom-up", stats.getBottomUpLevels(), 0L);
+		assertTrue("Allocations are estimated", stats.getAllocatedBytes() > 0);
+		assertTrue("Search phases are timed", stats.getPhaseNanos().containsKey("traverse") && stats.getPhaseNanos().containsKey("results"));
+		assertTrue("Total time covers the phases", stats.getTotalNanos() >= stats.getPhaseNanos().get("traverse"));
+		
+		this.network.neighborhood("s3", date2, status, stats);
+		assertEquals("Stats are cleared by each query", stats.getSearches(), 1L);
+		assertNull("Missing users have no neighborhood", this.network.neighborhood("nobody", date2, status, stats));
+		assertEquals("Missing users aren't searched", stats.getSearches(), 0L);
+		
+		trend = this.network.neighborhoodTrend("s3", status, stats);
+		assertEquals("Trend searches once now, then once per date", stats.getSearches(), (long) trend.size() + 1);
+		assertTrue("Trend phases are timed", stats.getPhaseNanos().containsKey("dates") && stats.getPhaseNanos().containsKey("count"));
+		
+		this.network.neighborhood("s1", date2, status, pushStats);
+		this.network.setTraversalMode(SocialNetwork.TraversalMode.DIRECTION_OPTIMIZING);
+		this.network.neighborhood("s1", date2, status, stats);
+		assertTrue("Pulling skips links into users already reached", stats.getBottomUpLevels() > 0);
+		assertTrue("Direction optimizing examines fewer links", stats.getLinksExamined() < pushStats.getLinksExamined());
+		assertEquals("Both modes visit the same users", stats.getUsersVisited(), pushStats.getUsersVisited());
+		
+		try {
+			this.network.neighborhood("s0", date2, status, null);
+			fail("Stats can't be null");
+		} catch (NullPointerException e) {
+		}
+	}
+	
+	/**
+	 * Helper that checks a delta against the two neighborhoods it should be the difference of
+	 * @param delta - delta to check
+	 * @param before - neighborhood at the first date
+	 * @param after - neighborhood at the second date
+	 * @throws UninitializedObjectException
+	 */
+	private void checkDiff(NeighborhoodDelta delta, Set<Friend> before, Set<Friend> after) throws UninitializedObjectException {
+		Map<String, Integer> beforeMap = this.distancesOf(before);
+		Map<String, Integer> afterMap = this.distancesOf(after);
+		Map<String, Integer> added = new HashMap<String, Integer>();
+		Map<String, Integer> changed = new HashMap<String, Integer>();
+		Set<String> removed = new HashSet<String>();
+		
+		for (Map.Entry<String, Integer> entry: afterMap.entrySet()) {
+			if (!beforeMap.containsKey(entry.getKey()))
+				added.put(entry.getKey(), entry.getValue());
+			else if (!beforeMap.get(entry.getKey()).equals(entry.getValue()))
+				changed.put(entry.getKey(), entry.getValue());
+		}
+		for (String id: beforeMap.keySet()) {
+			if (!afterMap.containsKey(id))
+				removed.add(id);
+		}
+		for (User user: delta.getRemoved())
+			assertTrue("Removed users left the neighborhood", removed.remove(user.getID()));
+		
+		assertEquals("Added users match", this.distancesOf(delta.getAdded()), added);
+		assertEquals("Changed users match", this.distancesOf(delta.getChanged()), changed);
+		assertTrue("Every user who left is removed", removed.isEmpty());
+	}
+	
+	/**
+	 * Helper that turns a neighborhood into a map of ids to distances, for comparing sets
+	 * @param friends - neighborhood to convert
+	 * @return Map<String, Integer> - ids of the friends and their distances
+	 * @throws UninitializedObjectException
+	 */
+	private Map<String, Integer> distancesOf(Set<Friend> friends) throws UninitializedObjectException {
+		Map<String, Integer> returnMap = new HashMap<String, Integer>();
+		for (Friend friend: friends)
+			returnMap.put(friend.getUser().getID(), friend.getDistance());
+		return returnMap;
+	}
+	
+	/**
+	 * Helper that adds a fresh user for each id to the network
+	 * @param ids - ids of the users to add
+	 */
+	private void addUsers(String... ids) {
+		User user;
+		for (String id: ids) {
+			user = new User();
+			user.setID(id);
+			this.network.addUser(user);
+		}
+	}
+	
+	/**
+	 * Helper that establishes a link between two users on the given date
+	 * @param date - date to establish on
+	 * @param id1 - id of the first user
+	 * @param id2 - id of the second user
+	 * @throws UninitializedObjectException
+	 */
+	private void linkUsers(Date date, String id1, String id2) throws UninitializedObjectException {
+		Set<String> idSet = new HashSet<String>();
+		idSet.add(id1);
+		idSet.add(id2);
+		this.network.establishLink(idSet, date, this.status);
+	}
+	
 	private <T> boolean setsAreEqual(Set<T> set1, Set<T> set2) {
 		for (T item: set1) {
 			if (set2.contains(item)) {